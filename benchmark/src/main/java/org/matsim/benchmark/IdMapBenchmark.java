@@ -0,0 +1,148 @@
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdDoubleMap;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link HashMap}, {@link IdMap} and {@link IdDoubleMap} for the access pattern of event handlers: per event,
+ * the value of one person is read or updated, in no particular order of the persons.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.IdMapBenchmark</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdMapBenchmark {
+
+	@Param({"10000", "1000000"})
+	public int numberOfIds;
+
+	private List<Id<Person>> ids;
+
+	private Map<Id<Person>, Double> hashMap;
+	private Map<Id<Person>, Double> concurrentHashMap;
+	private IdMap<Person, Double> idMap;
+	private IdDoubleMap<Person> idDoubleMap;
+	private IdDoubleMap<Person> concurrentIdDoubleMap;
+
+	@Setup
+	public void setup() {
+		this.ids = new ArrayList<>(this.numberOfIds);
+		for (int i = 0; i < this.numberOfIds; i++) {
+			this.ids.add(Id.create("benchmark-" + i, Person.class));
+		}
+		Collections.shuffle(this.ids, new Random(4711));
+
+		this.hashMap = new HashMap<>();
+		this.concurrentHashMap = new ConcurrentHashMap<>();
+		this.idMap = new IdMap<>(Person.class);
+		this.idDoubleMap = new IdDoubleMap<>(Person.class);
+		this.concurrentIdDoubleMap = IdDoubleMap.createConcurrent(Person.class);
+		for (Id<Person> id : this.ids) {
+			this.hashMap.put(id, 1.0);
+			this.concurrentHashMap.put(id, 1.0);
+			this.idMap.put(id, 1.0);
+			this.idDoubleMap.put(id, 1.0);
+			this.concurrentIdDoubleMap.put(id, 1.0);
+		}
+	}
+
+	@Benchmark
+	public void getHashMap(Blackhole blackhole) {
+		for (Id<Person> id : this.ids) {
+			blackhole.consume(this.hashMap.get(id).doubleValue());
+		}
+	}
+
+	@Benchmark
+	public void getIdMap(Blackhole blackhole) {
+		for (Id<Person> id : this.ids) {
+			blackhole.consume(this.idMap.get(id).doubleValue());
+		}
+	}
+
+	@Benchmark
+	public void getIdDoubleMap(Blackhole blackhole) {
+		for (Id<Person> id : this.ids) {
+			blackhole.consume(this.idDoubleMap.get(id));
+		}
+	}
+
+	@Benchmark
+	public void addHashMap() {
+		for (Id<Person> id : this.ids) {
+			this.hashMap.merge(id, 1.0, Double::sum);
+		}
+	}
+
+	@Benchmark
+	public void addIdMap() {
+		for (Id<Person> id : this.ids) {
+			this.idMap.put(id, this.idMap.get(id) + 1.0);
+		}
+	}
+
+	@Benchmark
+	public void addIdDoubleMap() {
+		for (Id<Person> id : this.ids) {
+			this.idDoubleMap.add(id, 1.0);
+		}
+	}
+
+	@Benchmark
+	public void addConcurrentIdDoubleMap_singleThread() {
+		for (Id<Person> id : this.ids) {
+			this.concurrentIdDoubleMap.add(id, 1.0);
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void addConcurrentHashMap_fourThreads() {
+		for (Id<Person> id : this.ids) {
+			this.concurrentHashMap.merge(id, 1.0, Double::sum);
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void addConcurrentIdDoubleMap_fourThreads() {
+		for (Id<Person> id : this.ids) {
+			this.concurrentIdDoubleMap.add(id, 1.0);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(IdMapBenchmark.class.getSimpleName()).build()).run();
+	}
+}
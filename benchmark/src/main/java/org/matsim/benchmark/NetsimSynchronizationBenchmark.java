@@ -0,0 +1,109 @@
+package org.matsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimSynchronization;
+import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead per time step of synchronizing the threads of the netsim, for the thread pool and the barrier
+ * variant.  The qsim runs over an empty grid network without agents, so the threads have nothing to do but to wait
+ * for each other.  The results are per simulated time step.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.NetsimSynchronizationBenchmark</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetsimSynchronizationBenchmark {
+
+	private static final int TIME_STEPS = 3600;
+	private static final int GRID_SIZE = 20;
+
+	@Param({"1", "2", "4", "8", "16", "32", "64"})
+	public int numberOfThreads;
+
+	@Param({"threadpool", "barrier"})
+	public NetsimSynchronization netsimSynchronization;
+
+	private Scenario scenario;
+	private QSim qsim;
+
+	@Setup(Level.Trial)
+	public void createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(this.numberOfThreads);
+		config.qsim().setNetsimSynchronization(this.netsimSynchronization);
+		config.qsim().setStartTime(0);
+		config.qsim().setEndTime(TIME_STEPS - 1);
+		config.qsim().setSimStarttimeInterpretation(StarttimeInterpretation.onlyUseStarttime);
+		config.qsim().setSimEndtimeInterpretation(EndtimeInterpretation.onlyUseEndtime);
+		this.scenario = ScenarioUtils.createScenario(config);
+
+		Network network = this.scenario.getNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+				if (x > 0) {
+					addLinks(network, nodes[x - 1][y], nodes[x][y]);
+				}
+				if (y > 0) {
+					addLinks(network, nodes[x][y - 1], nodes[x][y]);
+				}
+			}
+		}
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1.getId() + "-" + node2.getId()), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2.getId() + "-" + node1.getId()), node2, node1, 100, 10, 1000, 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void createQSim() {
+		this.qsim = new QSimBuilder(this.scenario.getConfig()).useDefaults().build(this.scenario, EventsUtils.createEventsManager());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TIME_STEPS)
+	public void runTimeSteps() {
+		this.qsim.run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(NetsimSynchronizationBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -19,16 +19,23 @@
 
 package org.matsim.contrib.drt.optimizer;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.schedule.DrtStopTask;
@@ -204,24 +211,50 @@ public class VehicleData {
 
 	private final double currentTime;
 	private final EntryFactory entryFactory;
+	// ordered by vehicle id index if the spatial index is used
 	private final Map<Id<DvrpVehicle>, Entry> entries;
+	@Nullable
+	private final VehicleEntrySpatialIndex spatialIndex;
 
 	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
 			ForkJoinPool forkJoinPool) {
+		this(currentTime, vehicles, entryFactory, forkJoinPool, null);
+	}
+
+	/**
+	 * @param spatialIndex filled with the entries of this vehicle data (and cleared of the previous ones)
+	 */
+	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
+			ForkJoinPool forkJoinPool, @Nullable VehicleEntrySpatialIndex spatialIndex) {
 		this.currentTime = currentTime;
 		this.entryFactory = entryFactory;
+		this.spatialIndex = spatialIndex;
+		Supplier<Map<Id<DvrpVehicle>, Entry>> mapFactory = spatialIndex == null ?
+				HashMap::new :
+				() -> new IdMap<>(DvrpVehicle.class);
 		entries = forkJoinPool.submit(() -> vehicles.parallel()
 				.map(v -> entryFactory.create(v, currentTime))
 				.filter(Objects::nonNull)
-				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
+				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e, (e1, e2) -> {
+					throw new IllegalStateException("Duplicate entry for vehicle " + e1.vehicle.getId());
+				}, mapFactory))).join();
+
+		if (spatialIndex != null) {
+			spatialIndex.clear();
+			entries.values().forEach(spatialIndex::add);
+		}
 	}
 
 	public void updateEntry(DvrpVehicle vehicle) {
 		Entry e = entryFactory.create(vehicle, currentTime);
-		if (e != null) {
-			entries.put(vehicle.getId(), e);
-		} else {
-			entries.remove(vehicle.getId());
+		Entry oldEntry = e != null ? entries.put(vehicle.getId(), e) : entries.remove(vehicle.getId());
+		if (spatialIndex != null) {
+			if (oldEntry != null) {
+				spatialIndex.remove(oldEntry);
+			}
+			if (e != null) {
+				spatialIndex.add(e);
+			}
 		}
 	}
 
@@ -232,4 +265,20 @@ public class VehicleData {
 	public Collection<Entry> getEntries() {
 		return Collections.unmodifiableCollection(entries.values());
 	}
+
+	/**
+	 * @return entries of the vehicles that may reach the link before latestArrivalTime (all entries if there is
+	 * no spatial index), in the same order as in {@link #getEntries()}; with the spatial index, this is the order of
+	 * the vehicle id indices
+	 */
+	public Collection<Entry> getEntriesReachingLink(Link link, double latestArrivalTime) {
+		if (spatialIndex == null) {
+			return getEntries();
+		}
+		Set<Entry> reachingEntries = spatialIndex.getEntriesReachingLink(link, currentTime, latestArrivalTime);
+		// a fixed order keeps the choice among equally good insertions independent of the order within the index
+		List<Entry> sortedEntries = new ArrayList<>(reachingEntries);
+		sortedEntries.sort(Comparator.comparingInt(e -> e.vehicle.getId().index()));
+		return sortedEntries;
+	}
 }
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Spatial index of the waypoints (start and stops) of the {@link VehicleData} entries. Allows to find the vehicles
+ * that may reach a link before a given time without looking at the whole fleet.
+ * <p>
+ * The time needed to drive from a waypoint to a link is bounded from below by the beeline distance (between the to-nodes
+ * of both links) divided by the highest free speed in the network. This assumes that links are not shorter than the
+ * beeline distance between their nodes, and that the travel times are not below the free-speed travel times. No vehicle
+ * departs from a waypoint before the current time. With a time-variant network, the highest free speed also covers the
+ * speeds set by the network change events.
+ * <p>
+ * Kept up to date by {@link VehicleData} (see {@link DrtConfigGroup#isUseSpatialVehicleIndex()}).
+ */
+public class VehicleEntrySpatialIndex {
+	private static class IndexedWaypoint {
+		private final VehicleData.Entry entry;
+		private final int index;
+
+		private IndexedWaypoint(VehicleData.Entry entry, int index) {
+			this.entry = entry;
+			this.index = index;
+		}
+	}
+
+	private final QuadTree<IndexedWaypoint> quadTree;
+	// QuadTree removes single values by identity, so the instances put into the tree are kept for removal
+	private final Map<VehicleData.Entry, IndexedWaypoint[]> waypointsByEntry = new IdentityHashMap<>();
+	private final double maxFreespeed;
+
+	public VehicleEntrySpatialIndex(Network network) {
+		this(network, Collections.emptyList());
+	}
+
+	/**
+	 * @param networkChangeEvents change events of the (time-variant) network the vehicles are simulated on; the links
+	 *                            they refer to are matched with the links of the given network by id
+	 */
+	public VehicleEntrySpatialIndex(Network network, Collection<NetworkChangeEvent> networkChangeEvents) {
+		double[] bounds = NetworkUtils.getBoundingBox(network.getNodes().values());
+		quadTree = new QuadTree<>(bounds[0], bounds[1], bounds[2], bounds[3]);
+
+		double maxSpeed = network.getLinks().values().stream().mapToDouble(Link::getFreespeed).max().orElseThrow();
+		for (NetworkChangeEvent event : networkChangeEvents) {
+			if (event.getFreespeedChange() == null) {
+				continue;
+			}
+			// the free speed changes only at the start times of the change events
+			for (Link link : event.getLinks()) {
+				if (network.getLinks().containsKey(link.getId())) {
+					maxSpeed = Math.max(maxSpeed, link.getFreespeed(event.getStartTime()));
+				}
+			}
+		}
+		maxFreespeed = maxSpeed;
+	}
+
+	void clear() {
+		quadTree.clear();
+		waypointsByEntry.clear();
+	}
+
+	void add(VehicleData.Entry entry) {
+		IndexedWaypoint[] waypoints = new IndexedWaypoint[entry.stops.size() + 1];
+		for (int i = 0; i < waypoints.length; i++) {
+			Coord coord = entry.getWaypoint(i).getLink().getToNode().getCoord();
+			waypoints[i] = new IndexedWaypoint(entry, i);
+			quadTree.put(coord.getX(), coord.getY(), waypoints[i]);
+		}
+		waypointsByEntry.put(entry, waypoints);
+	}
+
+	void remove(VehicleData.Entry entry) {
+		IndexedWaypoint[] waypoints = waypointsByEntry.remove(entry);
+		if (waypoints == null) {
+			return;
+		}
+		for (IndexedWaypoint iw : waypoints) {
+			Coord coord = entry.getWaypoint(iw.index).getLink().getToNode().getCoord();
+			quadTree.remove(coord.getX(), coord.getY(), iw);
+		}
+	}
+
+	/**
+	 * @return entries with at least one waypoint from which the link may be reached before latestArrivalTime, when
+	 * departing not before currentTime
+	 */
+	Set<VehicleData.Entry> getEntriesReachingLink(Link link, double currentTime, double latestArrivalTime) {
+		Coord coord = link.getToNode().getCoord();
+		double maxDistance = (latestArrivalTime - currentTime) * maxFreespeed;
+		Set<VehicleData.Entry> entries = new HashSet<>();
+		if (maxDistance < 0) {
+			return entries;
+		}
+
+		for (IndexedWaypoint iw : quadTree.getDisk(coord.getX(), coord.getY(), maxDistance)) {
+			if (entries.contains(iw.entry)) {
+				continue;
+			}
+			VehicleData.Waypoint waypoint = iw.entry.getWaypoint(iw.index);
+			double departureTime = Math.max(waypoint.getDepartureTime(), currentTime);
+			double distance = CoordUtils.calcEuclideanDistance(waypoint.getLink().getToNode().getCoord(), coord);
+			if (departureTime + distance / maxFreespeed <= latestArrivalTime) {
+				entries.add(iw.entry);
+			}
+		}
+		return entries;
+	}
+}
@@ -19,13 +19,19 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
 
 import org.apache.log4j.Logger;
 import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleEntrySpatialIndex;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
@@ -52,11 +58,25 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 	private final ForkJoinPool forkJoinPool;
 	private final DrtInsertionSearch<PathData> insertionSearch;
+	@Nullable
+	private final VehicleEntrySpatialIndex spatialIndex;
 
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleData.EntryFactory vehicleDataEntryFactory, DrtInsertionSearch<PathData> insertionSearch,
 			ForkJoinPool forkJoinPool) {
+		this(drtCfg, fleet, mobsimTimer, eventsManager, insertionScheduler, vehicleDataEntryFactory, insertionSearch,
+				forkJoinPool, null);
+	}
+
+	/**
+	 * @param spatialIndex if not null, the insertion search considers only the vehicles that can reach the pickup
+	 *                     before the latest start time (see {@link DrtConfigGroup#isUseSpatialVehicleIndex()})
+	 */
+	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
+			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
+			VehicleData.EntryFactory vehicleDataEntryFactory, DrtInsertionSearch<PathData> insertionSearch,
+			ForkJoinPool forkJoinPool, @Nullable VehicleEntrySpatialIndex spatialIndex) {
 		this.drtCfg = drtCfg;
 		this.fleet = fleet;
 		this.mobsimTimer = mobsimTimer;
@@ -65,6 +85,7 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		this.vehicleDataEntryFactory = vehicleDataEntryFactory;
 		this.forkJoinPool = forkJoinPool;
 		this.insertionSearch = insertionSearch;
+		this.spatialIndex = spatialIndex;
 	}
 
 	@Override
@@ -74,33 +95,119 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		}
 
 		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
-				vehicleDataEntryFactory, forkJoinPool);
+				vehicleDataEntryFactory, forkJoinPool, spatialIndex);
+
+		if (drtCfg.isSpeculativeInsertion() && unplannedRequests.size() > 1) {
+			scheduleUnplannedRequestsSpeculatively(unplannedRequests, vData);
+			return;
+		}
 
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
 			Optional<InsertionWithDetourData<PathData>> best = insertionSearch.findBestInsertion(req,
-					vData.getEntries());
-			if (best.isEmpty()) {
-				eventsManager.processEvent(
-						new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								req.getPassengerId(), NO_INSERTION_FOUND_CAUSE));
-				log.debug("No insertion found for drt request "
-						+ req
-						+ " from passenger id="
-						+ req.getPassengerId()
-						+ " fromLinkId="
-						+ req.getFromLink().getId());
+					getCandidateEntries(req, vData));
+			scheduleRequest(req, best, vData);
+			reqIter.remove();
+		}
+	}
+
+	private static class SpeculativeInsertion {
+		private final List<VehicleData.Entry> entries;
+		private final Optional<InsertionWithDetourData<PathData>> insertion;
+
+		private SpeculativeInsertion(List<VehicleData.Entry> entries,
+				Optional<InsertionWithDetourData<PathData>> insertion) {
+			this.entries = entries;
+			this.insertion = insertion;
+		}
+	}
+
+	/**
+	 * Searches for the insertions of all requests in parallel, all against the same (i.e. the initial) vehicle data.
+	 * Then, the requests are scheduled in the given order, just like in the sequential case. The insertion found in
+	 * parallel for a request is used only if the search would get exactly the same input now, i.e. the same candidate
+	 * entries in the same order. Entries are replaced whenever a vehicle gets a new request, so this holds if none of
+	 * the vehicles touched by the requests scheduled before is among the candidates. Otherwise, the search is
+	 * repeated with the current vehicle data. The outcome is therefore the same as in the sequential case.
+	 * <p>
+	 * Pays off if the candidates of the requests of a time step rarely overlap, i.e. with the spatial index (see
+	 * {@link DrtConfigGroup#isUseSpatialVehicleIndex()}).
+	 */
+	private void scheduleUnplannedRequestsSpeculatively(Collection<DrtRequest> unplannedRequests, VehicleData vData) {
+		List<DrtRequest> requests = new ArrayList<>(unplannedRequests);
+		// vData is not updated until all requests have been searched for
+		List<SpeculativeInsertion> speculativeInsertions = forkJoinPool.submit(() -> requests.parallelStream()
+				.map(req -> {
+					List<VehicleData.Entry> entries = List.copyOf(getCandidateEntries(req, vData));
+					return new SpeculativeInsertion(entries, insertionSearch.findBestInsertion(req, entries));
+				})
+				.collect(Collectors.toList())).join();
+
+		int repeatedSearches = 0;
+		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
+		for (int i = 0; reqIter.hasNext(); i++) {
+			DrtRequest req = reqIter.next();
+			SpeculativeInsertion speculativeInsertion = speculativeInsertions.get(i);
+			Collection<VehicleData.Entry> entries = getCandidateEntries(req, vData);
+			Optional<InsertionWithDetourData<PathData>> best;
+			if (isSameSearchInput(speculativeInsertion.entries, entries)) {
+				best = speculativeInsertion.insertion;
 			} else {
-				InsertionWithDetourData<PathData> insertion = best.get();
-				insertionScheduler.scheduleRequest(req, insertion);
-				vData.updateEntry(insertion.getVehicleEntry().vehicle);
-				eventsManager.processEvent(
-						new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								req.getPassengerId(), insertion.getVehicleEntry().vehicle.getId(),
-								req.getPickupTask().getEndTime(), req.getDropoffTask().getBeginTime()));
+				best = insertionSearch.findBestInsertion(req, entries);
+				repeatedSearches++;
 			}
+			scheduleRequest(req, best, vData);
 			reqIter.remove();
 		}
+		log.debug("Speculative insertion: searched again for " + repeatedSearches + " of " + requests.size()
+				+ " requests");
+	}
+
+	private static boolean isSameSearchInput(List<VehicleData.Entry> speculativeEntries,
+			Collection<VehicleData.Entry> currentEntries) {
+		if (speculativeEntries.size() != currentEntries.size()) {
+			return false;
+		}
+		Iterator<VehicleData.Entry> speculativeIter = speculativeEntries.iterator();
+		for (VehicleData.Entry entry : currentEntries) {
+			// entries are immutable, a touched vehicle gets a new entry
+			if (speculativeIter.next() != entry) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Without the spatial index, these are all entries. Otherwise, vehicles that cannot pick up the passenger before
+	 * the latest start time are left out, which is only possible if violating the max wait time is not allowed.
+	 */
+	private Collection<VehicleData.Entry> getCandidateEntries(DrtRequest req, VehicleData vData) {
+		// not reduced by the stop duration: a pickup merged into an existing stop at the pickup link adds none
+		return vData.getEntriesReachingLink(req.getFromLink(), req.getLatestStartTime());
+	}
+
+	private void scheduleRequest(DrtRequest req, Optional<InsertionWithDetourData<PathData>> best,
+			VehicleData vData) {
+		if (best.isEmpty()) {
+			eventsManager.processEvent(
+					new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+							req.getPassengerId(), NO_INSERTION_FOUND_CAUSE));
+			log.debug("No insertion found for drt request "
+					+ req
+					+ " from passenger id="
+					+ req.getPassengerId()
+					+ " fromLinkId="
+					+ req.getFromLink().getId());
+		} else {
+			InsertionWithDetourData<PathData> insertion = best.get();
+			insertionScheduler.scheduleRequest(req, insertion);
+			vData.updateEntry(insertion.getVehicleEntry().vehicle);
+			eventsManager.processEvent(
+					new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+							req.getPassengerId(), insertion.getVehicleEntry().vehicle.getId(),
+							req.getPickupTask().getEndTime(), req.getDropoffTask().getBeginTime()));
+		}
 	}
 }
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 
 import javax.inject.Named;
@@ -75,12 +76,26 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 		}
 	}
 
+	private static class PathSearches {
+		final OneToManyPathSearch toPickupPathSearch;
+		final OneToManyPathSearch fromPickupPathSearch;
+		final OneToManyPathSearch toDropoffPathSearch;
+		final OneToManyPathSearch fromDropoffPathSearch;
+
+		PathSearches(Network network, TravelTime travelTime, TravelDisutility travelDisutility) {
+			toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
+			fromPickupPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+			toDropoffPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
+			fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+		}
+	}
+
 	public static final int MAX_THREADS = 4;
 
-	private final OneToManyPathSearch toPickupPathSearch;
-	private final OneToManyPathSearch fromPickupPathSearch;
-	private final OneToManyPathSearch toDropoffPathSearch;
-	private final OneToManyPathSearch fromDropoffPathSearch;
+	// used by the executor tasks (one task per search, one request at a time)
+	private final PathSearches pathSearches;
+	// used by the insertion searches run on a fork-join pool (see DrtConfigGroup#isSpeculativeInsertion)
+	private final ThreadLocal<PathSearches> workerPathSearches;
 
 	private final double stopDuration;
 
@@ -89,10 +104,8 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 	public MultiInsertionDetourPathCalculator(Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
 			DrtConfigGroup drtCfg) {
-		toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
-		fromPickupPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
-		toDropoffPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
-		fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+		pathSearches = new PathSearches(network, travelTime, travelDisutility);
+		workerPathSearches = ThreadLocal.withInitial(() -> new PathSearches(network, travelTime, travelDisutility));
 		stopDuration = drtCfg.getStopDuration();
 		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
@@ -112,29 +125,44 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 		//TODO move extraction of links from filteredInsertions to each Callable task
 		DetourLinksSet detourLinksSet = new DetourLinksSet(filteredInsertions);
 
+		if (ForkJoinTask.inForkJoinPool()) {
+			// the pool is busy with the searches for other requests: do not block this worker on the executor,
+			// but run the four searches one after another with the searches of this worker
+			PathSearches searches = workerPathSearches.get();
+			return new DetourData<>(
+					searches.toPickupPathSearch.calcPathDataMap(pickup,
+							detourLinksSet.pickupDetourStartLinks.values(), earliestPickupTime),
+					searches.fromPickupPathSearch.calcPathDataMap(pickup,
+							detourLinksSet.pickupDetourEndLinks.values(), earliestPickupTime),
+					searches.toDropoffPathSearch.calcPathDataMap(dropoff,
+							detourLinksSet.dropoffDetourStartLinks.values(), earliestDropoffTime),
+					searches.fromDropoffPathSearch.calcPathDataMap(dropoff,
+							detourLinksSet.dropoffDetourEndLinks.values(), earliestDropoffTime));
+		}
+
 		// calc backward dijkstra from pickup to ends of selected stops + starts
 		// highest computation time (approx. 45% total CPU time)
 		Future<Map<Link, PathData>> pathsToPickupFuture = executorService.submit(
-				() -> toPickupPathSearch.calcPathDataMap(pickup, detourLinksSet.pickupDetourStartLinks.values(),
-						earliestPickupTime));
+				() -> pathSearches.toPickupPathSearch.calcPathDataMap(pickup,
+						detourLinksSet.pickupDetourStartLinks.values(), earliestPickupTime));
 
 		// calc forward dijkstra from pickup to beginnings of selected stops + dropoff
 		// medium computation time (approx. 25% total CPU time)
 		Future<Map<Link, PathData>> pathsFromPickupFuture = executorService.submit(
-				() -> fromPickupPathSearch.calcPathDataMap(pickup, detourLinksSet.pickupDetourEndLinks.values(),
-						earliestPickupTime));
+				() -> pathSearches.fromPickupPathSearch.calcPathDataMap(pickup,
+						detourLinksSet.pickupDetourEndLinks.values(), earliestPickupTime));
 
 		// calc backward dijkstra from dropoff to ends of selected stops
 		// medium computation time (approx. 25% total CPU time)
 		Future<Map<Link, PathData>> pathsToDropoffFuture = executorService.submit(
-				() -> toDropoffPathSearch.calcPathDataMap(dropoff, detourLinksSet.dropoffDetourStartLinks.values(),
-						earliestDropoffTime));
+				() -> pathSearches.toDropoffPathSearch.calcPathDataMap(dropoff,
+						detourLinksSet.dropoffDetourStartLinks.values(), earliestDropoffTime));
 
 		// calc forward dijkstra from dropoff to beginnings of selected stops
 		// lowest computation time (approx. 5% total CPU time)
 		Future<Map<Link, PathData>> pathsFromDropoffFuture = executorService.submit(
-				() -> fromDropoffPathSearch.calcPathDataMap(dropoff, detourLinksSet.dropoffDetourEndLinks.values(),
-						earliestDropoffTime));
+				() -> pathSearches.fromDropoffPathSearch.calcPathDataMap(dropoff,
+						detourLinksSet.dropoffDetourEndLinks.values(), earliestDropoffTime));
 
 		try {
 			return new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(), pathsToDropoffFuture.get(),
@@ -47,15 +47,21 @@ public class SelectiveInsertionSearch implements DrtInsertionSearch<PathData> {
 
 	public SelectiveInsertionSearch(DetourPathCalculator detourPathCalculator, DrtConfigGroup drtCfg, MobsimTimer timer,
 			ForkJoinPool forkJoinPool, InsertionCostCalculator.PenaltyCalculator penaltyCalculator) {
+		this(detourPathCalculator, drtCfg, timer, forkJoinPool, penaltyCalculator,
+				createRestrictiveBeelineTimeEstimator(drtCfg));
+	}
+
+	/**
+	 * @param restrictiveDetourTimeEstimator used for the initial filtering, e.g. based on a
+	 *                                       {@link ZonalTravelTimeMatrix}
+	 */
+	public SelectiveInsertionSearch(DetourPathCalculator detourPathCalculator, DrtConfigGroup drtCfg, MobsimTimer timer,
+			ForkJoinPool forkJoinPool, InsertionCostCalculator.PenaltyCalculator penaltyCalculator,
+			DetourTimeEstimator restrictiveDetourTimeEstimator) {
 		this.detourPathCalculator = detourPathCalculator;
 		this.forkJoinPool = forkJoinPool;
 
-		// TODO use more sophisticated DetourTimeEstimator
-		double restrictiveBeelineSpeed = ((SelectiveInsertionSearchParams)drtCfg.getDrtInsertionSearchParams()).getRestrictiveBeelineSpeedFactor()
-				* drtCfg.getEstimatedDrtSpeed() / drtCfg.getEstimatedBeelineDistanceFactor();
-
-		restrictiveDetourTimesProvider = new DetourTimesProvider(
-				DetourTimeEstimator.createBeelineTimeEstimator(restrictiveBeelineSpeed));
+		restrictiveDetourTimesProvider = new DetourTimesProvider(restrictiveDetourTimeEstimator);
 
 		initialInsertionFinder = new BestInsertionFinder<>(
 				new InsertionCostCalculator<>(drtCfg, timer, penaltyCalculator, Double::doubleValue));
@@ -64,6 +70,12 @@ public class SelectiveInsertionSearch implements DrtInsertionSearch<PathData> {
 				new InsertionCostCalculator<>(drtCfg, timer, penaltyCalculator, PathData::getTravelTime));
 	}
 
+	static DetourTimeEstimator createRestrictiveBeelineTimeEstimator(DrtConfigGroup drtCfg) {
+		double restrictiveBeelineSpeed = ((SelectiveInsertionSearchParams)drtCfg.getDrtInsertionSearchParams()).getRestrictiveBeelineSpeedFactor()
+				* drtCfg.getEstimatedDrtSpeed() / drtCfg.getEstimatedBeelineDistanceFactor();
+		return DetourTimeEstimator.createBeelineTimeEstimator(restrictiveBeelineSpeed);
+	}
+
 	@Override
 	public Optional<InsertionWithDetourData<PathData>> findBestInsertion(DrtRequest drtRequest,
 			Collection<Entry> vEntries) {
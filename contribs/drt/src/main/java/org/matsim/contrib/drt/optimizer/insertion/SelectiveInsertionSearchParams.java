@@ -21,6 +21,7 @@
 package org.matsim.contrib.drt.optimizer.insertion;
 
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
 /**
  * @author Michal Maciejewski (michalm)
@@ -34,6 +35,17 @@ public class SelectiveInsertionSearchParams extends DrtInsertionSearchParams {
 	@Positive
 	private double restrictiveBeelineSpeedFactor = 0.5;
 
+	public static final String TRAVEL_TIME_MATRIX_CELL_SIZE = "travelTimeMatrixCellSize";
+	//if positive, the restrictive detour times are looked up in a ZonalTravelTimeMatrix (with square zones of this
+	//size) instead of being estimated from the beeline distance; they are divided by restrictiveBeelineSpeedFactor
+	//as well
+	@PositiveOrZero
+	private double travelTimeMatrixCellSize = 0;// [m]
+
+	public static final String TRAVEL_TIME_MATRIX_TIME_BIN_SIZE = "travelTimeMatrixTimeBinSize";
+	@Positive
+	private double travelTimeMatrixTimeBinSize = 3600;// [s]
+
 	public SelectiveInsertionSearchParams() {
 		super(SET_NAME);
 	}
@@ -47,4 +59,24 @@ public class SelectiveInsertionSearchParams extends DrtInsertionSearchParams {
 	public void setRestrictiveBeelineSpeedFactor(double restrictiveBeelineSpeedFactor) {
 		this.restrictiveBeelineSpeedFactor = restrictiveBeelineSpeedFactor;
 	}
+
+	@StringGetter(TRAVEL_TIME_MATRIX_CELL_SIZE)
+	public double getTravelTimeMatrixCellSize() {
+		return travelTimeMatrixCellSize;
+	}
+
+	@StringSetter(TRAVEL_TIME_MATRIX_CELL_SIZE)
+	public void setTravelTimeMatrixCellSize(double travelTimeMatrixCellSize) {
+		this.travelTimeMatrixCellSize = travelTimeMatrixCellSize;
+	}
+
+	@StringGetter(TRAVEL_TIME_MATRIX_TIME_BIN_SIZE)
+	public double getTravelTimeMatrixTimeBinSize() {
+		return travelTimeMatrixTimeBinSize;
+	}
+
+	@StringSetter(TRAVEL_TIME_MATRIX_TIME_BIN_SIZE)
+	public void setTravelTimeMatrixTimeBinSize(double travelTimeMatrixTimeBinSize) {
+		this.travelTimeMatrixTimeBinSize = travelTimeMatrixTimeBinSize;
+	}
 }
@@ -20,6 +20,8 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
@@ -50,10 +52,29 @@ public class SelectiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 	@Override
 	protected void configureQSim() {
 		bindModal(new TypeLiteral<DrtInsertionSearch<OneToManyPathSearch.PathData>>() {
-		}).toProvider(modalProvider(
-				getter -> new SelectiveInsertionSearch(getter.getModal(DetourPathCalculator.class), drtCfg,
-						getter.get(MobsimTimer.class), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool(),
-						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class))));
+		}).toProvider(modalProvider(getter -> {
+			MobsimTimer timer = getter.get(MobsimTimer.class);
+			ForkJoinPool forkJoinPool = getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool();
+			SelectiveInsertionSearchParams insertionSearchParams = (SelectiveInsertionSearchParams)drtCfg
+					.getDrtInsertionSearchParams();
+			DetourTimeEstimator restrictiveDetourTimeEstimator;
+			if (insertionSearchParams.getTravelTimeMatrixCellSize() > 0) {
+				// computed anew in each iteration, using the travel times of the previous one
+				ZonalTravelTimeMatrix travelTimeMatrix = new ZonalTravelTimeMatrix(getter.getModal(Network.class),
+						getter.getNamed(TravelTime.class, DvrpTravelTimeModule.DVRP_ESTIMATED),
+						insertionSearchParams.getTravelTimeMatrixCellSize(),
+						insertionSearchParams.getTravelTimeMatrixTimeBinSize(),
+						getConfig().qsim().getEndTime().orElse(30 * 3600), forkJoinPool);
+				restrictiveDetourTimeEstimator = travelTimeMatrix.createDetourTimeEstimator(timer::getTimeOfDay,
+						insertionSearchParams.getRestrictiveBeelineSpeedFactor(),
+						drtCfg.getEstimatedDrtSpeed() / drtCfg.getEstimatedBeelineDistanceFactor());
+			} else {
+				restrictiveDetourTimeEstimator = SelectiveInsertionSearch.createRestrictiveBeelineTimeEstimator(drtCfg);
+			}
+			return new SelectiveInsertionSearch(getter.getModal(DetourPathCalculator.class), drtCfg, timer,
+					forkJoinPool, getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
+					restrictiveDetourTimeEstimator);
+		}));
 
 		addModalComponent(SingleInsertionDetourPathCalculator.class, new ModalProviders.AbstractProvider<>(getMode()) {
 			@Inject
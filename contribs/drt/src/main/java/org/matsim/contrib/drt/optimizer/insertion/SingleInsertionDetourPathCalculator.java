@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 
 import javax.inject.Named;
@@ -58,12 +59,27 @@ import com.google.common.util.concurrent.Futures;
  */
 public class SingleInsertionDetourPathCalculator implements DetourPathCalculator, MobsimBeforeCleanupListener {
 
+	private static class PathSearches {
+		final LeastCostPathCalculator toPickupPathSearch;
+		final LeastCostPathCalculator fromPickupPathSearch;
+		final LeastCostPathCalculator toDropoffPathSearch;
+		final LeastCostPathCalculator fromDropoffPathSearch;
+
+		PathSearches(LeastCostPathCalculatorFactory pathCalculatorFactory, Network network, TravelTime travelTime,
+				TravelDisutility travelDisutility) {
+			toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+		}
+	}
+
 	public static final int MAX_THREADS = 4;
 
-	private final LeastCostPathCalculator toPickupPathSearch;
-	private final LeastCostPathCalculator fromPickupPathSearch;
-	private final LeastCostPathCalculator toDropoffPathSearch;
-	private final LeastCostPathCalculator fromDropoffPathSearch;
+	// used by the executor tasks (one task per search, one request at a time)
+	private final PathSearches pathSearches;
+	// used by the insertion searches run on a fork-join pool (see DrtConfigGroup#isSpeculativeInsertion)
+	private final ThreadLocal<PathSearches> workerPathSearches;
 
 	private final double stopDuration;
 
@@ -74,10 +90,9 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 			DrtConfigGroup drtCfg) {
 		LeastCostPathCalculatorFactory pathCalculatorFactory = new FastAStarLandmarksFactory(
 				drtCfg.getNumberOfThreads());
-		toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+		pathSearches = new PathSearches(pathCalculatorFactory, network, travelTime, travelDisutility);
+		workerPathSearches = ThreadLocal.withInitial(
+				() -> new PathSearches(pathCalculatorFactory, network, travelTime, travelDisutility));
 		stopDuration = drtCfg.getStopDuration();
 		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
@@ -97,24 +112,50 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 		// TODO use times from InsertionWithDetourData<Double> as approximate departure times for Dijkstra (will require
 		//  passing it as an argument, instead of Insertion)
 
+		if (ForkJoinTask.inForkJoinPool()) {
+			// the pool is busy with the searches for other requests: do not block this worker on the executor,
+			// but run the searches one after another with the routers of this worker
+			PathSearches searches = workerPathSearches.get();
+			return new DetourData<>(
+					Map.of(insertion.pickup.previousLink,
+							calcPathData(searches.toPickupPathSearch, insertion.pickup.previousLink, pickup,
+									earliestPickupTime)),
+					Map.of(insertion.pickup.nextLink,
+							calcPathData(searches.fromPickupPathSearch, pickup, insertion.pickup.nextLink,
+									earliestPickupTime)),
+					insertion.dropoff.previousLink == null ?
+							ImmutableMap.of() :
+							Map.of(insertion.dropoff.previousLink,
+									calcPathData(searches.toDropoffPathSearch, insertion.dropoff.previousLink,
+											dropoff, earliestDropoffTime)),
+					insertion.dropoff.nextLink == null ?
+							ImmutableMap.of() :
+							Map.of(insertion.dropoff.nextLink,
+									calcPathData(searches.fromDropoffPathSearch, dropoff, insertion.dropoff.nextLink,
+											earliestDropoffTime)));
+		}
+
 		Future<Map<Link, PathData>> pathsToPickupFuture = executorService.submit(
 				() -> Map.of(insertion.pickup.previousLink,
-						calcPathData(toPickupPathSearch, insertion.pickup.previousLink, pickup, earliestPickupTime)));
+						calcPathData(pathSearches.toPickupPathSearch, insertion.pickup.previousLink, pickup,
+								earliestPickupTime)));
 
 		Future<Map<Link, PathData>> pathsFromPickupFuture = executorService.submit(
 				() -> Map.of(insertion.pickup.nextLink,
-						calcPathData(fromPickupPathSearch, pickup, insertion.pickup.nextLink, earliestPickupTime)));
+						calcPathData(pathSearches.fromPickupPathSearch, pickup, insertion.pickup.nextLink,
+								earliestPickupTime)));
 
 		Future<Map<Link, PathData>> pathsToDropoffFuture = insertion.dropoff.previousLink == null ?
 				Futures.immediateFuture(ImmutableMap.of()) :
 				executorService.submit(() -> Map.of(insertion.dropoff.previousLink,
-						calcPathData(toDropoffPathSearch, insertion.dropoff.previousLink, dropoff,
+						calcPathData(pathSearches.toDropoffPathSearch, insertion.dropoff.previousLink, dropoff,
 								earliestDropoffTime)));
 
 		Future<Map<Link, PathData>> pathsFromDropoffFuture = insertion.dropoff.nextLink == null ?
 				Futures.immediateFuture(ImmutableMap.of()) :
 				executorService.submit(() -> Map.of(insertion.dropoff.nextLink,
-						calcPathData(fromDropoffPathSearch, dropoff, insertion.dropoff.nextLink, earliestDropoffTime)));
+						calcPathData(pathSearches.fromDropoffPathSearch, dropoff, insertion.dropoff.nextLink,
+								earliestDropoffTime)));
 
 		try {
 			return new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(), pathsToDropoffFuture.get(),
@@ -0,0 +1,181 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.zone.SquareGrid;
+import org.matsim.contrib.zone.Zone;
+import org.matsim.core.router.SpeedyGraph;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.OneToManyPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Zone-to-zone travel times on a {@link SquareGrid}, one matrix per time bin. Each zone (with at least one node) is
+ * represented by its node closest to the centroid. The travel times between these nodes are computed once, when the
+ * matrix is created (i.e. at the start of an iteration, given the travel times of the previous one), with one
+ * {@link OneToManyPathCalculator} search per zone and time bin, in parallel.
+ * <p>
+ * Afterwards, a travel time is looked up in constant time. Departures after the last time bin use the last time bin.
+ * The detour time estimator adds the beeline trips to and from the representative nodes, so trips within a zone do
+ * not take 0 seconds (see {@link #createDetourTimeEstimator(DoubleSupplier, double, double)}).
+ *
+ * @see SelectiveInsertionSearchParams#getTravelTimeMatrixCellSize()
+ */
+public class ZonalTravelTimeMatrix {
+	private final SquareGrid grid;
+	private final int[] matrixIndexOfGridZone;// -1 if the zone contains no node
+	private final Node[] zoneNodes;// representative node of each matrix zone
+	private final int zoneCount;
+	private final double timeBinSize;
+	private final int timeBinCount;
+	private final float[] travelTimes;// [timeBin][fromZone][toZone]
+
+	public ZonalTravelTimeMatrix(Network network, TravelTime travelTime, double cellSize, double timeBinSize,
+			double maxTime, ForkJoinPool forkJoinPool) {
+		this.grid = new SquareGrid(network, cellSize);
+		this.timeBinSize = timeBinSize;
+		this.timeBinCount = Math.max(1, (int)Math.ceil(maxTime / timeBinSize));
+
+		Zone[] gridZones = grid.getZones();
+		Node[] representativeNodes = new Node[gridZones.length];
+		for (Node node : network.getNodes().values()) {
+			int z = grid.getZoneIndex(node.getCoord());
+			Coord centroid = gridZones[z].getCoord();
+			if (representativeNodes[z] == null
+					|| CoordUtils.calcEuclideanDistance(node.getCoord(), centroid)
+					< CoordUtils.calcEuclideanDistance(representativeNodes[z].getCoord(), centroid)) {
+				representativeNodes[z] = node;
+			}
+		}
+
+		matrixIndexOfGridZone = new int[gridZones.length];
+		List<Node> nodes = new ArrayList<>();
+		for (int z = 0; z < gridZones.length; z++) {
+			if (representativeNodes[z] == null) {
+				matrixIndexOfGridZone[z] = -1;
+			} else {
+				matrixIndexOfGridZone[z] = nodes.size();
+				nodes.add(representativeNodes[z]);
+			}
+		}
+		zoneNodes = nodes.toArray(new Node[0]);
+		zoneCount = zoneNodes.length;
+
+		travelTimes = new float[getMatrixSize(timeBinCount, zoneCount, cellSize, timeBinSize)];
+		Arrays.fill(travelTimes, Float.POSITIVE_INFINITY);// unreachable
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		ThreadLocal<OneToManyPathCalculator> pathCalculators = ThreadLocal.withInitial(
+				() -> new OneToManyPathCalculator(graph, travelTime, travelDisutility, true));
+		ThreadLocal<double[]> rowTravelTimes = ThreadLocal.withInitial(() -> new double[zoneCount]);
+		forkJoinPool.submit(() -> IntStream.range(0, timeBinCount * zoneCount).parallel().forEach(row -> {
+			int timeBin = row / zoneCount;
+			Node fromNode = zoneNodes[row % zoneCount];
+			double departureTime = (timeBin + 0.5) * timeBinSize;
+
+			double[] times = rowTravelTimes.get();
+			pathCalculators.get().calcLeastCostPaths(fromNode, zoneNodes, departureTime, null, null, times, null, null);
+			for (int to = 0; to < zoneCount; to++) {
+				travelTimes[row * zoneCount + to] = (float)times[to];
+			}
+		})).join();
+	}
+
+	private static int getMatrixSize(int timeBinCount, int zoneCount, double cellSize, double timeBinSize) {
+		long size = (long)timeBinCount * zoneCount * zoneCount;
+		// leave some head room, JVMs cannot allocate arrays of exactly Integer.MAX_VALUE elements
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Travel time matrix too large: "
+					+ timeBinCount
+					+ " time bins x "
+					+ zoneCount
+					+ " x "
+					+ zoneCount
+					+ " zones. Increase the cell size (now "
+					+ cellSize
+					+ ") or the time bin size (now "
+					+ timeBinSize
+					+ ")");
+		}
+		return (int)size;
+	}
+
+	/**
+	 * @return travel time between the representative nodes of the zones of fromNode and toNode (0 if in the same zone)
+	 */
+	public double getTravelTime(Node fromNode, Node toNode, double departureTime) {
+		return travelTimes[getMatrixIndex(getMatrixZone(fromNode), getMatrixZone(toNode), departureTime)];
+	}
+
+	private int getMatrixZone(Node node) {
+		return matrixIndexOfGridZone[grid.getZoneIndex(node.getCoord())];
+	}
+
+	private int getMatrixIndex(int fromZone, int toZone, double departureTime) {
+		int timeBin = Math.max(0, Math.min((int)(departureTime / timeBinSize), timeBinCount - 1));
+		return (timeBin * zoneCount + fromZone) * zoneCount + toZone;
+	}
+
+	/**
+	 * Like the restrictive beeline estimator of {@link SelectiveInsertionSearch}, the estimates are meant to be
+	 * pessimistic. The detour goes from the end of the first link to its zone's representative node and from the
+	 * representative node of the last link's zone to the start of the last link, at the beeline speed. In between, the
+	 * travel time from the matrix is used. The sum is divided by the speed factor.
+	 *
+	 * @param timeOfDay    departure time of the detours (i.e. the current time, as insertions are made for the near
+	 *                     future)
+	 * @param speedFactor  the estimated speed is multiplied by this factor (see
+	 *                     {@link SelectiveInsertionSearchParams#getRestrictiveBeelineSpeedFactor()})
+	 * @param beelineSpeed speed along the beeline distance within a zone
+	 */
+	public DetourTimeEstimator createDetourTimeEstimator(DoubleSupplier timeOfDay, double speedFactor,
+			double beelineSpeed) {
+		return (from, to) -> {
+			Node fromNode = from.getToNode();
+			Node toNode = to.getFromNode();
+			if (from == to || fromNode == toNode) {
+				return 0;
+			}
+			int fromZone = getMatrixZone(fromNode);
+			int toZone = getMatrixZone(toNode);
+			double zoneAccessDistance = CoordUtils.calcEuclideanDistance(fromNode.getCoord(),
+					zoneNodes[fromZone].getCoord());
+			double zoneEgressDistance = CoordUtils.calcEuclideanDistance(zoneNodes[toZone].getCoord(),
+					toNode.getCoord());
+			double travelTime = (zoneAccessDistance + zoneEgressDistance) / beelineSpeed
+					+ travelTimes[getMatrixIndex(fromZone, toZone, timeOfDay.getAsDouble())];
+			return travelTime / speedFactor;
+		};
+	}
+}
@@ -143,6 +143,23 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String USE_SPATIAL_VEHICLE_INDEX = "useSpatialVehicleIndex";
+	static final String USE_SPATIAL_VEHICLE_INDEX_EXP =
+			"If true, the insertion search considers only vehicles that can reach the pickup within the max wait time,"
+					+ " estimated by the beeline distance driven at the highest free speed in the network."
+					+ " The vehicles are looked up in a spatial index of their positions and stops, which pays off"
+					+ " for large fleets. Requires " + REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED
+					+ " to be true. False by default.";
+
+	public static final String SPECULATIVE_INSERTION = "speculativeInsertion";
+	static final String SPECULATIVE_INSERTION_EXP =
+			"If true, the insertions of all requests submitted in the same time step are searched for in parallel,"
+					+ " using " + NUMBER_OF_THREADS + " threads. The requests are then scheduled one after another,"
+					+ " and a request is searched for again if an earlier one has been inserted into one of its"
+					+ " candidate vehicles, so the schedules are the same as without this option. Pays off if many"
+					+ " requests are submitted in the same time step. Requires " + USE_SPATIAL_VEHICLE_INDEX
+					+ " to be true. False by default.";
+
 	public static final String DRT_SPEED_UP_MODE = "drtSpeedUpMode";
 	static final String DRT_SPEED_UP_MODE_EXP = "For PreviousIterationZonalDemandAggregator in rebalancing to work properly with the drt-speed-up module, also departures of the speed-up mode must be considered as drt mode departures. Set to the empty String \"\" if not using drt-speed-up (the default). Drt-speed-up module should set this automatically if used.";
 
@@ -198,6 +215,10 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 	@Positive
 	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
 
+	private boolean speculativeInsertion = false;
+
+	private boolean useSpatialVehicleIndex = false;
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -259,6 +280,12 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 					+ " in order to speed up the DRT route update during the replanning phase.");
 		}
 
+		Verify.verify(!isUseSpatialVehicleIndex() || isRejectRequestIfMaxWaitOrTravelTimeViolated(),
+				USE_SPATIAL_VEHICLE_INDEX + " requires " + REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED);
+
+		Verify.verify(!isSpeculativeInsertion() || isUseSpatialVehicleIndex(),
+				SPECULATIVE_INSERTION + " requires " + USE_SPATIAL_VEHICLE_INDEX);
+
 		Verify.verify(getParameterSets(MinCostFlowRebalancingParams.SET_NAME).size() <= 1,
 				"More then one rebalancing parameter sets is specified");
 
@@ -286,6 +313,8 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(SPECULATIVE_INSERTION, SPECULATIVE_INSERTION_EXP);
+		map.put(USE_SPATIAL_VEHICLE_INDEX, USE_SPATIAL_VEHICLE_INDEX_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -619,6 +648,40 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #SPECULATIVE_INSERTION_EXP}
+	 */
+	@StringGetter(SPECULATIVE_INSERTION)
+	public boolean isSpeculativeInsertion() {
+		return speculativeInsertion;
+	}
+
+	/**
+	 * @param speculativeInsertion -- {@value #SPECULATIVE_INSERTION_EXP}
+	 */
+	@StringSetter(SPECULATIVE_INSERTION)
+	public DrtConfigGroup setSpeculativeInsertion(boolean speculativeInsertion) {
+		this.speculativeInsertion = speculativeInsertion;
+		return this;
+	}
+
+	/**
+	 * @return -- {@value #USE_SPATIAL_VEHICLE_INDEX_EXP}
+	 */
+	@StringGetter(USE_SPATIAL_VEHICLE_INDEX)
+	public boolean isUseSpatialVehicleIndex() {
+		return useSpatialVehicleIndex;
+	}
+
+	/**
+	 * @param useSpatialVehicleIndex -- {@value #USE_SPATIAL_VEHICLE_INDEX_EXP}
+	 */
+	@StringSetter(USE_SPATIAL_VEHICLE_INDEX)
+	public DrtConfigGroup setUseSpatialVehicleIndex(boolean useSpatialVehicleIndex) {
+		this.useSpatialVehicleIndex = useSpatialVehicleIndex;
+		return this;
+	}
+
 	public String getDrtSpeedUpMode() {
 		return drtSpeedUpMode;
 	}
@@ -22,11 +22,14 @@ package org.matsim.contrib.edrt.run;
 
 import static org.matsim.contrib.drt.run.DrtModeQSimModule.getInsertionSearchQSimModule;
 
+import java.util.Collections;
+
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.optimizer.DefaultDrtOptimizer;
 import org.matsim.contrib.drt.optimizer.DrtOptimizer;
 import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
 import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleEntrySpatialIndex;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
@@ -64,6 +67,7 @@ import org.matsim.contrib.edrt.scheduler.EmptyVehicleChargingScheduler;
 import org.matsim.contrib.ev.infrastructure.ChargingInfrastructure;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
@@ -130,7 +134,13 @@ public class EDrtModeQSimModule extends AbstractDvrpModeQSimModule {
 						getter.getModal(RequestInsertionScheduler.class),
 						getter.getModal(VehicleData.EntryFactory.class),
 						getter.getModal(new TypeLiteral<DrtInsertionSearch<PathData>>() {
-						}), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool()))).asEagerSingleton();
+						}), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool(),
+						drtCfg.isUseSpatialVehicleIndex() ?
+								new VehicleEntrySpatialIndex(getter.getModal(Network.class),
+										getConfig().network().isTimeVariantNetwork() ?
+												NetworkUtils.getNetworkChangeEvents(getter.get(Network.class)) :
+												Collections.emptyList()) :
+								null))).asEagerSingleton();
 
 		install(getInsertionSearchQSimModule(drtCfg));
 
@@ -0,0 +1,155 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.core.config.groups.NetworkConfigGroup;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleEntrySpatialIndexTest {
+	private static final double FREESPEED = 10;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+	private final Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000, 0));
+	private final Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(5000, 0));
+	private final Link ab = link(a, b);
+	private final Link bc = link(b, c);
+	private final Link ca = link(c, a);
+
+	@Test
+	public void getEntriesReachingLink_beelineAtMaxFreespeed() {
+		VehicleEntrySpatialIndex index = new VehicleEntrySpatialIndex(network);
+		VehicleData.Entry atB = entry("atB", ab, 0);
+		VehicleData.Entry atC = entry("atC", bc, 0);
+		index.add(atB);
+		index.add(atC);
+
+		// 0 s to b, 400 s to c, 500 s to a
+		assertThat(index.getEntriesReachingLink(ab, 0, 0)).containsExactly(atB);
+		assertThat(index.getEntriesReachingLink(ab, 0, 399)).containsExactly(atB);
+		assertThat(index.getEntriesReachingLink(ab, 0, 400)).containsExactlyInAnyOrder(atB, atC);
+		assertThat(index.getEntriesReachingLink(ca, 0, 99)).isEmpty();
+		assertThat(index.getEntriesReachingLink(ca, 0, 100)).containsExactly(atB);
+	}
+
+	@Test
+	public void getEntriesReachingLink_departureTimeCounts() {
+		VehicleEntrySpatialIndex index = new VehicleEntrySpatialIndex(network);
+		VehicleData.Entry busyAtB = entry("busyAtB", ab, 300);
+		VehicleData.Entry atC = entry("atC", bc, 0);
+		index.add(busyAtB);
+		index.add(atC);
+
+		assertThat(index.getEntriesReachingLink(ab, 0, 299)).isEmpty();
+		assertThat(index.getEntriesReachingLink(ab, 0, 300)).containsExactly(busyAtB);
+	}
+
+	@Test
+	public void getEntriesReachingLink_noDepartureBeforeCurrentTime() {
+		VehicleEntrySpatialIndex index = new VehicleEntrySpatialIndex(network);
+		VehicleData.Entry atC = entry("atC", bc, 0);
+		index.add(atC);
+
+		// 400 s from c to b, but the vehicle departs not before 200 s
+		assertThat(index.getEntriesReachingLink(ab, 200, 599)).isEmpty();
+		assertThat(index.getEntriesReachingLink(ab, 200, 600)).containsExactly(atC);
+	}
+
+	@Test
+	public void getEntriesReachingLink_speedsFromChangeEvents() {
+		// time-variant network (e.g. the scenario network) with the same links as the (modal) network and one more
+		NetworkConfigGroup networkConfig = new NetworkConfigGroup();
+		networkConfig.setTimeVariantNetwork(true);
+		Network timeVariantNetwork = NetworkUtils.createNetwork(networkConfig);
+		Node tvA = NetworkUtils.createAndAddNode(timeVariantNetwork, a.getId(), a.getCoord());
+		Node tvB = NetworkUtils.createAndAddNode(timeVariantNetwork, b.getId(), b.getCoord());
+		Link tvAB = NetworkUtils.createAndAddLink(timeVariantNetwork, ab.getId(), tvA, tvB, ab.getLength(), FREESPEED,
+				1000, 1);
+		Link tvBA = NetworkUtils.createAndAddLink(timeVariantNetwork, Id.createLinkId("b_a"), tvB, tvA, ab.getLength(),
+				FREESPEED, 1000, 1);
+
+		NetworkChangeEvent fasterAB = new NetworkChangeEvent(3600);
+		fasterAB.addLink(tvAB);
+		fasterAB.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 2 * FREESPEED));
+		NetworkChangeEvent fasterBA = new NetworkChangeEvent(3600);
+		fasterBA.addLink(tvBA);
+		fasterBA.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 10 * FREESPEED));
+		NetworkUtils.addNetworkChangeEvent(timeVariantNetwork, fasterAB);
+		NetworkUtils.addNetworkChangeEvent(timeVariantNetwork, fasterBA);
+
+		VehicleEntrySpatialIndex index = new VehicleEntrySpatialIndex(network, List.of(fasterAB, fasterBA));
+		VehicleData.Entry atC = entry("atC", bc, 0);
+		index.add(atC);
+
+		// 200 s from c to b at the speed of a_b after the change (b_a is not in the network)
+		assertThat(index.getEntriesReachingLink(ab, 0, 199)).isEmpty();
+		assertThat(index.getEntriesReachingLink(ab, 0, 200)).containsExactly(atC);
+	}
+
+	@Test
+	public void remove_entryNotReturnedAnymore() {
+		VehicleEntrySpatialIndex index = new VehicleEntrySpatialIndex(network);
+		VehicleData.Entry atB = entry("atB", ab, 0);
+		index.add(atB);
+		index.remove(atB);
+		assertThat(index.getEntriesReachingLink(ab, 0, 1000)).isEmpty();
+
+		VehicleData.Entry atC = entry("atC", bc, 0);
+		index.add(atC);
+		index.clear();
+		assertThat(index.getEntriesReachingLink(ab, 0, 1000)).isEmpty();
+	}
+
+	private Link link(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to,
+				CoordUtils.calcEuclideanDistance(from.getCoord(), to.getCoord()), FREESPEED, 1000, 1);
+	}
+
+	private static VehicleData.Entry entry(String id, Link link, double time) {
+		DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(Id.create(id, DvrpVehicle.class))
+				.capacity(4)
+				.startLinkId(link.getId())
+				.serviceBeginTime(0)
+				.serviceEndTime(24 * 3600)
+				.build(), link);
+		return new VehicleData.Entry(vehicle, new VehicleData.Start(null, link, time, 0), ImmutableList.of());
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.DrtControlerCreator;
+import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestSubmittedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestSubmittedEventHandler;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vis.otfvis.OTFVisConfigGroup;
+
+/**
+ * Speculative insertion must schedule the requests exactly like the sequential insertion. The departures are
+ * bunched, so that many requests are submitted in the same time step and compete for the same vehicles.
+ */
+public class SpeculativeInsertionIT {
+	private static final double DEPARTURE_BUNCHING_INTERVAL = 600;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testExtensiveInsertionSearch_spatialVehicleIndex() {
+		assertSameSchedules(drtCfg -> drtCfg.setUseSpatialVehicleIndex(true));
+	}
+
+	@Test
+	public void testSelectiveInsertionSearch_spatialVehicleIndex() {
+		assertSameSchedules(drtCfg -> {
+			drtCfg.removeParameterSet(drtCfg.getDrtInsertionSearchParams());
+			drtCfg.addParameterSet(new SelectiveInsertionSearchParams());
+			drtCfg.setUseSpatialVehicleIndex(true);
+		});
+	}
+
+	private void assertSameSchedules(Consumer<DrtConfigGroup> drtCfgAdjustment) {
+		RequestEventCollector sequential = run(false, drtCfgAdjustment);
+		RequestEventCollector speculative = run(true, drtCfgAdjustment);
+
+		assertThat(sequential.maxRequestsPerTimeStep()).isGreaterThan(1);
+		assertThat(speculative.events).isEqualTo(sequential.events);
+	}
+
+	private RequestEventCollector run(boolean speculativeInsertion, Consumer<DrtConfigGroup> drtCfgAdjustment) {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory() + "speculative_" + speculativeInsertion);
+		config.controler().setLastIteration(0);
+
+		DrtConfigGroup drtCfg = DrtConfigGroup.getSingleModeDrtConfig(config);
+		drtCfg.setNumberOfThreads(Math.min(4, Runtime.getRuntime().availableProcessors()));
+		drtCfg.setSpeculativeInsertion(speculativeInsertion);
+		drtCfgAdjustment.accept(drtCfg);
+
+		Controler controler = DrtControlerCreator.createControler(config, false);
+		for (Person person : controler.getScenario().getPopulation().getPersons().values()) {
+			for (PlanElement planElement : person.getSelectedPlan().getPlanElements()) {
+				if (planElement instanceof Activity) {
+					Activity activity = (Activity)planElement;
+					activity.getEndTime().ifDefined(endTime -> activity.setEndTime(
+							Math.floor(endTime / DEPARTURE_BUNCHING_INTERVAL) * DEPARTURE_BUNCHING_INTERVAL));
+				}
+			}
+		}
+
+		RequestEventCollector collector = new RequestEventCollector();
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addEventHandlerBinding().toInstance(collector);
+			}
+		});
+		controler.run();
+		return collector;
+	}
+
+	private static class RequestEventCollector
+			implements PassengerRequestSubmittedEventHandler, PassengerRequestScheduledEventHandler,
+			PassengerRequestRejectedEventHandler {
+		private final List<String> events = new ArrayList<>();
+		private double lastSubmissionTime = Double.NaN;
+		private int requestsInTimeStep = 0;
+		private int maxRequestsPerTimeStep = 0;
+
+		@Override
+		public void handleEvent(PassengerRequestSubmittedEvent event) {
+			requestsInTimeStep = event.getTime() == lastSubmissionTime ? requestsInTimeStep + 1 : 1;
+			lastSubmissionTime = event.getTime();
+			maxRequestsPerTimeStep = Math.max(maxRequestsPerTimeStep, requestsInTimeStep);
+		}
+
+		@Override
+		public void handleEvent(PassengerRequestScheduledEvent event) {
+			events.add(event.toString());
+		}
+
+		@Override
+		public void handleEvent(PassengerRequestRejectedEvent event) {
+			events.add(event.toString());
+		}
+
+		private int maxRequestsPerTimeStep() {
+			return maxRequestsPerTimeStep;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			events.clear();
+			lastSubmissionTime = Double.NaN;
+			requestsInTimeStep = 0;
+			maxRequestsPerTimeStep = 0;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+public class ZonalTravelTimeMatrixTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node a = node("a", 0);
+	private final Node b = node("b", 1000);
+	private final Node c = node("c", 2000);
+	private final Node d = node("d", 3000);
+	private final Link ab = link(a, b, 1000);
+	private final Link bc = link(b, c, 1000);
+	private final Link ca = link(c, a, 2000);
+	private final Link cd = link(c, d, 1000);
+
+	// cells small enough for one node per zone
+	private final ZonalTravelTimeMatrix matrix = new ZonalTravelTimeMatrix(network, new FreeSpeedTravelTime(), 500,
+			3600, 2 * 3600, new ForkJoinPool(2));
+
+	@Test
+	public void getTravelTime_shortestPathAtFreeSpeed() {
+		assertThat(matrix.getTravelTime(a, a, 0)).isEqualTo(0);
+		assertThat(matrix.getTravelTime(a, c, 0)).isEqualTo(200);
+		assertThat(matrix.getTravelTime(c, b, 0)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(a, d, 5000)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(a, d, 24 * 3600)).isEqualTo(300);// after the last time bin
+		assertThat(matrix.getTravelTime(d, a, 0)).isEqualTo(Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	public void createDetourTimeEstimator_fromEndOfLinkToStartOfLink() {
+		DetourTimeEstimator estimator = matrix.createDetourTimeEstimator(() -> 0, 1, 10);
+		assertThat(estimator.estimateTime(ab, ab)).isEqualTo(0);
+		assertThat(estimator.estimateTime(ab, bc)).isEqualTo(0);
+		assertThat(estimator.estimateTime(ca, bc)).isEqualTo(100);
+		assertThat(estimator.estimateTime(bc, ab)).isEqualTo(200);
+		assertThat(estimator.estimateTime(cd, ab)).isEqualTo(Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	public void createDetourTimeEstimator_dividedBySpeedFactor() {
+		DetourTimeEstimator estimator = matrix.createDetourTimeEstimator(() -> 0, 0.5, 10);
+		assertThat(estimator.estimateTime(ab, bc)).isEqualTo(0);
+		assertThat(estimator.estimateTime(ca, bc)).isEqualTo(200);
+		assertThat(estimator.estimateTime(bc, ab)).isEqualTo(400);
+	}
+
+	@Test
+	public void createDetourTimeEstimator_beelineToAndFromRepresentativeNodes() {
+		// zones {a, b} and {c, d}, represented by b and d (closest to the centroids)
+		ZonalTravelTimeMatrix coarseMatrix = new ZonalTravelTimeMatrix(network, new FreeSpeedTravelTime(), 2000,
+				3600, 2 * 3600, new ForkJoinPool(2));
+		assertThat(coarseMatrix.getTravelTime(a, b, 0)).isEqualTo(0);
+
+		DetourTimeEstimator estimator = coarseMatrix.createDetourTimeEstimator(() -> 0, 1, 10);
+		// within a zone: a -> b (beeline, 1000 m), instead of 0
+		assertThat(estimator.estimateTime(ca, bc)).isEqualTo(100);
+		// b -> d (matrix, 200 s) -> c (beeline, 1000 m)
+		assertThat(estimator.estimateTime(ab, cd)).isEqualTo(300);
+	}
+
+	@Test
+	public void constructor_tooLargeMatrix() {
+		assertThatThrownBy(
+				() -> new ZonalTravelTimeMatrix(network, new FreeSpeedTravelTime(), 500, 0.00001, 2 * 3600,
+						new ForkJoinPool(1))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Travel time matrix too large");
+	}
+
+	private Node node(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, 0));
+	}
+
+	private Link link(Node from, Node to, double length) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to,
+				length, 10, 1000, 1);
+	}
+}
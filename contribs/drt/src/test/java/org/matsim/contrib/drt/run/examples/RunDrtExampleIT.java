@@ -26,6 +26,8 @@ import java.net.URL;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.contrib.drt.optimizer.insertion.SelectiveInsertionSearchParams;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.config.Config;
@@ -55,6 +57,23 @@ public class RunDrtExampleIT {
 		RunDrtExample.run(config, false);
 	}
 
+	@Test
+	public void testRunDrtExampleWithSelectiveInsertionSearchAndTravelTimeMatrix() {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+
+		DrtConfigGroup drtCfg = DrtConfigGroup.getSingleModeDrtConfig(config);
+		drtCfg.removeParameterSet(drtCfg.getDrtInsertionSearchParams());
+		SelectiveInsertionSearchParams insertionSearchParams = new SelectiveInsertionSearchParams();
+		insertionSearchParams.setTravelTimeMatrixCellSize(500);
+		drtCfg.addParameterSet(insertionSearchParams);
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+	}
+
 	@Test
 	public void testRunDrtStopbasedExample() {
 		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_stop_based_drt_config.xml");
@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Like {@link DefaultLeastCostPathCalculatorWithCache}, but the paths are kept in a {@link SharedPathCache}. Not
+ * thread-safe (one instance per thread), while the cache can be shared by all threads.
+ */
+public class LeastCostPathCalculatorWithSharedCache implements LeastCostPathCalculatorWithCache {
+	private final LeastCostPathCalculator calculator;
+	private final SharedPathCache pathCache;
+
+	private final CacheStats cacheStats = new CacheStats();
+
+	public LeastCostPathCalculatorWithSharedCache(LeastCostPathCalculator calculator, SharedPathCache pathCache) {
+		this.calculator = calculator;
+		this.pathCache = pathCache;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
+		Path path = pathCache.getPath(fromNode, toNode, startTime);
+		if (path == null) {
+			cacheStats.incMisses();
+			// no locking: two threads may calculate the same path at the same time, but the results are equal
+			path = calculator.calcLeastCostPath(fromNode, toNode, pathCache.getPathDepartureTime(startTime), person,
+					vehicle);
+			if (path != null) {
+				pathCache.putPath(fromNode, toNode, startTime, path);
+			}
+		} else {
+			cacheStats.incHits();
+		}
+		return path;
+	}
+
+	@Override
+	public CacheStats getCacheStats() {
+		return cacheStats;
+	}
+}
@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded path cache that can be shared by many {@link LeastCostPathCalculatorWithSharedCache}s (e.g. one per
+ * vehicle, scheduler or optimizer thread). Thread-safe.
+ * <p>
+ * Paths are cached per (fromNode, toNode, time bin) and are calculated for the beginning of the time bin (same as in
+ * {@link DefaultLeastCostPathCalculatorWithCache}). Paths are stored compactly as arrays of link indices. Once the
+ * maximum size is reached, the least recently used paths are evicted.
+ * <p>
+ * Paths are assumed not to depend on the person and vehicle, and the travel times/disutilities are assumed not to
+ * change while the cache is in use. Therefore, a cache should not outlive a single QSim.
+ */
+public class SharedPathCache {
+	private static final class Key {
+		private final int fromNodeIdx;
+		private final int toNodeIdx;
+		private final int timeBin;
+
+		private Key(int fromNodeIdx, int toNodeIdx, int timeBin) {
+			this.fromNodeIdx = fromNodeIdx;
+			this.toNodeIdx = toNodeIdx;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key that = (Key)o;
+			return fromNodeIdx == that.fromNodeIdx && toNodeIdx == that.toNodeIdx && timeBin == that.timeBin;
+		}
+
+		@Override
+		public int hashCode() {
+			return (fromNodeIdx * 31 + toNodeIdx) * 31 + timeBin;
+		}
+	}
+
+	private static final class CachedPath {
+		private final int[] linkIndices;
+		private final double travelTime;
+		private final double travelCost;
+
+		private CachedPath(Path path) {
+			linkIndices = path.links.stream().mapToInt(link -> link.getId().index()).toArray();
+			travelTime = path.travelTime;
+			travelCost = path.travelCost;
+		}
+	}
+
+	private final Link[] linksByIndex;
+	private final TimeDiscretizer timeDiscretizer;
+	private final Cache<Key, CachedPath> cache;
+
+	public SharedPathCache(Network network, TimeDiscretizer timeDiscretizer, long maximumSize) {
+		this.timeDiscretizer = timeDiscretizer;
+
+		linksByIndex = new Link[Id.getNumberOfIds(Link.class)];
+		for (Link link : network.getLinks().values()) {
+			linksByIndex[link.getId().index()] = link;
+		}
+
+		cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+	}
+
+	/**
+	 * @return cached path (not shared, so it can be modified) or null if not cached
+	 */
+	public Path getPath(Node fromNode, Node toNode, double startTime) {
+		CachedPath cachedPath = cache.getIfPresent(key(fromNode, toNode, startTime));
+		return cachedPath == null ? null : toPath(fromNode, cachedPath);
+	}
+
+	/**
+	 * @param path calculated for the departure at {@link #getPathDepartureTime(double)}
+	 */
+	public void putPath(Node fromNode, Node toNode, double startTime, Path path) {
+		cache.put(key(fromNode, toNode, startTime), new CachedPath(path));
+	}
+
+	/**
+	 * @return departure time for which the path should be calculated (beginning of the time bin)
+	 */
+	public double getPathDepartureTime(double startTime) {
+		return timeDiscretizer.discretize(startTime);
+	}
+
+	private Key key(Node fromNode, Node toNode, double startTime) {
+		return new Key(fromNode.getId().index(), toNode.getId().index(), timeDiscretizer.getIdx(startTime));
+	}
+
+	private Path toPath(Node fromNode, CachedPath cachedPath) {
+		List<Link> links = new ArrayList<>(cachedPath.linkIndices.length);
+		List<Node> nodes = new ArrayList<>(cachedPath.linkIndices.length + 1);
+		nodes.add(fromNode);
+		for (int linkIdx : cachedPath.linkIndices) {
+			Link link = linksByIndex[linkIdx];
+			links.add(link);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, cachedPath.travelTime, cachedPath.travelCost);
+	}
+
+	/**
+	 * @return hits, misses and evictions since the cache was created
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+}
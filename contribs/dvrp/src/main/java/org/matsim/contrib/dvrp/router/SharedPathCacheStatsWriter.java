@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import org.matsim.contrib.dvrp.run.QSimScopeObjectListener;
+import org.matsim.contrib.util.CSVLineBuilder;
+import org.matsim.contrib.util.CompactCSVWriter;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Appends the statistics of the (QSim-scoped) {@link SharedPathCache} of a mode to a single file, one line per
+ * iteration.
+ */
+public class SharedPathCacheStatsWriter
+		implements ShutdownListener, MobsimBeforeCleanupListener, QSimScopeObjectListener<SharedPathCache> {
+	private static final String[] HEADER = { "iter", "hits", "misses", "evictions", "hitRate", "size" };
+
+	private final IterationCounter iterationCounter;
+	private final CompactCSVWriter multiDayWriter;
+
+	private SharedPathCache pathCache;
+
+	public SharedPathCacheStatsWriter(String mode, OutputDirectoryHierarchy controlerIO,
+			IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
+
+		multiDayWriter = new CompactCSVWriter(
+				IOUtils.getBufferedWriter(controlerIO.getOutputFilename("path_cache_stats_" + mode + ".txt")));
+		multiDayWriter.writeNext(HEADER);
+	}
+
+	@Override
+	public void objectCreated(SharedPathCache pathCache) {
+		this.pathCache = pathCache;
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		CacheStats s = pathCache.getStats();
+		multiDayWriter.writeNext(new CSVLineBuilder().add(iterationCounter.getIterationNumber() + "")
+				.add(s.hitCount() + "")
+				.add(s.missCount() + "")
+				.add(s.evictionCount() + "")
+				.addf("%.4f", s.hitRate())
+				.add(pathCache.size() + ""));
+		multiDayWriter.flush();
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		multiDayWriter.close();
+	}
+}
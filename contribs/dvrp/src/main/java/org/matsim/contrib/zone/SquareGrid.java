@@ -96,8 +96,15 @@ public class SquareGrid {
 	}
 
 	public Zone getZone(Coord coord) {
+		return zones[getZoneIndex(coord)];
+	}
+
+	/**
+	 * @return index of the zone in {@link #getZones()}
+	 */
+	public int getZoneIndex(Coord coord) {
 		int r = (int)((coord.getY() - minY) / cellSize);// == Math.floor
 		int c = (int)((coord.getX() - minX) / cellSize);// == Math.floor
-		return zones[r * cols + c];
+		return r * cols + c;
 	}
 }
@@ -0,0 +1,107 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.dvrp.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import com.google.common.collect.ImmutableList;
+
+public class LeastCostPathCalculatorWithSharedCacheTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node a = node("a", 0);
+	private final Node b = node("b", 1000);
+	private final Node c = node("c", 2000);
+	private final Link ab = link(a, b);
+	private final Link bc = link(b, c);
+
+	private final Path pathAC = new Path(ImmutableList.of(a, b, c), ImmutableList.of(ab, bc), 200, 300);
+	private final Path pathBC = new Path(ImmutableList.of(b, c), ImmutableList.of(bc), 100, 150);
+
+	private final LeastCostPathCalculator router = mock(LeastCostPathCalculator.class);
+
+	@Test
+	public void calcLeastCostPath_sharedBetweenCalculators() {
+		when(router.calcLeastCostPath(eq(a), eq(c), anyDouble(), any(), any())).thenReturn(pathAC);
+		SharedPathCache cache = new SharedPathCache(network, TimeDiscretizer.OPEN_ENDED_1_HOUR, 10);
+		LeastCostPathCalculatorWithSharedCache calculator1 = new LeastCostPathCalculatorWithSharedCache(router, cache);
+		LeastCostPathCalculatorWithSharedCache calculator2 = new LeastCostPathCalculatorWithSharedCache(router, cache);
+
+		assertPath(calculator1.calcLeastCostPath(a, c, 100, null, null), pathAC);
+		verify(router).calcLeastCostPath(a, c, 0, null, null);// calculated for the beginning of the time bin
+
+		assertPath(calculator2.calcLeastCostPath(a, c, 3599, null, null), pathAC);// same time bin
+		verifyNoMoreInteractions(router);
+
+		calculator2.calcLeastCostPath(a, c, 3600, null, null);// next time bin
+		verify(router).calcLeastCostPath(a, c, 3600, null, null);
+
+		assertThat(calculator1.getCacheStats().getMisses()).isEqualTo(1);
+		assertThat(calculator2.getCacheStats().getHits()).isEqualTo(1);
+		assertThat(calculator2.getCacheStats().getMisses()).isEqualTo(1);
+		assertThat(cache.getStats().hitCount()).isEqualTo(1);
+		assertThat(cache.getStats().missCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void calcLeastCostPath_leastRecentlyUsedEvicted() {
+		when(router.calcLeastCostPath(eq(a), eq(c), anyDouble(), any(), any())).thenReturn(pathAC);
+		when(router.calcLeastCostPath(eq(b), eq(c), anyDouble(), any(), any())).thenReturn(pathBC);
+		SharedPathCache cache = new SharedPathCache(network, TimeDiscretizer.OPEN_ENDED_1_HOUR, 1);
+		LeastCostPathCalculatorWithSharedCache calculator = new LeastCostPathCalculatorWithSharedCache(router, cache);
+
+		calculator.calcLeastCostPath(a, c, 0, null, null);
+		assertPath(calculator.calcLeastCostPath(b, c, 0, null, null), pathBC);
+		calculator.calcLeastCostPath(a, c, 0, null, null);
+
+		verify(router, times(2)).calcLeastCostPath(a, c, 0, null, null);
+		assertThat(cache.getStats().evictionCount()).isEqualTo(2);
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
+	private static void assertPath(Path actual, Path expected) {
+		assertThat(actual.nodes).containsExactlyElementsOf(expected.nodes);
+		assertThat(actual.links).containsExactlyElementsOf(expected.links);
+		assertThat(actual.travelTime).isEqualTo(expected.travelTime);
+		assertThat(actual.travelCost).isEqualTo(expected.travelCost);
+	}
+
+	private Node node(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, 0));
+	}
+
+	private Link link(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to,
+				1000, 10, 1000, 1);
+	}
+}
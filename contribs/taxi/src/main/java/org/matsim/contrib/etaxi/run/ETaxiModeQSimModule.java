@@ -116,7 +116,7 @@ public class ETaxiModeQSimModule extends AbstractDvrpModeQSimModule {
 				TravelDisutility travelDisutility = getModalInstance(
 						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
 				LeastCostPathCalculator router = new FastAStarLandmarksFactory(
-						getConfig().global()).createPathCalculator(network, travelDisutility, travelTime);
+						getConfig().global(), getConfig().controler()).createPathCalculator(network, travelDisutility, travelTime);
 				return new ETaxiScheduler(taxiCfg, fleet, taxiScheduleInquiry, travelTime, router);
 			}
 		}).asEagerSingleton();
@@ -0,0 +1,80 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.benchmark;
+
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.log4j.Logger;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.taxi.optimizer.AbstractTaxiOptimizerParams;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentTaxiOptimizerParams;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentAlgorithm;
+import org.matsim.contrib.taxi.run.MultiModeTaxiConfigGroup;
+import org.matsim.contrib.taxi.run.TaxiConfigGroup;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Runs a taxi benchmark (see {@link RunTaxiBenchmark}) once per {@link AssignmentAlgorithm}, each into its own
+ * output subdirectory. The quality of the solutions (passenger wait times, empty drive ratios etc.) is written to
+ * benchmark_stats.txt of each subdirectory, and the wall times are logged at the end.
+ * <p>
+ * If the taxi config does not contain {@link AssignmentTaxiOptimizerParams}, the default ones are used.
+ * <p>
+ * Usage: <code>RunAssignmentAlgorithmBenchmark config_url runs</code>, e.g. with the mielec taxi benchmark config.
+ */
+public class RunAssignmentAlgorithmBenchmark {
+	private static final Logger log = Logger.getLogger(RunAssignmentAlgorithmBenchmark.class);
+
+	public static void run(URL configUrl, int runs) {
+		Map<AssignmentAlgorithm, Long> wallTimes = new EnumMap<>(AssignmentAlgorithm.class);
+		for (AssignmentAlgorithm algorithm : AssignmentAlgorithm.values()) {
+			Config config = ConfigUtils.loadConfig(configUrl, new MultiModeTaxiConfigGroup(), new DvrpConfigGroup());
+			TaxiConfigGroup taxiCfg = TaxiConfigGroup.getSingleModeTaxiConfig(config);
+			AbstractTaxiOptimizerParams params = taxiCfg.getTaxiOptimizerParams();
+			if (!(params instanceof AssignmentTaxiOptimizerParams)) {
+				Optional.ofNullable(params).ifPresent(taxiCfg::removeParameterSet);
+				params = new AssignmentTaxiOptimizerParams();
+				taxiCfg.addParameterSet(params);
+			}
+			((AssignmentTaxiOptimizerParams)params).setAssignmentAlgorithm(algorithm);
+			config.controler().setOutputDirectory(config.controler().getOutputDirectory() + "/" + algorithm);
+
+			long start = System.nanoTime();
+			RunTaxiBenchmark.createControler(config, runs).run();
+			wallTimes.put(algorithm, (System.nanoTime() - start) / 1_000_000);
+		}
+
+		wallTimes.forEach((algorithm, millis) -> log.info(
+				String.format("%s: %d runs in %.1f s (see benchmark_stats.txt in the '%s' output subdirectory)",
+						algorithm, runs, millis / 1000., algorithm)));
+	}
+
+	public static void main(String[] args) {
+		Preconditions.checkArgument(args.length == 2, "Usage: RunAssignmentAlgorithmBenchmark config_url runs");
+		run(IOUtils.resolveFileOrResource(args[0]), Integer.parseInt(args[1]));
+	}
+}
@@ -26,6 +26,7 @@ import javax.validation.constraints.Positive;
 
 import org.matsim.contrib.taxi.optimizer.AbstractTaxiOptimizerParams;
 import org.matsim.contrib.taxi.optimizer.assignment.TaxiToRequestAssignmentCostProvider.Mode;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentAlgorithm;
 import org.matsim.core.config.Config;
 
 public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerParams {
@@ -88,6 +89,18 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 	@Positive
 	private double nullPathCost = 48 * 3600;
 
+	public static final String ASSIGNMENT_ALGORITHM = "assignmentAlgorithm";
+	static final String ASSIGNMENT_ALGORITHM_EXP = "Specifies the algorithm used to solve the assignment problem."
+			+ " HUNGARIAN uses a dense cost matrix of all vehicle-request pairs, where the pairs not included in the"
+			+ " matrix calculation get 'nullPathCost'. SPARSE considers only the pairs included in the matrix"
+			+ " calculation ('nearestRequestsLimit' and 'nearestVehiclesLimit') and never assigns any other pair."
+			+ " Vehicles and requests without such pairs remain unassigned until the next reoptimization, so the"
+			+ " solutions may differ from (and be worse than) those of HUNGARIAN. SPARSE does not build the dense"
+			+ " cost matrix and solves independent clusters of vehicles and requests in parallel."
+			+ " The default value is HUNGARIAN.";
+	@NotNull
+	private AssignmentAlgorithm assignmentAlgorithm = AssignmentAlgorithm.HUNGARIAN;
+
 	@Positive
 	private int reoptimizationTimeStep = 10;
 
@@ -114,6 +127,7 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		map.put(NEAREST_REQUESTS_LIMIT, NEAREST_REQUESTS_LIMIT_EXP);
 		map.put(NEAREST_VEHICLES_LIMIT, NEAREST_VEHICLES_LIMIT_EXP);
 		map.put(NULL_PATH_COST, NULL_PATH_COST_EXP);
+		map.put(ASSIGNMENT_ALGORITHM, ASSIGNMENT_ALGORITHM_EXP);
 		return map;
 	}
 
@@ -213,6 +227,22 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		this.nullPathCost = nullPathCost;
 	}
 
+	/**
+	 * @return {@value #ASSIGNMENT_ALGORITHM_EXP}
+	 */
+	@StringGetter(ASSIGNMENT_ALGORITHM)
+	public AssignmentAlgorithm getAssignmentAlgorithm() {
+		return assignmentAlgorithm;
+	}
+
+	/**
+	 * @param assignmentAlgorithm {@value #ASSIGNMENT_ALGORITHM_EXP}
+	 */
+	@StringSetter(ASSIGNMENT_ALGORITHM)
+	public void setAssignmentAlgorithm(AssignmentAlgorithm assignmentAlgorithm) {
+		this.assignmentAlgorithm = assignmentAlgorithm;
+	}
+
 	@StringGetter(REOPTIMIZATION_TIME_STEP)
 	public int getReoptimizationTimeStep() {
 		return reoptimizationTimeStep;
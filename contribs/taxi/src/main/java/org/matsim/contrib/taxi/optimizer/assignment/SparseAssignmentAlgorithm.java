@@ -0,0 +1,312 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Solves the assignment problem on a sparse bipartite graph of rows (workers) and columns (jobs), e.g. only the
+ * k-nearest candidates of each row. Pairs without an edge cannot be assigned. The result is a matching of maximum
+ * cardinality with minimum total cost (among the maximum-cardinality matchings).
+ * <p>
+ * Uses successive shortest augmenting paths with row/column potentials (as in the augmentation phase of the
+ * Jonker-Volgenant algorithm). Each augmentation runs Dijkstra over the edges of one connected component, starting
+ * with the cheapest edge of each column that comes from an unassigned row, so the running time is
+ * O(n * e * log(e)) per component, where n is the number of assignments and e the number of edges.
+ * <p>
+ * The components of the graph are independent of each other, so they are solved in parallel (common fork-join
+ * pool).
+ * <p>
+ * In contrast to {@link HungarianAlgorithm}, there is no need for a dense cost matrix.
+ */
+public class SparseAssignmentAlgorithm {
+	private static final class ColumnEntry {
+		private final double dist;
+		private final int col;
+
+		private ColumnEntry(double dist, int col) {
+			this.dist = dist;
+			this.col = col;
+		}
+	}
+
+	private static final class Component {
+		private final List<Integer> rows = new ArrayList<>();
+		private final List<Integer> cols = new ArrayList<>();
+	}
+
+	private final int rowCount;
+	private final int colCount;
+	private final int[][] colsByRow;
+	private final double[][] costsByRow;
+	private final double minCost;
+
+	// incoming edges of each column, sorted by cost, and the first one (possibly) coming from an unassigned row
+	private final int[][] rowsByCol;
+	private final double[][] costsByCol;
+	private final int[] firstUnassignedRowEdgeByCol;
+
+	private final int[] matchColByRow;
+	private final int[] matchRowByCol;
+	private final double[] matchCostByCol;
+
+	private final double[] rowPotential;
+	private final double[] colPotential;
+	private final double[] rowDist;
+	private final double[] colDist;
+	private final int[] predRowByCol;
+	private final double[] predCostByCol;
+	private final boolean[] settledCols;
+
+	/**
+	 * @param colsByRow  columns of the edges of each row, without duplicates
+	 * @param costsByRow costs of the edges of each row (same order as in colsByRow)
+	 */
+	public SparseAssignmentAlgorithm(int colCount, int[][] colsByRow, double[][] costsByRow) {
+		Preconditions.checkArgument(colsByRow.length == costsByRow.length);
+		this.rowCount = colsByRow.length;
+		this.colCount = colCount;
+		this.colsByRow = colsByRow;
+		this.costsByRow = costsByRow;
+
+		// shift all costs to be non-negative (does not change the optimum for a given cardinality)
+		double min = 0;
+		for (int r = 0; r < rowCount; r++) {
+			Preconditions.checkArgument(colsByRow[r].length == costsByRow[r].length);
+			for (double cost : costsByRow[r]) {
+				min = Math.min(min, cost);
+			}
+		}
+		minCost = min;
+
+		int[] edgeCountByCol = new int[colCount];
+		for (int r = 0; r < rowCount; r++) {
+			for (int c : colsByRow[r]) {
+				edgeCountByCol[c]++;
+			}
+		}
+		rowsByCol = new int[colCount][];
+		costsByCol = new double[colCount][];
+		for (int c = 0; c < colCount; c++) {
+			rowsByCol[c] = new int[edgeCountByCol[c]];
+			costsByCol[c] = new double[edgeCountByCol[c]];
+			edgeCountByCol[c] = 0;
+		}
+		for (int r = 0; r < rowCount; r++) {
+			for (int i = 0; i < colsByRow[r].length; i++) {
+				int c = colsByRow[r][i];
+				rowsByCol[c][edgeCountByCol[c]] = r;
+				costsByCol[c][edgeCountByCol[c]++] = costsByRow[r][i];
+			}
+		}
+		for (int c = 0; c < colCount; c++) {
+			sortByCost(rowsByCol[c], costsByCol[c]);
+		}
+		firstUnassignedRowEdgeByCol = new int[colCount];
+
+		matchColByRow = new int[rowCount];
+		matchRowByCol = new int[colCount];
+		matchCostByCol = new double[colCount];
+		Arrays.fill(matchColByRow, -1);
+		Arrays.fill(matchRowByCol, -1);
+
+		rowPotential = new double[rowCount];
+		colPotential = new double[colCount];
+		rowDist = new double[rowCount];
+		colDist = new double[colCount];
+		predRowByCol = new int[colCount];
+		predCostByCol = new double[colCount];
+		settledCols = new boolean[colCount];
+	}
+
+	private static void sortByCost(int[] rows, double[] costs) {
+		Integer[] order = new Integer[rows.length];
+		Arrays.setAll(order, i -> i);
+		Arrays.sort(order, Comparator.comparingDouble(i -> costs[i]));
+		int[] sortedRows = Arrays.stream(order).mapToInt(i -> rows[i]).toArray();
+		double[] sortedCosts = Arrays.stream(order).mapToDouble(i -> costs[i]).toArray();
+		System.arraycopy(sortedRows, 0, rows, 0, rows.length);
+		System.arraycopy(sortedCosts, 0, costs, 0, costs.length);
+	}
+
+	/**
+	 * @return assigned column of each row, or -1 if the row remains unassigned
+	 */
+	public int[] execute() {
+		findComponents().parallelStream().forEach(this::solve);
+		return matchColByRow.clone();
+	}
+
+	private List<Component> findComponents() {
+		// union-find: rows are [0, rowCount), columns are [rowCount, rowCount + colCount)
+		int[] parent = new int[rowCount + colCount];
+		Arrays.setAll(parent, i -> i);
+		for (int r = 0; r < rowCount; r++) {
+			for (int c : colsByRow[r]) {
+				parent[find(parent, r)] = find(parent, rowCount + c);
+			}
+		}
+
+		Component[] componentByRoot = new Component[parent.length];
+		List<Component> components = new ArrayList<>();
+		for (int r = 0; r < rowCount; r++) {
+			if (colsByRow[r].length > 0) {
+				getComponent(componentByRoot, components, find(parent, r)).rows.add(r);
+			}
+		}
+		for (int c = 0; c < colCount; c++) {
+			int root = find(parent, rowCount + c);
+			if (componentByRoot[root] != null) {// ignore columns without edges
+				componentByRoot[root].cols.add(c);
+			}
+		}
+		return components;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static Component getComponent(Component[] componentByRoot, List<Component> components, int root) {
+		if (componentByRoot[root] == null) {
+			componentByRoot[root] = new Component();
+			components.add(componentByRoot[root]);
+		}
+		return componentByRoot[root];
+	}
+
+	private void solve(Component component) {
+		int maxAssignments = Math.min(component.rows.size(), component.cols.size());
+		for (int i = 0; i < maxAssignments; i++) {
+			if (!augment(component)) {
+				return;// no augmenting path => maximum cardinality reached
+			}
+		}
+	}
+
+	// finds the shortest augmenting path from any unassigned row to any unassigned column
+	private boolean augment(Component component) {
+		for (int r : component.rows) {
+			rowDist[r] = Double.POSITIVE_INFINITY;
+		}
+		for (int c : component.cols) {
+			colDist[c] = Double.POSITIVE_INFINITY;
+			settledCols[c] = false;
+		}
+
+		PriorityQueue<ColumnEntry> queue = new PriorityQueue<>(Comparator.comparingDouble(e -> e.dist));
+		for (int r : component.rows) {
+			if (matchColByRow[r] == -1) {
+				rowDist[r] = 0;
+			}
+		}
+		// instead of relaxing all edges of all unassigned rows, take the cheapest edge per column
+		// (the potentials of all unassigned rows are equal, since their distances are always 0)
+		for (int c : component.cols) {
+			int[] rows = rowsByCol[c];
+			int i = firstUnassignedRowEdgeByCol[c];
+			while (i < rows.length && matchColByRow[rows[i]] != -1) {
+				i++;// assigned rows never become unassigned again
+			}
+			firstUnassignedRowEdgeByCol[c] = i;
+			if (i < rows.length) {
+				relaxEdge(rows[i], c, costsByCol[c][i], queue);
+			}
+		}
+
+		int targetCol = -1;
+		double targetDist = Double.POSITIVE_INFINITY;
+		while (!queue.isEmpty()) {
+			ColumnEntry entry = queue.poll();
+			int c = entry.col;
+			if (settledCols[c]) {
+				continue;// outdated entry
+			}
+			settledCols[c] = true;
+
+			int r = matchRowByCol[c];
+			if (r == -1) {
+				targetCol = c;
+				targetDist = colDist[c];
+				break;
+			}
+
+			// the assigned edge is tight, i.e. its reduced cost is 0 (up to rounding errors)
+			rowDist[r] = Math.max(colDist[c],
+					colDist[c] - (matchCostByCol[c] - minCost) + colPotential[c] - rowPotential[r]);
+			relaxEdges(r, queue);
+		}
+
+		if (targetCol == -1) {
+			return false;
+		}
+
+		// keep reduced costs non-negative
+		for (int r : component.rows) {
+			rowPotential[r] += Math.min(rowDist[r], targetDist);
+		}
+		for (int c : component.cols) {
+			colPotential[c] += Math.min(colDist[c], targetDist);
+		}
+
+		// flip the assignments along the path
+		int c = targetCol;
+		while (c != -1) {
+			int r = predRowByCol[c];
+			int prevCol = matchColByRow[r];
+			matchColByRow[r] = c;
+			matchRowByCol[c] = r;
+			matchCostByCol[c] = predCostByCol[c];
+			c = prevCol;
+		}
+		return true;
+	}
+
+	private void relaxEdges(int r, PriorityQueue<ColumnEntry> queue) {
+		int[] cols = colsByRow[r];
+		double[] costs = costsByRow[r];
+		for (int i = 0; i < cols.length; i++) {
+			int c = cols[i];
+			if (!settledCols[c] && c != matchColByRow[r]) {
+				relaxEdge(r, c, costs[i], queue);
+			}
+		}
+	}
+
+	private void relaxEdge(int r, int c, double cost, PriorityQueue<ColumnEntry> queue) {
+		double dist = rowDist[r] + Math.max(0, cost - minCost + rowPotential[r] - colPotential[c]);
+		if (dist < colDist[c]) {
+			colDist[c] = dist;
+			predRowByCol[c] = r;
+			predCostByCol[c] = cost;
+			queue.add(new ColumnEntry(dist, c));
+		}
+	}
+}
@@ -47,6 +47,34 @@ public class VehicleAssignmentProblem<D> {
 		double calc(VehicleData.Entry departure, DestEntry<D> dest, PathData pathData);
 	}
 
+	public enum AssignmentAlgorithm {
+		/**
+		 * Dense cost matrix; pairs outside the nearest vehicles/destinations get the null path cost, so they can still
+		 * be assigned.
+		 */
+		HUNGARIAN,
+		/**
+		 * Only pairs of nearest vehicles/destinations, see {@link SparseAssignmentAlgorithm}. Pairs outside them are
+		 * never assigned, i.e. vehicles and destinations without such pairs stay unassigned until the next
+		 * reoptimization, even if HUNGARIAN would have assigned them at the null path cost.
+		 */
+		SPARSE
+	}
+
+	private interface PathDataConsumer {
+		void accept(int v, int d, PathData pathData);
+	}
+
+	private static class Candidate {
+		private final int d;
+		private final PathData pathData;
+
+		private Candidate(int d, PathData pathData) {
+			this.d = d;
+			this.pathData = pathData;
+		}
+	}
+
 	private final TravelTime travelTime;
 	private final LeastCostPathCalculator router;
 
@@ -56,6 +84,8 @@ public class VehicleAssignmentProblem<D> {
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
 
+	private final AssignmentAlgorithm assignmentAlgorithm;
+
 	private AssignmentCost<D> assignmentCost;
 	private VehicleData vData;
 	private AssignmentDestinationData<D> dData;
@@ -69,8 +99,16 @@ public class VehicleAssignmentProblem<D> {
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
 			int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(travelTime, multiNodeRouter, backwardMultiNodeRouter, router, nearestDestinationLimit,
+				nearestVehicleLimit, AssignmentAlgorithm.HUNGARIAN);
+	}
+
+	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
+			int nearestDestinationLimit, int nearestVehicleLimit, AssignmentAlgorithm assignmentAlgorithm) {
 		this.travelTime = travelTime;
 		this.router = router;
+		this.assignmentAlgorithm = assignmentAlgorithm;
 
 		forwardPathSearch = OneToManyPathSearch.create(multiNodeRouter);
 		backwardPathSearch = OneToManyPathSearch.create(backwardMultiNodeRouter);
@@ -90,10 +128,70 @@ public class VehicleAssignmentProblem<D> {
 		this.dData = dData;
 		this.assignmentCost = assignmentCost;
 
+		switch (assignmentAlgorithm) {
+			case HUNGARIAN:
+				return findAssignmentsWithHungarianAlgorithm();
+
+			case SPARSE:
+				return findAssignmentsWithSparseAlgorithm();
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+	private List<Dispatch<D>> findAssignmentsWithHungarianAlgorithm() {
 		PathData[][] pathDataMatrix = createPathDataMatrix();
 		double[][] costMatrix = createCostMatrix(pathDataMatrix);
 		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
-		return createDispatches(assignments, pathDataMatrix, travelTime);
+
+		PathData[] assignedPaths = new PathData[assignments.length];
+		for (int v = 0; v < assignments.length; v++) {
+			int d = assignments[v];
+			if (d != -1 && d < dData.getSize()) {
+				assignedPaths[v] = pathDataMatrix[v][d];
+			}
+		}
+		return createDispatches(assignments, assignedPaths);
+	}
+
+	private List<Dispatch<D>> findAssignmentsWithSparseAlgorithm() {
+		List<List<Candidate>> candidatesByVehicle = new ArrayList<>(vData.getSize());
+		for (int v = 0; v < vData.getSize(); v++) {
+			candidatesByVehicle.add(new ArrayList<>());
+		}
+		calcPaths((v, d, pathData) -> candidatesByVehicle.get(v).add(new Candidate(d, pathData)));
+
+		int[][] destsByVehicle = new int[vData.getSize()][];
+		double[][] costsByVehicle = new double[vData.getSize()][];
+		for (int v = 0; v < vData.getSize(); v++) {
+			VehicleData.Entry departure = vData.getEntry(v);
+			List<Candidate> candidates = candidatesByVehicle.get(v);
+			destsByVehicle[v] = new int[candidates.size()];
+			costsByVehicle[v] = new double[candidates.size()];
+			for (int i = 0; i < candidates.size(); i++) {
+				Candidate candidate = candidates.get(i);
+				destsByVehicle[v][i] = candidate.d;
+				costsByVehicle[v][i] = assignmentCost.calc(departure, dData.getEntry(candidate.d),
+						candidate.pathData);
+			}
+		}
+
+		int[] assignments = new SparseAssignmentAlgorithm(dData.getSize(), destsByVehicle, costsByVehicle).execute();
+
+		PathData[] assignedPaths = new PathData[assignments.length];
+		for (int v = 0; v < assignments.length; v++) {
+			int d = assignments[v];
+			if (d != -1) {
+				for (Candidate candidate : candidatesByVehicle.get(v)) {
+					if (candidate.d == d) {
+						assignedPaths[v] = candidate.pathData;
+						break;
+					}
+				}
+			}
+		}
+		return createDispatches(assignments, assignedPaths);
 	}
 
 	// private static int calcPathsForVehiclesCount = 0;
@@ -101,14 +199,7 @@ public class VehicleAssignmentProblem<D> {
 
 	private PathData[][] createPathDataMatrix() {
 		PathData[][] pathDataMatrix = (PathData[][])Array.newInstance(PathData.class, vData.getSize(), dData.getSize());
-
-		if (dData.getSize() > vData.getSize()) {
-			calcPathsForVehicles(pathDataMatrix);
-			// calcPathsForVehiclesCount++;
-		} else {
-			calcPathsForDestinations(pathDataMatrix);
-			// calcPathsForDestinationsCount++;
-		}
+		calcPaths((v, d, pathData) -> pathDataMatrix[v][d] = pathData);
 
 		// if ( (calcPathsForDestinationsCount + calcPathsForVehiclesCount) % 100 == 0) {
 		// System.err.println("PathsForDestinations = " + calcPathsForDestinationsCount
@@ -120,7 +211,17 @@ public class VehicleAssignmentProblem<D> {
 		return pathDataMatrix;
 	}
 
-	private void calcPathsForVehicles(PathData[][] pathDataMatrix) {
+	private void calcPaths(PathDataConsumer pathDataConsumer) {
+		if (dData.getSize() > vData.getSize()) {
+			calcPathsForVehicles(pathDataConsumer);
+			// calcPathsForVehiclesCount++;
+		} else {
+			calcPathsForDestinations(pathDataConsumer);
+			// calcPathsForDestinationsCount++;
+		}
+	}
+
+	private void calcPathsForVehicles(PathDataConsumer pathDataConsumer) {
 		for (int v = 0; v < vData.getSize(); v++) {
 			VehicleData.Entry departure = vData.getEntry(v);
 
@@ -132,13 +233,13 @@ public class VehicleAssignmentProblem<D> {
 
 			for (int i = 0; i < filteredDests.size(); i++) {
 				int d = filteredDests.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				pathDataConsumer.accept(v, d, paths[i]);
 			}
 		}
 	}
 
 	// TODO does not support adv reqs
-	private void calcPathsForDestinations(PathData[][] pathDataMatrix) {
+	private void calcPathsForDestinations(PathDataConsumer pathDataConsumer) {
 		for (int d = 0; d < dData.getSize(); d++) {
 			DestEntry<D> dest = dData.getEntry(d);
 
@@ -150,7 +251,7 @@ public class VehicleAssignmentProblem<D> {
 
 			for (int i = 0; i < filteredVehs.size(); i++) {
 				int v = filteredVehs.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				pathDataConsumer.accept(v, d, paths[i]);
 			}
 		}
 	}
@@ -169,7 +270,7 @@ public class VehicleAssignmentProblem<D> {
 		return costMatrix;
 	}
 
-	private List<Dispatch<D>> createDispatches(int[] assignments, PathData[][] pathDataMatrix, TravelTime travelTime) {
+	private List<Dispatch<D>> createDispatches(int[] assignments, PathData[] assignedPaths) {
 		List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vData.getSize(), dData.getSize()));
 		for (int v = 0; v < assignments.length; v++) {
 			int d = assignments[v];
@@ -180,7 +281,7 @@ public class VehicleAssignmentProblem<D> {
 
 			VehicleData.Entry departure = vData.getEntry(v);
 			DestEntry<D> dest = dData.getEntry(d);
-			PathData pathData = pathDataMatrix[v][d];
+			PathData pathData = assignedPaths[v];
 
 			// TODO if null is frequent we may be more efficient by increasing the neighbourhood
 			VrpPathWithTravelData vrpPath = pathData == null ?
@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
@@ -99,6 +100,12 @@ public final class TaxiConfigGroup extends ReflectiveConfigGroup implements Moda
 			"If true, the startLink is changed to last link in the current schedule, so the taxi starts the next "
 					+ "day at the link where it stopped operating the day before. False by default.";
 
+	public static final String PATH_CACHE_SIZE = "pathCacheSize";
+	static final String PATH_CACHE_SIZE_EXP = "Maximum number of paths kept in the path cache shared by the scheduler"
+			+ " (least recently used paths are evicted first). Paths are cached per time bin of the travel time"
+			+ " calculator and are calculated for the beginning of the bin. Hit/miss/eviction statistics are written"
+			+ " to path_cache_stats_<mode>.txt. 0 (default) disables the cache.";
+
 	// input
 	public static final String TAXIS_FILE = "taxisFile";
 	static final String TAXIS_FILE_EXP = "An XML file specifying the taxi fleet."
@@ -137,6 +144,9 @@ public final class TaxiConfigGroup extends ReflectiveConfigGroup implements Moda
 	private boolean onlineVehicleTracker = false;
 	private boolean changeStartLinkToLastLinkInSchedule = false;
 
+	@PositiveOrZero
+	private long pathCacheSize = 0;
+
 	@Nullable//it is possible to generate a FleetSpecification (instead of reading it from a file)
 	private String taxisFile = null;
 
@@ -179,6 +189,7 @@ public final class TaxiConfigGroup extends ReflectiveConfigGroup implements Moda
 		map.put(DROPOFF_DURATION, DROPOFF_DURATION_EXP);
 		map.put(ONLINE_VEHICLE_TRACKER, ONLINE_VEHICLE_TRACKER_EXP);
 		map.put(CHANGE_START_LINK_TO_LAST_LINK_IN_SCHEDULE, CHANGE_START_LINK_TO_LAST_LINK_IN_SCHEDULE_EXP);
+		map.put(PATH_CACHE_SIZE, PATH_CACHE_SIZE_EXP);
 		map.put(TAXIS_FILE, TAXIS_FILE_EXP);
 		map.put(TIME_PROFILES, TIME_PROFILES_EXP);
 		map.put(DETAILED_STATS, DETAILED_STATS_EXP);
@@ -324,6 +335,23 @@ public final class TaxiConfigGroup extends ReflectiveConfigGroup implements Moda
 		return this;
 	}
 
+	/**
+	 * @return {@value #PATH_CACHE_SIZE_EXP}
+	 */
+	@StringGetter(PATH_CACHE_SIZE)
+	public long getPathCacheSize() {
+		return pathCacheSize;
+	}
+
+	/**
+	 * @param pathCacheSize {@value #PATH_CACHE_SIZE_EXP}
+	 */
+	@StringSetter(PATH_CACHE_SIZE)
+	public TaxiConfigGroup setPathCacheSize(long pathCacheSize) {
+		this.pathCacheSize = pathCacheSize;
+		return this;
+	}
+
 	/**
 	 * @return {@value #TAXIS_FILE_EXP}
 	 */
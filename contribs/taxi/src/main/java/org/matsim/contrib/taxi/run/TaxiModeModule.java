@@ -24,6 +24,8 @@ import org.matsim.contrib.dvrp.fleet.Fleet;
 import org.matsim.contrib.dvrp.fleet.FleetModule;
 import org.matsim.contrib.dvrp.router.DvrpModeRoutingModule;
 import org.matsim.contrib.dvrp.router.DvrpModeRoutingNetworkModule;
+import org.matsim.contrib.dvrp.router.SharedPathCache;
+import org.matsim.contrib.dvrp.router.SharedPathCacheStatsWriter;
 import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
 import org.matsim.contrib.dvrp.run.DvrpModes;
@@ -52,7 +54,7 @@ public final class TaxiModeModule extends AbstractDvrpModeModule {
 		install(new DvrpModeRoutingNetworkModule(getMode(), taxiCfg.isUseModeFilteredSubnetwork()));
 		bindModal(TravelDisutilityFactory.class).toInstance(TimeAsTravelDisutility::new);
 
-		install(new DvrpModeRoutingModule(getMode(), new FastAStarLandmarksFactory(getConfig().global())));
+		install(new DvrpModeRoutingModule(getMode(), new FastAStarLandmarksFactory(getConfig().global(), getConfig().controler())));
 
 		install(new FleetModule(getMode(), taxiCfg.getTaxisFileUrl(getConfig().getContext()),
 				taxiCfg.isChangeStartLinkToLastLinkInSchedule()));
@@ -63,5 +65,14 @@ public final class TaxiModeModule extends AbstractDvrpModeModule {
 				.listenerCreator(getter -> new TaxiStatsDumper(taxiCfg, getter.get(OutputDirectoryHierarchy.class),
 						getter.get(IterationCounter.class)))
 				.build());
+
+		if (taxiCfg.getPathCacheSize() > 0) {
+			install(QSimScopeObjectListenerModule.builder(SharedPathCacheStatsWriter.class)
+					.mode(getMode())
+					.objectClass(SharedPathCache.class)
+					.listenerCreator(getter -> new SharedPathCacheStatsWriter(getMode(),
+							getter.get(OutputDirectoryHierarchy.class), getter.get(IterationCounter.class)))
+					.build());
+		}
 	}
 }
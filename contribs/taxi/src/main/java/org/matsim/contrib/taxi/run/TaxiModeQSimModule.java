@@ -28,11 +28,14 @@ import org.matsim.contrib.dvrp.passenger.PassengerEngine;
 import org.matsim.contrib.dvrp.passenger.PassengerEngineQSimModule;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestCreator;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestValidator;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithSharedCache;
+import org.matsim.contrib.dvrp.router.SharedPathCache;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.run.ModalProviders;
 import org.matsim.contrib.dvrp.schedule.ScheduleTimingUpdater;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.contrib.dvrp.vrpagent.VrpAgentLogic.DynActionCreator;
 import org.matsim.contrib.dvrp.vrpagent.VrpAgentSourceQSimModule;
 import org.matsim.contrib.taxi.optimizer.DefaultTaxiOptimizerProvider;
@@ -114,11 +117,22 @@ public class TaxiModeQSimModule extends AbstractDvrpModeQSimModule {
 				TravelDisutility travelDisutility = getModalInstance(
 						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
 				LeastCostPathCalculator router = new FastAStarLandmarksFactory(
-						getConfig().global()).createPathCalculator(network, travelDisutility, travelTime);
+						getConfig().global(), getConfig().controler()).createPathCalculator(network, travelDisutility, travelTime);
+				if (taxiCfg.getPathCacheSize() > 0) {
+					router = new LeastCostPathCalculatorWithSharedCache(router,
+							getModalInstance(SharedPathCache.class));
+				}
 				return new TaxiScheduler(taxiCfg, fleet, taxiScheduleInquiry, travelTime, router);
 			}
 		}).asEagerSingleton();
 
+		if (taxiCfg.getPathCacheSize() > 0) {
+			bindModal(SharedPathCache.class).toProvider(modalProvider(
+					getter -> new SharedPathCache(getter.getModal(Network.class),
+							new TimeDiscretizer(getConfig().travelTimeCalculator()), taxiCfg.getPathCacheSize())))
+					.asEagerSingleton();
+		}
+
 		bindModal(ScheduleTimingUpdater.class).toProvider(modalProvider(
 				getter -> new ScheduleTimingUpdater(getter.get(MobsimTimer.class),
 						new TaxiStayTaskEndTimeCalculator(taxiCfg)))).asEagerSingleton();
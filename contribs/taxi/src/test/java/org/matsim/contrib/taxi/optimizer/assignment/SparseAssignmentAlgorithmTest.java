@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class SparseAssignmentAlgorithmTest {
+	@Test
+	public void execute_completeGraph_sameCostAsHungarianAlgorithm() {
+		Random random = new Random(123);
+		for (int[] size : new int[][] { { 1, 1 }, { 5, 5 }, { 20, 7 }, { 7, 20 }, { 50, 50 } }) {
+			int rows = size[0];
+			int cols = size[1];
+			double[][] costMatrix = new double[rows][cols];
+			for (double[] row : costMatrix) {
+				Arrays.setAll(row, c -> random.nextInt(1000) - 100);
+			}
+
+			int[][] colsByRow = new int[rows][];
+			Arrays.fill(colsByRow, IntStream.range(0, cols).toArray());
+			int[] sparseAssignments = new SparseAssignmentAlgorithm(cols, colsByRow, costMatrix).execute();
+			int[] hungarianAssignments = new HungarianAlgorithm(costMatrix).execute();
+
+			assertThat(assignedCount(sparseAssignments)).isEqualTo(Math.min(rows, cols));
+			assertThat(IntStream.of(sparseAssignments).filter(c -> c != -1).distinct().count()).isEqualTo(
+					Math.min(rows, cols));
+			assertThat(totalCost(costMatrix, sparseAssignments)).isCloseTo(totalCost(costMatrix, hungarianAssignments),
+					within(1e-6));
+		}
+	}
+
+	@Test
+	public void execute_sparseGraph_maxCardinalityFirst() {
+		// the cheapest edge (r0-c0) would leave r1 unassigned
+		int[][] colsByRow = { { 0, 1 }, { 0 } };
+		double[][] costsByRow = { { 1, 100 }, { 50 } };
+		assertThat(new SparseAssignmentAlgorithm(2, colsByRow, costsByRow).execute()).containsExactly(1, 0);
+	}
+
+	@Test
+	public void execute_independentComponents() {
+		// components: {r0, r1, c0}, {r2, c1, c2}, {r3} (no edges), {c3} (no edges)
+		int[][] colsByRow = { { 0 }, { 0 }, { 1, 2 }, {} };
+		double[][] costsByRow = { { 10 }, { 5 }, { 3, 2 }, {} };
+		assertThat(new SparseAssignmentAlgorithm(4, colsByRow, costsByRow).execute()).containsExactly(-1, 0, 2, -1);
+	}
+
+	private static long assignedCount(int[] assignments) {
+		return IntStream.of(assignments).filter(c -> c != -1).count();
+	}
+
+	private static double totalCost(double[][] costMatrix, int[] assignments) {
+		return IntStream.range(0, assignments.length)
+				.filter(r -> assignments[r] != -1)
+				.mapToDouble(r -> costMatrix[r][assignments[r]])
+				.sum();
+	}
+}
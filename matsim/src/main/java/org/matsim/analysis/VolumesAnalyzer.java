@@ -22,6 +22,7 @@ package org.matsim.analysis;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdIntMap;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
@@ -33,7 +34,10 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.vehicles.Vehicle;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -53,8 +57,11 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	
 	// for multi-modal support
 	private final boolean observeModes;
-	private final IdMap<Vehicle, String> enRouteModes;
-	private final IdMap<Link, Map<String, int[]>> linksPerMode;
+	// modes are stored by their index in modes, to avoid hashing the mode for every link leave event
+	private final List<String> modes = new ArrayList<>();
+	private final Map<String, Integer> modeIndices = new HashMap<>();
+	private final IdIntMap<Vehicle> enRouteModes;
+	private final IdMap<Link, int[][]> linksPerMode;
 
 	@Inject
 	VolumesAnalyzer(Network network, EventsManager eventsManager) {
@@ -74,7 +81,7 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		
 		this.observeModes = observeModes;
 		if (this.observeModes) {
-			this.enRouteModes = new IdMap<>(Vehicle.class);
+			this.enRouteModes = new IdIntMap<>(Vehicle.class);
 			this.linksPerMode = new IdMap<>(Link.class);
 		} else {
 			this.enRouteModes = null;
@@ -85,9 +92,19 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		if (this.observeModes) {
-			this.enRouteModes.put(event.getVehicleId(), event.getNetworkMode());
+			this.enRouteModes.put(event.getVehicleId(), getModeIndex(event.getNetworkMode()));
 		}
 	}
+
+	private int getModeIndex(String mode) {
+		Integer index = this.modeIndices.get(mode);
+		if (index == null) {
+			index = this.modes.size();
+			this.modes.add(mode);
+			this.modeIndices.put(mode, index);
+		}
+		return index;
+	}
 	
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
@@ -100,16 +117,16 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		volumes[timeslot]++;
 		
 		if (this.observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(event.getLinkId());
-			if (modeVolumes == null) {
-				modeVolumes = new HashMap<>();
+			int modeIndex = this.enRouteModes.containsKey(event.getVehicleId()) ? this.enRouteModes.get(event.getVehicleId()) : getModeIndex(null);
+			int[][] modeVolumes = this.linksPerMode.get(event.getLinkId());
+			if (modeVolumes == null || modeVolumes.length <= modeIndex) {
+				modeVolumes = modeVolumes == null ? new int[this.modes.size()][] : Arrays.copyOf(modeVolumes, this.modes.size());
 				this.linksPerMode.put(event.getLinkId(), modeVolumes);
 			}
-			String mode = this.enRouteModes.get(event.getVehicleId());
-			volumes = modeVolumes.get(mode);
+			volumes = modeVolumes[modeIndex];
 			if (volumes == null) {
 				volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-				modeVolumes.put(mode, volumes);
+				modeVolumes[modeIndex] = volumes;
 			}
 			volumes[timeslot]++;
 		}
@@ -139,8 +156,9 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(linkId);
-			if (modeVolumes != null) return modeVolumes.get(mode);
+			Integer modeIndex = this.modeIndices.get(mode);
+			int[][] modeVolumes = this.linksPerMode.get(linkId);
+			if (modeIndex != null && modeVolumes != null && modeIndex < modeVolumes.length) return modeVolumes[modeIndex];
 		} 
 		return null;
 	}
@@ -224,8 +242,12 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	public Set<String> getModes() {
 		Set<String> modes = new TreeSet<>();
 		
-		for (Map<String, int[]> map : this.linksPerMode.values()) {
-			modes.addAll(map.keySet());
+		for (int[][] modeVolumes : this.linksPerMode.values()) {
+			for (int i = 0; i < modeVolumes.length; i++) {
+				if (modeVolumes[i] != null) {
+					modes.add(this.modes.get(i));
+				}
+			}
 		}
 		
 		return modes;
@@ -0,0 +1,268 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A map from {@link Id}s to primitive <code>long</code> values, stored in arrays addressed by {@link Id#index()}
+ * like in {@link IdMap}, but without boxing the values.
+ * <p>
+ * Instances created with the constructors are not thread-safe. Instances created with {@link #createConcurrent(Class)}
+ * distribute the ids over stripes with separate locks, so they can be updated from several threads at the same time,
+ * e.g. by event handlers running in parallel. Compound operations like {@link #add(Id, long)} are atomic in this
+ * case.
+ */
+public class IdLongMap<T> {
+
+	private static final int INCREMENT = 100;
+	private static final float INCREMENT_FACTOR = 1.5f;
+	private static final int CONCURRENT_STRIPE_BITS = 6;
+
+	private final Class<T> idClass;
+	private final boolean concurrent;
+	private final int stripeBits;
+	private final int stripeMask;
+	private final Stripe[] stripes;
+
+	public IdLongMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT));
+	}
+
+	public IdLongMap(Class<T> idClass, int size) {
+		this(idClass, size, false, 0);
+	}
+
+	private IdLongMap(Class<T> idClass, int size, boolean concurrent, int stripeBits) {
+		this.idClass = idClass;
+		this.concurrent = concurrent;
+		this.stripeBits = stripeBits;
+		this.stripeMask = (1 << stripeBits) - 1;
+		this.stripes = new Stripe[1 << stripeBits];
+		int rows = (size >>> stripeBits) + 1;
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Stripe(rows);
+		}
+	}
+
+	/**
+	 * Creates a map which can be modified by several threads concurrently.
+	 */
+	public static <T> IdLongMap<T> createConcurrent(Class<T> idClass) {
+		return new IdLongMap<>(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT), true, CONCURRENT_STRIPE_BITS);
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : this.stripes) {
+			if (this.concurrent) {
+				synchronized (stripe) {
+					size += stripe.size;
+				}
+			} else {
+				size += stripe.size;
+			}
+		}
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		int index = key.index();
+		Stripe stripe = this.stripes[index & this.stripeMask];
+		int row = index >>> this.stripeBits;
+		if (this.concurrent) {
+			synchronized (stripe) {
+				return stripe.present.get(row);
+			}
+		}
+		return stripe.present.get(row);
+	}
+
+	/**
+	 * @return the value stored for the key, or 0 if there is none.
+	 */
+	public long get(Id<T> key) {
+		return getOrDefault(key, 0);
+	}
+
+	/**
+	 * @return the value stored for the key, or <code>defaultValue</code> if there is none.
+	 */
+	public long getOrDefault(Id<T> key, long defaultValue) {
+		int index = key.index();
+		Stripe stripe = this.stripes[index & this.stripeMask];
+		int row = index >>> this.stripeBits;
+		if (this.concurrent) {
+			synchronized (stripe) {
+				return stripe.get(row, defaultValue);
+			}
+		}
+		return stripe.get(row, defaultValue);
+	}
+
+	/**
+	 * @return the value previously stored for the key, or 0 if there was none.
+	 */
+	public long put(Id<T> key, long value) {
+		int index = key.index();
+		Stripe stripe = this.stripes[index & this.stripeMask];
+		int row = index >>> this.stripeBits;
+		if (this.concurrent) {
+			synchronized (stripe) {
+				return stripe.put(row, value);
+			}
+		}
+		return stripe.put(row, value);
+	}
+
+	/**
+	 * Adds <code>delta</code> to the value stored for the key. If there is no value yet, <code>delta</code> is stored.
+	 *
+	 * @return the new value stored for the key.
+	 */
+	public long add(Id<T> key, long delta) {
+		int index = key.index();
+		Stripe stripe = this.stripes[index & this.stripeMask];
+		int row = index >>> this.stripeBits;
+		if (this.concurrent) {
+			synchronized (stripe) {
+				return stripe.add(row, delta);
+			}
+		}
+		return stripe.add(row, delta);
+	}
+
+	/**
+	 * @return the value previously stored for the key, or 0 if there was none.
+	 */
+	public long remove(Id<T> key) {
+		int index = key.index();
+		Stripe stripe = this.stripes[index & this.stripeMask];
+		int row = index >>> this.stripeBits;
+		if (this.concurrent) {
+			synchronized (stripe) {
+				return stripe.remove(row);
+			}
+		}
+		return stripe.remove(row);
+	}
+
+	public void clear() {
+		for (Stripe stripe : this.stripes) {
+			if (this.concurrent) {
+				synchronized (stripe) {
+					stripe.clear();
+				}
+			} else {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return a new set containing the ids for which a value is stored.
+	 */
+	public IdSet<T> keySet() {
+		IdSet<T> keys = new IdSet<>(this.idClass);
+		forEach((id, value) -> keys.add(id));
+		return keys;
+	}
+
+	/**
+	 * Passes all entries to the action, in the order of the ids' index.
+	 */
+	public void forEach(EntryConsumer<T> action) {
+		if (!this.concurrent) {
+			Stripe stripe = this.stripes[0];
+			for (int i = stripe.present.nextSetBit(0); i >= 0; i = stripe.present.nextSetBit(i + 1)) {
+				action.accept(Id.get(i, this.idClass), stripe.values[i]);
+			}
+			return;
+		}
+		int rows = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				rows = Math.max(rows, stripe.values.length);
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			for (int s = 0; s < this.stripes.length; s++) {
+				Stripe stripe = this.stripes[s];
+				boolean present;
+				long value;
+				synchronized (stripe) {
+					present = stripe.present.get(row);
+					value = present ? stripe.values[row] : 0;
+				}
+				if (present) {
+					action.accept(Id.get((row << this.stripeBits) | s, this.idClass), value);
+				}
+			}
+		}
+	}
+
+	public interface EntryConsumer<T> {
+		void accept(Id<T> id, long value);
+	}
+
+	private static final class Stripe {
+		private long[] values;
+		private final BitSet present = new BitSet();
+		private int size = 0;
+
+		Stripe(int rows) {
+			this.values = new long[rows];
+		}
+
+		long get(int row, long defaultValue) {
+			return this.present.get(row) ? this.values[row] : defaultValue;
+		}
+
+		long put(int row, long value) {
+			ensureCapacity(row);
+			long oldValue = get(row, 0);
+			markPresent(row);
+			this.values[row] = value;
+			return oldValue;
+		}
+
+		long add(int row, long delta) {
+			ensureCapacity(row);
+			long value = get(row, 0) + delta;
+			markPresent(row);
+			this.values[row] = value;
+			return value;
+		}
+
+		long remove(int row) {
+			if (!this.present.get(row)) {
+				return 0;
+			}
+			this.present.clear(row);
+			this.size--;
+			return this.values[row];
+		}
+
+		void clear() {
+			this.present.clear();
+			this.size = 0;
+		}
+
+		private void markPresent(int row) {
+			if (!this.present.get(row)) {
+				this.present.set(row);
+				this.size++;
+			}
+		}
+
+		private void ensureCapacity(int row) {
+			if (row >= this.values.length) {
+				int rows = Math.max(row + INCREMENT, (int) (this.values.length * INCREMENT_FACTOR));
+				this.values = Arrays.copyOf(this.values, rows);
+			}
+		}
+	}
+}
@@ -56,6 +56,10 @@ public final class TeleportationArrivalEvent extends Event implements HasPersonI
     public double getDistance() {
     	return distance;
     }
+
+    public String getMode() {
+    	return mode;
+    }
     
     @Override
     public String getEventType() {
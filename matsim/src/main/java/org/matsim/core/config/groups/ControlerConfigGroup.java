@@ -33,7 +33,7 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, FastAStarContractionHierarchies, SpeedyDijkstra}
 
 	public enum EventsFileFormat {xml, pb, json}
 
@@ -56,6 +56,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_CACHE_DIRECTORY = "landmarksCacheDirectory";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
@@ -78,6 +79,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String landmarksCacheDirectory = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -103,7 +105,10 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", " + RoutingAlgorithmType.FastAStarLandmarks
+				+ ", " + RoutingAlgorithmType.FastAStarContractionHierarchies + " or " + RoutingAlgorithmType.SpeedyDijkstra);
+		map.put(LANDMARKS_CACHE_DIRECTORY, "Default=null. Directory in which the (Fast)AStarLandmarks routers store the pre-processed landmarks."
+				+ " Later runs on the same network read them from there instead of computing them again. Null disables the cache.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -180,6 +185,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_CACHE_DIRECTORY )
+	public String getLandmarksCacheDirectory() {
+		return this.landmarksCacheDirectory;
+	}
+
+	@StringSetter( LANDMARKS_CACHE_DIRECTORY )
+	public void setLandmarksCacheDirectory(final String landmarksCacheDirectory) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory == null || landmarksCacheDirectory.isEmpty() ? null : landmarksCacheDirectory;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -39,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(REPLANNING_SCHEDULING, REPLANNING_SCHEDULING_CMT ) ;
 		return map ;
 	}
 
@@ -94,6 +95,31 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum ReplanningScheduling { roundRobin, workStealing }
+	private ReplanningScheduling replanningScheduling = ReplanningScheduling.roundRobin;
+	private static final String REPLANNING_SCHEDULING = "replanningScheduling";
+	private static final String REPLANNING_SCHEDULING_CMT = "How multi-threaded replanning modules distribute the plans to their threads.  "
+							     + "roundRobin: the plans are assigned to the threads before they start.  "
+							     + "workStealing: idle threads take chunks of plans from a shared queue.  The random number generators that a plan algorithm "
+							     + "obtains from MatsimRandom.getLocalInstance() when it is created are seeded per person, so their draws do not depend on "
+							     + "which thread handles a plan.  Other random number generators are not, so results of algorithms using them may change "
+							     + "from run to run.  Possible values: "
+							     + ReplanningScheduling.roundRobin + ", " + ReplanningScheduling.workStealing;
+	/**
+	 * @return {@link #REPLANNING_SCHEDULING_CMT}
+	 */
+	@StringGetter( REPLANNING_SCHEDULING )
+	public ReplanningScheduling getReplanningScheduling() {
+		return this.replanningScheduling;
+	}
+	/**
+	 * @param replanningScheduling -- {@link #REPLANNING_SCHEDULING_CMT}
+	 */
+	@StringSetter( REPLANNING_SCHEDULING )
+	public void setReplanningScheduling(final ReplanningScheduling replanningScheduling) {
+		this.replanningScheduling = replanningScheduling;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
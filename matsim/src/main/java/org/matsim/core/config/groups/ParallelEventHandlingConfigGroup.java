@@ -45,6 +45,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private Boolean useRingBuffer = false;
+
 	private final static String EVENTS_QUEUE_SIZE = "eventsQueueSize";
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
@@ -66,6 +69,8 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(USE_RING_BUFFER, "If enabled, events are passed to the handler threads through a lock-free ring buffer of size " + EVENTS_QUEUE_SIZE + ". "
+				+ "Handlers are assigned to threads according to " + ONE_THREAD_PER_HANDLER + " and " + NUMBER_OF_THREADS + ".");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
 		return comments;
 	}
@@ -144,6 +149,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -73,6 +73,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch";
@@ -411,6 +413,10 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_THREADS,
+				"number of threads used to score the agents while the mobsim is running. With more than one thread, the agents "
+						+ "are partitioned by their index, and each partition is scored on its own thread. The scores are the same as with one "
+						+ "thread, but scoring functions of different agents must not share mutable state.");
 
 		return map;
 	}
@@ -763,6 +769,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		if (getScoringParameters(null) != null)
 			return getScoringParameters(null).getMarginalUtlOfWaiting_utils_hr();
@@ -1554,6 +1568,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringThreads = 1;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1627,5 +1643,19 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(NUMBER_OF_SCORING_THREADS)
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter(NUMBER_OF_SCORING_THREADS)
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked();
+			if (numberOfScoringThreads < 1) {
+				throw new IllegalArgumentException("numberOfScoringThreads must be at least 1, but is " + numberOfScoringThreads);
+			}
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 }
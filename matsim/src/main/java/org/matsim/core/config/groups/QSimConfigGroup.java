@@ -165,6 +165,20 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	}
 	private NodeTransition nodeTransitionLogic = NodeTransition.emptyBufferAfterBufferRandomDistribution_dontBlockNode;
 	
+	// ---
+	private static final String ACTIVITY_END_QUEUE = "activityEndQueue";
+	public enum ActivityEndQueue { priorityQueue, timingWheel }
+	private ActivityEndQueue activityEndQueue = ActivityEndQueue.priorityQueue;
+	// ---
+	private static final String SKIP_IDLE_TIME_STEPS = "skipIdleTimeSteps";
+	private boolean skippingIdleTimeSteps = false;
+	// ---
+	private static final String NETSIM_REBALANCING_PERIOD = "netsimRebalancingPeriod";
+	private double netsimRebalancingPeriod = 0.;
+	// ---
+	private static final String NETSIM_SYNCHRONIZATION = "netsimSynchronization";
+	public enum NetsimSynchronization { threadpool, barrier }
+	private NetsimSynchronization netsimSynchronization = NetsimSynchronization.threadpool;
 	// ---
 	
 	public QSimConfigGroup() {
@@ -297,6 +311,20 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		}
 		map.put(SEEP_MODE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to true if seep mode do not consumes any space on the link. Default is false.");
+		map.put(ACTIVITY_END_QUEUE, "Data structure of the activity engine for the agents waiting for the end of their activity. "
+				+ ActivityEndQueue.priorityQueue + " (default) is a heap, " + ActivityEndQueue.timingWheel + " buckets the agents by the second "
+				+ "their activity ends, which makes starting and rescheduling activities cheaper for large populations. "
+				+ "Both end the activities in the same order.");
+		map.put(SKIP_IDLE_TIME_STEPS, "If true, the qsim jumps over time steps in which no engine has anything to do, e.g. at night. "
+				+ "This only happens if all engines and sim step listeners can tell when they act next; otherwise all time steps are simulated. "
+				+ "Events are the same in both cases. Default is false.");
+		map.put(NETSIM_REBALANCING_PERIOD, "Period (in seconds of simulated time) after which the nodes and links are redistributed "
+				+ "over the threads of the netsim, according to how often they were active. "
+				+ "0 (default) keeps the initial round robin distribution. Only used if " + NUMBER_OF_THREADS + " is larger than 1.");
+		map.put(NETSIM_SYNCHRONIZATION, "How the threads of the netsim wait for each other in every time step. "
+				+ NetsimSynchronization.threadpool + " (default) hands the work to a thread pool twice per time step, "
+				+ NetsimSynchronization.barrier + " keeps the threads running and lets them wait at a barrier, which has less overhead per time step. "
+				+ "Both give the same results.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to false if all seep modes should perform seepage. Default is true (better option).");
 //		map.put(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES, "If set to true, creates a vehicle for each person corresponding to every network mode. However, " +
 //				"this will be overridden if vehicle source is "+ VehiclesSource.fromVehiclesData+".");
@@ -618,6 +646,46 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.nodeTransitionLogic = nodeTransitionLogic;
 	}
 
+	@StringGetter(ACTIVITY_END_QUEUE)
+	public ActivityEndQueue getActivityEndQueue() {
+		return this.activityEndQueue;
+	}
+
+	@StringSetter(ACTIVITY_END_QUEUE)
+	public void setActivityEndQueue(ActivityEndQueue activityEndQueue) {
+		this.activityEndQueue = activityEndQueue;
+	}
+
+	@StringGetter(SKIP_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps;
+	}
+
+	@StringSetter(SKIP_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(boolean skippingIdleTimeSteps) {
+		this.skippingIdleTimeSteps = skippingIdleTimeSteps;
+	}
+
+	@StringGetter(NETSIM_REBALANCING_PERIOD)
+	public double getNetsimRebalancingPeriod() {
+		return this.netsimRebalancingPeriod;
+	}
+
+	@StringSetter(NETSIM_REBALANCING_PERIOD)
+	public void setNetsimRebalancingPeriod(double netsimRebalancingPeriod) {
+		this.netsimRebalancingPeriod = netsimRebalancingPeriod;
+	}
+
+	@StringGetter(NETSIM_SYNCHRONIZATION)
+	public NetsimSynchronization getNetsimSynchronization() {
+		return this.netsimSynchronization;
+	}
+
+	@StringSetter(NETSIM_SYNCHRONIZATION)
+	public void setNetsimSynchronization(NetsimSynchronization netsimSynchronization) {
+		this.netsimSynchronization = netsimSynchronization;
+	}
+
 ////	@StringGetter(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES)
 //	public boolean isCreatingVehiclesForAllNetworkModes() {
 //		// yyyy do we really need this switch?  Quite in general, please try to avoid boolean switches.  kai, may'18
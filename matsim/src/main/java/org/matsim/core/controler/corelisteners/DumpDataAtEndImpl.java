@@ -334,6 +334,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 		final PopulationWriter writer = new PopulationWriter(this.population, this.network);
 		writer.putAttributeConverters(this.attributeConverters);
+		writer.setNumberOfThreads(this.config.global().getNumberOfThreads());
 		writer.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.population));
 	}
 
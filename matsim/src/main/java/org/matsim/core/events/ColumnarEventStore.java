@@ -0,0 +1,735 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ColumnarEventStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores events column-wise in primitive arrays: one time column, one type code column and int columns holding the
+ * {@link Id#index()} of the person, vehicle, link and facility of each event. Strings such as modes or activity types
+ * are stored once in a string table. Compared to a list of event objects, this needs a fraction of the memory and can
+ * be replayed repeatedly, e.g. to run additional analyses on the events of the last iteration.
+ * <p>
+ * The store is filled by adding it as handler to an {@link EventsManager}, by reading a binary events file with
+ * {@link #read(String)} or {@link MatsimEventsReader}, and it is emptied into an {@link EventsManager} with
+ * {@link #replay(EventsManager, boolean)}. The standard event types of the mobsim are stored in columns. Events of
+ * other types are kept as objects in memory and written as {@link GenericEvent}s to files.
+ * <p>
+ * Binary files start with a header, followed by the id and string tables and the columns. Each column is written as
+ * one contiguous block, containing only the rows of the event types that use it: times as deltas of whole seconds,
+ * the types as plain bytes, ids and strings as variable-length positions in their tables, followed by the attributes
+ * of the events stored as objects. The file is compressed according to its extension, like all other MATSim files. The ids are written as strings, the files can thus be read
+ * in other JVMs.
+ */
+public final class ColumnarEventStore implements BasicEventHandler {
+
+	private static final int MAGIC = 0x4d434f4c; // "MCOL"
+	private static final int VERSION = 2;
+
+	private static final byte OTHER = 0;
+	private static final byte LINK_ENTER = 1;
+	private static final byte LINK_LEAVE = 2;
+	private static final byte VEHICLE_ENTERS_TRAFFIC = 3;
+	private static final byte VEHICLE_LEAVES_TRAFFIC = 4;
+	private static final byte PERSON_DEPARTURE = 5;
+	private static final byte PERSON_ARRIVAL = 6;
+	private static final byte PERSON_STUCK = 7;
+	private static final byte PERSON_ENTERS_VEHICLE = 8;
+	private static final byte PERSON_LEAVES_VEHICLE = 9;
+	private static final byte ACTIVITY_START = 10;
+	private static final byte ACTIVITY_END = 11;
+	private static final byte TELEPORTATION_ARRIVAL = 12;
+	private static final byte PERSON_MONEY = 13;
+
+	private static final int NONE = -1;
+
+	// the columns used by each event type, only these are written to files
+	private static final int USES_PERSON = 1;
+	private static final int USES_VEHICLE = 2;
+	private static final int USES_LINK = 4;
+	private static final int USES_FACILITY = 8;
+	private static final int USES_TEXT = 16;
+	private static final int USES_TEXT2 = 32;
+	private static final int USES_VALUE = 64;
+	private static final int USES_VALUE2 = 128;
+
+	private static final int[] COLUMNS = new int[PERSON_MONEY + 1];
+
+	static {
+		COLUMNS[LINK_ENTER] = USES_VEHICLE | USES_LINK;
+		COLUMNS[LINK_LEAVE] = USES_VEHICLE | USES_LINK;
+		COLUMNS[VEHICLE_ENTERS_TRAFFIC] = USES_PERSON | USES_VEHICLE | USES_LINK | USES_TEXT | USES_VALUE;
+		COLUMNS[VEHICLE_LEAVES_TRAFFIC] = USES_PERSON | USES_VEHICLE | USES_LINK | USES_TEXT | USES_VALUE;
+		COLUMNS[PERSON_DEPARTURE] = USES_PERSON | USES_LINK | USES_TEXT;
+		COLUMNS[PERSON_ARRIVAL] = USES_PERSON | USES_LINK | USES_TEXT;
+		COLUMNS[PERSON_STUCK] = USES_PERSON | USES_LINK | USES_TEXT;
+		COLUMNS[PERSON_ENTERS_VEHICLE] = USES_PERSON | USES_VEHICLE;
+		COLUMNS[PERSON_LEAVES_VEHICLE] = USES_PERSON | USES_VEHICLE;
+		COLUMNS[ACTIVITY_START] = USES_PERSON | USES_LINK | USES_FACILITY | USES_TEXT | USES_VALUE | USES_VALUE2;
+		COLUMNS[ACTIVITY_END] = USES_PERSON | USES_LINK | USES_FACILITY | USES_TEXT;
+		COLUMNS[TELEPORTATION_ARRIVAL] = USES_PERSON | USES_TEXT | USES_VALUE;
+		COLUMNS[PERSON_MONEY] = USES_PERSON | USES_TEXT | USES_TEXT2 | USES_VALUE;
+	}
+
+	private int size = 0;
+	private double[] time;
+	private byte[] type;
+	// Id.index() of the ids of each event, or NONE
+	private int[] person;
+	private int[] vehicle;
+	private int[] link;
+	private int[] facility;
+	// index into strings (modes, activity types, purposes) or, for OTHER, into others
+	private int[] text;
+	private int[] text2;
+	// relative position on link, teleportation distance, money amount, or x of the activity coordinate
+	private double[] value;
+	// y of the activity coordinate
+	private double[] value2;
+
+	private final List<String> strings = new ArrayList<>();
+	private final Map<String, Integer> stringIndex = new HashMap<>();
+	private final List<Event> others = new ArrayList<>();
+
+	public ColumnarEventStore() {
+		this(1024);
+	}
+
+	public ColumnarEventStore(int capacity) {
+		capacity = Math.max(capacity, 16);
+		this.time = new double[capacity];
+		this.type = new byte[capacity];
+		this.person = new int[capacity];
+		this.vehicle = new int[capacity];
+		this.link = new int[capacity];
+		this.facility = new int[capacity];
+		this.text = new int[capacity];
+		this.text2 = new int[capacity];
+		this.value = new double[capacity];
+		this.value2 = new double[capacity];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public double getTime(int index) {
+		return this.time[index];
+	}
+
+	public void clear() {
+		this.size = 0;
+		this.strings.clear();
+		this.stringIndex.clear();
+		this.others.clear();
+	}
+
+	/**
+	 * Removes the events of the previous iteration, such that the store always contains the events of the current (or,
+	 * after the mobsim, the last) iteration.
+	 */
+	@Override
+	public void reset(int iteration) {
+		clear();
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		add(event);
+	}
+
+	public void add(Event event) {
+		int row = nextRow(event.getTime());
+		if (event.getClass() == LinkEnterEvent.class || event.getClass() == ReusedLinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			type[row] = LINK_ENTER;
+			vehicle[row] = index(e.getVehicleId());
+			link[row] = index(e.getLinkId());
+		} else if (event.getClass() == LinkLeaveEvent.class || event.getClass() == ReusedLinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			type[row] = LINK_LEAVE;
+			vehicle[row] = index(e.getVehicleId());
+			link[row] = index(e.getLinkId());
+		} else if (event.getClass() == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			type[row] = VEHICLE_ENTERS_TRAFFIC;
+			person[row] = index(e.getPersonId());
+			vehicle[row] = index(e.getVehicleId());
+			link[row] = index(e.getLinkId());
+			text[row] = string(e.getNetworkMode());
+			value[row] = e.getRelativePositionOnLink();
+		} else if (event.getClass() == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			type[row] = VEHICLE_LEAVES_TRAFFIC;
+			person[row] = index(e.getPersonId());
+			vehicle[row] = index(e.getVehicleId());
+			link[row] = index(e.getLinkId());
+			text[row] = string(e.getNetworkMode());
+			value[row] = e.getRelativePositionOnLink();
+		} else if (event.getClass() == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			type[row] = PERSON_DEPARTURE;
+			person[row] = index(e.getPersonId());
+			link[row] = index(e.getLinkId());
+			text[row] = string(e.getLegMode());
+		} else if (event.getClass() == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			type[row] = PERSON_ARRIVAL;
+			person[row] = index(e.getPersonId());
+			link[row] = index(e.getLinkId());
+			text[row] = string(e.getLegMode());
+		} else if (event.getClass() == PersonStuckEvent.class) {
+			PersonStuckEvent e = (PersonStuckEvent) event;
+			type[row] = PERSON_STUCK;
+			person[row] = index(e.getPersonId());
+			link[row] = index(e.getLinkId());
+			text[row] = string(e.getLegMode());
+		} else if (event.getClass() == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			type[row] = PERSON_ENTERS_VEHICLE;
+			person[row] = index(e.getPersonId());
+			vehicle[row] = index(e.getVehicleId());
+		} else if (event.getClass() == PersonLeavesVehicleEvent.class) {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			type[row] = PERSON_LEAVES_VEHICLE;
+			person[row] = index(e.getPersonId());
+			vehicle[row] = index(e.getVehicleId());
+		} else if (event.getClass() == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			type[row] = ACTIVITY_START;
+			person[row] = index(e.getPersonId());
+			link[row] = index(e.getLinkId());
+			facility[row] = index(e.getFacilityId());
+			text[row] = string(e.getActType());
+			Coord coord = e.getCoord();
+			value[row] = coord == null ? Double.NaN : coord.getX();
+			value2[row] = coord == null ? Double.NaN : coord.getY();
+		} else if (event.getClass() == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			type[row] = ACTIVITY_END;
+			person[row] = index(e.getPersonId());
+			link[row] = index(e.getLinkId());
+			facility[row] = index(e.getFacilityId());
+			text[row] = string(e.getActType());
+		} else if (event.getClass() == TeleportationArrivalEvent.class) {
+			TeleportationArrivalEvent e = (TeleportationArrivalEvent) event;
+			type[row] = TELEPORTATION_ARRIVAL;
+			person[row] = index(e.getPersonId());
+			text[row] = string(e.getMode());
+			value[row] = e.getDistance();
+		} else if (event.getClass() == PersonMoneyEvent.class) {
+			PersonMoneyEvent e = (PersonMoneyEvent) event;
+			type[row] = PERSON_MONEY;
+			person[row] = index(e.getPersonId());
+			text[row] = string(e.getPurpose());
+			text2[row] = string(e.getTransactionPartner());
+			value[row] = e.getAmount();
+		} else {
+			// subclasses of the above types are kept as well, they might carry additional information.
+			type[row] = OTHER;
+			text[row] = this.others.size();
+			this.others.add(event);
+		}
+	}
+
+	private int nextRow(double eventTime) {
+		if (this.size == this.time.length) {
+			int capacity = this.size + (this.size >> 1);
+			this.time = Arrays.copyOf(this.time, capacity);
+			this.type = Arrays.copyOf(this.type, capacity);
+			this.person = Arrays.copyOf(this.person, capacity);
+			this.vehicle = Arrays.copyOf(this.vehicle, capacity);
+			this.link = Arrays.copyOf(this.link, capacity);
+			this.facility = Arrays.copyOf(this.facility, capacity);
+			this.text = Arrays.copyOf(this.text, capacity);
+			this.text2 = Arrays.copyOf(this.text2, capacity);
+			this.value = Arrays.copyOf(this.value, capacity);
+			this.value2 = Arrays.copyOf(this.value2, capacity);
+		}
+		int row = this.size++;
+		this.time[row] = eventTime;
+		this.person[row] = NONE;
+		this.vehicle[row] = NONE;
+		this.link[row] = NONE;
+		this.facility[row] = NONE;
+		this.text[row] = NONE;
+		this.text2[row] = NONE;
+		this.value[row] = 0.0;
+		this.value2[row] = 0.0;
+		return row;
+	}
+
+	private static int index(Id<?> id) {
+		return id == null ? NONE : id.index();
+	}
+
+	private int string(String s) {
+		if (s == null) {
+			return NONE;
+		}
+		Integer index = this.stringIndex.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(s);
+			this.stringIndex.put(s, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Passes all stored events, in the order they were added, to the given events manager.
+	 * <p>
+	 * With <code>reuseEvents</code>, link enter and link leave events, which make up the largest part of the events of
+	 * a typical run, are not allocated per event. Instead, a single instance per type is updated and passed on again and
+	 * again. This is only safe if the events manager processes the events synchronously, e.g. {@link EventsManagerImpl},
+	 * and if none of its handlers keeps references to the events. {@link org.matsim.analysis.VolumesAnalyzer},
+	 * {@link org.matsim.analysis.LegHistogram} and {@link org.matsim.core.trafficmonitoring.TravelTimeCalculator}, for
+	 * instance, qualify.
+	 */
+	public void replay(EventsManager events, boolean reuseEvents) {
+		ReusedLinkEnterEvent linkEnter = null;
+		ReusedLinkLeaveEvent linkLeave = null;
+		for (int row = 0; row < this.size; row++) {
+			if (reuseEvents && type[row] == LINK_ENTER) {
+				if (linkEnter == null) {
+					linkEnter = new ReusedLinkEnterEvent(vehicleId(row));
+				}
+				linkEnter.set(time[row], vehicle[row], link[row]);
+				events.processEvent(linkEnter);
+			} else if (reuseEvents && type[row] == LINK_LEAVE) {
+				if (linkLeave == null) {
+					linkLeave = new ReusedLinkLeaveEvent(vehicleId(row));
+				}
+				linkLeave.set(time[row], vehicle[row], link[row]);
+				events.processEvent(linkLeave);
+			} else {
+				events.processEvent(getEvent(row));
+			}
+		}
+	}
+
+	/**
+	 * Returns the event at the given position. Events of the standard types are created anew on every call.
+	 */
+	public Event getEvent(int row) {
+		switch (type[row]) {
+			case LINK_ENTER:
+				return new LinkEnterEvent(time[row], vehicleId(row), linkId(row));
+			case LINK_LEAVE:
+				return new LinkLeaveEvent(time[row], vehicleId(row), linkId(row));
+			case VEHICLE_ENTERS_TRAFFIC:
+				return new VehicleEntersTrafficEvent(time[row], personId(row), linkId(row), vehicleId(row), string(text[row]), value[row]);
+			case VEHICLE_LEAVES_TRAFFIC:
+				return new VehicleLeavesTrafficEvent(time[row], personId(row), linkId(row), vehicleId(row), string(text[row]), value[row]);
+			case PERSON_DEPARTURE:
+				return new PersonDepartureEvent(time[row], personId(row), linkId(row), string(text[row]));
+			case PERSON_ARRIVAL:
+				return new PersonArrivalEvent(time[row], personId(row), linkId(row), string(text[row]));
+			case PERSON_STUCK:
+				return new PersonStuckEvent(time[row], personId(row), linkId(row), string(text[row]));
+			case PERSON_ENTERS_VEHICLE:
+				return new PersonEntersVehicleEvent(time[row], personId(row), vehicleId(row));
+			case PERSON_LEAVES_VEHICLE:
+				return new PersonLeavesVehicleEvent(time[row], personId(row), vehicleId(row));
+			case ACTIVITY_START:
+				Coord coord = Double.isNaN(value[row]) ? null : new Coord(value[row], value2[row]);
+				return new ActivityStartEvent(time[row], personId(row), linkId(row), facilityId(row), string(text[row]), coord);
+			case ACTIVITY_END:
+				return new ActivityEndEvent(time[row], personId(row), linkId(row), facilityId(row), string(text[row]));
+			case TELEPORTATION_ARRIVAL:
+				return new TeleportationArrivalEvent(time[row], personId(row), value[row], string(text[row]));
+			case PERSON_MONEY:
+				return new PersonMoneyEvent(time[row], personId(row), value[row], string(text[row]), string(text2[row]));
+			default:
+				return this.others.get(text[row]);
+		}
+	}
+
+	private String string(int index) {
+		return index == NONE ? null : this.strings.get(index);
+	}
+
+	private Id<Person> personId(int row) {
+		return person[row] == NONE ? null : Id.get(person[row], Person.class);
+	}
+
+	private Id<Vehicle> vehicleId(int row) {
+		return vehicle[row] == NONE ? null : Id.get(vehicle[row], Vehicle.class);
+	}
+
+	private Id<Link> linkId(int row) {
+		return link[row] == NONE ? null : Id.get(link[row], Link.class);
+	}
+
+	private Id<ActivityFacility> facilityId(int row) {
+		return facility[row] == NONE ? null : Id.get(facility[row], ActivityFacility.class);
+	}
+
+	/**
+	 * Writes the stored events to a binary file. The file is compressed if its name ends with a known compression
+	 * extension, e.g. <code>.gz</code> or <code>.zst</code>.
+	 */
+	public void write(String filename) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			// ids are written as strings, only those which are used, and the columns refer to their position in the file.
+			int[] persons = writeIds(out, this.person, Person.class);
+			int[] vehicles = writeIds(out, this.vehicle, Vehicle.class);
+			int[] links = writeIds(out, this.link, Link.class);
+			int[] facilities = writeIds(out, this.facility, ActivityFacility.class);
+
+			out.writeInt(this.strings.size());
+			for (String s : this.strings) {
+				out.writeUTF(s);
+			}
+
+			out.writeInt(this.size);
+			writeTimeColumn(out);
+			out.write(this.type, 0, this.size);
+			writeIntColumn(out, this.person, persons, USES_PERSON);
+			writeIntColumn(out, this.vehicle, vehicles, USES_VEHICLE);
+			writeIntColumn(out, this.link, links, USES_LINK);
+			writeIntColumn(out, this.facility, facilities, USES_FACILITY);
+			writeIntColumn(out, this.text, null, USES_TEXT);
+			writeIntColumn(out, this.text2, null, USES_TEXT2);
+			writeDoubleColumn(out, this.value, USES_VALUE);
+			writeDoubleColumn(out, this.value2, USES_VALUE2);
+			writeOthers(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/* times are mostly whole seconds in ascending order, so they are written as deltas of whole seconds if possible */
+	private void writeTimeColumn(DataOutputStream out) throws IOException {
+		long last = 0;
+		for (int row = 0; row < this.size; row++) {
+			double t = time[row];
+			long seconds = (long) t;
+			if (seconds == t && Math.abs(seconds) < (1L << 53)) {
+				writeVarLong(out, zigZag(seconds - last) + 1);
+				last = seconds;
+			} else {
+				writeVarLong(out, 0);
+				out.writeDouble(t);
+			}
+		}
+	}
+
+	/* only the rows of event types using the column are written, NONE as 0 and everything else shifted by 1 */
+	private void writeIntColumn(DataOutputStream out, int[] column, int[] fileIndex, int usage) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			if ((COLUMNS[type[row]] & usage) != 0) {
+				int index = fileIndex == null ? column[row] : translate(fileIndex, column[row]);
+				writeVarLong(out, index + 1L);
+			}
+		}
+	}
+
+	private void writeDoubleColumn(DataOutputStream out, double[] column, int usage) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			if ((COLUMNS[type[row]] & usage) != 0) {
+				out.writeDouble(column[row]);
+			}
+		}
+	}
+
+	private void writeOthers(DataOutputStream out) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			if (type[row] == OTHER) {
+				Map<String, String> attributes = this.others.get(text[row]).getAttributes();
+				out.writeUTF(attributes.get(Event.ATTRIBUTE_TYPE));
+				// like in xml, attributes without a value (e.g. an optional link) are left out
+				int nAttributes = 0;
+				for (Map.Entry<String, String> e : attributes.entrySet()) {
+					if (isOtherAttribute(e)) {
+						nAttributes++;
+					}
+				}
+				out.writeInt(nAttributes);
+				for (Map.Entry<String, String> e : attributes.entrySet()) {
+					if (isOtherAttribute(e)) {
+						out.writeUTF(e.getKey());
+						out.writeUTF(e.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isOtherAttribute(Map.Entry<String, String> attribute) {
+		return attribute.getValue() != null && !attribute.getKey().equals(Event.ATTRIBUTE_TIME)
+				&& !attribute.getKey().equals(Event.ATTRIBUTE_TYPE);
+	}
+
+	private int[] writeIds(DataOutputStream out, int[] column, Class<?> idType) throws IOException {
+		int[] fileIndex = new int[Id.getNumberOfIds(idType)];
+		Arrays.fill(fileIndex, NONE);
+		List<Id<?>> ids = new ArrayList<>();
+		for (int row = 0; row < this.size; row++) {
+			int index = column[row];
+			if (type[row] != OTHER && index != NONE && fileIndex[index] == NONE) {
+				fileIndex[index] = ids.size();
+				ids.add(Id.get(index, idType));
+			}
+		}
+		out.writeInt(ids.size());
+		for (Id<?> id : ids) {
+			out.writeUTF(id.toString());
+		}
+		return fileIndex;
+	}
+
+	private static int translate(int[] fileIndex, int index) {
+		return index == NONE ? NONE : fileIndex[index];
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Reads a binary file written by {@link #write(String)}. Events that were stored as objects are read as
+	 * {@link GenericEvent}s.
+	 */
+	public static ColumnarEventStore read(String filename) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a binary MATSim events file: " + filename);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+
+			int[] persons = readIds(in, Person.class);
+			int[] vehicles = readIds(in, Vehicle.class);
+			int[] links = readIds(in, Link.class);
+			int[] facilities = readIds(in, ActivityFacility.class);
+
+			int nStrings = in.readInt();
+			String[] strings = new String[nStrings];
+			for (int i = 0; i < nStrings; i++) {
+				strings[i] = in.readUTF();
+			}
+
+			int size = in.readInt();
+			ColumnarEventStore store = new ColumnarEventStore(size);
+			for (int i = 0; i < nStrings; i++) {
+				store.string(strings[i]);
+			}
+			store.size = size;
+			store.readTimeColumn(in);
+			in.readFully(store.type, 0, size);
+			store.readIntColumn(in, store.person, persons, USES_PERSON);
+			store.readIntColumn(in, store.vehicle, vehicles, USES_VEHICLE);
+			store.readIntColumn(in, store.link, links, USES_LINK);
+			store.readIntColumn(in, store.facility, facilities, USES_FACILITY);
+			store.readIntColumn(in, store.text, null, USES_TEXT);
+			store.readIntColumn(in, store.text2, null, USES_TEXT2);
+			store.readDoubleColumn(in, store.value, USES_VALUE);
+			store.readDoubleColumn(in, store.value2, USES_VALUE2);
+			store.readOthers(in);
+			return store;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readTimeColumn(DataInputStream in) throws IOException {
+		long last = 0;
+		for (int row = 0; row < this.size; row++) {
+			long code = readVarLong(in);
+			if (code == 0) {
+				time[row] = in.readDouble();
+			} else {
+				last += unZigZag(code - 1);
+				time[row] = last;
+			}
+		}
+	}
+
+	private void readIntColumn(DataInputStream in, int[] column, int[] fileIndex, int usage) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			if ((COLUMNS[type[row]] & usage) != 0) {
+				int index = (int) readVarLong(in) - 1;
+				column[row] = fileIndex == null ? index : translate(fileIndex, index);
+			} else {
+				column[row] = NONE;
+			}
+		}
+	}
+
+	private void readDoubleColumn(DataInputStream in, double[] column, int usage) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			column[row] = (COLUMNS[type[row]] & usage) != 0 ? in.readDouble() : 0.0;
+		}
+	}
+
+	private void readOthers(DataInputStream in) throws IOException {
+		for (int row = 0; row < this.size; row++) {
+			if (type[row] == OTHER) {
+				GenericEvent event = new GenericEvent(in.readUTF(), time[row]);
+				int nAttributes = in.readInt();
+				for (int a = 0; a < nAttributes; a++) {
+					event.getAttributes().put(in.readUTF(), in.readUTF());
+				}
+				text[row] = this.others.size();
+				this.others.add(event);
+			}
+		}
+	}
+
+	private static int[] readIds(DataInputStream in, Class<?> idType) throws IOException {
+		int[] indices = new int[in.readInt()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = Id.create(in.readUTF(), idType).index();
+		}
+		return indices;
+	}
+
+	/**
+	 * A link enter event that is updated for every row during {@link #replay(EventsManager, boolean)}.
+	 */
+	private static final class ReusedLinkEnterEvent extends LinkEnterEvent {
+		private int vehicleIndex;
+		private int linkIndex;
+
+		ReusedLinkEnterEvent(Id<Vehicle> vehicleId) {
+			super(0, vehicleId, null);
+		}
+
+		void set(double time, int vehicleIndex, int linkIndex) {
+			setTime(time);
+			this.vehicleIndex = vehicleIndex;
+			this.linkIndex = linkIndex;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return this.linkIndex == NONE ? null : Id.get(this.linkIndex, Link.class);
+		}
+
+		@Override
+		public Id<Vehicle> getVehicleId() {
+			return this.vehicleIndex == NONE ? null : Id.get(this.vehicleIndex, Vehicle.class);
+		}
+
+		@Override
+		public Map<String, String> getAttributes() {
+			return new LinkEnterEvent(getTime(), getVehicleId(), getLinkId()).getAttributes();
+		}
+	}
+
+	/**
+	 * A link leave event that is updated for every row during {@link #replay(EventsManager, boolean)}.
+	 */
+	private static final class ReusedLinkLeaveEvent extends LinkLeaveEvent {
+		private int vehicleIndex;
+		private int linkIndex;
+
+		ReusedLinkLeaveEvent(Id<Vehicle> vehicleId) {
+			super(0, vehicleId, null);
+		}
+
+		void set(double time, int vehicleIndex, int linkIndex) {
+			setTime(time);
+			this.vehicleIndex = vehicleIndex;
+			this.linkIndex = linkIndex;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return this.linkIndex == NONE ? null : Id.get(this.linkIndex, Link.class);
+		}
+
+		@Override
+		public Id<Vehicle> getVehicleId() {
+			return this.vehicleIndex == NONE ? null : Id.get(this.vehicleIndex, Vehicle.class);
+		}
+
+		@Override
+		public Map<String, String> getAttributes() {
+			return new LinkLeaveEvent(getTime(), getVehicleId(), getLinkId()).getAttributes();
+		}
+	}
+}
@@ -29,6 +29,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 import java.io.InputStream;
 import java.net.URL;
@@ -50,6 +51,8 @@ public final class MatsimEventsReader implements MatsimReader {
 
 	private final Map<String, CustomEventMapper> customEventMappers = new LinkedHashMap<>();
 
+	private int numberOfThreads = 1;
+
 	public interface CustomEventMapper<T extends Event> {
 		T apply(GenericEvent event);
 	}
@@ -67,6 +70,21 @@ public final class MatsimEventsReader implements MatsimReader {
 		this.events = events;
 	}
 
+	/**
+	 * Sets the number of threads used to parse xml events files. With more than one thread, the file is decompressed
+	 * and split into chunks on one thread, while the chunks are parsed in parallel. The events are still passed to the
+	 * events manager in file order, on the thread calling {@link #readFile(String)}. Custom event mappers must be
+	 * thread-safe in this case.
+	 *
+	 * @param numberOfThreads The number of threads parsing events, 1 by default.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be positive, but is " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Parses the specified events file.
 	 *
@@ -76,13 +94,19 @@ public final class MatsimEventsReader implements MatsimReader {
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz") || lcFilename.endsWith(".xml.zst")) {
-			new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			if (this.numberOfThreads > 1) {
+				new ParallelEventsReaderXMLv1(this.events, this.customEventMappers, this.numberOfThreads).readFile(filename);
+			} else {
+				new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			}
 		} else if (lcFilename.endsWith(".ndjson") || lcFilename.endsWith(".ndjson.gz") || lcFilename.endsWith(".ndjson.zst")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.zst")) {
+			readColumnarEvents(ColumnarEventStore.read(filename));
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -90,6 +114,26 @@ public final class MatsimEventsReader implements MatsimReader {
 		}
 	}
 
+	private void readColumnarEvents(ColumnarEventStore store) {
+		// the store keeps all event types without columns of their own as attributes only (e.g. the pt events). They
+		// are created the same way as when reading xml, so both formats result in the same events.
+		EventsReaderXMLv1 xmlReader = new EventsReaderXMLv1(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			xmlReader.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		for (int i = 0; i < store.size(); i++) {
+			Event event = store.getEvent(i);
+			if (event instanceof GenericEvent) {
+				AttributesImpl atts = new AttributesImpl();
+				for (Map.Entry<String, String> attribute : event.getAttributes().entrySet()) {
+					atts.addAttribute("", attribute.getKey(), attribute.getKey(), "CDATA", attribute.getValue());
+				}
+				event = xmlReader.createEvent(atts);
+			}
+			this.events.processEvent(event);
+		}
+	}
+
 	@Deprecated // use readStream(InputStream, EventsFileFormat)
 	public void readStream(final InputStream stream) {
 		new XmlEventsReader(this.events, this.customEventMappers).parse(stream );
@@ -0,0 +1,354 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReaderXMLv1.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.utils.io.IOUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads events files in the events_v1 format using multiple threads. The (decompressed) file is split into chunks at
+ * the start of <code>&lt;event</code> tags by one thread, the chunks are parsed concurrently, and the resulting events
+ * are passed to the events manager chunk by chunk, on the calling thread. The events manager thus sees the events in
+ * exactly the same order as with {@link EventsReaderXMLv1}.
+ * <p>
+ * The splitting thread follows the xml syntax far enough to only split at tags, and not at <code>&lt;event</code>
+ * appearing in comments, CDATA sections, processing instructions or attribute values. Everything before the first
+ * event, including a document type declaration, is repeated at the start of every chunk; a document type declaration
+ * must thus not contain an internal subset with <code>&lt;event</code> in it.
+ * <p>
+ * As ids are created concurrently, the {@link org.matsim.api.core.v01.Id#index()} of ids first seen in the events
+ * file may differ between runs. Custom event mappers are called concurrently and must be thread-safe.
+ */
+final class ParallelEventsReaderXMLv1 {
+
+	private final static Logger log = Logger.getLogger(ParallelEventsReaderXMLv1.class);
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	private static final byte[] EVENT_TAG = ("<" + EventsReaderXMLv1.EVENT).getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CLOSING_TAG = "</events>".getBytes(StandardCharsets.US_ASCII);
+	private static final Future<EventArray> END = CompletableFuture.completedFuture(null);
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 delegate;
+	private final int numberOfThreads;
+	private final int chunkSize;
+	// SAXParserFactory is not thread-safe, so every parsing thread gets its own factory and parser.
+	private final ThreadLocal<SAXParser> parsers = ThreadLocal.withInitial(ParallelEventsReaderXMLv1::createParser);
+
+	ParallelEventsReaderXMLv1(EventsManager events, Map<String, MatsimEventsReader.CustomEventMapper> customEventMappers, int numberOfThreads) {
+		this(events, customEventMappers, numberOfThreads, DEFAULT_CHUNK_SIZE);
+	}
+
+	ParallelEventsReaderXMLv1(EventsManager events, Map<String, MatsimEventsReader.CustomEventMapper> customEventMappers, int numberOfThreads, int chunkSize) {
+		this.events = events;
+		// only used to create events, which does not depend on the events manager.
+		this.delegate = new EventsReaderXMLv1(events);
+		for (Map.Entry<String, MatsimEventsReader.CustomEventMapper> entry : customEventMappers.entrySet()) {
+			this.delegate.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.chunkSize = chunkSize;
+	}
+
+	private static SAXParser createParser() {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		// same settings as MatsimXmlParser for events files
+		factory.setValidating(false);
+		factory.setNamespaceAware(true);
+		try {
+			return factory.newSAXParser();
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	void readFile(String filename) {
+		log.info("reading events with " + this.numberOfThreads + " threads.");
+		try (InputStream stream = IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename))) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void parse(InputStream stream) {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, "EventsReader-parser");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// bounds the number of chunks in memory
+		BlockingQueue<Future<EventArray>> chunks = new ArrayBlockingQueue<>(2 * this.numberOfThreads);
+		Thread splitter = new Thread(() -> split(stream, executor, chunks), "EventsReader-splitter");
+		splitter.setDaemon(true);
+		splitter.start();
+
+		try {
+			Future<EventArray> chunk;
+			while ((chunk = chunks.take()) != END) {
+				EventArray array = chunk.get();
+				for (int i = 0; i < array.size(); i++) {
+					this.events.processEvent(array.get(i));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			splitter.interrupt();
+			executor.shutdownNow();
+		}
+	}
+
+	// Runs on its own thread. Reads the stream, cuts it into chunks and submits them for parsing.
+	private void split(InputStream stream, ExecutorService executor, BlockingQueue<Future<EventArray>> chunks) {
+		try {
+			byte[] buffer = new byte[this.chunkSize];
+			int length = 0;
+			SplitScanner scanner = new SplitScanner();
+			// everything before the first event, i.e. the xml declaration and the opening events tag
+			byte[] prologue = null;
+			boolean eof = false;
+			while (!eof) {
+				while (length < buffer.length) {
+					int read = stream.read(buffer, length, buffer.length - length);
+					if (read < 0) {
+						eof = true;
+						break;
+					}
+					length += read;
+				}
+				scanner.scan(buffer, length, eof);
+
+				if (prologue == null) {
+					int first = scanner.firstEventStart;
+					if (first < 0) {
+						if (!eof) {
+							buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+							continue;
+						}
+						// a file without events
+						first = length;
+					}
+					prologue = Arrays.copyOf(buffer, first);
+					System.arraycopy(buffer, first, buffer, 0, length - first);
+					length -= first;
+					scanner.shift(first);
+				}
+
+				int end = eof ? length : scanner.lastEventStart;
+				if (end <= 0 && !eof) {
+					// a single event longer than the buffer
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+					continue;
+				}
+				byte[] chunk = Arrays.copyOf(buffer, end);
+				System.arraycopy(buffer, end, buffer, 0, length - end);
+				length -= end;
+				scanner.shift(end);
+
+				final byte[] documentStart = prologue;
+				// the last chunk contains the closing tag of the file
+				final boolean last = eof;
+				chunks.put(executor.submit(() -> parseChunk(documentStart, chunk, last)));
+			}
+			chunks.put(END);
+		} catch (InterruptedException e) {
+			// reading was aborted by the consumer
+		} catch (IOException | RuntimeException e) {
+			try {
+				CompletableFuture<EventArray> failure = new CompletableFuture<>();
+				failure.completeExceptionally(e);
+				chunks.put(failure);
+			} catch (InterruptedException e2) {
+				// reading was aborted by the consumer
+			}
+		}
+	}
+
+	private EventArray parseChunk(byte[] prologue, byte[] chunk, boolean last) throws SAXException, IOException {
+		EventArray array = new EventArray(Math.max(32, chunk.length / 80));
+		InputStream document = new SequenceInputStream(new ByteArrayInputStream(prologue),
+				new SequenceInputStream(new ByteArrayInputStream(chunk), new ByteArrayInputStream(last ? new byte[0] : CLOSING_TAG)));
+		SAXParser parser = this.parsers.get();
+		parser.reset();
+		parser.parse(document, new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes atts) {
+				String tag = (uri.length() == 0) ? qName : localName;
+				if (EventsReaderXMLv1.EVENT.equals(tag)) {
+					array.add(delegate.createEvent(atts));
+				}
+			}
+		});
+		return array;
+	}
+
+	/**
+	 * Finds the positions at which the file can be split, i.e. the starts of <code>&lt;event</code> tags. Scanning
+	 * continues where it stopped in the previous call, so every byte is only looked at once.
+	 */
+	private static final class SplitScanner {
+		private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] PI_START = "<?".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+		// the longest sequence that has to be looked at after a '<'
+		private static final int LOOKAHEAD = Math.max(CDATA_START.length, EVENT_TAG.length + 1);
+
+		private enum State {CONTENT, TAG, ATTRIBUTE_VALUE, COMMENT, CDATA, PROCESSING_INSTRUCTION}
+
+		private State state = State.CONTENT;
+		private byte quote;
+		private int position = 0;
+		int firstEventStart = -1;
+		int lastEventStart = -1;
+
+		void scan(byte[] buffer, int length, boolean eof) {
+			int i = this.position;
+			while (i < length) {
+				byte b = buffer[i];
+				switch (this.state) {
+					case CONTENT:
+						if (b != '<') {
+							i++;
+						} else if (i + LOOKAHEAD > length && !eof) {
+							// wait for more bytes
+							this.position = i;
+							return;
+						} else if (startsWith(buffer, i, length, COMMENT_START)) {
+							this.state = State.COMMENT;
+							i += COMMENT_START.length;
+						} else if (startsWith(buffer, i, length, CDATA_START)) {
+							this.state = State.CDATA;
+							i += CDATA_START.length;
+						} else if (startsWith(buffer, i, length, PI_START)) {
+							this.state = State.PROCESSING_INSTRUCTION;
+							i += PI_START.length;
+						} else {
+							if (i + EVENT_TAG.length < length && isEventStart(buffer, i)) {
+								if (this.firstEventStart < 0) {
+									this.firstEventStart = i;
+								}
+								this.lastEventStart = i;
+							}
+							this.state = State.TAG;
+							i++;
+						}
+						break;
+					case TAG:
+						if (b == '"' || b == '\'') {
+							this.quote = b;
+							this.state = State.ATTRIBUTE_VALUE;
+						} else if (b == '>') {
+							this.state = State.CONTENT;
+						}
+						i++;
+						break;
+					case ATTRIBUTE_VALUE:
+						if (b == this.quote) {
+							this.state = State.TAG;
+						}
+						i++;
+						break;
+					case COMMENT:
+					case CDATA:
+					case PROCESSING_INSTRUCTION:
+						byte[] end = this.state == State.COMMENT ? COMMENT_END : this.state == State.CDATA ? CDATA_END : PI_END;
+						if (i + end.length > length && !eof) {
+							this.position = i;
+							return;
+						}
+						if (startsWith(buffer, i, length, end)) {
+							this.state = State.CONTENT;
+							i += end.length;
+						} else {
+							i++;
+						}
+						break;
+				}
+			}
+			this.position = i;
+		}
+
+		/** Adjusts the positions after the first <code>count</code> bytes have been removed from the buffer. */
+		void shift(int count) {
+			this.position -= count;
+			this.firstEventStart -= count;
+			// the event at the new start of the buffer must not be used to cut off an empty chunk
+			this.lastEventStart = this.lastEventStart > count ? this.lastEventStart - count : -1;
+		}
+
+		private static boolean startsWith(byte[] buffer, int i, int length, byte[] sequence) {
+			if (i + sequence.length > length) {
+				return false;
+			}
+			for (int j = 0; j < sequence.length; j++) {
+				if (buffer[i + j] != sequence[j]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static boolean isEventStart(byte[] buffer, int i) {
+		for (int j = 0; j < EVENT_TAG.length; j++) {
+			if (buffer[i + j] != EVENT_TAG[j]) {
+				return false;
+			}
+		}
+		// distinguishes <event from <events
+		byte next = buffer[i + EVENT_TAG.length];
+		return next == ' ' || next == '\t' || next == '\n' || next == '\r';
+	}
+}
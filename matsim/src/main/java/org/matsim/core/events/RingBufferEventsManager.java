@@ -0,0 +1,422 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that passes events to its handler threads through a single pre-allocated ring buffer.
+ * <p>
+ * Producers claim a slot with one atomic increment and publish the event into it. Every handler thread reads
+ * all slots with its own cursor, so events are neither copied nor queued per handler, and no lock is taken in
+ * steady state. A producer only waits if the slowest handler thread is a full ring behind. The last handler thread
+ * reading a slot clears it, so that no events are kept alive by the ring after they were processed. Waiting threads
+ * spin first, then yield, and finally park for a short time.
+ * <p>
+ * Events created by the handlers themselves are not put into the ring directly (the handler thread could end up
+ * waiting for itself). They are collected and published by the next producer call, and at the latest by
+ * {@link #afterSimStep(double)} or {@link #finishProcessing()}. Both only return after every handler processed
+ * all events published so far, including the ones created by handlers.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	private static final int SPINS = 100;
+	private static final int YIELDS = 100;
+	private static final long PARK_NANOS = 20_000;
+
+	private final boolean syncOnSimSteps;
+	private final boolean oneThreadPerHandler;
+	private final int numOfThreads;
+
+	private final Event[] slots;
+	// sequence number published into each slot, used by the handler threads to detect new events.
+	private final AtomicLongArray published;
+	// number of handler threads that still have to read each slot; the last one clears the slot.
+	private final AtomicIntegerArray pendingReaders;
+	private final int mask;
+
+	private final AtomicLong nextSequence = new AtomicLong();
+	private volatile long cachedMinCursor;
+	private final Queue<Event> eventsFromHandlers = new ConcurrentLinkedQueue<>();
+
+	// all handlers; used to process events directly outside of initProcessing/finishProcessing.
+	private final EventsManagerImpl delegate = new EventsManagerImpl();
+	private final List<EventHandler> eventHandlers = new ArrayList<>();
+	private HandlerThread[] handlerThreads = new HandlerThread[0];
+	private volatile boolean parallelMode = false;
+
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	// statistics of the current iteration
+	private final AtomicLong producerWaits = new AtomicLong();
+	private long maxLag;
+	private long startTime;
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true,
+				config.getOneThreadPerHandler() != null && config.getOneThreadPerHandler(),
+				config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getEventsQueueSize());
+	}
+
+	/**
+	 * @param syncOnSimSteps whether {@link #afterSimStep(double)} waits until all events of the sim step are processed
+	 * @param oneThreadPerHandler whether each handler gets its own thread; if false, handlers are distributed over
+	 *                            <code>numOfThreads</code> threads
+	 * @param numOfThreads number of handler threads, only used if <code>oneThreadPerHandler</code> is false
+	 * @param bufferSize minimal number of slots in the ring, rounded up to the next power of two
+	 */
+	public RingBufferEventsManager(boolean syncOnSimSteps, boolean oneThreadPerHandler, int numOfThreads, int bufferSize) {
+		if (!oneThreadPerHandler && numOfThreads < 1) {
+			throw new IllegalArgumentException("at least one thread is required, got " + numOfThreads);
+		}
+		this.syncOnSimSteps = syncOnSimSteps;
+		this.oneThreadPerHandler = oneThreadPerHandler;
+		this.numOfThreads = numOfThreads;
+		int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+		this.slots = new Event[size];
+		this.published = new AtomicLongArray(size);
+		this.pendingReaders = new AtomicIntegerArray(size);
+		this.mask = size - 1;
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!parallelMode) {
+			delegate.processEvent(event);
+			return;
+		}
+		if (Thread.currentThread() instanceof HandlerThread && ((HandlerThread) Thread.currentThread()).owner == this) {
+			eventsFromHandlers.add(event);
+			return;
+		}
+		if (!eventsFromHandlers.isEmpty()) {
+			publishEventsFromHandlers();
+		}
+		publish(event);
+	}
+
+	private void publish(final Event event) {
+		long sequence = nextSequence.getAndIncrement();
+		awaitCapacity(sequence);
+		int index = (int) sequence & mask;
+		slots[index] = event;
+		pendingReaders.set(index, handlerThreads.length);
+		published.set(index, sequence);
+	}
+
+	private void publishEventsFromHandlers() {
+		Event event;
+		while ((event = eventsFromHandlers.poll()) != null) {
+			publish(event);
+		}
+	}
+
+	// waits until the slot for the given sequence was read by all handler threads.
+	private void awaitCapacity(long sequence) {
+		long wrapPoint = sequence - slots.length;
+		if (wrapPoint <= cachedMinCursor) {
+			return;
+		}
+		long minCursor = minCursor();
+		if (wrapPoint > minCursor) {
+			producerWaits.incrementAndGet();
+			int round = 0;
+			while (wrapPoint > (minCursor = minCursor())) {
+				checkException();
+				backOff(round++);
+			}
+		}
+		cachedMinCursor = minCursor;
+	}
+
+	private long minCursor() {
+		long min = Long.MAX_VALUE;
+		for (HandlerThread thread : handlerThreads) {
+			min = Math.min(min, thread.cursor.get());
+		}
+		return min;
+	}
+
+	private static void backOff(int round) {
+		if (round < SPINS) {
+			Thread.onSpinWait();
+		} else if (round < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		// parallel handling uses the handler from the next iteration on.
+		delegate.addHandler(handler);
+		eventHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		delegate.removeHandler(handler);
+		eventHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		delegate.initProcessing();
+
+		List<EventsManager> eventsManagers = new ArrayList<>();
+		if (oneThreadPerHandler) {
+			for (EventHandler handler : eventHandlers) {
+				eventsManagers.add(new SingleHandlerEventsManager(handler));
+			}
+		} else {
+			for (int i = 0; i < Math.min(numOfThreads, Math.max(1, eventHandlers.size())); i++) {
+				eventsManagers.add(new EventsManagerImpl());
+			}
+			for (int i = 0; i < eventHandlers.size(); i++) {
+				eventsManagers.get(i % eventsManagers.size()).addHandler(eventHandlers.get(i));
+			}
+		}
+
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = null;
+			published.set(i, -1);
+		}
+		nextSequence.set(0);
+		cachedMinCursor = -1;
+		exception.set(null);
+		producerWaits.set(0);
+		maxLag = 0;
+		startTime = System.nanoTime();
+
+		handlerThreads = new HandlerThread[eventsManagers.size()];
+		for (int i = 0; i < handlerThreads.length; i++) {
+			EventsManager eventsManager = eventsManagers.get(i);
+			eventsManager.initProcessing();
+			handlerThreads[i] = new HandlerThread(eventsManager);
+			handlerThreads[i].setDaemon(true);
+			handlerThreads[i].setName(eventsManager instanceof SingleHandlerEventsManager ?
+					"RingBufferEventsManager: " + ((SingleHandlerEventsManager) eventsManager).getEventHandlerClassName() :
+					"RingBufferEventsManager-" + i);
+		}
+		this.parallelMode = true;
+		for (HandlerThread thread : handlerThreads) {
+			thread.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnSimSteps) {
+			flush();
+		}
+		checkException();
+	}
+
+	/*
+	 * In some cases Events are created after this method has been called. To ensure that they are processed in
+	 * real time, we process them not in the parallel threads but directly with the delegate.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (parallelMode) {
+			flush();
+			for (HandlerThread thread : handlerThreads) {
+				thread.running = false;
+			}
+			try {
+				for (HandlerThread thread : handlerThreads) {
+					thread.join();
+					thread.eventsManager.finishProcessing();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.parallelMode = false;
+			logStatistics();
+		}
+		delegate.finishProcessing();
+		checkException();
+	}
+
+	/**
+	 * Waits until all handler threads processed all events published so far, including the events that handlers
+	 * created while doing so.
+	 */
+	private void flush() {
+		if (!parallelMode) {
+			return;
+		}
+		do {
+			publishEventsFromHandlers();
+			long last = nextSequence.get() - 1;
+			maxLag = Math.max(maxLag, last - minCursor());
+			int round = 0;
+			while (minCursor() < last) {
+				checkException();
+				backOff(round++);
+			}
+		} while (!eventsFromHandlers.isEmpty());
+	}
+
+	private void checkException() {
+		Throwable throwable = exception.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	private void logStatistics() {
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		log.info(String.format("processed %d events in %.1f s (%.0f events/s) with %d handler threads; max lag %d events, producer waited %d times",
+				getNumberOfPublishedEvents(), seconds, getNumberOfPublishedEvents() / Math.max(seconds, 1e-9),
+				handlerThreads.length, maxLag, producerWaits.get()));
+	}
+
+	/* package (for a test) */ int getNumberOfOccupiedSlots() {
+		int occupied = 0;
+		for (Event event : slots) {
+			if (event != null) {
+				occupied++;
+			}
+		}
+		return occupied;
+	}
+
+	/**
+	 * @return number of events published into the ring in the current (or last) iteration
+	 */
+	public long getNumberOfPublishedEvents() {
+		return nextSequence.get();
+	}
+
+	/**
+	 * @return number of events processed by each handler thread in the current (or last) iteration
+	 */
+	public long[] getNumberOfProcessedEvents() {
+		long[] processed = new long[handlerThreads.length];
+		for (int i = 0; i < handlerThreads.length; i++) {
+			processed[i] = handlerThreads[i].cursor.get() + 1;
+		}
+		return processed;
+	}
+
+	/**
+	 * @return number of events the slowest handler thread is currently behind the producers
+	 */
+	public long getLag() {
+		return handlerThreads.length == 0 ? 0 : nextSequence.get() - 1 - minCursor();
+	}
+
+	/**
+	 * @return largest lag observed at the end of a sim step
+	 */
+	public long getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * @return number of times a producer had to wait because the ring was full
+	 */
+	public long getNumberOfProducerWaits() {
+		return producerWaits.get();
+	}
+
+	private final class HandlerThread extends Thread {
+
+		private final RingBufferEventsManager owner = RingBufferEventsManager.this;
+		private final EventsManager eventsManager;
+		// last sequence processed by this thread
+		private final AtomicLong cursor = new AtomicLong(-1);
+		private volatile boolean running = true;
+
+		HandlerThread(EventsManager eventsManager) {
+			this.eventsManager = eventsManager;
+		}
+
+		@Override
+		public void run() {
+			long next = cursor.get() + 1;
+			int round = 0;
+			while (true) {
+				int index = (int) next & mask;
+				if (published.get(index) == next) {
+					// process everything that is already available before advancing the cursor
+					long last = next;
+					do {
+						int lastIndex = (int) last & mask;
+						process(slots[lastIndex]);
+						if (pendingReaders.decrementAndGet(lastIndex) == 0) {
+							// visible to the producers before they reuse the slot, as the cursor is advanced afterwards
+							slots[lastIndex] = null;
+						}
+						last++;
+					} while (published.get((int) last & mask) == last);
+					cursor.set(last - 1);
+					next = last;
+					round = 0;
+				} else if (running) {
+					backOff(round++);
+				} else {
+					return;
+				}
+			}
+		}
+
+		private void process(Event event) {
+			if (exception.get() != null) {
+				// keep consuming so that producers do not wait forever; the exception is reported to them.
+				return;
+			}
+			try {
+				eventsManager.processEvent(event);
+			} catch (Throwable t) {
+				log.error("Thread " + getName() + " died with exception while handling events.", t);
+				exception.compareAndSet(null, t);
+			}
+		}
+	}
+}
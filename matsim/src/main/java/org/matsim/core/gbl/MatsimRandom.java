@@ -20,7 +20,9 @@
 
 package org.matsim.core.gbl;
 
+import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 
 import org.apache.log4j.Logger;
 
@@ -58,6 +60,9 @@ public abstract class MatsimRandom {
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
+	/** the local instances created by the current thread, if they are being collected */
+	private static final ThreadLocal<List<Random>> collectedLocalInstances = new ThreadLocal<>();
+
 	/** Resets the random number generator with a default random seed. */
 	public static void reset() {
 		reset(DEFAULT_RANDOM_SEED);
@@ -86,9 +91,43 @@ public abstract class MatsimRandom {
 		internalCounter++;
 		Random r = new Random(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
+		List<Random> collected = collectedLocalInstances.get();
+		if (collected != null) {
+			collected.add(r);
+		}
 		return r;
 	}
 
+	/**
+	 * Runs the supplier and adds all local instances it created in the current thread to <code>localInstances</code>.
+	 * This allows to reset the random number generators of e.g. a plan algorithm with
+	 * {@link #resetLocalInstance(Random, long)}, without the algorithm knowing about it.
+	 *
+	 * @return the result of the supplier
+	 */
+	public static <T> T collectLocalInstances(final Supplier<T> supplier, final List<Random> localInstances) {
+		List<Random> previous = collectedLocalInstances.get();
+		collectedLocalInstances.set(localInstances);
+		try {
+			return supplier.get();
+		} finally {
+			collectedLocalInstances.set(previous);
+		}
+	}
+
+	/**
+	 * Resets a local instance, so that the random numbers it draws afterwards only depend on the global seed and the
+	 * given key, e.g. derived from a person id. Unlike the sequence of local instances, this does not depend on the
+	 * order in which threads or objects are created.
+	 *
+	 * @param rng the random number generator to reset.
+	 * @param key the key identifying the random numbers.
+	 */
+	public static void resetLocalInstance(final Random rng, final long key) {
+		rng.setSeed(lastUsedSeed ^ (key * 0x9E3779B97F4A7C15L));
+		prepareRNG(rng);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
@@ -224,6 +224,11 @@ public class Agent {
     public void reset() {
         plan.clear();
         events.clear();
+        restart();
+    }
+
+    // Prepares the agent to execute the same plan again.
+    public void restart() {
         planIndex = 0;
         eventsIndex = 0;
         linkFinishTime = 0;
@@ -145,6 +145,11 @@ public class HLink {
     private int lastFlowUpdate;
 	private int lastPush;
 	private final int stuckTimePeriod;
+	// Boundary links are pushed by the realm of their upstream node and popped by the realm of their downstream node.
+	// The upstream realm admits agents based on its own count of pushed agents and the pops reported back to it.
+	private boolean boundary;
+	private int boundaryPushed;
+	private int boundaryPopped;
 
     public HLink(int id, int capacity, int length, int velocity, int flowPeriod, int flowCapacity, int stuckTimePeriod) {
         this.id = id;
@@ -163,6 +168,8 @@ public class HLink {
     public void reset() {
     	queue.clear();
     	this.lastFlowUpdate = 0;
+    	this.boundaryPushed = 0;
+    	this.boundaryPopped = 0;
     }
 
 	public boolean push(Agent agent, int timestep) {
@@ -184,6 +191,42 @@ public class HLink {
         queue.pop();
     }
 
+	/**
+	 * Called by the upstream realm of a boundary link. Reserves space for an agent that will be delivered to the
+	 * downstream realm at the next second boundary.
+	 */
+	public boolean reserve(int timestep) {
+		if (boundaryPushed - boundaryPopped < queue.maxPhysicalCapacity || (lastPush + stuckTimePeriod) < timestep) {
+			boundaryPushed++;
+			lastPush = timestep;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Called by the upstream realm of a boundary link once the downstream realm reported that an agent left the link.
+	 */
+	public void release() {
+		boundaryPopped++;
+	}
+
+	/**
+	 * Called by the downstream realm of a boundary link to add an agent for which space was reserved upstream.
+	 */
+	public void deliver(Agent agent) {
+		queue.forcePush(agent);
+	}
+
+	public boolean isBoundary() {
+		return boundary;
+	}
+
+	void setBoundary(boolean boundary) {
+		this.boundary = boundary;
+	}
+
     public int nexttime () {
         if (queue.size() == 0) {
             return 0;
@@ -12,7 +12,8 @@ import org.matsim.core.mobsim.framework.Mobsim;
 public final class Hermes implements Mobsim {
 
 	final private static Logger log = Logger.getLogger(Hermes.class);
-    private Realm realm;
+    private Realm[] realms;
+    private ParallelRealms parallelRealms;
     private Agent[] agents;
 	private ScenarioImporter si; // TODO - I don't really need this!
 	private final Scenario scenario;
@@ -26,12 +27,17 @@ public final class Hermes implements Mobsim {
 	private void importScenario() throws Exception {
 		si = ScenarioImporter.instance(scenario, eventsManager);
 		si.generate();
-		this.realm = si.realm;
+		this.realms = si.realms;
+		this.parallelRealms = realms.length > 1 ? new ParallelRealms(realms, eventsManager) : null;
 		this.agents = si.hermes_agents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+        if (parallelRealms == null) {
+            eventsManager.processEvents(realms[0].getSortedEvents());
+        } else {
+            eventsManager.processEvents(parallelRealms.mergeSortedEvents());
+        }
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isVehicle()) {
@@ -54,9 +60,13 @@ public final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			if (parallelRealms == null) {
+				realms[0].run();
+			} else {
+				parallelRealms.run();
+			}
 			log.info(String.format(
-					"ETHZ hermes took %d ms", System.currentTimeMillis() - time));
+					"ETHZ hermes took %d ms (%d realms)", System.currentTimeMillis() - time, realms.length));
 
 			time = System.currentTimeMillis();
 			processEvents();
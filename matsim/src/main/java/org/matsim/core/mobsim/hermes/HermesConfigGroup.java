@@ -42,6 +42,11 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
 
     private static final String DETPTDESC = "treats PT as deterministic. Everything will run on time.";
     private boolean deterministicPt = false;
+
+    private static final String NUMBER_OF_REALMS = "numberOfRealms";
+    private static final String NUMBER_OF_REALMS_DESC = "Number of realms (and threads) the network is partitioned into. "
+            + "Each realm simulates the links ending in its nodes. Agents crossing realm boundaries are handed over at the end of each second. "
+            + "With 1 (default), everything is simulated in a single realm.";
     public static final boolean DEBUG_REALMS = false;
     public static final boolean DEBUG_EVENTS = false;
     public static final boolean CONCURRENT_EVENT_PROCESSING = true;
@@ -55,6 +60,16 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfRealms = 1;
+
+    private static final String REUSE_UNCHANGED_PLANS = "reuseUnchangedPlans";
+    private static final String REUSE_UNCHANGED_PLANS_DESC = "If true, the flat plans and events of persons whose selected plan did not change "
+            + "since the previous iteration are kept instead of being re-imported. The event objects of these persons are then reused "
+            + "and modified in place in the next iteration, so event handlers must not keep events beyond the iteration they were "
+            + "handled in (e.g. no EventsCollector over several iterations).";
+    private boolean reuseUnchangedPlans = false;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -101,6 +116,26 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(NUMBER_OF_REALMS)
+    public int getNumberOfRealms() {
+        return numberOfRealms;
+    }
+
+    @StringSetter(NUMBER_OF_REALMS)
+    public void setNumberOfRealms(int numberOfRealms) {
+        this.numberOfRealms = numberOfRealms;
+    }
+
+    @StringGetter(REUSE_UNCHANGED_PLANS)
+    public boolean isReuseUnchangedPlans() {
+        return reuseUnchangedPlans;
+    }
+
+    @StringSetter(REUSE_UNCHANGED_PLANS)
+    public void setReuseUnchangedPlans(boolean reuseUnchangedPlans) {
+        this.reuseUnchangedPlans = reuseUnchangedPlans;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -137,6 +172,8 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(NUMBER_OF_REALMS, NUMBER_OF_REALMS_DESC);
+        comments.put(REUSE_UNCHANGED_PLANS, REUSE_UNCHANGED_PLANS_DESC);
         return comments;
     }
 
@@ -0,0 +1,106 @@
+package org.matsim.core.mobsim.hermes;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import org.apache.log4j.Logger;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.events.ParallelEventsManager;
+
+/**
+ * Runs several realms, each on its own thread. All realms simulate the same second concurrently and meet at a barrier
+ * at the end of it. Events of all realms are merged by time (ties broken by realm index) so that the resulting event
+ * stream does not depend on thread scheduling.
+ */
+final class ParallelRealms {
+
+	final private static Logger log = Logger.getLogger(ParallelRealms.class);
+
+	private final Realm[] realms;
+	private final ParallelEventsManager eventsManager;
+	// Last second completed by all realms.
+	private int secs;
+	private volatile Throwable failure;
+
+	ParallelRealms(Realm[] realms, ParallelEventsManager eventsManager) {
+		this.realms = realms;
+		this.eventsManager = eventsManager;
+	}
+
+	void run() throws Exception {
+		CyclicBarrier barrier = new CyclicBarrier(realms.length, this::afterStep);
+		Thread[] threads = new Thread[realms.length];
+		for (int i = 0; i < realms.length; i++) {
+			Realm realm = realms[i];
+			threads[i] = new Thread(() -> {
+				try {
+					realm.run(barrier);
+				} catch (BrokenBarrierException | InterruptedException e) {
+					// another realm failed, its exception is reported below.
+				} catch (Throwable t) {
+					failure = t;
+					// interrupting the other realms breaks the barrier for all of them.
+					for (Thread thread : threads) {
+						if (thread != Thread.currentThread()) {
+							thread.interrupt();
+						}
+					}
+				}
+			}, "HermesRealm-" + i);
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure != null) {
+			throw new RuntimeException("Exception while running hermes realms.", failure);
+		}
+	}
+
+	// Executed by the last realm reaching the barrier, while all other realms wait.
+	private void afterStep() {
+		if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0) {
+			EventArray events = mergeSortedEvents();
+			if (events.size() > 0) {
+				eventsManager.processEvents(events);
+			}
+			log.debug(String.format("ETHZ realms flushed %d events at %d", events.size(), secs));
+		}
+		secs += 1;
+	}
+
+	/**
+	 * Removes the events collected so far from all realms and merges them into a single array.
+	 */
+	EventArray mergeSortedEvents() {
+		EventArray[] arrays = new EventArray[realms.length];
+		int total = 0;
+		for (int i = 0; i < realms.length; i++) {
+			arrays[i] = realms[i].takeSortedEvents();
+			total += arrays[i].size();
+		}
+
+		// cursor[0] = realm, cursor[1] = position in the realm's events
+		PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, realms.length), Comparator
+				.<int[]>comparingDouble(cursor -> arrays[cursor[0]].get(cursor[1]).getTime())
+				.thenComparingInt(cursor -> cursor[0]));
+		for (int i = 0; i < arrays.length; i++) {
+			if (arrays[i].size() > 0) {
+				heads.add(new int[] { i, 0 });
+			}
+		}
+
+		EventArray merged = new EventArray(Math.max(1, total));
+		int[] cursor;
+		while ((cursor = heads.poll()) != null) {
+			merged.add(arrays[cursor[0]].get(cursor[1]));
+			if (++cursor[1] < arrays[cursor[0]].size()) {
+				heads.add(cursor);
+			}
+		}
+		return merged;
+	}
+}
@@ -3,6 +3,7 @@ package org.matsim.core.mobsim.hermes;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -40,9 +41,22 @@ public class Realm {
     private final ParallelEventsManager eventsManager;
     // Current timestamp
     private int secs;
+    // Index of this realm.
+    private final int id;
+    // Assignment of links and stops to realms (null if there is only one realm).
+    private final RealmPartition partition;
+    // mailboxes[src realm][dst realm] -> messages exchanged at each second boundary.
+    private final RealmMailbox[][] mailboxes;
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, 0, null, null);
+    }
+
+    Realm(ScenarioImporter scenario, EventsManager eventsManager, int id, RealmPartition partition, RealmMailbox[][] mailboxes) throws Exception {
+        this.id = id;
+        this.partition = partition;
+        this.mailboxes = mailboxes;
     	this.si = scenario;
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
@@ -68,6 +82,15 @@ public class Realm {
     }
 
     private void add_delayed_agent(Agent agent, int until) {
+        // Agents sleep in the realm that will handle their next plan element.
+        if (partition != null) {
+            int realm = partition.nextRealm(agent, id);
+            if (realm != id) {
+                if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d handed over to realm %d until %d", agent.id, realm, until));
+                mailboxes[id][realm].sendAgent(secs, agent, until);
+                return;
+            }
+        }
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
         delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
     }
@@ -98,6 +121,12 @@ public class Realm {
         int linkid = Agent.getLinkPlanEntry(planentry);
         int velocity = Agent.getVelocityPlanEntry(planentry);
         HLink next = links[linkid];
+        if (partition != null && partition.upstreamRealm(linkid) != id) {
+            // Only happens for routes that are not connected. The agent is handed over to the realm that pushes
+            // into the next link and tries again in the next second.
+            add_delayed_agent(agent, secs + 1);
+            return true;
+        }
         int prev_finishtime = agent.linkFinishTime;
         // this ensures that if no velocity is provided for the vehicle, we use the link
         velocity = velocity == 0 ? next.velocity() : velocity;
@@ -105,7 +134,17 @@ public class Realm {
         int traveltime = HermesConfigGroup.LINK_ADVANCE_DELAY + Math.max(1, next.length() / Math.min(velocity, next.velocity()));
         agent.linkFinishTime = secs + traveltime;
 
-        if (next.push(agent,secs)) {
+        if (next.isBoundary()) {
+            // The link is simulated by another realm, which will add the agent at the next second boundary.
+            if (next.reserve(secs)) {
+                advanceAgentandSetEventTime(agent);
+                mailboxes[id][partition.linkRealm(next.id())].sendMove(secs, agent, next);
+                return true;
+            } else {
+                agent.linkFinishTime = prev_finishtime;
+                return false;
+            }
+        } else if (next.push(agent,secs)) {
             advanceAgentandSetEventTime(agent);
             // If the agent we just added is the head, add to delayed links
             if (currLinkId != next.id() && next.queue().peek() == agent) {
@@ -125,8 +164,8 @@ public class Realm {
 
     protected boolean processAgentSleepUntil(Agent agent, long planentry) {
         int sleep = Agent.getSleepPlanEntry(planentry);
-        add_delayed_agent(agent, Math.max(sleep, secs + 1));
         advanceAgentandSetEventTime(agent);
+        add_delayed_agent(agent, Math.max(sleep, secs + 1));
         return true;
     }
 
@@ -153,8 +192,8 @@ public class Realm {
     }
 
     protected boolean processAgentStopArrive(Agent agent, long planentry) {
-        add_delayed_agent(agent, secs + 1);
         advanceAgentandSetEventTime(agent);
+        add_delayed_agent(agent, secs + 1);
         // Although we want the agent to be processed in the next tick, we
         // return true to remove the vehicle from the link that it is currently.
         return true;
@@ -171,16 +210,16 @@ public class Realm {
             agent_stops.get(stopid).get(lineid);
 
         // consume stop delay
-        add_delayed_agent(agent, Math.max(secs + 1, departure));
         advanceAgent(agent);
+        add_delayed_agent(agent, Math.max(secs + 1, departure));
 
         // drop agents
         for (Agent out : agent.egress(stopidx)) {
-            add_delayed_agent(out, secs + 1);
             // consume access, activate egress
             advanceAgentandSetEventTime(out);
             // set driver in agent's event
             setEventVehicle(out, Agent.getPlanEvent(out.currPlan()), agent.id);
+            add_delayed_agent(out, secs + 1);
         }
 
         // take agents
@@ -264,6 +303,9 @@ public class Realm {
             }
             if (finished || processAgent(agent, link.id())) {
                 link.pop();
+                if (link.isBoundary()) {
+                    mailboxes[id][partition.upstreamRealm(link.id())].sendRelease(secs, link);
+                }
                 curr_flow -= 1;
                 routed += 1;
                 if ((agent = link.queue().peek()) == null) {
@@ -281,15 +323,47 @@ public class Realm {
         return routed;
     }
 
+    void receiveAgent(Agent agent, int until) {
+        if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d received until %d", agent.id, until));
+        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+    }
+
+    void receiveMove(Agent agent, int linkid) {
+        HLink link = links[linkid];
+        link.deliver(agent);
+        if (link.queue().peek() == agent) {
+            add_delayed_link(link, Math.max(agent.linkFinishTime, secs));
+        }
+    }
+
+    void receiveRelease(int linkid) {
+        links[linkid].release();
+    }
+
     public void run() throws Exception {
+        run(null);
+    }
+
+    /**
+     * Runs the simulation. If a barrier is given, this realm is one of several realms running in parallel: it waits
+     * at the barrier after each second and reads the messages of the other realms before starting the next one.
+     */
+    void run(CyclicBarrier barrier) throws Exception {
     	int routed = 0;
         Agent agent = null;
         HLink link = null;
 
         while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0){
+            if (secs % 3600 == 0 && id == 0){
                 log.info("Hermes running at " + Time.writeTime(secs));
             }
+            if (mailboxes != null) {
+                for (int src = 0; src < mailboxes.length; src++) {
+                    if (src != id) {
+                        mailboxes[src][id].receive(secs, this);
+                    }
+                }
+            }
             while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("Processing agent %d", agent.id));
                 routed += processAgentActivities(agent);
@@ -303,13 +377,17 @@ public class Realm {
             }
             delayedLinksByWakeupTime.set(secs,null);
             if (HermesConfigGroup.DEBUG_REALMS && routed > 0) log(secs, String.format("Processed %d agents", routed));
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
+            // With several realms, events are merged and flushed at the barrier.
+            if (barrier == null && HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
                 eventsManager.processEvents(sorted_events);
                 sorted_events = new EventArray();
             }
 
             routed = 0;
             secs += 1;
+            if (barrier != null) {
+                barrier.await();
+            }
         }
     }
 
@@ -361,4 +439,9 @@ public class Realm {
     ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
     ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
+    EventArray takeSortedEvents() {
+        EventArray events = this.sorted_events;
+        this.sorted_events = new EventArray();
+        return events;
+    }
 }
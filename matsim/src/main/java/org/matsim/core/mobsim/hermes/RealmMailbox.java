@@ -0,0 +1,79 @@
+package org.matsim.core.mobsim.hermes;
+
+import java.util.Arrays;
+
+/**
+ * Messages from one realm to another. A mailbox has exactly one writer (the source realm) and one reader (the
+ * destination realm). Messages written during second {@code t} go to buffer {@code t % 2} and are read by the
+ * destination at the beginning of second {@code t + 1}, after both realms passed the barrier at the end of second
+ * {@code t}. While the destination drains one buffer, the source writes into the other one, so no locking is needed.
+ */
+final class RealmMailbox {
+
+	private static final class Buffer {
+		// agents to wake up in the destination realm
+		private Agent[] sleepers = new Agent[16];
+		private int[] wakeups = new int[16];
+		private int nsleepers;
+		// agents to push into boundary links simulated by the destination realm
+		private Agent[] movers = new Agent[16];
+		private int[] moverLinks = new int[16];
+		private int nmovers;
+		// boundary links (pushed by the destination realm) that agents left
+		private int[] releases = new int[16];
+		private int nreleases;
+
+		private void clear() {
+			Arrays.fill(sleepers, 0, nsleepers, null);
+			Arrays.fill(movers, 0, nmovers, null);
+			nsleepers = nmovers = nreleases = 0;
+		}
+	}
+
+	private final Buffer[] buffers = { new Buffer(), new Buffer() };
+
+	void sendAgent(int secs, Agent agent, int wakeup) {
+		Buffer buffer = buffers[secs & 1];
+		if (buffer.nsleepers == buffer.sleepers.length) {
+			buffer.sleepers = Arrays.copyOf(buffer.sleepers, buffer.nsleepers * 2);
+			buffer.wakeups = Arrays.copyOf(buffer.wakeups, buffer.nsleepers * 2);
+		}
+		buffer.sleepers[buffer.nsleepers] = agent;
+		buffer.wakeups[buffer.nsleepers++] = wakeup;
+	}
+
+	void sendMove(int secs, Agent agent, HLink link) {
+		Buffer buffer = buffers[secs & 1];
+		if (buffer.nmovers == buffer.movers.length) {
+			buffer.movers = Arrays.copyOf(buffer.movers, buffer.nmovers * 2);
+			buffer.moverLinks = Arrays.copyOf(buffer.moverLinks, buffer.nmovers * 2);
+		}
+		buffer.movers[buffer.nmovers] = agent;
+		buffer.moverLinks[buffer.nmovers++] = link.id();
+	}
+
+	void sendRelease(int secs, HLink link) {
+		Buffer buffer = buffers[secs & 1];
+		if (buffer.nreleases == buffer.releases.length) {
+			buffer.releases = Arrays.copyOf(buffer.releases, buffer.nreleases * 2);
+		}
+		buffer.releases[buffer.nreleases++] = link.id();
+	}
+
+	/**
+	 * Delivers the messages sent during the previous second to the destination realm, in the order they were sent.
+	 */
+	void receive(int secs, Realm destination) {
+		Buffer buffer = buffers[(secs - 1) & 1];
+		for (int i = 0; i < buffer.nreleases; i++) {
+			destination.receiveRelease(buffer.releases[i]);
+		}
+		for (int i = 0; i < buffer.nmovers; i++) {
+			destination.receiveMove(buffer.movers[i], buffer.moverLinks[i]);
+		}
+		for (int i = 0; i < buffer.nsleepers; i++) {
+			destination.receiveAgent(buffer.sleepers[i], buffer.wakeups[i]);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,158 @@
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Splits the Hermes network into realms using recursive coordinate bisection over the nodes. Every node belongs to
+ * exactly one realm. A link is simulated by the realm of its downstream node, and agents are pushed into a link by the
+ * realm of its upstream node. This way, every link has a single producer realm and a single consumer realm. Links
+ * where both differ are boundary links. PT stops belong to the realm that simulates the link of their facility.
+ */
+class RealmPartition {
+
+	final private static Logger log = Logger.getLogger(RealmPartition.class);
+
+	private final int nrealms;
+	// realm simulating each link (realm of the link's to node)
+	private final int[] link_realm;
+	// realm pushing agents into each link (realm of the link's from node)
+	private final int[] link_upstream_realm;
+	// realm handling each pt stop
+	private final int[] stop_realm;
+
+	private RealmPartition(int nrealms, int[] link_realm, int[] link_upstream_realm, int[] stop_realm) {
+		this.nrealms = nrealms;
+		this.link_realm = link_realm;
+		this.link_upstream_realm = link_upstream_realm;
+		this.stop_realm = stop_realm;
+	}
+
+	static RealmPartition create(Scenario scenario, int nrealms) {
+		int[] node_realm = new int[Id.getNumberOfIds(Node.class)];
+		List<Node> nodes = new ArrayList<>(scenario.getNetwork().getNodes().values());
+		bisect(nodes, 0, nodes.size(), 0, nrealms, node_realm);
+
+		int[] link_realm = new int[Id.getNumberOfIds(Link.class)];
+		int[] link_upstream_realm = new int[Id.getNumberOfIds(Link.class)];
+		int[] links_per_realm = new int[nrealms];
+		int boundary_links = 0;
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			int id = link.getId().index();
+			link_realm[id] = node_realm[link.getToNode().getId().index()];
+			link_upstream_realm[id] = node_realm[link.getFromNode().getId().index()];
+			links_per_realm[link_realm[id]]++;
+			if (link_realm[id] != link_upstream_realm[id]) {
+				boundary_links++;
+			}
+		}
+
+		int[] stop_realm = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+		for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+			if (stop.getLinkId() != null) {
+				stop_realm[stop.getId().index()] = link_realm[stop.getLinkId().index()];
+			}
+		}
+
+		for (int i = 0; i < nrealms; i++) {
+			log.info(String.format("ETHZ realm %d simulates %d links", i, links_per_realm[i]));
+		}
+		log.info(String.format("ETHZ %d realms with %d boundary links", nrealms, boundary_links));
+		return new RealmPartition(nrealms, link_realm, link_upstream_realm, stop_realm);
+	}
+
+	// Assigns nodes[from, to) to realms [first_realm, first_realm + nrealms). The nodes are sorted along the longer
+	// side of their bounding box and cut such that each side receives a share of in-links proportional to its realms.
+	private static void bisect(List<Node> nodes, int from, int to, int first_realm, int nrealms, int[] node_realm) {
+		if (nrealms == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				node_realm[nodes.get(i).getId().index()] = first_realm;
+			}
+			return;
+		}
+
+		double minx = Double.POSITIVE_INFINITY, maxx = Double.NEGATIVE_INFINITY;
+		double miny = Double.POSITIVE_INFINITY, maxy = Double.NEGATIVE_INFINITY;
+		long weight = 0;
+		for (int i = from; i < to; i++) {
+			Node node = nodes.get(i);
+			minx = Math.min(minx, node.getCoord().getX());
+			maxx = Math.max(maxx, node.getCoord().getX());
+			miny = Math.min(miny, node.getCoord().getY());
+			maxy = Math.max(maxy, node.getCoord().getY());
+			weight += weight(node);
+		}
+
+		Comparator<Node> byIndex = Comparator.comparingInt(n -> n.getId().index());
+		Comparator<Node> comparator = maxx - minx >= maxy - miny ?
+				Comparator.<Node>comparingDouble(n -> n.getCoord().getX()).thenComparing(byIndex) :
+				Comparator.<Node>comparingDouble(n -> n.getCoord().getY()).thenComparing(byIndex);
+		nodes.subList(from, to).sort(comparator);
+
+		int left_realms = nrealms / 2;
+		long left_weight = weight * left_realms / nrealms;
+		long acc = 0;
+		int split = from;
+		while (split < to - 1 && acc < left_weight) {
+			acc += weight(nodes.get(split));
+			split++;
+		}
+
+		bisect(nodes, from, split, first_realm, left_realms, node_realm);
+		bisect(nodes, split, to, first_realm + left_realms, nrealms - left_realms, node_realm);
+	}
+
+	private static int weight(Node node) {
+		// the work of a realm is dominated by the links it simulates, i.e., the in-links of its nodes.
+		return 1 + node.getInLinks().size();
+	}
+
+	int numberOfRealms() {
+		return nrealms;
+	}
+
+	int linkRealm(int linkid) {
+		return link_realm[linkid];
+	}
+
+	int upstreamRealm(int linkid) {
+		return link_upstream_realm[linkid];
+	}
+
+	boolean isBoundary(int linkid) {
+		return link_realm[linkid] != link_upstream_realm[linkid];
+	}
+
+	int stopRealm(int stopid) {
+		return stop_realm[stopid];
+	}
+
+	/**
+	 * Returns the realm that has to handle the next plan element of the agent, or the given default if the next plan
+	 * element is not bound to a location.
+	 */
+	int nextRealm(Agent agent, int current) {
+		if (agent.finished()) {
+			return current;
+		}
+		long planentry = agent.plan().get(agent.planIndex() + 1);
+		switch (Agent.getPlanHeader(planentry)) {
+			case Agent.LinkType:
+				return link_upstream_realm[Agent.getLinkPlanEntry(planentry)];
+			case Agent.WaitType:
+			case Agent.StopArriveType:
+			case Agent.StopDelayType:
+			case Agent.StopDepartType:
+				return stop_realm[Agent.getStopPlanEntry(planentry)];
+			default:
+				return current;
+		}
+	}
+}
@@ -7,7 +7,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -27,6 +30,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
@@ -82,8 +86,15 @@ public class ScenarioImporter {
     // Note: in order to make MATSim Agent ids, some positions in the array might be null.
     protected Agent[] hermes_agents;
 
-	protected Realm realm;
+	// Realms simulating the scenario. There is more than one realm if the network is partitioned.
+	protected Realm[] realms;
+	// Assignment of links and stops to realms (null if there is only one realm).
+	protected RealmPartition partition;
 	private final boolean deterministicPt;
+	private final boolean reuseUnchangedPlans;
+	// Inputs of the flat plan of each person when it was last imported (indexed by hermes agent id). Persons whose
+	// selected plan is still the same are not imported again.
+	private ImportedPlan[] imported_plans;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id).get(dst station id) -> queue of agents
 	protected ArrayList<ArrayList<Map<Integer, ArrayDeque<Agent>>>> agent_stops;
@@ -92,8 +103,11 @@ public class ScenarioImporter {
 
     private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
+		this.reuseUnchangedPlans = scenario.getConfig().hermes().isReuseUnchangedPlans();
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
+		int nrealms = scenario.getConfig().hermes().getNumberOfRealms();
+		this.partition = nrealms > 1 ? RealmPartition.create(scenario, nrealms) : null;
 		generateLinks();
 
 		generatePT();
@@ -143,10 +157,15 @@ public class ScenarioImporter {
                     link.reset();
                 }
     	    	}
-    	    	// reset agent plans and events
+    	    	// reset agent plans and events. Persons keep their plans if they might be reused. Vehicle events
+    	    	// are modified during the simulation (stop delays), so vehicles are always imported again.
     	        for (int i = 0; i < hermes_agents.length; i++) {
     	        	if (hermes_agents[i] != null) {
-    	        		hermes_agents[i].reset();
+    	        		if (reuseUnchangedPlans && i < agent_persons) {
+    	        			hermes_agents[i].restart();
+    	        		} else {
+    	        			hermes_agents[i].reset();
+    	        		}
     	        	}
     	    	}
     	    	// reset agent_stops
@@ -193,6 +212,9 @@ public class ScenarioImporter {
             }
 
             hermes_links[link_id] = new HLink(link_id, storageCapacity, length, speed, flowPeriod, flowCapactiy, scenario.getConfig().hermes().getStuckTime());
+            if (partition != null) {
+                hermes_links[link_id].setBoundary(partition.isBoundary(link_id));
+            }
         }
     }
 
@@ -249,7 +271,21 @@ public class ScenarioImporter {
     }
 
     private void generateRealms() throws Exception {
-        realm = new Realm(this, eventsManager);
+        if (partition == null) {
+            realms = new Realm[] { new Realm(this, eventsManager) };
+        } else {
+            int nrealms = partition.numberOfRealms();
+            RealmMailbox[][] mailboxes = new RealmMailbox[nrealms][nrealms];
+            for (int src = 0; src < nrealms; src++) {
+                for (int dst = 0; dst < nrealms; dst++) {
+                    mailboxes[src][dst] = src == dst ? null : new RealmMailbox();
+                }
+            }
+            realms = new Realm[nrealms];
+            for (int i = 0; i < nrealms; i++) {
+                realms[i] = new Realm(this, eventsManager, i, partition, mailboxes);
+            }
+        }
 
         // Put agents in their initial location (link or activity center)
         for (Agent agent : hermes_agents) {
@@ -266,11 +302,18 @@ public class ScenarioImporter {
                     int velocity = Agent.getVelocityPlanEntry(planentry);
                     HLink link = hermes_links[linkid];
                     agent.linkFinishTime = link.length() / Math.min(velocity, link.velocity());
-                    link.push(agent,0);
+                    if (link.isBoundary()) {
+                        // the space is taken on behalf of the upstream realm
+                        link.reserve(0);
+                        link.deliver(agent);
+                    } else {
+                        link.push(agent,0);
+                    }
                     break;
                 case Agent.SleepForType:
                 case Agent.SleepUntilType:
                     int sleep = Agent.getSleepPlanEntry(planentry);
+                    Realm realm = partition == null ? realms[0] : realms[partition.nextRealm(agent, 0)];
                     realm.delayedAgents().get(Math.min(sleep, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
                     break;
                 default:
@@ -284,6 +327,7 @@ public class ScenarioImporter {
             if (link != null) {
                 int nextwakeup = link.nexttime();
                 if (nextwakeup > 0) {
+                    Realm realm = partition == null ? realms[0] : realms[partition.linkRealm(i)];
                     realm.delayedLinks().get(nextwakeup).add(link);
                 }
             }
@@ -348,8 +392,7 @@ public class ScenarioImporter {
 		Map<Id<Vehicle>, Vehicle> vehicles = scenario.getVehicles().getVehicles();
 		Vehicle v = vehicles.get(VehicleUtils.getVehicleId(person, leg.getMode()));
 		Id<Vehicle> vid = v == null ? Id.createVehicleId("v" + person.getId()) : v.getId();
-		int velocity = v == null ?
-				HermesConfigGroup.MAX_VEHICLE_VELOCITY : (int) Math.round(v.getType().getMaximumVelocity());
+		int velocity = velocity(v);
 		int egressId = endLId.index();
 		events.add(new PersonEntersVehicleEvent(0, id, vid));
 		events.add(new VehicleEntersTrafficEvent(0, id, startLId, vid, leg.getMode(), 1));
@@ -370,6 +413,10 @@ public class ScenarioImporter {
         events.add(new PersonLeavesVehicleEvent(0, id, vid));
     }
 
+    private static int velocity(Vehicle v) {
+		return v == null ? HermesConfigGroup.MAX_VEHICLE_VELOCITY : (int) Math.round(v.getType().getMaximumVelocity());
+    }
+
     private void populateStops(int srcStopId, int lineId, int dstStopId) {
         Map<Integer, ArrayDeque<Agent>> agents = agent_stops.get(srcStopId).get(lineId);
 
@@ -607,14 +654,107 @@ public class ScenarioImporter {
 
     private void generatePersonPlans() {
         Population population = scenario.getPopulation();
+        AtomicInteger imported = new AtomicInteger();
         population.getPersons().values().parallelStream().forEach((person) -> {
         	int hermes_id = hermes_id(person.getId().index(), false);
-        	PlanArray plan = hermes_agents[hermes_id].plan();
-        	EventArray events = hermes_agents[hermes_id].events();
-            for (PlanElement element: person.getSelectedPlan().getPlanElements()) {
+        	Agent agent = hermes_agents[hermes_id];
+        	Plan selected = person.getSelectedPlan();
+        	if (reuseUnchangedPlans && isUnchanged(person, selected, imported_plans[hermes_id])) {
+        		return;
+        	}
+        	agent.reset();
+        	PlanArray plan = agent.plan();
+        	EventArray events = agent.events();
+            for (PlanElement element: selected.getPlanElements()) {
 				processPlanElement(person, plan, events, element);
             }
+            if (reuseUnchangedPlans) {
+            	List<Object> inputs = new ArrayList<>();
+            	visitPlanInputs(person, selected, inputs::add);
+            	imported_plans[hermes_id] = new ImportedPlan(selected, inputs.toArray());
+            }
+            imported.incrementAndGet();
         });
+        log.info(String.format("ETHZ imported %d of %d persons", imported.get(), population.getPersons().size()));
+    }
+
+    private boolean isUnchanged(Person person, Plan plan, ImportedPlan imported) {
+    	if (imported == null || imported.plan != plan) {
+    		return false;
+    	}
+    	int[] next = { 0 };
+    	return visitPlanInputs(person, plan, input -> next[0] < imported.inputs.length
+    			&& Objects.equals(input, imported.inputs[next[0]++])) && next[0] == imported.inputs.length;
+    }
+
+    // Passes everything the flat plan and the events of a person are built from to the visitor, as long as it returns
+    // true. Catches plans that are modified in place instead of being replaced by a new selected plan. The links of a
+    // network route are represented by the identity of the route, their number and a 64 bit hash instead of a copy.
+    private boolean visitPlanInputs(Person person, Plan plan, Predicate<Object> visitor) {
+    	for (PlanElement element : plan.getPlanElements()) {
+    		if (element instanceof Activity) {
+    			Activity act = (Activity) element;
+    			if (!(visitor.test(Activity.class) && visitor.test(act.getType()) && visitor.test(act.getLinkId())
+    					&& visitor.test(act.getFacilityId()) && visitor.test(act.getEndTime())
+    					&& visitor.test(act.getMaximumDuration()))) {
+    				return false;
+    			}
+    		} else if (element instanceof Leg) {
+    			Leg leg = (Leg) element;
+    			Route route = leg.getRoute();
+    			if (!(visitor.test(Leg.class) && visitor.test(leg.getMode()) && visitor.test(leg.getTravelTime())
+    					&& visitor.test(route))) {
+    				return false;
+    			}
+    			if (route == null) {
+    				continue;
+    			}
+    			if (!(visitor.test(route.getStartLinkId()) && visitor.test(route.getEndLinkId())
+    					&& visitor.test(route.getTravelTime()) && visitor.test(route.getDistance()))) {
+    				return false;
+    			}
+    			if (route instanceof NetworkRoute) {
+    				List<Id<org.matsim.api.core.v01.network.Link>> linkIds = ((NetworkRoute) route).getLinkIds();
+    				if (!(visitor.test(linkIds.size()) && visitor.test(hash(linkIds)))) {
+    					return false;
+    				}
+    			} else if (route instanceof TransitPassengerRoute) {
+    				TransitPassengerRoute troute = (TransitPassengerRoute) route;
+    				if (!(visitor.test(troute.getAccessStopId()) && visitor.test(troute.getEgressStopId())
+    						&& visitor.test(troute.getRouteId()))) {
+    					return false;
+    				}
+    			}
+    			if (route instanceof NetworkRoute && scenario.getConfig().hermes().getMainModes().contains(leg.getMode())) {
+    				// the vehicle of the person and the maximum velocity of its type go into the flat plan and events
+    				Vehicle v = scenario.getVehicles().getVehicles().get(VehicleUtils.getVehicleId(person, leg.getMode()));
+    				if (!(visitor.test(v) && visitor.test(velocity(v)))) {
+    					return false;
+    				}
+    			}
+    		}
+    	}
+    	return true;
+    }
+
+    private static long hash(List<Id<org.matsim.api.core.v01.network.Link>> linkIds) {
+    	long hash = 1;
+    	for (Id<org.matsim.api.core.v01.network.Link> linkId : linkIds) {
+    		hash = (hash ^ linkId.index()) * 0x9E3779B97F4A7C15L;
+    		hash ^= hash >>> 29;
+    	}
+    	return hash;
+    }
+
+    // Selected plan of a person and its inputs (see visitPlanInputs) when the person was imported.
+    private static final class ImportedPlan {
+    	private final Plan plan;
+    	private final Object[] inputs;
+
+    	ImportedPlan(Plan plan, Object[] inputs) {
+    		this.plan = plan;
+    		this.inputs = inputs;
+    	}
     }
 
     private void generateAgents() {
@@ -624,6 +764,7 @@ public class ScenarioImporter {
     	int nagents = agent_persons + Id.getNumberOfIds(Vehicle.class);
     	System.out.flush();
         hermes_agents = new Agent[nagents];
+        imported_plans = new ImportedPlan[agent_persons];
 
         // Generate persons
         for (Person person : population.getPersons().values()) {
@@ -85,6 +85,19 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * @return the arrival time of the first message in the queue, or {@link Double#POSITIVE_INFINITY} if there is none.
+	 * The message stays in the queue.
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m;
+		// skip over dead messages, they have already been subtracted from queueSize
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -0,0 +1,326 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndTimingWheel.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * The agents waiting for the end of their activity, bucketed by the second (rounded up) their activity ends.
+ * <p>
+ * The buckets form a hierarchical timing wheel: the first level has one bucket per second for the next
+ * {@value #WHEEL_SIZE} seconds, the second level one bucket per {@value #WHEEL_SIZE} seconds for the following
+ * {@value #WHEEL_SIZE} of these chunks (about 190 days). Activities ending even later are kept in a small overflow
+ * queue. When the time advances into a new chunk, the chunk's agents are moved down into the first level. Adding an
+ * agent and removing it again (when its activity end is rescheduled) is thus O(1).
+ * <p>
+ * Agents whose second has been reached are moved into a priority queue using the same order as
+ * {@link ActivityEngineDefaultImpl}, so agents leave their activities in exactly the same order as there. This queue
+ * only holds the agents ending their activity in the current time step.
+ * <p>
+ * All methods are synchronized, as agents may start their activities from several threads in the parallel qsim.
+ */
+final class ActivityEndTimingWheel {
+
+	private static final int WHEEL_BITS = 12;
+	static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * Same order as in {@link ActivityEngineDefaultImpl}.
+	 */
+	private static final Comparator<Entry> ENTRY_COMPARATOR = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	static final class Entry {
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+		private final long slot;
+		private boolean removed = false;
+
+		private Entry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+			this.slot = (long) Math.ceil(activityEndTime);
+		}
+
+		MobsimAgent getAgent() {
+			return this.agent;
+		}
+
+		double getActivityEndTime() {
+			return this.activityEndTime;
+		}
+	}
+
+	private final List<List<Entry>> seconds = createWheel();
+	private final List<List<Entry>> chunks = createWheel();
+	private int entriesInSeconds = 0;
+	private int entriesInChunks = 0;
+	private final PriorityQueue<Entry> overflow = new PriorityQueue<>(Comparator.comparingDouble(e -> e.activityEndTime));
+	private final PriorityQueue<Entry> due = new PriorityQueue<>(ENTRY_COMPARATOR);
+	private final List<Entry> beforeStart = new ArrayList<>();
+
+	/** handles to the current entry of every agent, for removing it in O(1) */
+	private final IdMap<Person, Entry> entries = new IdMap<>(Person.class);
+
+	private boolean started = false;
+	/** all entries up to and including this second are in {@link #due} */
+	private long currentSlot;
+
+	private static List<List<Entry>> createWheel() {
+		List<List<Entry>> wheel = new ArrayList<>(WHEEL_SIZE);
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel.add(new ArrayList<>(0));
+		}
+		return wheel;
+	}
+
+	/**
+	 * Sets the time from which on the wheel turns. Agents added before are only sorted in now, as the wheel can only
+	 * address seconds relative to this time.
+	 */
+	synchronized void start(double time) {
+		if (this.started) {
+			return;
+		}
+		this.started = true;
+		this.currentSlot = (long) Math.ceil(time) - 1;
+		for (Entry entry : this.beforeStart) {
+			insert(entry);
+		}
+		this.beforeStart.clear();
+	}
+
+	synchronized void add(MobsimAgent agent, double activityEndTime) {
+		Entry entry = new Entry(agent, activityEndTime);
+		Entry previous = this.entries.put(agent.getId(), entry);
+		if (previous != null) {
+			previous.removed = true;
+		}
+		if (this.started) {
+			insert(entry);
+		} else {
+			this.beforeStart.add(entry);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the agent was waiting for the end of its activity.
+	 */
+	synchronized boolean remove(MobsimAgent agent) {
+		Entry entry = this.entries.get(agent.getId());
+		if (entry == null || entry.agent != agent) {
+			return false;
+		}
+		this.entries.remove(agent.getId());
+		entry.removed = true;
+		return true;
+	}
+
+	/**
+	 * Turns the wheel up to <code>time</code>, so that all agents whose activity ends at or before this time can be
+	 * retrieved with {@link #pollDue(double)}.
+	 */
+	synchronized void advanceTo(double time) {
+		if (!this.started) {
+			start(time);
+		}
+		long targetSlot = (long) Math.ceil(time);
+		while (this.currentSlot < targetSlot) {
+			if (this.entriesInSeconds == 0) {
+				if (this.entriesInChunks == 0 && this.overflow.isEmpty()) {
+					this.currentSlot = targetSlot;
+					return;
+				}
+				// nothing to do up to the start of the next chunk
+				long lastSlotOfChunk = (((this.currentSlot >> WHEEL_BITS) + 1) << WHEEL_BITS) - 1;
+				if (lastSlotOfChunk >= targetSlot) {
+					this.currentSlot = targetSlot;
+					return;
+				}
+				this.currentSlot = lastSlotOfChunk;
+			}
+			long slot = this.currentSlot + 1;
+			if ((slot & WHEEL_MASK) == 0) {
+				cascade(slot >> WHEEL_BITS);
+			}
+			this.currentSlot = slot;
+			List<Entry> bucket = this.seconds.get((int) (slot & WHEEL_MASK));
+			if (!bucket.isEmpty()) {
+				this.entriesInSeconds -= bucket.size();
+				for (Entry entry : bucket) {
+					if (!entry.removed) {
+						this.due.add(entry);
+					}
+				}
+				bucket.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the next agent whose activity ends at or before <code>time</code>, or <code>null</code> if there is none.
+	 * The agent is removed.
+	 */
+	synchronized MobsimAgent pollDue(double time) {
+		Entry head = this.due.peek();
+		while (head != null && head.removed) {
+			this.due.poll();
+			head = this.due.peek();
+		}
+		if (head == null || head.activityEndTime > time) {
+			return null;
+		}
+		this.due.poll();
+		this.entries.remove(head.agent.getId());
+		return head.agent;
+	}
+
+	/**
+	 * @return the earliest activity end time of all agents, or {@link Double#POSITIVE_INFINITY} if there are none.
+	 */
+	synchronized double getNextActivityEndTime() {
+		Entry head = this.due.peek();
+		while (head != null && head.removed) {
+			this.due.poll();
+			head = this.due.peek();
+		}
+		if (head != null) {
+			// all entries in the wheel end later
+			return head.activityEndTime;
+		}
+		if (!this.started) {
+			return getEarliestActivityEndTime(this.beforeStart);
+		}
+		double earliest = Double.POSITIVE_INFINITY;
+		if (this.entriesInSeconds > 0) {
+			for (long slot = this.currentSlot + 1; slot <= this.currentSlot + WHEEL_SIZE && earliest == Double.POSITIVE_INFINITY; slot++) {
+				earliest = getEarliestActivityEndTime(this.seconds.get((int) (slot & WHEEL_MASK)));
+			}
+		}
+		// the chunks and the overflow may contain earlier entries than the first level, if they were added earlier
+		if (this.entriesInChunks > 0) {
+			double earliestInChunks = Double.POSITIVE_INFINITY;
+			long currentChunk = this.currentSlot >> WHEEL_BITS;
+			for (long chunk = currentChunk + 1; chunk <= currentChunk + WHEEL_SIZE && earliestInChunks == Double.POSITIVE_INFINITY; chunk++) {
+				earliestInChunks = getEarliestActivityEndTime(this.chunks.get((int) (chunk & WHEEL_MASK)));
+			}
+			earliest = Math.min(earliest, earliestInChunks);
+		}
+		Entry overflowHead = this.overflow.peek();
+		while (overflowHead != null && overflowHead.removed) {
+			this.overflow.poll();
+			overflowHead = this.overflow.peek();
+		}
+		if (overflowHead != null) {
+			earliest = Math.min(earliest, overflowHead.activityEndTime);
+		}
+		return earliest;
+	}
+
+	private static double getEarliestActivityEndTime(List<Entry> entries) {
+		double earliest = Double.POSITIVE_INFINITY;
+		for (Entry entry : entries) {
+			if (!entry.removed) {
+				earliest = Math.min(earliest, entry.activityEndTime);
+			}
+		}
+		return earliest;
+	}
+
+	/**
+	 * Removes all agents.
+	 *
+	 * @return the agents' entries, ordered by the index of their ids.
+	 */
+	synchronized List<Entry> clear() {
+		List<Entry> remaining = new ArrayList<>(this.entries.values());
+		this.entries.clear();
+		for (List<Entry> bucket : this.seconds) {
+			bucket.clear();
+		}
+		for (List<Entry> bucket : this.chunks) {
+			bucket.clear();
+		}
+		this.entriesInSeconds = 0;
+		this.entriesInChunks = 0;
+		this.overflow.clear();
+		this.due.clear();
+		this.beforeStart.clear();
+		return remaining;
+	}
+
+	synchronized int size() {
+		return this.entries.size();
+	}
+
+	private void insert(Entry entry) {
+		long slot = entry.slot;
+		if (slot <= this.currentSlot) {
+			this.due.add(entry);
+		} else if (slot - this.currentSlot <= WHEEL_SIZE) {
+			this.seconds.get((int) (slot & WHEEL_MASK)).add(entry);
+			this.entriesInSeconds++;
+		} else if ((slot >> WHEEL_BITS) - (this.currentSlot >> WHEEL_BITS) <= WHEEL_SIZE) {
+			this.chunks.get((int) ((slot >> WHEEL_BITS) & WHEEL_MASK)).add(entry);
+			this.entriesInChunks++;
+		} else {
+			this.overflow.add(entry);
+		}
+	}
+
+	/**
+	 * Moves the entries of the chunk starting at the next second into the first level of the wheel. Must be called
+	 * before {@link #currentSlot} enters the chunk.
+	 */
+	private void cascade(long chunk) {
+		Entry head = this.overflow.peek();
+		while (head != null && (head.slot >> WHEEL_BITS) - (this.currentSlot >> WHEEL_BITS) <= WHEEL_SIZE) {
+			this.overflow.poll();
+			if (!head.removed) {
+				insert(head);
+			}
+			head = this.overflow.peek();
+		}
+		List<Entry> bucket = this.chunks.get((int) (chunk & WHEEL_MASK));
+		if (!bucket.isEmpty()) {
+			this.entriesInChunks -= bucket.size();
+			for (Entry entry : bucket) {
+				if (!entry.removed) {
+					insert(entry);
+				}
+			}
+			bucket.clear();
+		}
+	}
+}
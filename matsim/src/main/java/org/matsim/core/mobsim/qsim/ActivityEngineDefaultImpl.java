@@ -33,8 +33,9 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 
-class ActivityEngineDefaultImpl implements ActivityEngine {
+class ActivityEngineDefaultImpl implements ActivityEngine, HasNextActionTime {
 	private static final Logger log = Logger.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private final EventsManager eventsManager;
@@ -112,6 +113,12 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 	}
 
+	@Override
+	public double getNextActionTime() {
+		AgentEntry entry = activityEndsList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.activityEndTime;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
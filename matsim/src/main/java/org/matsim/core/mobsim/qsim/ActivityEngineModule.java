@@ -21,6 +21,8 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityEndQueue;
+
 import com.google.inject.Singleton;
 
 public class ActivityEngineModule extends AbstractQSimModule {
@@ -28,7 +30,12 @@ public class ActivityEngineModule extends AbstractQSimModule {
 
 	@Override
 	protected void configureQSim() {
-		bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
-		addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		if ( getConfig().qsim().getActivityEndQueue() == ActivityEndQueue.timingWheel ) {
+			bind( TimingWheelActivityEngine.class ).in( Singleton.class );
+			addQSimComponentBinding( COMPONENT_NAME ).to( TimingWheelActivityEngine.class );
+		} else {
+			bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
+			addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		}
 	}
 }
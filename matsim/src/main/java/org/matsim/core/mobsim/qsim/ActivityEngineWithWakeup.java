@@ -34,13 +34,14 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, HasNextActionTime {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
 	private final PreplanningEngine preplanningEngine;
-	private final ActivityEngine delegate;
+	private final ActivityEngineDefaultImpl delegate;
 
 	private final Queue<AgentEntry> wakeUpList = new PriorityBlockingQueue<>(500,
 			Comparator.comparingDouble((AgentEntry o) -> o.time).thenComparing(o -> o.agent.getId()));
@@ -68,6 +69,12 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.doSimStep(now);
 	}
 
+	@Override
+	public double getNextActionTime() {
+		AgentEntry entry = wakeUpList.peek();
+		return Math.min(entry == null ? Double.POSITIVE_INFINITY : entry.time, delegate.getNextActionTime());
+	}
+
 	@Override
 	public void afterSim() {
 		delegate.afterSim();
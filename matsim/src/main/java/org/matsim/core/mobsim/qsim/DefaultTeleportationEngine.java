@@ -39,6 +39,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.facilities.Facility;
@@ -49,7 +50,7 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, HasNextActionTime {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
 	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
@@ -125,6 +126,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		handleTeleportationArrivals();
 	}
 
+	@Override
+	public double getNextActionTime() {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		while (teleportationList.peek() != null) {
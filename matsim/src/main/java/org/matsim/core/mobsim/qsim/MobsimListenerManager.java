@@ -28,6 +28,7 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.*;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
@@ -99,6 +100,28 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the earliest next action time of the sim step listeners, see {@link HasNextActionTime}.  If there is a
+	 * sim step listener which does not implement {@link HasNextActionTime}, <code>now</code> is returned, since it
+	 * needs to be notified in every time step.
+	 */
+	double getNextActionTime(double now) {
+		double nextActionTime = Double.POSITIVE_INFINITY;
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimBeforeSimStepListener.class)) {
+			if (!(listener instanceof HasNextActionTime)) {
+				return now;
+			}
+			nextActionTime = Math.min(nextActionTime, ((HasNextActionTime) listener).getNextActionTime());
+		}
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimAfterSimStepListener.class)) {
+			if (!(listener instanceof HasNextActionTime)) {
+				return now;
+			}
+			nextActionTime = Math.min(nextActionTime, ((HasNextActionTime) listener).getNextActionTime());
+		}
+		return nextActionTime;
+	}
+
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
 		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
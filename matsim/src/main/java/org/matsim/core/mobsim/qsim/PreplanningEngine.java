@@ -52,6 +52,7 @@ import org.matsim.core.mobsim.framework.PlanAgent;
 import org.matsim.core.mobsim.qsim.agents.HasModifiablePlan;
 import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.TripInfo;
 import org.matsim.core.mobsim.qsim.interfaces.TripInfoWithRequiredBooking;
@@ -69,7 +70,7 @@ import org.matsim.withinday.utils.EditTrips;
 
 import com.google.inject.Inject;
 
-public final class PreplanningEngine implements MobsimEngine {
+public final class PreplanningEngine implements MobsimEngine, HasNextActionTime {
 	// Could implement this as a generalized version of the bdi-abm implementation: can send notifications to agent, and agent can react.  Similar to the drive-to action.
 	// Notifications and corresponding handlers could then be registered. On the other hand, it is easy to add an engine such as this one; how much does it help to have another
 	// layer of infrastructure?  Am currently leaning towards the second argument.  kai, mar'19
@@ -132,6 +133,12 @@ public final class PreplanningEngine implements MobsimEngine {
 		this.internalInterface = internalInterface;
 	}
 
+	@Override
+	public double getNextActionTime() {
+		// requests and updates are processed in the time step after they were made
+		return tripInfoRequestMap.isEmpty() && tripInfoUpdatesMap.isEmpty() ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+	}
+
 	@Override
 	public void doSimStep(double time) {
 		//first process requests and then infos --> trips without booking required can be processed in 1 time step
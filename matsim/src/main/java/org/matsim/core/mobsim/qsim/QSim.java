@@ -57,6 +57,7 @@ import org.matsim.core.mobsim.qsim.changeeventsengine.NetworkChangeEventsEngineI
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
@@ -425,6 +426,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (qsimConfigGroup.isSkippingIdleTimeSteps()) {
+				skipIdleTimeSteps();
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -432,6 +436,32 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		return doContinue;
 	}
 
+	/**
+	 * Advances the sim timer over the time steps in which no engine and no sim step listener has anything to do.  The
+	 * timer is advanced step by step, so that the time steps are the same as without skipping.  Does not go beyond the
+	 * stop time, so that the simulation ends in the same time step as without skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		double now = this.simTimer.getTimeOfDay();
+		double nextActionTime = Math.min(this.listenerManager.getNextActionTime(now), this.stopTime);
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (nextActionTime <= now) {
+				return;
+			}
+			if (!(mobsimEngine instanceof HasNextActionTime)) {
+				return;
+			}
+			nextActionTime = Math.min(nextActionTime, ((HasNextActionTime) mobsimEngine).getNextActionTime());
+		}
+		if (nextActionTime >= Double.MAX_VALUE) {
+			// nothing scheduled and no stop time, so we would not know where to stop
+			return;
+		}
+		while (this.simTimer.getTimeOfDay() < nextActionTime) {
+			this.simTimer.incrementTime();
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
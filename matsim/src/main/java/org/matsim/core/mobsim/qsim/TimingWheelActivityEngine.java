@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TimingWheelActivityEngine.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityEndQueue;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
+
+/**
+ * Behaves like {@link ActivityEngineDefaultImpl}, but keeps the agents in an {@link ActivityEndTimingWheel} instead
+ * of a priority queue. Starting an activity and rescheduling its end is O(1) instead of O(log n) resp. O(n), which
+ * matters for populations with millions of agents or much within-day replanning. Agents end their activities in the
+ * same order as in {@link ActivityEngineDefaultImpl}.
+ * <p>
+ * Used if {@link ActivityEndQueue#timingWheel} is configured.
+ */
+class TimingWheelActivityEngine implements ActivityEngine, HasNextActionTime {
+
+	private final EventsManager eventsManager;
+	private final ActivityEndTimingWheel activityEnds = new ActivityEndTimingWheel();
+	private InternalInterface internalInterface;
+
+	// See ActivityEngineDefaultImpl.handleActivity for the reason for this.
+	private boolean beforeFirstSimStep = true;
+
+	@Inject
+	TimingWheelActivityEngine(EventsManager eventsManager) {
+		this.eventsManager = eventsManager;
+	}
+
+	@Override
+	public void onPrepareSim() {
+		this.activityEnds.start(this.internalInterface.getMobsim().getSimTimer().getSimStartTime());
+	}
+
+	@Override
+	public void doSimStep(double time) {
+		beforeFirstSimStep = false;
+		activityEnds.advanceTo(time);
+		MobsimAgent agent;
+		while ((agent = activityEnds.pollDue(time)) != null) {
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
+		}
+	}
+
+	@Override
+	public double getNextActionTime() {
+		return activityEnds.getNextActivityEndTime();
+	}
+
+	@Override
+	public void afterSim() {
+		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		for (ActivityEndTimingWheel.Entry entry : activityEnds.clear()) {
+			// see ActivityEngineDefaultImpl.afterSim
+			eventsManager.processEvent(new PersonStuckEvent(now, entry.getAgent().getId(), null, null));
+		}
+	}
+
+	@Override
+	public void setInternalInterface(InternalInterface internalInterface) {
+		this.internalInterface = internalInterface;
+	}
+
+	/**
+	 * See {@link ActivityEngineDefaultImpl#handleActivity(MobsimAgent)}.
+	 */
+	@Override
+	public boolean handleActivity(MobsimAgent agent) {
+		if (agent.getActivityEndTime() == Double.POSITIVE_INFINITY) {
+			// This is the last planned activity.
+			// So the agent goes to sleep.
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else if (agent.getActivityEndTime() <= internalInterface.getMobsim().getSimTimer().getTimeOfDay() && !beforeFirstSimStep) {
+			// This activity is already over (planned for 0 duration)
+			// So we proceed immediately.
+			agent.endActivityAndComputeNextState(internalInterface.getMobsim().getSimTimer().getTimeOfDay());
+			internalInterface.arrangeNextAgentState(agent) ;
+		} else {
+			// The agent commences an activity on this link.
+			activityEnds.add(agent, agent.getActivityEndTime());
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+		return true;
+	}
+
+	/**
+	 * See {@link ActivityEngineDefaultImpl#rescheduleActivityEnd(MobsimAgent)}.
+	 */
+	@Override
+	public void rescheduleActivityEnd(final MobsimAgent agent) {
+		if ( agent.getState()!=State.ACTIVITY ) {
+			return ;
+		}
+
+		double newActivityEndTime = agent.getActivityEndTime();
+		boolean wasWaiting = activityEnds.remove(agent);
+
+		if (!wasWaiting) {
+			if (newActivityEndTime != Double.POSITIVE_INFINITY) {
+				// re-activate the agent
+				activityEnds.add(agent, newActivityEndTime);
+				internalInterface.registerAdditionalAgentOnLink(agent);
+				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
+			}
+		} else if (newActivityEndTime == Double.POSITIVE_INFINITY) {
+			// the agent's current activity has become its last one, so it is de-activated
+			unregisterAgentAtActivityLocation(agent);
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else {
+			activityEnds.add(agent, newActivityEndTime);
+		}
+	}
+
+	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
+		Id<Person> agentId = agent.getId();
+		Id<Link> linkId = agent.getCurrentLinkId();
+		if (linkId != null) { // may be bushwacking
+			internalInterface.unregisterAdditionalAgentOnLink(agentId, linkId);
+		}
+	}
+
+}
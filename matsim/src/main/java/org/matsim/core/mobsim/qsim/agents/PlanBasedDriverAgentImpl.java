@@ -50,6 +50,10 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 
 	private Id<Link> cachedNextLinkId = null;
 
+	/* some route implementations create the list of link ids on every call, so it is kept for the current route */
+	private NetworkRoute cachedRoute = null;
+	private List<Id<Link>> cachedRouteLinkIds = null;
+
 	@Override
 	public final void notifyMoveOverNode(Id<Link> newLinkId) {
 		if (expectedLinkWarnCount < 10 && !newLinkId.equals(this.cachedNextLinkId)) {
@@ -94,7 +98,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return null ;
 		}
 
-		List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		List<Id<Link>> routeLinkIds = getRouteLinkIds((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute());
 
 		// (3) if route has run dry, we return the destination link (except for one special case, which however may not be necessary any more):
 		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIds.size() ) {
@@ -130,7 +134,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return true ;
 		}
 
-		final List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		final List<Id<Link>> routeLinkIds = getRouteLinkIds((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute());
 		final int routeLinkIdsSize = routeLinkIds.size();
 
 		// the standard condition used to be "route has run dry AND destination link not attached to current link":
@@ -169,6 +173,14 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 	// ============================================================================================================================
 	// below there only (package-)private methods or setters/getters
 
+	private List<Id<Link>> getRouteLinkIds(final NetworkRoute route) {
+		if (route != this.cachedRoute) {
+			this.cachedRoute = route;
+			this.cachedRouteLinkIds = route.getLinkIds();
+		}
+		return this.cachedRouteLinkIds;
+	}
+
 	/**
 	 * Some data of the currently simulated Leg is cached to speed up
 	 * the simulation. If the Leg changes (for example the Route or
@@ -184,6 +196,8 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 		// Compromise: package-private here; making it public in the Withinday class.  kai, nov'10
 
 		this.cachedNextLinkId = null;
+		this.cachedRoute = null;
+		this.cachedRouteLinkIds = null;
 
 		if( this.basicPlanAgentDelegate.getCurrentPlanElement()==null ) {
 			throw new RuntimeException("encountered unexpected null pointer" ) ;
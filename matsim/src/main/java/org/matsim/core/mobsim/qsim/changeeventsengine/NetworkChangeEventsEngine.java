@@ -27,6 +27,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
 import org.matsim.core.network.NetworkChangeEvent;
@@ -35,7 +36,7 @@ import org.matsim.core.network.NetworkUtils;
 import javax.inject.Inject;
 import java.util.Queue;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, HasNextActionTime {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
 
 	private final MessageQueue messageQueue;
@@ -122,4 +123,10 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public double getNextActionTime() {
+		// the change events are applied by the message queue
+		return Double.POSITIVE_INFINITY;
+	}
 }
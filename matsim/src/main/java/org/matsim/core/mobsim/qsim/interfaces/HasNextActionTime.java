@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HasNextActionTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+
+/**
+ * Implemented by {@link MobsimEngine}s, {@link MobsimBeforeSimStepListener}s and {@link MobsimAfterSimStepListener}s
+ * which know when they have something to do next.
+ * <p>
+ * If {@link QSimConfigGroup#isSkippingIdleTimeSteps()} is set and <i>all</i> engines and sim step listeners of the
+ * qsim implement this interface, the qsim skips the time steps before the earliest of their next action times. A
+ * single engine or listener not implementing it thus makes the qsim execute every time step, as before.
+ */
+public interface HasNextActionTime {
+
+	/**
+	 * Called between two time steps.
+	 *
+	 * @return the earliest time at which the engine resp. listener needs to be called, i.e. it will be called in the
+	 * first time step at or after this time. {@link Double#POSITIVE_INFINITY} if it has nothing scheduled. Any time
+	 * before the next time step (e.g. {@link Double#NEGATIVE_INFINITY}) means that it needs the next time step.
+	 * Note that other engines may hand over agents to it in any time step, so this only needs to cover what the
+	 * engine resp. listener would do on its own.
+	 */
+	double getNextActionTime();
+
+}
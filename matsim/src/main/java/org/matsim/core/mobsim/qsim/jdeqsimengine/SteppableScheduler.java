@@ -65,6 +65,18 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the earliest time at which {@link #doSimStep(double)} will process a message, or
+	 * {@link Double#POSITIVE_INFINITY} if there are no messages left.
+	 */
+	public double getNextMessageArrivalTime() {
+		if (lookahead != null) {
+			// as long as there is a lookahead, nothing else is processed before it
+			return lookahead.getMessageArrivalTime();
+		}
+		return queue.getNextMessageArrivalTime();
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
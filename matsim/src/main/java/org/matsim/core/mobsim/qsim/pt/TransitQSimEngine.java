@@ -38,6 +38,7 @@ import org.matsim.core.mobsim.qsim.HasAgentTracker;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.pt.ReconstructingUmlaufBuilder;
 import org.matsim.pt.Umlauf;
@@ -53,7 +54,7 @@ import javax.inject.Inject;
  * @author mrieser
  * @author mzilske
  */
-public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource, HasAgentTracker {
+public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource, HasAgentTracker, HasNextActionTime {
 
 
 	private Collection<MobsimAgent> ptDrivers;
@@ -213,6 +214,11 @@ public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, Agent
 		// Nothing to do here.
 	}
 
+	@Override
+	public double getNextActionTime() {
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public void insertAgentsIntoMobsim() {
 		ptDrivers = createVehiclesAndDriversWithUmlaeufe();
@@ -44,6 +44,7 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.core.utils.misc.Time;
@@ -59,7 +60,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, HasNextActionTime {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -89,6 +90,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 	private double infoTime = 0;
 	private List<A> engines;
+	private NetsimLoadBalancer loadBalancer = null;
 	private InternalInterface internalInterface = null;
 	
 	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
@@ -164,6 +166,10 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		this.engines = initQSimEngineRunners();
 		assignNetElementActivators();
+		double rebalancingPeriod = this.qsim.getScenario().getConfig().qsim().getNetsimRebalancingPeriod();
+		if (rebalancingPeriod > 0 && this.engines.size() > 1) {
+			this.loadBalancer = new NetsimLoadBalancer(this.network, this.engines, rebalancingPeriod);
+		}
 		initMultiThreading();
 	}
 	
@@ -223,11 +229,29 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	@Override
 	public final void doSimStep(final double time) {
 		run(time);
+
+		if (this.loadBalancer != null) {
+			this.loadBalancer.afterSimStep(time);
+		}
 		
 		this.printSimLog(time);
 	}
 
 	
+	/**
+	 * Vehicles move from link to link in every time step, so the engine needs every time step as long as any link or node
+	 * is active.  Departing vehicles activate their links again.
+	 */
+	@Override
+	public final double getNextActionTime() {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			if (!engine.isIdle()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public final void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -350,6 +374,9 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		log.info("sum min run times: " + sumMin);
 		log.info("sum max run times: " + sumMax);
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
+		if (this.loadBalancer != null) {
+			log.info("number of rebalancings of the runners: " + this.loadBalancer.getRebalancingCount());
+		}
 	}
 
 	@Override
@@ -392,32 +419,9 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		int roundRobin = 0;
 		for (QNodeI node : network.getNetsimNodes().values()) {
 			int i = roundRobin % this.engines.size();
-			if( node instanceof AbstractQNode){
-				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
-			}
+			assignNetElementActivator(network, node, this.engines.get(i));
 			nodes[i]++;
-
-			// set activator for out links
-			for (Link outLink : node.getNode().getOutLinks().values()) {
-				AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLink.getId());
-				// (must be of this type to work.  kai, feb'12)
-
-				// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
-				qLink.setNetElementActivationRegistry(this.engines.get(i));
-
-				/*
-				 * If the QLink contains agents that end their activity in the first time
-				 * step, the link should be activated.
-				 */
-				// this set is always empty...
-//				if (linksToActivateInitially.remove(qLink) 
-//						|| qsim.getScenario().getConfig().qsim().getSimStarttimeInterpretation()==StarttimeInterpretation.onlyUseStarttime) {
-//					this.engines.get(i).registerLinkAsActive(qLink);
-//				}
-
-				links[i]++;
-
-			}
+			links[i] += node.getNode().getOutLinks().size();
 
 			roundRobin++;
 		}
@@ -430,10 +434,45 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * Lets the node and its out-links be simulated by the given runner.
+	 */
+	static void assignNetElementActivator(QNetwork network, QNodeI node, NetElementActivationRegistry runner) {
+		if( node instanceof AbstractQNode){
+			((AbstractQNode) node).setNetElementActivationRegistry(runner);
+		}
+
+		// set activator for out links
+		for (Link outLink : node.getNode().getOutLinks().values()) {
+			AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLink.getId());
+			// (must be of this type to work.  kai, feb'12)
+
+			// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
+			qLink.setNetElementActivationRegistry(runner);
+
+			/*
+			 * If the QLink contains agents that end their activity in the first time
+			 * step, the link should be activated.
+			 */
+			// this set is always empty...
+//			if (linksToActivateInitially.remove(qLink) 
+//					|| qsim.getScenario().getConfig().qsim().getSimStarttimeInterpretation()==StarttimeInterpretation.onlyUseStarttime) {
+//				runner.registerLinkAsActive(qLink);
+//			}
+		}
+	}
+
 	private final void arrangeNextAgentState(MobsimAgent pp) {
 		internalInterface.arrangeNextAgentState(pp);
 	}
 	
+	/**
+	 * @return the load balancer, or <code>null</code> if the net elements are not rebalanced.
+	 */
+	/*package*/ NetsimLoadBalancer getLoadBalancer() {
+		return this.loadBalancer;
+	}
+
 	/**
 	 * @return the {@link AbstractQNetsimEngineRunner} created by {@link #initQSimEngineRunners()}
 	 */
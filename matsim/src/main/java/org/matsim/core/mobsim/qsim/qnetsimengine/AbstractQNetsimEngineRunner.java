@@ -149,6 +149,27 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		return this.nodesQueue.size();
 	}
 
+	/**
+	 * @return the active nodes.  Must only be used between two time steps.
+	 */
+	final Queue<QNodeI> getActiveNodes() {
+		return this.nodesQueue;
+	}
+
+	/**
+	 * @return the active links.  Must only be used between two time steps.
+	 */
+	final List<QLinkI> getActiveLinks() {
+		return this.linksList;
+	}
+
+	/**
+	 * @return <code>true</code> if no links and nodes are active, i.e. the runner has nothing to do in the next time step.
+	 */
+	final boolean isIdle() {
+		return this.linksList.isEmpty() && this.nodesQueue.isEmpty();
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
@@ -157,7 +178,8 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		if (QSim.analyzeRunTimes) {
 			long end = System.nanoTime();
 			int bin = (int) this.time;
-			if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
+			// the nodes and the links may be measured separately within one time step
+			if (bin < this.runTimes.length) this.runTimes[bin] += end - this.startTime;
 		}
 	}
 }
\ No newline at end of file
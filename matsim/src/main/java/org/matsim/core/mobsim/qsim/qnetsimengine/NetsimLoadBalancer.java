@@ -0,0 +1,203 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimLoadBalancer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Redistributes the nodes of the network, each together with its out-links, over the runners of the
+ * {@link AbstractQNetsimEngine} according to their load, see {@link QSimConfigGroup#getNetsimRebalancingPeriod()}.
+ * <p>
+ * The load of a node is estimated by how often the node and its out-links were found active.  For this, the active
+ * nodes and links of all runners are sampled every {@value #SAMPLING_PERIOD} seconds between two time steps, which
+ * keeps the bookkeeping out of the parallel part.  At every rebalancing, the nodes are assigned anew, heaviest first,
+ * to the runner with the smallest load so far.  The active nodes and links are handed over to their new runners, and
+ * the loads measured so far are halved, so that the assignment follows the traffic over the day.
+ * <p>
+ * The assignment does not change the results: every active node and link is still simulated exactly once per time
+ * step, and with more than one thread every node draws from its own random number generator.
+ */
+final class NetsimLoadBalancer {
+
+	private static final Logger log = Logger.getLogger(NetsimLoadBalancer.class);
+
+	static final double SAMPLING_PERIOD = 60.;
+
+	/** the nodes are only reassigned if the most loaded runner has at least this much more load than the average */
+	private static final double IMBALANCE_TOLERANCE = 1.1;
+
+	private final QNetwork network;
+	private final List<? extends AbstractQNetsimEngineRunner> runners;
+	private final double rebalancingPeriod;
+
+	/** the nodes by the index of their id */
+	private final QNodeI[] nodes;
+	private final long[] loadOfNode;
+	private final long[] sampledLoadOfRunner;
+
+	private double nextSamplingTime = Double.NEGATIVE_INFINITY;
+	private double nextRebalancingTime = Double.NaN;
+	private int rebalancingCount = 0;
+
+	NetsimLoadBalancer(QNetwork network, List<? extends AbstractQNetsimEngineRunner> runners, double rebalancingPeriod) {
+		this.network = network;
+		this.runners = runners;
+		this.rebalancingPeriod = rebalancingPeriod;
+		this.nodes = new QNodeI[Id.getNumberOfIds(Node.class)];
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			this.nodes[node.getNode().getId().index()] = node;
+		}
+		this.loadOfNode = new long[this.nodes.length];
+		this.sampledLoadOfRunner = new long[runners.size()];
+	}
+
+	/**
+	 * Must be called between two time steps, i.e. while no runner is active.
+	 */
+	void afterSimStep(double time) {
+		if (Double.isNaN(this.nextRebalancingTime)) {
+			this.nextRebalancingTime = time + this.rebalancingPeriod;
+		}
+		if (time >= this.nextSamplingTime) {
+			this.nextSamplingTime = time + SAMPLING_PERIOD;
+			sample();
+		}
+		if (time >= this.nextRebalancingTime) {
+			this.nextRebalancingTime = time + this.rebalancingPeriod;
+			rebalance(time);
+		}
+	}
+
+	private void sample() {
+		for (int r = 0; r < this.runners.size(); r++) {
+			AbstractQNetsimEngineRunner runner = this.runners.get(r);
+			for (QNodeI node : runner.getActiveNodes()) {
+				this.loadOfNode[node.getNode().getId().index()]++;
+				this.sampledLoadOfRunner[r]++;
+			}
+			for (QLinkI link : runner.getActiveLinks()) {
+				// links are simulated by the runner of their from-node
+				this.loadOfNode[link.getLink().getFromNode().getId().index()]++;
+				this.sampledLoadOfRunner[r]++;
+			}
+		}
+	}
+
+	private void rebalance(double time) {
+		long maxLoad = 0;
+		long sumLoad = 0;
+		for (long load : this.sampledLoadOfRunner) {
+			maxLoad = Math.max(maxLoad, load);
+			sumLoad += load;
+		}
+		if (maxLoad > IMBALANCE_TOLERANCE * sumLoad / this.runners.size()) {
+			long[] expectedLoadOfRunner = new long[this.runners.size()];
+			AbstractQNetsimEngineRunner[] runnerOfNode = assignNodes(this.loadOfNode, expectedLoadOfRunner);
+			for (QNodeI node : this.nodes) {
+				if (node != null) {
+					AbstractQNetsimEngine.assignNetElementActivator(this.network, node, runnerOfNode[node.getNode().getId().index()]);
+				}
+			}
+			handOverActiveNetElements(runnerOfNode);
+			this.rebalancingCount++;
+			log.info("rebalanced the netsim runners at " + Time.writeTime(time) + ". sampled load per runner: "
+					+ Arrays.toString(this.sampledLoadOfRunner) + ", expected: " + Arrays.toString(expectedLoadOfRunner));
+		}
+
+		Arrays.fill(this.sampledLoadOfRunner, 0);
+		for (int i = 0; i < this.loadOfNode.length; i++) {
+			this.loadOfNode[i] /= 2;
+		}
+	}
+
+	/**
+	 * Longest processing time first: the nodes are assigned by decreasing load to the runner with the smallest load so
+	 * far.  Every node counts with at least 1, so that nodes without any measured load are spread evenly.
+	 */
+	private AbstractQNetsimEngineRunner[] assignNodes(long[] loadOfNode, long[] loadOfRunner) {
+		Integer[] nodeIndices = new Integer[this.nodes.length];
+		int nodeCount = 0;
+		for (int i = 0; i < this.nodes.length; i++) {
+			if (this.nodes[i] != null) {
+				nodeIndices[nodeCount++] = i;
+			}
+		}
+		nodeIndices = Arrays.copyOf(nodeIndices, nodeCount);
+		Arrays.sort(nodeIndices, (i0, i1) -> Long.compare(loadOfNode[i1], loadOfNode[i0]));
+
+		PriorityQueue<Integer> leastLoadedRunners = new PriorityQueue<>((r0, r1) -> {
+			int cmp = Long.compare(loadOfRunner[r0], loadOfRunner[r1]);
+			return cmp != 0 ? cmp : Integer.compare(r0, r1);
+		});
+		for (int r = 0; r < this.runners.size(); r++) {
+			leastLoadedRunners.add(r);
+		}
+
+		AbstractQNetsimEngineRunner[] runnerOfNode = new AbstractQNetsimEngineRunner[this.nodes.length];
+		for (int nodeIndex : nodeIndices) {
+			int r = leastLoadedRunners.poll();
+			runnerOfNode[nodeIndex] = this.runners.get(r);
+			loadOfRunner[r] += Math.max(1, loadOfNode[nodeIndex]);
+			leastLoadedRunners.add(r);
+		}
+		return runnerOfNode;
+	}
+
+	/**
+	 * Moves the active nodes and links which are now assigned to another runner into the lists of that runner.  They
+	 * stay active, so they are not registered again.
+	 */
+	private void handOverActiveNetElements(AbstractQNetsimEngineRunner[] runnerOfNode) {
+		for (AbstractQNetsimEngineRunner runner : this.runners) {
+			Iterator<QNodeI> nodeIterator = runner.getActiveNodes().iterator();
+			while (nodeIterator.hasNext()) {
+				QNodeI node = nodeIterator.next();
+				AbstractQNetsimEngineRunner newRunner = runnerOfNode[node.getNode().getId().index()];
+				if (newRunner != runner) {
+					nodeIterator.remove();
+					newRunner.registerNodeAsActive(node);
+				}
+			}
+			Iterator<QLinkI> linkIterator = runner.getActiveLinks().iterator();
+			while (linkIterator.hasNext()) {
+				QLinkI link = linkIterator.next();
+				AbstractQNetsimEngineRunner newRunner = runnerOfNode[link.getLink().getFromNode().getId().index()];
+				if (newRunner != runner) {
+					linkIterator.remove();
+					newRunner.registerLinkAsActive(link);
+				}
+			}
+		}
+	}
+
+	int getRebalancingCount() {
+		return this.rebalancingCount;
+	}
+}
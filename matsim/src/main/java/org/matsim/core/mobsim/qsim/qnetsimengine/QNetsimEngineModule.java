@@ -21,6 +21,7 @@
 
  package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimSynchronization;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
 
 public class QNetsimEngineModule extends AbstractQSimModule {
@@ -28,7 +29,11 @@ public class QNetsimEngineModule extends AbstractQSimModule {
 	
 	@Override
 	protected void configureQSim() {
-		bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
+		if ( this.getConfig().qsim().getNetsimSynchronization() == NetsimSynchronization.barrier ) {
+			bind(QNetsimEngineI.class).to(QNetsimEngineWithBarriers.class).asEagerSingleton();
+		} else {
+			bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
+		}
 
 		bind(VehicularDepartureHandler.class).toProvider(QNetsimEngineDepartureHandlerProvider.class).asEagerSingleton();
 
@@ -45,11 +45,13 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 			return false;
 		}
 
+		startMeasure();
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		endMeasure();
 		return true ;
 	}
 
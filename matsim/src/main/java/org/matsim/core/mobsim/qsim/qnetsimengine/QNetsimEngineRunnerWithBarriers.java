@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerWithBarriers.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.concurrent.Phaser;
+
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * The runners of the {@link QNetsimEngineWithBarriers}.  Each one runs in its own thread during the whole simulation
+ * and moves its nodes and links in every time step, waiting for the other runners and the qsim thread at the
+ * barrier in between.
+ */
+final class QNetsimEngineRunnerWithBarriers extends AbstractQNetsimEngineRunner implements Runnable {
+
+	private final Phaser phaser;
+	private volatile Throwable throwable = null;
+
+	QNetsimEngineRunnerWithBarriers(Phaser phaser) {
+		this.phaser = phaser;
+	}
+
+	/**
+	 * One round of the loop is one time step, in which all threads pass the barrier three times: at the start, after
+	 * moving the nodes, and after moving the links.  The loop ends when the barrier is terminated.
+	 */
+	@Override
+	public void run() {
+		while (true) {
+			if (this.phaser.arriveAndAwaitAdvance() < 0) {
+				break;
+			}
+			startMeasure();
+			if (this.throwable == null) {
+				try {
+					moveNodes();
+				} catch (Throwable e) {
+					this.throwable = e;
+				}
+			}
+			endMeasure();
+
+			// all nodes must have been moved before the links are moved
+			if (this.phaser.arriveAndAwaitAdvance() < 0) {
+				break;
+			}
+			startMeasure();
+			if (this.throwable == null) {
+				try {
+					moveLinks();
+				} catch (Throwable e) {
+					this.throwable = e;
+				}
+			}
+			endMeasure();
+
+			if (this.phaser.arriveAndAwaitAdvance() < 0) {
+				break;
+			}
+		}
+		Gbl.printCurrentThreadCpuTime();
+	}
+
+	/**
+	 * @return what the runner has thrown while moving the nodes or links, or <code>null</code>.  A runner that has
+	 * thrown something keeps passing the barriers without moving anything, so that the other threads do not wait for
+	 * it forever.
+	 */
+	Throwable getThrowable() {
+		return this.throwable;
+	}
+
+	@Override
+	public void afterSim() {
+		// the thread ends when the barrier is terminated
+	}
+}
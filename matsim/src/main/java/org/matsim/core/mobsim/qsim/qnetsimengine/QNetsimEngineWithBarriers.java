@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithBarriers.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+
+import javax.inject.Inject;
+
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimSynchronization;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Moves the vehicles like {@link QNetsimEngineWithThreadpool}, but the runners are long-living threads which loop
+ * over the time steps and wait for each other and for the qsim thread at a {@link Phaser}.  This avoids submitting
+ * tasks to a pool and creating futures twice per time step.  Waiting threads spin for a short while before they are
+ * parked, so the barriers are cheap as long as the runners have about the same amount of work.
+ * <p>
+ * Used if {@link NetsimSynchronization#barrier} is configured.  Gives the same results as
+ * {@link QNetsimEngineWithThreadpool}.
+ */
+final class QNetsimEngineWithBarriers extends AbstractQNetsimEngine<QNetsimEngineRunnerWithBarriers> {
+
+	private final int numOfRunners;
+	/** the runners plus the qsim thread */
+	private Phaser phaser;
+	private List<Thread> threads;
+
+	@Inject
+	QNetsimEngineWithBarriers(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+		this.numOfRunners = this.numOfThreads;
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerWithBarriers> initQSimEngineRunners() {
+		this.phaser = new Phaser(this.numOfRunners + 1);
+		List<QNetsimEngineRunnerWithBarriers> runners = new ArrayList<>();
+		for (int i = 0; i < this.numOfRunners; i++) {
+			runners.add(new QNetsimEngineRunnerWithBarriers(this.phaser));
+		}
+		return runners;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		this.threads = new ArrayList<>();
+		List<QNetsimEngineRunnerWithBarriers> runners = this.getQnetsimEngineRunner();
+		for (int i = 0; i < runners.size(); i++) {
+			Thread thread = new Thread(runners.get(i), "QNetsimEngine_BarrierThread_" + i);
+			thread.setDaemon(true);
+			this.threads.add(thread);
+			thread.start();
+		}
+	}
+
+	@Override
+	protected void run(double time) {
+		for (AbstractQNetsimEngineRunner runner : this.getQnetsimEngineRunner()) {
+			runner.setTime(time);
+		}
+
+		// start, nodes moved, links moved
+		this.phaser.arriveAndAwaitAdvance();
+		this.phaser.arriveAndAwaitAdvance();
+		this.phaser.arriveAndAwaitAdvance();
+
+		for (QNetsimEngineRunnerWithBarriers runner : this.getQnetsimEngineRunner()) {
+			if (runner.getThrowable() != null) {
+				throw new RuntimeException(runner.getThrowable());
+			}
+		}
+	}
+
+	@Override
+	protected void finishMultiThreading() {
+		this.phaser.forceTermination();
+		for (Thread thread : this.threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.matsim.core.utils.misc.OptionalTime;
+
+/**
+ * Constants and helpers shared by {@link BinaryPopulationWriter} and {@link BinaryPopulationReader}.
+ * <p>
+ * Layout of a file:
+ * <pre>
+ * header:  MAGIC, VERSION, population name and attributes
+ * tables:  strings (activity types, modes, route and plan types, attribute names and classes),
+ *          link ids (ordered by Id.index() when writing), facility ids, vehicle ids
+ * persons: number of persons, followed by one record per person
+ * index:   per person its id and the delta of its offset to the previous person
+ * trailer: offset of the index as 8-byte long
+ * </pre>
+ * Offsets refer to the uncompressed data, so random access is only possible on uncompressed files.
+ */
+/* deliberately package */ final class BinaryPopulationFormat {
+
+	static final int MAGIC = 0x4d504f50; // "MPOP"
+	static final int VERSION = 2;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte NO_ROUTE = 0;
+	static final byte GENERIC_ROUTE = 1;
+	static final byte NETWORK_ROUTE = 2;
+
+	static final byte NO_COORD = 0;
+	static final byte COORD_XY = 1;
+	static final byte COORD_XYZ = 2;
+
+	static final int PLAN_SELECTED = 1;
+	static final int PLAN_HAS_SCORE = 2;
+	static final int PLAN_HAS_TYPE = 4;
+
+	/* time codes: 0 is undefined, 1 is followed by a double, anything else is a whole second + 2 */
+	private static final long UNDEFINED_TIME = 0;
+	private static final long NON_INTEGRAL_TIME = 1;
+	private static final long TIME_OFFSET = 2;
+
+	private BinaryPopulationFormat() {
+	}
+
+	static boolean isBinaryPopulationFile(final String filename) {
+		return filename.endsWith(".bin") || filename.endsWith(".bin.gz") || filename.endsWith(".bin.zst");
+	}
+
+	static void writeVarLong(final DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(final DataInput in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	static void writeVarInt(final DataOutput out, final int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	static int readVarInt(final DataInput in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	/** zig-zag encoding, so small negative deltas also take only few bytes */
+	static void writeSignedVarInt(final DataOutput out, final int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	static int readSignedVarInt(final DataInput in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/* writeUTF() is limited to 64kB, which is not enough for e.g. long pt route descriptions */
+	static void writeLongUTF(final DataOutput out, final String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static String readLongUTF(final DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeTime(final DataOutput out, final OptionalTime time) throws IOException {
+		if (time.isUndefined()) {
+			writeVarLong(out, UNDEFINED_TIME);
+			return;
+		}
+		double seconds = time.seconds();
+		long wholeSeconds = (long) seconds;
+		if (wholeSeconds == seconds && wholeSeconds >= 0 && wholeSeconds < Long.MAX_VALUE - TIME_OFFSET) {
+			writeVarLong(out, wholeSeconds + TIME_OFFSET);
+		} else {
+			writeVarLong(out, NON_INTEGRAL_TIME);
+			out.writeDouble(seconds);
+		}
+	}
+
+	static OptionalTime readTime(final DataInput in) throws IOException {
+		long code = readVarLong(in);
+		if (code == UNDEFINED_TIME) {
+			return OptionalTime.undefined();
+		}
+		if (code == NON_INTEGRAL_TIME) {
+			return OptionalTime.defined(in.readDouble());
+		}
+		return OptionalTime.defined(code - TIME_OFFSET);
+	}
+
+	/**
+	 * Keeps track of the number of bytes written, which are the offsets of the person records. It must be placed
+	 * above the compressing stream, so the offsets refer to the uncompressed data.
+	 */
+	static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count = 0;
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+		long getCount() {
+			return this.count;
+		}
+	}
+}
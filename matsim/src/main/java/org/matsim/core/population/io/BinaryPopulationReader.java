@@ -0,0 +1,399 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads populations written by the {@link BinaryPopulationWriter}.
+ * <p>
+ * {@link #readFile(String)} adds all persons to the population of the scenario, in the order they were written.
+ * This also works with the {@link StreamingPopulationReader}, which uses this class for files ending with
+ * <code>.bin</code>, <code>.bin.gz</code> or <code>.bin.zst</code>.
+ * <p>
+ * Alternatively, an uncompressed file can be opened with {@link #openFile(String)}, after which single persons can be
+ * loaded with {@link #readPerson(Id)} using the index at the end of the file. These persons are <em>not</em> added to
+ * the population. Close the reader when done.
+ * <p>
+ * If a target CRS is given, coordinates are transformed to it from the CRS stored in the population attributes of the
+ * file or, if there is none, from the given input CRS, like the xml population readers do.
+ */
+public final class BinaryPopulationReader implements MatsimReader, Closeable {
+
+	private final static Logger log = Logger.getLogger(BinaryPopulationReader.class);
+
+	private final Population population;
+	private final PopulationFactory factory;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final String externalInputCRS;
+	private final String targetCRS;
+	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+
+	private String[] strings = null;
+	private List<Id<Link>> linkIds = null;
+	private List<Id<ActivityFacility>> facilityIds = null;
+	private List<Id<Vehicle>> vehicleIds = null;
+
+	private RandomAccessFile file = null;
+	private Map<Id<Person>, Long> offsets = null;
+
+	public BinaryPopulationReader(final Scenario scenario) {
+		this(null, null, scenario);
+	}
+
+	public BinaryPopulationReader(final String inputCRS, final String targetCRS, final Scenario scenario) {
+		this.population = scenario.getPopulation();
+		this.factory = this.population.getFactory();
+		this.externalInputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+	}
+
+	public static boolean isBinaryPopulationFile(final String filename) {
+		return BinaryPopulationFormat.isBinaryPopulationFile(filename);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("Reading binary population from " + url);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(url)))) {
+			int personCount = readHeader(in, url.toString(), true);
+			for (int i = 0; i < personCount; i++) {
+				this.population.addPerson(readPerson(in));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("Read " + this.population.getPersons().size() + " persons.");
+	}
+
+	/**
+	 * Opens an uncompressed binary population file for random access to its persons.
+	 */
+	public void openFile(final String filename) {
+		close();
+		try {
+			this.file = new RandomAccessFile(filename, "r");
+			int personCount = readHeader(streamAt(0), filename, false);
+			this.file.seek(this.file.length() - Long.BYTES);
+			DataInputStream in = streamAt(this.file.readLong());
+			this.offsets = new LinkedHashMap<>(personCount * 4 / 3 + 1);
+			long offset = 0;
+			for (int i = 0; i < personCount; i++) {
+				Id<Person> personId = Id.create(in.readUTF(), Person.class);
+				offset += BinaryPopulationFormat.readVarLong(in);
+				this.offsets.put(personId, offset);
+			}
+		} catch (IOException e) {
+			close();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the ids of all persons in the opened file, in the order they were written.
+	 */
+	public Collection<Id<Person>> getPersonIds() {
+		checkOpen();
+		return Collections.unmodifiableCollection(this.offsets.keySet());
+	}
+
+	/**
+	 * Reads a single person from the opened file.
+	 *
+	 * @return the person, or <code>null</code> if the file contains no person with the given id.
+	 */
+	public Person readPerson(final Id<Person> personId) {
+		checkOpen();
+		Long offset = this.offsets.get(personId);
+		if (offset == null) {
+			return null;
+		}
+		try {
+			return readPerson(streamAt(offset));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (this.file != null) {
+			try {
+				this.file.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				this.file = null;
+				this.offsets = null;
+			}
+		}
+	}
+
+	private void checkOpen() {
+		if (this.file == null) {
+			throw new IllegalStateException("No binary population file opened for random access.");
+		}
+	}
+
+	/* the returned stream must not be closed, as this would close the file as well */
+	private DataInputStream streamAt(final long offset) throws IOException {
+		this.file.getChannel().position(offset);
+		return new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.file.getChannel())));
+	}
+
+	/**
+	 * Reads everything up to the person records.
+	 *
+	 * @return the number of persons
+	 */
+	private int readHeader(final DataInputStream in, final String filename, final boolean applyToPopulation) throws IOException {
+		if (in.readInt() != BinaryPopulationFormat.MAGIC) {
+			throw new IllegalArgumentException("Not a binary MATSim population file: " + filename);
+		}
+		int version = in.readInt();
+		if (version != BinaryPopulationFormat.VERSION) {
+			throw new IllegalArgumentException("Unsupported version " + version + " of binary population file " + filename);
+		}
+
+		this.strings = new String[BinaryPopulationFormat.readVarInt(in)];
+		for (int i = 0; i < this.strings.length; i++) {
+			this.strings[i] = in.readUTF();
+		}
+		this.linkIds = readIds(in, Link.class);
+		this.facilityIds = readIds(in, ActivityFacility.class);
+		this.vehicleIds = readIds(in, Vehicle.class);
+
+		String name = in.readBoolean() ? in.readUTF() : null;
+		Attributes attributes = applyToPopulation ? this.population.getAttributes() : new Attributes();
+		if (applyToPopulation && name != null) {
+			this.population.setName(name);
+		}
+		readAttributes(in, attributes);
+		initCoordinateTransformation((String) attributes.getAttribute(ProjectionUtils.INPUT_CRS_ATT));
+		if (applyToPopulation && this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.population, this.targetCRS);
+		}
+		return BinaryPopulationFormat.readVarInt(in);
+	}
+
+	private void initCoordinateTransformation(final String fileCRS) {
+		String inputCRS = this.externalInputCRS;
+		if (fileCRS != null) {
+			if (this.externalInputCRS != null && this.targetCRS != null) {
+				log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+			}
+			inputCRS = fileCRS;
+		}
+		this.coordinateTransformation = inputCRS == null || this.targetCRS == null ?
+				new IdentityTransformation() :
+				TransformationFactory.getCoordinateTransformation(inputCRS, this.targetCRS);
+	}
+
+	private static <T> List<Id<T>> readIds(final DataInputStream in, final Class<T> idType) throws IOException {
+		int count = BinaryPopulationFormat.readVarInt(in);
+		List<Id<T>> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(Id.create(in.readUTF(), idType));
+		}
+		return ids;
+	}
+
+	private Person readPerson(final DataInputStream in) throws IOException {
+		Person person = this.factory.createPerson(Id.create(in.readUTF(), Person.class));
+		readAttributes(in, person.getAttributes());
+		int planCount = BinaryPopulationFormat.readVarInt(in);
+		for (int p = 0; p < planCount; p++) {
+			int flags = in.readByte();
+			Plan plan = this.factory.createPlan();
+			if ((flags & BinaryPopulationFormat.PLAN_HAS_SCORE) != 0) {
+				plan.setScore(in.readDouble());
+			}
+			if ((flags & BinaryPopulationFormat.PLAN_HAS_TYPE) != 0) {
+				plan.setType(readString(in));
+			}
+			readAttributes(in, plan.getAttributes());
+			person.addPlan(plan);
+			if ((flags & BinaryPopulationFormat.PLAN_SELECTED) != 0) {
+				person.setSelectedPlan(plan);
+			}
+
+			int elementCount = BinaryPopulationFormat.readVarInt(in);
+			for (int e = 0; e < elementCount; e++) {
+				byte kind = in.readByte();
+				if (kind == BinaryPopulationFormat.ACTIVITY) {
+					plan.addActivity(readActivity(in));
+				} else if (kind == BinaryPopulationFormat.LEG) {
+					plan.addLeg(readLeg(in));
+				} else {
+					throw new IllegalArgumentException("Unknown plan element kind " + kind + " in plan of person " + person.getId());
+				}
+			}
+		}
+		return person;
+	}
+
+	private Activity readActivity(final DataInputStream in) throws IOException {
+		String type = readString(in);
+		Id<Link> linkId = readRef(in, this.linkIds);
+		Id<ActivityFacility> facilityId = readRef(in, this.facilityIds);
+		Coord coord = null;
+		byte coordKind = in.readByte();
+		if (coordKind == BinaryPopulationFormat.COORD_XY) {
+			coord = this.coordinateTransformation.transform(new Coord(in.readDouble(), in.readDouble()));
+		} else if (coordKind == BinaryPopulationFormat.COORD_XYZ) {
+			coord = this.coordinateTransformation.transform(new Coord(in.readDouble(), in.readDouble(), in.readDouble()));
+		}
+
+		Activity act;
+		if (linkId != null) {
+			act = this.factory.createActivityFromLinkId(type, linkId);
+			act.setCoord(coord);
+			act.setFacilityId(facilityId);
+		} else if (coord != null) {
+			act = this.factory.createActivityFromCoord(type, coord);
+			act.setFacilityId(facilityId);
+		} else {
+			act = this.factory.createActivityFromActivityFacilityId(type, facilityId);
+		}
+		BinaryPopulationFormat.readTime(in).ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+		BinaryPopulationFormat.readTime(in).ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+		BinaryPopulationFormat.readTime(in).ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+		readAttributes(in, act.getAttributes());
+		return act;
+	}
+
+	private Leg readLeg(final DataInputStream in) throws IOException {
+		Leg leg = this.factory.createLeg(readString(in));
+		BinaryPopulationFormat.readTime(in).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+		BinaryPopulationFormat.readTime(in).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+		readAttributes(in, leg.getAttributes());
+
+		byte routeKind = in.readByte();
+		if (routeKind == BinaryPopulationFormat.NO_ROUTE) {
+			return leg;
+		}
+		String routeType = readNullableString(in);
+		Id<Link> startLinkId = readRef(in, this.linkIds);
+		Id<Link> endLinkId = readRef(in, this.linkIds);
+		OptionalTime travelTime = BinaryPopulationFormat.readTime(in);
+		double distance = in.readDouble();
+
+		RouteFactories routeFactories = this.factory.getRouteFactories();
+		Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+		if (routeKind == BinaryPopulationFormat.NETWORK_ROUTE) {
+			Id<Vehicle> vehicleId = readRef(in, this.vehicleIds);
+			int linkCount = BinaryPopulationFormat.readVarInt(in);
+			List<Id<Link>> routeLinkIds = new ArrayList<>(linkCount);
+			int position = 0;
+			for (int i = 0; i < linkCount; i++) {
+				position += BinaryPopulationFormat.readSignedVarInt(in);
+				routeLinkIds.add(this.linkIds.get(position));
+			}
+			if (route instanceof NetworkRoute) {
+				((NetworkRoute) route).setLinkIds(startLinkId, routeLinkIds, endLinkId);
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			} else {
+				throw new IllegalArgumentException("Route type " + routeType + " was written as network route, but is not one anymore.");
+			}
+		} else if (in.readBoolean()) {
+			route.setRouteDescription(BinaryPopulationFormat.readLongUTF(in));
+		}
+		travelTime.ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+		route.setDistance(distance);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private String readString(final DataInputStream in) throws IOException {
+		return this.strings[BinaryPopulationFormat.readVarInt(in)];
+	}
+
+	private String readNullableString(final DataInputStream in) throws IOException {
+		int ref = BinaryPopulationFormat.readVarInt(in);
+		return ref == 0 ? null : this.strings[ref - 1];
+	}
+
+	private static <T> Id<T> readRef(final DataInputStream in, final List<Id<T>> ids) throws IOException {
+		int ref = BinaryPopulationFormat.readVarInt(in);
+		return ref == 0 ? null : ids.get(ref - 1);
+	}
+
+	private void readAttributes(final DataInputStream in, final Attributes attributes) throws IOException {
+		int count = BinaryPopulationFormat.readVarInt(in);
+		for (int i = 0; i < count; i++) {
+			String name = readString(in);
+			String className = readString(in);
+			Object value = this.attributesConverter.convert(className, BinaryPopulationFormat.readLongUTF(in));
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+}
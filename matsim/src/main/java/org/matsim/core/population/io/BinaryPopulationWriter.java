@@ -0,0 +1,344 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Writes a population in a compact binary format, which can be read much faster than xml with the
+ * {@link BinaryPopulationReader}. Ids and all other recurring strings are stored once in tables at the
+ * beginning of the file and referenced by their position afterwards; times are stored as variable-length
+ * integers where possible. The link ids are ordered by their {@link Id#index()}, so the links of a network
+ * route, which were mostly created in that order when the network was read, can be stored as small deltas.
+ * <p>
+ * The file ends with an index of the offsets of all persons, which allows to read single persons later on.
+ * Use an uncompressed file (ending with <code>.bin</code>) if that is needed.
+ */
+public final class BinaryPopulationWriter implements MatsimWriter {
+
+	private final static Logger log = Logger.getLogger(BinaryPopulationWriter.class);
+
+	private final Population population;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private final Map<String, Integer> strings = new LinkedHashMap<>();
+	private final Map<Id<Link>, Integer> linkIds = new HashMap<>();
+	private final Map<Id<ActivityFacility>, Integer> facilityIds = new LinkedHashMap<>();
+	private final Map<Id<Vehicle>, Integer> vehicleIds = new LinkedHashMap<>();
+
+	public BinaryPopulationWriter(final Population population) {
+		this.population = population;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void write(final String filename) {
+		log.info("Writing binary population to " + filename);
+		List<Id<Link>> links = collectTables();
+		BinaryPopulationFormat.CountingOutputStream counter = new BinaryPopulationFormat.CountingOutputStream(
+				new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)));
+		try (DataOutputStream out = new DataOutputStream(counter)) {
+			out.writeInt(BinaryPopulationFormat.MAGIC);
+			out.writeInt(BinaryPopulationFormat.VERSION);
+			writeTables(out, links);
+
+			out.writeBoolean(this.population.getName() != null);
+			if (this.population.getName() != null) {
+				out.writeUTF(this.population.getName());
+			}
+			writeAttributes(out, this.population.getAttributes());
+
+			List<Id<Person>> personIds = new ArrayList<>(this.population.getPersons().size());
+			long[] offsets = new long[this.population.getPersons().size()];
+			BinaryPopulationFormat.writeVarInt(out, offsets.length);
+			for (Person person : this.population.getPersons().values()) {
+				offsets[personIds.size()] = counter.getCount();
+				personIds.add(person.getId());
+				writePerson(out, person);
+			}
+
+			long indexOffset = counter.getCount();
+			long lastOffset = 0;
+			for (int i = 0; i < offsets.length; i++) {
+				out.writeUTF(personIds.get(i).toString());
+				BinaryPopulationFormat.writeVarLong(out, offsets[i] - lastOffset);
+				lastOffset = offsets[i];
+			}
+			out.writeLong(indexOffset);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.strings.clear();
+			this.linkIds.clear();
+			this.facilityIds.clear();
+			this.vehicleIds.clear();
+		}
+		log.info("Binary population written.");
+	}
+
+	private List<Id<Link>> collectTables() {
+		List<Id<Link>> links = new ArrayList<>();
+		collectAttributes(this.population.getAttributes());
+		for (Person person : this.population.getPersons().values()) {
+			collectAttributes(person.getAttributes());
+			for (Plan plan : person.getPlans()) {
+				if (plan.getType() != null) {
+					addString(plan.getType());
+				}
+				collectAttributes(plan.getAttributes());
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity) {
+						Activity act = (Activity) pe;
+						addString(act.getType());
+						addLink(act.getLinkId(), links);
+						if (act.getFacilityId() != null) {
+							this.facilityIds.putIfAbsent(act.getFacilityId(), this.facilityIds.size());
+						}
+						collectAttributes(act.getAttributes());
+					} else {
+						Leg leg = (Leg) pe;
+						addString(leg.getMode());
+						collectAttributes(leg.getAttributes());
+						Route route = leg.getRoute();
+						if (route != null) {
+							if (route.getRouteType() != null) {
+								addString(route.getRouteType());
+							}
+							addLink(route.getStartLinkId(), links);
+							addLink(route.getEndLinkId(), links);
+							if (route instanceof NetworkRoute) {
+								for (Id<Link> linkId : ((NetworkRoute) route).getLinkIds()) {
+									addLink(linkId, links);
+								}
+								Id<Vehicle> vehicleId = ((NetworkRoute) route).getVehicleId();
+								if (vehicleId != null) {
+									this.vehicleIds.putIfAbsent(vehicleId, this.vehicleIds.size());
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		links.sort(Comparator.comparingInt(Id::index));
+		for (int i = 0; i < links.size(); i++) {
+			this.linkIds.put(links.get(i), i);
+		}
+		return links;
+	}
+
+	private void addString(final String string) {
+		this.strings.putIfAbsent(string, this.strings.size());
+	}
+
+	private void addLink(final Id<Link> linkId, final List<Id<Link>> links) {
+		if (linkId != null && this.linkIds.putIfAbsent(linkId, -1) == null) {
+			links.add(linkId);
+		}
+	}
+
+	private void collectAttributes(final Attributes attributes) {
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			addString(e.getKey());
+			addString(e.getValue().getClass().getName());
+		}
+	}
+
+	private void writeTables(final DataOutputStream out, final List<Id<Link>> links) throws IOException {
+		BinaryPopulationFormat.writeVarInt(out, this.strings.size());
+		for (String string : this.strings.keySet()) {
+			out.writeUTF(string);
+		}
+		BinaryPopulationFormat.writeVarInt(out, links.size());
+		for (Id<Link> linkId : links) {
+			out.writeUTF(linkId.toString());
+		}
+		BinaryPopulationFormat.writeVarInt(out, this.facilityIds.size());
+		for (Id<ActivityFacility> facilityId : this.facilityIds.keySet()) {
+			out.writeUTF(facilityId.toString());
+		}
+		BinaryPopulationFormat.writeVarInt(out, this.vehicleIds.size());
+		for (Id<Vehicle> vehicleId : this.vehicleIds.keySet()) {
+			out.writeUTF(vehicleId.toString());
+		}
+	}
+
+	private void writePerson(final DataOutputStream out, final Person person) throws IOException {
+		out.writeUTF(person.getId().toString());
+		writeAttributes(out, person.getAttributes());
+		BinaryPopulationFormat.writeVarInt(out, person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			int flags = 0;
+			if (plan == person.getSelectedPlan()) {
+				flags |= BinaryPopulationFormat.PLAN_SELECTED;
+			}
+			if (plan.getScore() != null) {
+				flags |= BinaryPopulationFormat.PLAN_HAS_SCORE;
+			}
+			if (plan.getType() != null) {
+				flags |= BinaryPopulationFormat.PLAN_HAS_TYPE;
+			}
+			out.writeByte(flags);
+			if (plan.getScore() != null) {
+				out.writeDouble(plan.getScore());
+			}
+			if (plan.getType() != null) {
+				writeString(out, plan.getType());
+			}
+			writeAttributes(out, plan.getAttributes());
+			BinaryPopulationFormat.writeVarInt(out, plan.getPlanElements().size());
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Activity) {
+					writeActivity(out, (Activity) pe);
+				} else if (pe instanceof Leg) {
+					writeLeg(out, (Leg) pe);
+				} else {
+					throw new IllegalArgumentException("Unknown plan element of type " + pe.getClass().getName() + " in plan of person " + person.getId());
+				}
+			}
+		}
+	}
+
+	private void writeActivity(final DataOutputStream out, final Activity act) throws IOException {
+		out.writeByte(BinaryPopulationFormat.ACTIVITY);
+		writeString(out, act.getType());
+		writeLinkRef(out, act.getLinkId());
+		BinaryPopulationFormat.writeVarInt(out, act.getFacilityId() == null ? 0 : this.facilityIds.get(act.getFacilityId()) + 1);
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			out.writeByte(BinaryPopulationFormat.NO_COORD);
+		} else {
+			out.writeByte(coord.hasZ() ? BinaryPopulationFormat.COORD_XYZ : BinaryPopulationFormat.COORD_XY);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		BinaryPopulationFormat.writeTime(out, act.getStartTime());
+		BinaryPopulationFormat.writeTime(out, act.getMaximumDuration());
+		BinaryPopulationFormat.writeTime(out, act.getEndTime());
+		writeAttributes(out, act.getAttributes());
+	}
+
+	private void writeLeg(final DataOutputStream out, final Leg leg) throws IOException {
+		out.writeByte(BinaryPopulationFormat.LEG);
+		writeString(out, leg.getMode());
+		BinaryPopulationFormat.writeTime(out, leg.getDepartureTime());
+		BinaryPopulationFormat.writeTime(out, leg.getTravelTime());
+		writeAttributes(out, leg.getAttributes());
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			out.writeByte(BinaryPopulationFormat.NO_ROUTE);
+			return;
+		}
+		out.writeByte(route instanceof NetworkRoute ? BinaryPopulationFormat.NETWORK_ROUTE : BinaryPopulationFormat.GENERIC_ROUTE);
+		writeNullableString(out, route.getRouteType());
+		writeLinkRef(out, route.getStartLinkId());
+		writeLinkRef(out, route.getEndLinkId());
+		BinaryPopulationFormat.writeTime(out, route.getTravelTime());
+		out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			Id<Vehicle> vehicleId = networkRoute.getVehicleId();
+			BinaryPopulationFormat.writeVarInt(out, vehicleId == null ? 0 : this.vehicleIds.get(vehicleId) + 1);
+			List<Id<Link>> routeLinkIds = networkRoute.getLinkIds();
+			BinaryPopulationFormat.writeVarInt(out, routeLinkIds.size());
+			int last = 0;
+			for (Id<Link> linkId : routeLinkIds) {
+				int position = this.linkIds.get(linkId);
+				BinaryPopulationFormat.writeSignedVarInt(out, position - last);
+				last = position;
+			}
+		} else {
+			String description = route.getRouteDescription();
+			out.writeBoolean(description != null);
+			if (description != null) {
+				BinaryPopulationFormat.writeLongUTF(out, description);
+			}
+		}
+	}
+
+	private void writeString(final DataOutputStream out, final String string) throws IOException {
+		BinaryPopulationFormat.writeVarInt(out, this.strings.get(string));
+	}
+
+	private void writeNullableString(final DataOutputStream out, final String string) throws IOException {
+		BinaryPopulationFormat.writeVarInt(out, string == null ? 0 : this.strings.get(string) + 1);
+	}
+
+	private void writeLinkRef(final DataOutputStream out, final Id<Link> linkId) throws IOException {
+		BinaryPopulationFormat.writeVarInt(out, linkId == null ? 0 : this.linkIds.get(linkId) + 1);
+	}
+
+	private void writeAttributes(final DataOutputStream out, final Attributes attributes) throws IOException {
+		List<String> names = new ArrayList<>(attributes.size());
+		List<String> values = new ArrayList<>(attributes.size());
+		List<String> classNames = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			String converted = this.attributesConverter.convertToString(e.getValue());
+			if (converted != null) {
+				names.add(e.getKey());
+				values.add(converted);
+				classNames.add(e.getValue().getClass().getName());
+			}
+		}
+		BinaryPopulationFormat.writeVarInt(out, names.size());
+		for (int i = 0; i < names.size(); i++) {
+			writeString(out, names.get(i));
+			writeString(out, classNames.get(i));
+			BinaryPopulationFormat.writeLongUTF(out, values.get(i));
+		}
+	}
+}
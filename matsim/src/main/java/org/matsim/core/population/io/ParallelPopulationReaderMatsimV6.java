@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. As in {@link ParallelPopulationReaderMatsimV4}, the
+ * main thread only parses the file and creates empty person objects, which are added to the population to keep
+ * their order. The xml data of the persons is passed in batches to worker threads, which interpret it with their
+ * own {@link PopulationReaderMatsimV6}, i.e. with their own attribute converters.
+ * <p>
+ * The population attributes, and thus the coordinate reference system, are read by the main thread before the
+ * first person, and handed over to the workers when they are started. With population streaming, the non-parallel
+ * reader is used.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final int PERSONS_PER_BATCH = 100;
+
+	/* marker to inform the threads that no further data has to be parsed */
+	static final List<Tag> END_OF_DATA = new ArrayList<>(0);
+
+	private final Scenario scenario;
+	private final boolean isPopulationStreaming;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
+
+	private BlockingQueue<List<Tag>> queue = null;
+	private Thread[] threads = null;
+	private List<Tag> currentBatch = new ArrayList<>();
+	private int personsInBatch = 0;
+	private boolean inPerson = false;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+
+		if ( scenario.getPopulation() instanceof StreamingPopulationReader.StreamingPopulation ) {
+			log.warn("Population streaming is activated - cannot use " + ParallelPopulationReaderMatsimV6.class.getName() + "!");
+			this.isPopulationStreaming = true;
+			this.numThreads = 1;
+		} else {
+			this.isPopulationStreaming = false;
+			this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+		}
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		this.queue = new ArrayBlockingQueue<>(4 * this.numThreads);
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			ParallelPopulationReaderMatsimV6Runner runner =
+					new ParallelPopulationReaderMatsimV6Runner(
+							getCoordinateTransformation(),
+							this.attributeConverters,
+							this.scenario,
+							this.queue,
+							this.hadException);
+
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6Runner.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		// if population streaming is activated, use non-parallel reader
+		if (this.isPopulationStreaming) {
+			super.startTag(name, atts, context);
+			return;
+		}
+
+		if (PERSON.equals(name)) {
+			if (this.threads == null) {
+				initThreads();
+			}
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(atts.getValue("id"), Person.class));
+			this.scenario.getPopulation().addPerson(person);
+			this.currentBatch.add(new PersonTag(person));
+			this.inPerson = true;
+		} else if (this.inPerson) {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentBatch.add(new StartTag(name, new AttributesImpl(atts)));
+		} else {
+			super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		// if population streaming is activated, use non-parallel reader
+		if (this.isPopulationStreaming) {
+			super.endTag(name, content, context);
+			return;
+		}
+
+		if (this.inPerson) {
+			this.currentBatch.add(new EndTag(name, content));
+			if (PERSON.equals(name)) {
+				this.inPerson = false;
+				this.personsInBatch++;
+				if (this.personsInBatch == PERSONS_PER_BATCH) {
+					flushBatch();
+				}
+			}
+		} else {
+			if (POPULATION.equals(name)) {
+				finishThreads();
+			}
+			super.endTag(name, content, context);
+		}
+	}
+
+	private void flushBatch() {
+		putIntoQueue(this.currentBatch);
+		this.currentBatch = new ArrayList<>();
+		this.personsInBatch = 0;
+	}
+
+	private void putIntoQueue(final List<Tag> tags) {
+		try {
+			this.queue.put(tags);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void finishThreads() {
+		if (this.threads == null) {
+			return; // no persons at all
+		}
+		if (!this.currentBatch.isEmpty()) {
+			flushBatch();
+		}
+		// signal the threads that they should end parsing
+		for (int i = 0; i < this.numThreads; i++) {
+			putIntoQueue(END_OF_DATA);
+		}
+		// wait for the threads to finish
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.threads = null;
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while reading the persons.", throwable);
+		}
+		log.info("Finished parallel population reading...");
+	}
+
+	static abstract class Tag {
+		final String name;
+
+		Tag(final String name) {
+			this.name = name;
+		}
+	}
+
+	/* replaces the start tag of a person */
+	static final class PersonTag extends Tag {
+		final Person person;
+
+		PersonTag(final Person person) {
+			super(PERSON);
+			this.person = person;
+		}
+	}
+
+	static final class StartTag extends Tag {
+		final Attributes atts;
+
+		StartTag(final String name, final Attributes atts) {
+			super(name);
+			this.atts = atts;
+		}
+	}
+
+	static final class EndTag extends Tag {
+		final String content;
+
+		EndTag(final String name, final String content) {
+			super(name);
+			this.content = content;
+		}
+	}
+}
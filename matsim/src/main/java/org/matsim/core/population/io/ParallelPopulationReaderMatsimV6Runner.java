@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Runner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.EndTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.PersonTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.StartTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.Tag;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Runnable used by ParallelPopulationReaderMatsimV6.
+ * Processes batches of xml data taken from a BlockingQueue which is filled
+ * in the main class. The context of the tags is rebuilt from the tags themselves.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+	private final BlockingQueue<List<Tag>> queue;
+	private final AtomicReference<Throwable> hadException;
+	private final Stack<String> context = new Stack<>();
+
+	ParallelPopulationReaderMatsimV6Runner(
+			final CoordinateTransformation coordinateTransformation,
+			final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+			final Scenario scenario,
+			final BlockingQueue<List<Tag>> queue,
+			final AtomicReference<Throwable> hadException) {
+		super(null, null, scenario);
+		setCoordinateTransformation(coordinateTransformation);
+		putAttributeConverters(attributeConverters);
+		this.queue = queue;
+		this.hadException = hadException;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			List<Tag> tags;
+			try {
+				tags = this.queue.take();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			if (tags == ParallelPopulationReaderMatsimV6.END_OF_DATA) {
+				return;
+			}
+			if (this.hadException.get() != null) {
+				continue; // keep on taking batches, so the main thread is not blocked
+			}
+			try {
+				processTags(tags);
+			} catch (Throwable e) {
+				ParallelPopulationReaderMatsimV6.log.error("Exception while reading the persons.", e);
+				this.hadException.compareAndSet(null, e);
+			}
+		}
+	}
+
+	private void processTags(final List<Tag> tags) {
+		for (Tag tag : tags) {
+			if (tag instanceof PersonTag) {
+				this.currperson = ((PersonTag) tag).person;
+				this.context.clear();
+				this.context.push(POPULATION);
+				this.context.push(PERSON);
+			} else if (tag instanceof StartTag) {
+				this.startTag(tag.name, ((StartTag) tag).atts, this.context);
+				this.context.push(tag.name);
+			} else {
+				this.context.pop();
+				/*
+				 * We do not hand the person end tag over to the super class because the
+				 * person has already been added to the population.
+				 */
+				if (PERSON.equals(tag.name)) {
+					this.currperson = null;
+				} else {
+					this.endTag(tag.name, ((EndTag) tag).content, this.context);
+				}
+			}
+		}
+	}
+}
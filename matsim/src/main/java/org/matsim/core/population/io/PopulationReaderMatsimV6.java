@@ -65,8 +65,8 @@ import com.google.inject.Inject;
 /* deliberately package */ class PopulationReaderMatsimV6 extends MatsimXmlParser implements MatsimReader {
     private static final Logger log = Logger.getLogger(PopulationReaderMatsimV6.class);
 
-	private final static String POPULATION = "population";
-	private final static String PERSON = "person";
+	/*package*/ final static String POPULATION = "population";
+	/*package*/ final static String PERSON = "person";
 	private final static String ATTRIBUTES = "attributes";
 	private final static String ATTRIBUTE = "attribute";
 	private final static String PLAN = "plan";
@@ -106,7 +106,7 @@ import com.google.inject.Inject;
 	private final Population plans;
 	private final String externalInputCRS;
 
-	private Person currperson = null;
+	/*package*/ Person currperson = null;
 	private Plan currplan = null;
 	private Activity curract = null;
 	private Leg currleg = null;
@@ -134,6 +134,14 @@ import com.google.inject.Inject;
 	    }
 	}
 
+	/*package*/ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	/*package*/ void setCoordinateTransformation(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
 		attributesReader.putAttributeConverter( clazz , converter );
 	}
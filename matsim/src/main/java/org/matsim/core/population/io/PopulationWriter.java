@@ -20,10 +20,21 @@
 
 package org.matsim.core.population.io;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
@@ -51,6 +62,9 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 	private final static Logger log = Logger.getLogger(PopulationWriter.class);
 	private Map<Class<?>,AttributeConverter<?>> converters = new HashMap<>();
+	private int numberOfThreads = 1;
+
+	private static final int PERSONS_PER_BATCH = 100;
 
 
 	public PopulationWriter(final Population population) {
@@ -128,6 +142,16 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		this.converters.put( key, converter );
 	}
 
+	/**
+	 * With more than one thread, the persons are serialized in parallel, each thread with its own
+	 * writer handler, and written to the file in their original order. The output is the same as with
+	 * one thread. This is currently only supported for the v6 format, the other formats are always
+	 * written by a single thread.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Writes all plans to the file.
 	 */
@@ -175,11 +199,84 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 
 	private  final void writePersons() {
+		if (this.numberOfThreads > 1 && this.handler instanceof PopulationWriterHandlerImplV6) {
+			writePersonsParallel();
+			return;
+		}
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
 		}
 	}
 
+	/**
+	 * Serializes batches of persons in parallel into strings, and writes them in order. The persons are
+	 * sampled in this thread, so the random numbers are drawn as in the sequential case.
+	 */
+	private void writePersonsParallel() {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		ThreadLocal<PopulationWriterHandler> handlers = ThreadLocal.withInitial(() -> {
+			PopulationWriterHandler threadHandler = new PopulationWriterHandlerImplV6(this.coordinateTransformation);
+			threadHandler.putAttributeConverters(this.converters);
+			return threadHandler;
+		});
+		Queue<Future<String>> pending = new ArrayDeque<>();
+		try {
+			List<Person> batch = new ArrayList<>(PERSONS_PER_BATCH);
+			for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+				if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+					continue;
+				}
+				batch.add(p);
+				if (batch.size() == PERSONS_PER_BATCH) {
+					pending.add(executor.submit(new PersonsSerializer(batch, handlers)));
+					batch = new ArrayList<>(PERSONS_PER_BATCH);
+					// limit the number of serialized batches held in memory
+					while (pending.size() > 4 * this.numberOfThreads) {
+						this.writer.write(pending.poll().get());
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				pending.add(executor.submit(new PersonsSerializer(batch, handlers)));
+			}
+			while (!pending.isEmpty()) {
+				this.writer.write(pending.poll().get());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private final class PersonsSerializer implements Callable<String> {
+
+		private final List<Person> persons;
+		private final ThreadLocal<PopulationWriterHandler> handlers;
+
+		PersonsSerializer(final List<Person> persons, final ThreadLocal<PopulationWriterHandler> handlers) {
+			this.persons = persons;
+			this.handlers = handlers;
+		}
+
+		@Override
+		public String call() throws IOException {
+			StringWriter buffer = new StringWriter();
+			BufferedWriter out = new BufferedWriter(buffer);
+			PopulationWriterHandler threadHandler = this.handlers.get();
+			for (Person person : this.persons) {
+				threadHandler.writePerson(person, out);
+				counter.incCounter();
+			}
+			out.flush();
+			return buffer.toString();
+		}
+	}
+
 	private final void writePerson(final Person person) {
 		try {
 			if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
@@ -0,0 +1,297 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.common.collect.Interner;
+
+/**
+ * Implementation of {@link NetworkRoute} that stores the links of the route as variable-length encoded differences
+ * of their {@link Id#index()}. As neighbouring links mostly have similar indices, this usually needs one or two bytes
+ * per link, compared to a reference per link plus the list overhead in {@link LinkNetworkRouteImpl}. In addition, the
+ * encoded link sequences are interned, so routes with the same links (e.g. the same commute in several plans of an
+ * agent) share their data.
+ * <p>
+ * {@link #getLinkIds()} decodes the links on every call. The returned list is not backed by the route, and offers fast
+ * random access, so callers that walk along the route repeatedly (like the drivers in the mobsim) should keep it
+ * instead of calling {@link #getLinkIds()} for every link.
+ */
+final class CompactNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private final Interner<LinkSequence> interner;
+	private LinkSequence links = LinkSequence.EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	CompactNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId, final Interner<LinkSequence> interner) {
+		super(startLinkId, endLinkId);
+		this.interner = interner;
+	}
+
+	@Override
+	public CompactNetworkRouteImpl clone() {
+		// the link sequence is immutable and can be shared
+		return (CompactNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIdList(this.links.decode());
+	}
+
+	/*package*/ LinkSequence getLinkSequence() {
+		return this.links;
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		List<Id<Link>> route = getLinkIds();
+		int fromIndex = -1;
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0, n = route.size(); (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i + 1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.size();
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex, n = route.size(); (i < n) && (toIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i + 1; // in case of a loop, cut it short
+				}
+				if (toLinkId.equals(route.get(i))) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.size();
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		NetworkRoute ret = new CompactNetworkRouteImpl(fromLinkId, toLinkId, this.interner);
+		if (toIndex > fromIndex) {
+			ret.setLinkIds(fromLinkId, route.subList(fromIndex, toIndex), toLinkId);
+		} else {
+			ret.setLinkIds(fromLinkId, null, toLinkId);
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.links = LinkSequence.EMPTY;
+		} else {
+			this.links = this.interner.intern(LinkSequence.encode(srcRoute));
+		}
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		List<Id<Link>> linkIds = this.getLinkIds();
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : linkIds) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || linkIds.size() > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	/**
+	 * The zig-zag and varint encoded differences between the indices of subsequent links. Instances are immutable, and
+	 * equal if they contain the same links, so they can be interned.
+	 */
+	static final class LinkSequence {
+
+		static final LinkSequence EMPTY = new LinkSequence(new byte[0], 0);
+
+		private final byte[] data;
+		private final int size;
+		private final int hash;
+
+		private LinkSequence(final byte[] data, final int size) {
+			this.data = data;
+			this.size = size;
+			this.hash = 31 * Arrays.hashCode(data) + size;
+		}
+
+		static LinkSequence encode(final List<Id<Link>> linkIds) {
+			byte[] buffer = new byte[linkIds.size() * 5];
+			int pos = 0;
+			int previous = 0;
+			for (Id<Link> linkId : linkIds) {
+				int index = linkId.index();
+				int delta = index - previous;
+				int value = (delta << 1) ^ (delta >> 31);
+				while ((value & ~0x7F) != 0) {
+					buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+					value >>>= 7;
+				}
+				buffer[pos++] = (byte) value;
+				previous = index;
+			}
+			return new LinkSequence(Arrays.copyOf(buffer, pos), linkIds.size());
+		}
+
+		int[] decode() {
+			int[] indices = new int[this.size];
+			int pos = 0;
+			int previous = 0;
+			for (int i = 0; i < this.size; i++) {
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = this.data[pos++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				previous += (value >>> 1) ^ -(value & 1);
+				indices[i] = previous;
+			}
+			return indices;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof LinkSequence)) {
+				return false;
+			}
+			LinkSequence other = (LinkSequence) obj;
+			return this.hash == other.hash && this.size == other.size && Arrays.equals(this.data, other.data);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/**
+	 * Unmodifiable list of link ids, resolved from their indices on access.
+	 */
+	private static final class LinkIdList extends AbstractList<Id<Link>> implements RandomAccess {
+
+		private final int[] indices;
+
+		LinkIdList(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(this.indices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+	}
+}
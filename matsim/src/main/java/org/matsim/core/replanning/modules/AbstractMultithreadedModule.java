@@ -24,13 +24,18 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +55,18 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link ReplanningScheduling#workStealing}, the plans are instead collected in one list, from which
+ * the threads take chunks as soon as they are idle.  The chunks get smaller towards the end, so that all
+ * threads finish at about the same time.  The random number generators which the plan algorithm obtained
+ * from {@link MatsimRandom#getLocalInstance()} while it was created in {@link #getPlanAlgoInstance()} are
+ * reset before each plan with a seed derived from the person id and the iteration, so their draws do not
+ * depend on the thread that handles a plan.  This does not hold for any other random number generator, e.g.
+ * {@link MatsimRandom#getRandom()}, a generator shared by several algorithm instances, or a local instance
+ * obtained later: these are drawn from in the order in which the threads happen to take the plans, so the
+ * results may change from run to run.
+ * <p></p>
+ * In both cases, the busy and idle time of each thread is logged at the end.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,6 +76,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final ReplanningScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -66,6 +84,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private String name = null;
 
 	private int count = 0;
+	private List<Plan> sharedPlans = null;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -83,11 +102,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningScheduling scheduling) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = scheduling;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -118,7 +142,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.sharedPlans != null) {
+				this.sharedPlans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -140,7 +168,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
+			if (this.sharedPlans != null) {
+				int iteration = this.replanningContext == null ? 0 : this.replanningContext.getIteration();
+				SharedPlans queue = new SharedPlans(this.sharedPlans, this.numOfThreads);
+				for (PlanAlgoThread algothread : this.algothreads) {
+					algothread.setSharedPlans(queue, iteration);
+				}
+			}
+
 			// start threads
+			long start = System.nanoTime();
 			for (Thread thread : this.threads) {
 				thread.start();
 			}
@@ -154,6 +191,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException(e);
 			}
 			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			logBusyTimes(System.nanoTime() - start);
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
@@ -162,6 +200,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.sharedPlans = null;
 		this.replanningContext = null;
 		this.count = 0;
 		
@@ -176,16 +215,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		if (this.scheduling == ReplanningScheduling.workStealing) {
+			this.sharedPlans = new ArrayList<>();
+		}
 
 		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			List<Random> randoms = new ArrayList<>();
+			PlanAlgorithm algo = MatsimRandom.collectLocalInstances(this::getPlanAlgoInstance, randoms);
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, randoms);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,6 +236,17 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void logBusyTimes(final long wallTimeNanos) {
+		StringBuilder str = new StringBuilder("[" + this.name + "] plans / busy time / idle time per thread [ms]:");
+		for (PlanAlgoThread algothread : this.algothreads) {
+			long busyNanos = algothread.busyNanos;
+			str.append(" ").append(algothread.handledPlans)
+					.append("/").append(busyNanos / 1000000)
+					.append("/").append(Math.max(0, wallTimeNanos - busyNanos) / 1000000);
+		}
+		log.info(str.toString());
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -213,26 +267,100 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
+	/**
+	 * The plans of all threads in work-stealing mode. Each chunk is a fraction of the remaining plans, so
+	 * the chunks are large at the beginning and get smaller towards the end.
+	 */
+	private final static class SharedPlans {
+
+		private static final int CHUNKS_PER_THREAD = 4;
+
+		private final List<Plan> plans;
+		private final int numOfThreads;
+		private final AtomicInteger next = new AtomicInteger(0);
+
+		SharedPlans(final List<Plan> plans, final int numOfThreads) {
+			this.plans = plans;
+			this.numOfThreads = numOfThreads;
+		}
+
+		/**
+		 * @return the start index of the next chunk in <code>range[0]</code> and its end index (exclusive) in
+		 * <code>range[1]</code>, or <code>false</code> if all plans are taken.
+		 */
+		boolean takeChunk(final int[] range) {
+			while (true) {
+				int start = this.next.get();
+				int remaining = this.plans.size() - start;
+				if (remaining <= 0) {
+					return false;
+				}
+				int size = Math.max(1, remaining / (CHUNKS_PER_THREAD * this.numOfThreads));
+				if (this.next.compareAndSet(start, start + size)) {
+					range[0] = start;
+					range[1] = start + size;
+					return true;
+				}
+			}
+		}
+	}
+
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final List<Random> randoms;
+		private SharedPlans sharedPlans = null;
+		private int iteration;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		// only read after the thread was joined
+		long busyNanos = 0;
+		int handledPlans = 0;
+
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final List<Random> randoms) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.randoms = randoms;
 		}
 
 		public void addPlanToThread(final Plan plan) {
 			this.plans.add(plan);
 		}
 
+		void setSharedPlans(final SharedPlans sharedPlans, final int iteration) {
+			this.sharedPlans = sharedPlans;
+			this.iteration = iteration;
+		}
+
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			long start = System.nanoTime();
+			if (this.sharedPlans == null) {
+				for (Plan plan : this.plans) {
+					this.planAlgo.run(plan);
+					this.counter.incCounter();
+					this.handledPlans++;
+				}
+			} else {
+				int[] range = new int[2];
+				while (this.sharedPlans.takeChunk(range)) {
+					for (int i = range[0]; i < range[1]; i++) {
+						Plan plan = this.sharedPlans.plans.get(i);
+						resetRandoms(plan);
+						this.planAlgo.run(plan);
+						this.counter.incCounter();
+						this.handledPlans++;
+					}
+				}
+			}
+			this.busyNanos = System.nanoTime() - start;
+		}
+
+		private void resetRandoms(final Plan plan) {
+			long personKey = (plan == null || plan.getPerson() == null) ? 0 : plan.getPerson().getId().toString().hashCode();
+			for (int i = 0; i < this.randoms.size(); i++) {
+				MatsimRandom.resetLocalInstance(this.randoms.get(i), (personKey * 31 + this.iteration) * 31 + i);
 			}
 		}
 	}
@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
@@ -43,14 +44,28 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
+	private final String cacheDirectory;
 	
 	@Inject
+	public AStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(globalConfigGroup.getNumberOfThreads(), controlerConfigGroup.getLandmarksCacheDirectory());
+	}
+
 	public AStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
 		this(globalConfigGroup.getNumberOfThreads());
 	}
 
 	public AStarLandmarksFactory(int numberOfThreads) {
+		this(numberOfThreads, null);
+	}
+
+	/**
+	 * @param cacheDirectory where the landmarks are stored for later runs, see
+	 * {@link PreProcessLandmarks#setCacheDirectory(String)}.
+	 */
+	public AStarLandmarksFactory(int numberOfThreads, String cacheDirectory) {
 		this.nThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
 	}
 
 	@Override
@@ -59,6 +74,7 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 		if (preProcessLandmarks == null) {
 			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 			preProcessLandmarks.setNumberOfThreads(nThreads);
+			preProcessLandmarks.setCacheDirectory(cacheDirectory);
 			preProcessLandmarks.run(network);
 			this.preProcessData.put(network, preProcessLandmarks);
 		}
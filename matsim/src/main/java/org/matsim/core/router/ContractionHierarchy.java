@@ -0,0 +1,531 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.priorityqueue.HasIndex;
+import org.matsim.core.router.util.RoutingNetwork;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * A contraction hierarchy of a {@link RoutingNetwork} with the minimal travel costs of the links as edge weights, see
+ * Geisberger et al. (2008), "Contraction Hierarchies: Faster and Simpler Hierarchical Routing in Road Networks".
+ * <p>
+ * The nodes are contracted one after the other, ordered by edge difference and the number of already contracted
+ * neighbours. Shortcuts are only added if a bounded witness search finds no path which is at most as expensive, so
+ * some unnecessary shortcuts may remain. This does not affect the distances. The nodes are addressed by their
+ * {@link HasIndex#getArrayIndex()}, i.e. the hierarchy is bound to the routing network it was created from.
+ * <p>
+ * The hierarchy is immutable once created and may be shared between threads. The searches are done by
+ * {@link TargetDistances}, which are not thread-safe.
+ */
+final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	// limits the witness searches; more settled nodes result in fewer shortcuts but a longer preprocessing
+	private static final int WITNESS_SEARCH_LIMIT = 100;
+
+	private final int numberOfNodes;
+
+	// edges to higher ranked nodes, stored at their from node
+	private final int[] upBegin;
+	private final int[] upEnd;
+	private final int[] upNodes;
+	private final double[] upCosts;
+
+	// edges from higher ranked nodes, stored at their to node
+	private final int[] downBegin;
+	private final int[] downEnd;
+	private final int[] downNodes;
+	private final double[] downCosts;
+
+	ContractionHierarchy(final RoutingNetwork routingNetwork, final TravelDisutility costFunction) {
+		this(routingNetwork, costFunction::getLinkMinimumTravelDisutility);
+	}
+
+	/**
+	 * @param minimalCosts the minimal travel cost of each link
+	 */
+	ContractionHierarchy(final RoutingNetwork routingNetwork, final ToDoubleFunction<Link> minimalCosts) {
+		long start = System.currentTimeMillis();
+		this.numberOfNodes = routingNetwork.getNodes().size();
+
+		Contractor contractor = new Contractor(this.numberOfNodes);
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			RoutingNetworkLink[] outLinks = node.getOutLinksArray();
+			if (outLinks == null) {
+				continue;
+			}
+			for (RoutingNetworkLink link : outLinks) {
+				int from = getIndex(link.getFromNode());
+				int to = getIndex(link.getToNode());
+				if (from != to) {
+					contractor.addEdge(from, to, minimalCosts.applyAsDouble(link.getLink()));
+				}
+			}
+		}
+		contractor.run();
+
+		this.upBegin = contractor.upBegin;
+		this.upEnd = contractor.upEnd;
+		this.upNodes = Arrays.copyOf(contractor.upNodes, contractor.upSize);
+		this.upCosts = Arrays.copyOf(contractor.upCosts, contractor.upSize);
+		this.downBegin = contractor.downBegin;
+		this.downEnd = contractor.downEnd;
+		this.downNodes = Arrays.copyOf(contractor.downNodes, contractor.downSize);
+		this.downCosts = Arrays.copyOf(contractor.downCosts, contractor.downSize);
+
+		log.info("contracted " + this.numberOfNodes + " nodes in " + (System.currentTimeMillis() - start) + " ms, "
+				+ contractor.shortcuts + " shortcuts added.");
+	}
+
+	static int getIndex(final RoutingNetworkNode node) {
+		return ((HasIndex) node).getArrayIndex();
+	}
+
+	int getNumberOfNodes() {
+		return this.numberOfNodes;
+	}
+
+	/**
+	 * Computes the minimal travel costs from arbitrary nodes to a fixed target node. Setting the target runs a search
+	 * in the hierarchy which touches only the nodes ranked higher than the target. Each distance query then follows
+	 * the upward edges of the node and memorizes the results until the target changes.
+	 */
+	final class TargetDistances {
+
+		private final double[] backwardCosts = new double[numberOfNodes];
+		private final int[] backwardStamps = new int[numberOfNodes];
+		private final double[] distances = new double[numberOfNodes];
+		private final int[] distanceStamps = new int[numberOfNodes];
+		private final IntDoubleHeap heap = new IntDoubleHeap(64);
+		private int[] stack = new int[64];
+		private int stamp = 0;
+		private int target = -1;
+
+		void setTarget(final int target) {
+			if (target == this.target) {
+				return;
+			}
+			this.target = target;
+			this.stamp++;
+			if (this.stamp == Integer.MAX_VALUE) {
+				Arrays.fill(this.backwardStamps, 0);
+				Arrays.fill(this.distanceStamps, 0);
+				this.stamp = 1;
+			}
+
+			this.heap.clear();
+			this.backwardCosts[target] = 0.0;
+			this.backwardStamps[target] = this.stamp;
+			this.heap.add(target, 0.0);
+			while (!this.heap.isEmpty()) {
+				double cost = this.heap.peekKey();
+				int node = this.heap.poll();
+				if (cost > this.backwardCosts[node]) {
+					continue;
+				}
+				for (int i = downBegin[node]; i < downEnd[node]; i++) {
+					int from = downNodes[i];
+					double newCost = cost + downCosts[i];
+					if (this.backwardStamps[from] != this.stamp || newCost < this.backwardCosts[from]) {
+						this.backwardCosts[from] = newCost;
+						this.backwardStamps[from] = this.stamp;
+						this.heap.add(from, newCost);
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return the minimal travel costs from the node to the target, or {@link Double#POSITIVE_INFINITY} if the
+		 * target cannot be reached.
+		 */
+		double getDistance(final int node) {
+			if (this.distanceStamps[node] == this.stamp) {
+				return this.distances[node];
+			}
+			// the upward edges form a DAG, so the distances are computed in post-order without recursion
+			int size = 0;
+			this.stack[size++] = node;
+			while (size > 0) {
+				int current = this.stack[size - 1];
+				if (this.distanceStamps[current] == this.stamp) {
+					size--;
+					continue;
+				}
+				boolean ready = true;
+				for (int i = upBegin[current]; i < upEnd[current]; i++) {
+					int to = upNodes[i];
+					if (this.distanceStamps[to] != this.stamp) {
+						if (size == this.stack.length) {
+							this.stack = Arrays.copyOf(this.stack, 2 * size);
+						}
+						this.stack[size++] = to;
+						ready = false;
+					}
+				}
+				if (ready) {
+					double distance = this.backwardStamps[current] == this.stamp ? this.backwardCosts[current] : Double.POSITIVE_INFINITY;
+					for (int i = upBegin[current]; i < upEnd[current]; i++) {
+						distance = Math.min(distance, upCosts[i] + this.distances[upNodes[i]]);
+					}
+					this.distances[current] = distance;
+					this.distanceStamps[current] = this.stamp;
+					size--;
+				}
+			}
+			return this.distances[node];
+		}
+	}
+
+	/**
+	 * Contracts the nodes of a graph and collects the edges of the hierarchy.
+	 */
+	private static final class Contractor {
+
+		private final int n;
+
+		// the remaining graph, containing only nodes which are not contracted yet
+		private final int[][] outNodes;
+		private final double[][] outCosts;
+		private final int[] outDegree;
+		private final int[][] inNodes;
+		private final double[][] inCosts;
+		private final int[] inDegree;
+
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+
+		// witness search
+		private final double[] witnessCosts;
+		private final int[] witnessStamps;
+		private final IntDoubleHeap witnessHeap = new IntDoubleHeap(64);
+		private int witnessStamp = 0;
+
+		// the hierarchy; the edges of a node are added when it is contracted
+		private final int[] upBegin;
+		private final int[] upEnd;
+		private int[] upNodes = new int[64];
+		private double[] upCosts = new double[64];
+		private int upSize = 0;
+		private final int[] downBegin;
+		private final int[] downEnd;
+		private int[] downNodes = new int[64];
+		private double[] downCosts = new double[64];
+		private int downSize = 0;
+		private int shortcuts = 0;
+
+		Contractor(final int n) {
+			this.n = n;
+			this.outNodes = new int[n][];
+			this.outCosts = new double[n][];
+			this.outDegree = new int[n];
+			this.inNodes = new int[n][];
+			this.inCosts = new double[n][];
+			this.inDegree = new int[n];
+			for (int i = 0; i < n; i++) {
+				this.outNodes[i] = new int[4];
+				this.outCosts[i] = new double[4];
+				this.inNodes[i] = new int[4];
+				this.inCosts[i] = new double[4];
+			}
+			this.contracted = new boolean[n];
+			this.contractedNeighbours = new int[n];
+			this.witnessCosts = new double[n];
+			this.witnessStamps = new int[n];
+			this.upBegin = new int[n];
+			this.upEnd = new int[n];
+			this.downBegin = new int[n];
+			this.downEnd = new int[n];
+		}
+
+		/**
+		 * Adds an edge, or lowers the costs of an existing one.
+		 */
+		void addEdge(final int from, final int to, final double cost) {
+			for (int i = 0; i < this.outDegree[from]; i++) {
+				if (this.outNodes[from][i] == to) {
+					if (cost < this.outCosts[from][i]) {
+						this.outCosts[from][i] = cost;
+						for (int j = 0; j < this.inDegree[to]; j++) {
+							if (this.inNodes[to][j] == from) {
+								this.inCosts[to][j] = cost;
+								break;
+							}
+						}
+					}
+					return;
+				}
+			}
+			if (this.outDegree[from] == this.outNodes[from].length) {
+				this.outNodes[from] = Arrays.copyOf(this.outNodes[from], 2 * this.outDegree[from]);
+				this.outCosts[from] = Arrays.copyOf(this.outCosts[from], 2 * this.outDegree[from]);
+			}
+			this.outNodes[from][this.outDegree[from]] = to;
+			this.outCosts[from][this.outDegree[from]++] = cost;
+			if (this.inDegree[to] == this.inNodes[to].length) {
+				this.inNodes[to] = Arrays.copyOf(this.inNodes[to], 2 * this.inDegree[to]);
+				this.inCosts[to] = Arrays.copyOf(this.inCosts[to], 2 * this.inDegree[to]);
+			}
+			this.inNodes[to][this.inDegree[to]] = from;
+			this.inCosts[to][this.inDegree[to]++] = cost;
+		}
+
+		void run() {
+			IntDoubleHeap queue = new IntDoubleHeap(this.n);
+			for (int node = 0; node < this.n; node++) {
+				queue.add(node, getPriority(node));
+			}
+			int count = 0;
+			while (!queue.isEmpty()) {
+				int node = queue.poll();
+				if (this.contracted[node]) {
+					continue;
+				}
+				// lazy update: the priority may have increased since the node was queued
+				double priority = getPriority(node);
+				if (!queue.isEmpty() && priority > queue.peekKey()) {
+					queue.add(node, priority);
+					continue;
+				}
+				contract(node);
+				count++;
+				if (count % 100000 == 0) {
+					log.info("contracted " + count + " of " + this.n + " nodes.");
+				}
+			}
+		}
+
+		private double getPriority(final int node) {
+			int edgeDifference = processShortcuts(node, false) - this.inDegree[node] - this.outDegree[node];
+			return edgeDifference + this.contractedNeighbours[node];
+		}
+
+		private void contract(final int node) {
+			processShortcuts(node, true);
+
+			// the remaining edges of the node lead to nodes ranked higher
+			this.upBegin[node] = this.upSize;
+			for (int i = 0; i < this.outDegree[node]; i++) {
+				int to = this.outNodes[node][i];
+				addUpEdge(to, this.outCosts[node][i]);
+				removeEdge(this.inNodes, this.inCosts, this.inDegree, to, node);
+				this.contractedNeighbours[to]++;
+			}
+			this.upEnd[node] = this.upSize;
+			this.downBegin[node] = this.downSize;
+			for (int i = 0; i < this.inDegree[node]; i++) {
+				int from = this.inNodes[node][i];
+				addDownEdge(from, this.inCosts[node][i]);
+				removeEdge(this.outNodes, this.outCosts, this.outDegree, from, node);
+				this.contractedNeighbours[from]++;
+			}
+			this.downEnd[node] = this.downSize;
+			this.contracted[node] = true;
+			this.outDegree[node] = 0;
+			this.inDegree[node] = 0;
+			this.outNodes[node] = null;
+			this.outCosts[node] = null;
+			this.inNodes[node] = null;
+			this.inCosts[node] = null;
+		}
+
+		/**
+		 * @return the number of shortcuts needed to contract the node. The shortcuts are only added if requested.
+		 */
+		private int processShortcuts(final int node, final boolean add) {
+			int count = 0;
+			for (int i = 0; i < this.inDegree[node]; i++) {
+				int from = this.inNodes[node][i];
+				double inCost = this.inCosts[node][i];
+				double maxCost = -1.0;
+				for (int j = 0; j < this.outDegree[node]; j++) {
+					if (this.outNodes[node][j] != from) {
+						maxCost = Math.max(maxCost, inCost + this.outCosts[node][j]);
+					}
+				}
+				if (maxCost < 0.0) {
+					// the only way out leads back
+					continue;
+				}
+				witnessSearch(from, node, maxCost);
+				for (int j = 0; j < this.outDegree[node]; j++) {
+					int to = this.outNodes[node][j];
+					if (to == from) {
+						continue;
+					}
+					double viaCost = inCost + this.outCosts[node][j];
+					if (this.witnessStamps[to] != this.witnessStamp || this.witnessCosts[to] > viaCost) {
+						count++;
+						if (add) {
+							addEdge(from, to, viaCost);
+							this.shortcuts++;
+						}
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Runs a bounded Dijkstra search from the source, avoiding the node that is about to be contracted.
+		 */
+		private void witnessSearch(final int source, final int avoid, final double maxCost) {
+			this.witnessStamp++;
+			this.witnessHeap.clear();
+			this.witnessCosts[source] = 0.0;
+			this.witnessStamps[source] = this.witnessStamp;
+			this.witnessHeap.add(source, 0.0);
+			int settled = 0;
+			while (!this.witnessHeap.isEmpty()) {
+				double cost = this.witnessHeap.peekKey();
+				int node = this.witnessHeap.poll();
+				if (cost > this.witnessCosts[node]) {
+					continue;
+				}
+				if (cost > maxCost || ++settled > WITNESS_SEARCH_LIMIT) {
+					return;
+				}
+				for (int i = 0; i < this.outDegree[node]; i++) {
+					int to = this.outNodes[node][i];
+					if (to == avoid) {
+						continue;
+					}
+					double newCost = cost + this.outCosts[node][i];
+					if (this.witnessStamps[to] != this.witnessStamp || newCost < this.witnessCosts[to]) {
+						this.witnessCosts[to] = newCost;
+						this.witnessStamps[to] = this.witnessStamp;
+						this.witnessHeap.add(to, newCost);
+					}
+				}
+			}
+		}
+
+		private static void removeEdge(final int[][] nodes, final double[][] costs, final int[] degree, final int at, final int node) {
+			int[] atNodes = nodes[at];
+			for (int i = 0; i < degree[at]; i++) {
+				if (atNodes[i] == node) {
+					int last = --degree[at];
+					atNodes[i] = atNodes[last];
+					costs[at][i] = costs[at][last];
+					return;
+				}
+			}
+		}
+
+		private void addUpEdge(final int to, final double cost) {
+			if (this.upSize == this.upNodes.length) {
+				this.upNodes = Arrays.copyOf(this.upNodes, 2 * this.upSize);
+				this.upCosts = Arrays.copyOf(this.upCosts, 2 * this.upSize);
+			}
+			this.upNodes[this.upSize] = to;
+			this.upCosts[this.upSize++] = cost;
+		}
+
+		private void addDownEdge(final int from, final double cost) {
+			if (this.downSize == this.downNodes.length) {
+				this.downNodes = Arrays.copyOf(this.downNodes, 2 * this.downSize);
+				this.downCosts = Arrays.copyOf(this.downCosts, 2 * this.downSize);
+			}
+			this.downNodes[this.downSize] = from;
+			this.downCosts[this.downSize++] = cost;
+		}
+	}
+
+	/**
+	 * A binary min heap of int values without decrease-key. Values are added again instead, and the outdated entries
+	 * are skipped by the callers.
+	 */
+	private static final class IntDoubleHeap {
+		private int[] values;
+		private double[] keys;
+		private int size = 0;
+
+		IntDoubleHeap(final int capacity) {
+			this.values = new int[capacity];
+			this.keys = new double[capacity];
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		double peekKey() {
+			return this.keys[0];
+		}
+
+		void add(final int value, final double key) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, 2 * this.size);
+				this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+			}
+			int i = this.size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (this.keys[parent] <= key) {
+					break;
+				}
+				this.values[i] = this.values[parent];
+				this.keys[i] = this.keys[parent];
+				i = parent;
+			}
+			this.values[i] = value;
+			this.keys[i] = key;
+		}
+
+		int poll() {
+			int result = this.values[0];
+			int lastValue = this.values[--this.size];
+			double lastKey = this.keys[this.size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+				if (lastKey <= this.keys[child]) {
+					break;
+				}
+				this.values[i] = this.values[child];
+				this.keys[i] = this.keys[child];
+				i = child;
+			}
+			this.values[i] = lastValue;
+			this.keys[i] = lastKey;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastAStarContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.IdDoubleMap;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessEuclidean;
+import org.matsim.core.router.util.RoutingNetwork;
+import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link FastAStarContractionHierarchies} routers. Like the landmarks in {@link FastAStarLandmarksFactory},
+ * the contraction hierarchy is built once per network and then shared by all routers. It is built from the minimal
+ * travel costs of the {@link TravelDisutility} passed in. If a later {@link TravelDisutility} has a lower minimal cost
+ * on any link, the estimates of the hierarchy could be too high, so it is rebuilt from the lowest minimal cost of each
+ * link seen so far.
+ */
+@Singleton
+public class FastAStarContractionHierarchiesFactory implements LeastCostPathCalculatorFactory {
+
+	private static final class PreProcessedNetwork {
+		private final RoutingNetwork routingNetwork;
+		private final PreProcessEuclidean preProcessEuclidean;
+		private final IdDoubleMap<Link> minimalCosts = new IdDoubleMap<>(Link.class);
+		private ContractionHierarchy hierarchy;
+
+		private PreProcessedNetwork(final RoutingNetwork routingNetwork, final PreProcessEuclidean preProcessEuclidean) {
+			this.routingNetwork = routingNetwork;
+			this.preProcessEuclidean = preProcessEuclidean;
+		}
+	}
+
+	private final ArrayRoutingNetworkFactory routingNetworkFactory = new ArrayRoutingNetworkFactory();
+	private final Map<Network, PreProcessedNetwork> preProcessedNetworks = new HashMap<>();
+
+	@Inject
+	public FastAStarContractionHierarchiesFactory() {
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessedNetwork preProcessed = this.preProcessedNetworks.get(network);
+
+		if (preProcessed == null) {
+			RoutingNetwork routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+
+			// for the dead end pruning
+			PreProcessEuclidean preProcessEuclidean = new PreProcessEuclidean(travelCosts);
+			preProcessEuclidean.run(network);
+
+			for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+				node.setDeadEndData(preProcessEuclidean.getNodeData(node.getNode()));
+			}
+
+			preProcessed = new PreProcessedNetwork(routingNetwork, preProcessEuclidean);
+			this.preProcessedNetworks.put(network, preProcessed);
+		}
+
+		boolean lowerCosts = false;
+		for (Link link : network.getLinks().values()) {
+			double cost = travelCosts.getLinkMinimumTravelDisutility(link);
+			if (!preProcessed.minimalCosts.containsKey(link.getId()) || cost < preProcessed.minimalCosts.get(link.getId())) {
+				preProcessed.minimalCosts.put(link.getId(), cost);
+				lowerCosts = true;
+			}
+		}
+		if (lowerCosts) {
+			IdDoubleMap<Link> minimalCosts = preProcessed.minimalCosts;
+			preProcessed.hierarchy = new ContractionHierarchy(preProcessed.routingNetwork,
+					link -> minimalCosts.get(link.getId()));
+		}
+		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+
+		return new FastAStarContractionHierarchies(preProcessed.routingNetwork, preProcessed.preProcessEuclidean,
+				preProcessed.hierarchy, travelCosts, travelTimes, fastRouterFactory);
+	}
+}
@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
@@ -49,18 +50,31 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
+	private final String cacheDirectory;
 
 	@Inject
+	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads(), controlerConfigGroup.getLandmarksCacheDirectory());
+	}
+
 	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
-		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads());
+		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads(), null);
 	}
 
 	public FastAStarLandmarksFactory(int nThreads) {
-		this(FastRouterType.ARRAY, nThreads);
+		this(FastRouterType.ARRAY, nThreads, null);
+	}
+
+	/**
+	 * @param cacheDirectory where the landmarks are stored for later runs, see
+	 * {@link PreProcessLandmarks#setCacheDirectory(String)}.
+	 */
+	public FastAStarLandmarksFactory(int nThreads, String cacheDirectory) {
+		this(FastRouterType.ARRAY, nThreads, cacheDirectory);
 	}
 
 	// hide this constructor, as only one router type is allowed anyway...
-	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads) {
+	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads, String cacheDirectory) {
 		switch (fastRouterType) {
 			case ARRAY:
 				this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
@@ -73,6 +87,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		}
 
 		this.nThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
 	}
 
 	@Override
@@ -86,6 +101,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 
 			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 			preProcessLandmarks.setNumberOfThreads(nThreads);
+			preProcessLandmarks.setCacheDirectory(cacheDirectory);
 			preProcessLandmarks.run(network);
 			this.preProcessData.put(network, preProcessLandmarks);
 
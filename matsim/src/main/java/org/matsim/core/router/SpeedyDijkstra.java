@@ -0,0 +1,238 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Dijkstra on a shared {@link SpeedyGraph}. The search state consists of a few primitive arrays per router; entries
+ * of previous searches are recognized by an iteration counter, so the arrays never need to be reset. Many routers,
+ * e.g. one per replanning thread, can thus work on one graph without copying the network or creating node data
+ * objects.
+ * <p>
+ * Like {@link MultiNodeDijkstra}, it also accepts {@link ImaginaryNode}s with multiple start or end nodes, and
+ * remembers the least cost path tree of the last search for {@link #constructPath(Node, Node, double)}.
+ * <p>
+ * This class is NOT thread-safe!
+ *
+ * @see SpeedyDijkstraFactory
+ */
+public class SpeedyDijkstra implements MultiNodePathCalculator {
+
+	private final static Logger log = Logger.getLogger(SpeedyDijkstra.class);
+
+	private final SpeedyGraph graph;
+	private final TravelTime timeFunction;
+	private final TravelDisutility costFunction;
+	private final SpeedyGraph.LinkIterator outLinks;
+	private final IntMinHeap pendingNodes;
+
+	private final double[] costs;
+	private final double[] times;
+	private final int[] comingFrom;
+	private final int[] iterationIds;
+	private int iterationId = 0;
+
+	private boolean searchAllEndNodes;
+
+	SpeedyDijkstra(final SpeedyGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction, final boolean searchAllEndNodes) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.searchAllEndNodes = searchAllEndNodes;
+		this.outLinks = graph.getOutLinkIterator();
+		int nodeCount = graph.getNodeCount();
+		this.pendingNodes = new IntMinHeap(nodeCount);
+		this.costs = new double[nodeCount];
+		this.times = new double[nodeCount];
+		this.comingFrom = new int[nodeCount];
+		this.iterationIds = new int[nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		checkNodeBelongsToGraph(fromNode);
+		checkNodeBelongsToGraph(toNode);
+
+		this.iterationId++;
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.iterationIds, 0);
+			this.iterationId = 1;
+		}
+		this.pendingNodes.clear();
+
+		if (fromNode instanceof ImaginaryNode) {
+			for (InitialNode initialNode : ((ImaginaryNode) fromNode).initialNodes) {
+				visit(initialNode.node.getId().index(), initialNode.initialCost, startTime + initialNode.initialTime, -1);
+			}
+		} else {
+			visit(fromNode.getId().index(), 0.0, startTime, -1);
+		}
+
+		int foundToNode;
+		if (toNode instanceof ImaginaryNode) {
+			foundToNode = searchEndNodes((ImaginaryNode) toNode, person, vehicle);
+		} else {
+			foundToNode = search(toNode.getId().index(), person, vehicle);
+			if (foundToNode < 0) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+				log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+				log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			}
+		}
+		return foundToNode < 0 ? null : constructPath(foundToNode);
+	}
+
+	private int search(final int toNode, final Person person, final Vehicle vehicle) {
+		while (!this.pendingNodes.isEmpty()) {
+			int node = this.pendingNodes.poll();
+			if (node == toNode) {
+				return node;
+			}
+			relax(node, person, vehicle);
+		}
+		return -1;
+	}
+
+	/**
+	 * Same logic as in {@link MultiNodeDijkstra}: returns the end node with the least costs, including its initial
+	 * costs.
+	 */
+	private int searchEndNodes(final ImaginaryNode toNode, final Person person, final Vehicle vehicle) {
+		Map<Node, InitialNode> endNodes = new IdentityHashMap<>();
+		for (InitialNode initialNode : toNode.initialNodes) {
+			endNodes.put(initialNode.node, initialNode);
+		}
+		double minCost = Double.POSITIVE_INFINITY;
+		int minCostNode = -1;
+		while (!endNodes.isEmpty() && !this.pendingNodes.isEmpty()) {
+			int node = this.pendingNodes.poll();
+			InitialNode endNode = endNodes.remove(this.graph.getNode(node));
+			if (endNode != null) {
+				double cost = this.costs[node] + endNode.initialCost;
+				if (cost < minCost) {
+					minCost = cost;
+					minCostNode = node;
+				}
+			}
+			if (!this.searchAllEndNodes && this.costs[node] > minCost) {
+				break; // we can't get any better now
+			}
+			relax(node, person, vehicle);
+		}
+		return minCostNode;
+	}
+
+	private void relax(final int node, final Person person, final Vehicle vehicle) {
+		double currTime = this.times[node];
+		double currCost = this.costs[node];
+		this.outLinks.reset(node);
+		while (this.outLinks.next()) {
+			Link link = this.outLinks.getLink();
+			int toNode = this.outLinks.getToNodeIndex();
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+			double totalCost = currCost + this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			if (this.iterationIds[toNode] != this.iterationId) {
+				visit(toNode, totalCost, currTime + travelTime, this.outLinks.getLinkIndex());
+			} else if (totalCost < this.costs[toNode]) {
+				visit(toNode, totalCost, currTime + travelTime, this.outLinks.getLinkIndex());
+			} else if (totalCost == this.costs[toNode] && this.comingFrom[toNode] >= 0
+					&& this.graph.getLink(this.comingFrom[toNode]).getId().compareTo(link.getId()) > 0) {
+				// same tie-breaking as in Dijkstra, to get the same paths
+				visit(toNode, totalCost, currTime + travelTime, this.outLinks.getLinkIndex());
+			}
+		}
+	}
+
+	private void visit(final int node, final double cost, final double time, final int link) {
+		this.costs[node] = cost;
+		this.times[node] = time;
+		this.comingFrom[node] = link;
+		this.iterationIds[node] = this.iterationId;
+		this.pendingNodes.insertOrUpdate(node, cost);
+	}
+
+	@Override
+	public Path constructPath(final Node fromNode, final Node toNode, final double startTime) {
+		if (fromNode == null || toNode == null) {
+			return null;
+		}
+		int to = toNode.getId().index();
+		int from = fromNode.getId().index();
+		if (!this.graph.contains(toNode) || this.iterationIds[to] != this.iterationId
+				|| !this.graph.contains(fromNode) || this.iterationIds[from] != this.iterationId) {
+			return null;
+		}
+		return constructPath(to);
+	}
+
+	/**
+	 * Follows the tree back to the node where the search started. As in {@link MultiNodeDijkstra}, the initial time
+	 * and cost of that node are not part of the path.
+	 */
+	private Path constructPath(final int toNode) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		int node = toNode;
+		nodes.add(this.graph.getNode(node));
+		while (this.comingFrom[node] >= 0) {
+			int link = this.comingFrom[node];
+			links.add(this.graph.getLink(link));
+			node = this.graph.getFromNodeIndex(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.times[toNode] - this.times[node], this.costs[toNode] - this.costs[node]);
+	}
+
+	private void checkNodeBelongsToGraph(final Node node) {
+		if (node instanceof ImaginaryNode) {
+			for (InitialNode initialNode : ((ImaginaryNode) node).initialNodes) {
+				checkNodeBelongsToGraph(initialNode.node);
+			}
+		} else if (!this.graph.contains(node)) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+	}
+
+	@Override
+	public void setSearchAllEndNodes(final boolean searchAllEndNodes) {
+		this.searchAllEndNodes = searchAllEndNodes;
+	}
+}
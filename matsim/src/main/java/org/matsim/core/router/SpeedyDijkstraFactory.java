@@ -0,0 +1,68 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstraFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link SpeedyDijkstra} routers. There is one {@link SpeedyGraph} per network, shared by all routers created
+ * by this factory; each router only adds its own search arrays.
+ */
+@Singleton
+public class SpeedyDijkstraFactory implements LeastCostPathCalculatorFactory {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final boolean searchAllEndNodes;
+
+	@Inject
+	public SpeedyDijkstraFactory() {
+		this(false);
+	}
+
+	/**
+	 * @param searchAllEndNodes see {@link MultiNodePathCalculator#setSearchAllEndNodes(boolean)}
+	 */
+	public SpeedyDijkstraFactory(final boolean searchAllEndNodes) {
+		this.searchAllEndNodes = searchAllEndNodes;
+	}
+
+	@Override
+	public SpeedyDijkstra createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return new SpeedyDijkstra(getGraph(network), travelCosts, travelTimes, this.searchAllEndNodes);
+	}
+
+	/**
+	 * @return the graph shared by all routers for this network.
+	 */
+	public SpeedyGraph getGraph(final Network network) {
+		return this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+	}
+}
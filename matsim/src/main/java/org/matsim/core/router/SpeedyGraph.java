@@ -0,0 +1,206 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * A read-only representation of a {@link Network} for routing. The out- and in-links of all nodes are stored in
+ * compressed sparse row format, i.e. in a few int arrays. Nodes and links are addressed by the {@link Id#index()} of
+ * their ids, so algorithms can keep their search state in primitive arrays of size {@link #getNodeCount()} instead
+ * of objects per node.
+ * <p>
+ * The graph does not contain any search state and can therefore be shared by all threads; only the
+ * {@link LinkIterator}s must not be shared. It can be built from any network, including e.g. the
+ * {@link org.matsim.pt.router.TransitRouterNetwork}. Changes to the network after the graph was built are not
+ * reflected.
+ *
+ * @see SpeedyDijkstra
+ */
+public final class SpeedyGraph {
+
+	private final Network network;
+	private final int nodeCount;
+	private final int linkCount;
+	private final Node[] nodes;
+	private final Link[] links;
+	private final int[] linkFromNodes;
+	private final int[] linkToNodes;
+
+	// the links of node n are at [offsets[n], offsets[n + 1])
+	private final int[] outOffsets;
+	private final int[] outLinks;
+	private final int[] inOffsets;
+	private final int[] inLinks;
+
+	public SpeedyGraph(final Network network) {
+		this.network = network;
+		this.nodeCount = Id.getNumberOfIds(Node.class);
+		this.linkCount = Id.getNumberOfIds(Link.class);
+		this.nodes = new Node[this.nodeCount];
+		this.links = new Link[this.linkCount];
+		this.linkFromNodes = new int[this.linkCount];
+		this.linkToNodes = new int[this.linkCount];
+		this.outOffsets = new int[this.nodeCount + 1];
+		this.inOffsets = new int[this.nodeCount + 1];
+
+		for (Node node : network.getNodes().values()) {
+			this.nodes[node.getId().index()] = node;
+		}
+		int networkLinkCount = network.getLinks().size();
+		for (Link link : network.getLinks().values()) {
+			int index = link.getId().index();
+			this.links[index] = link;
+			this.linkFromNodes[index] = link.getFromNode().getId().index();
+			this.linkToNodes[index] = link.getToNode().getId().index();
+			this.outOffsets[this.linkFromNodes[index] + 1]++;
+			this.inOffsets[this.linkToNodes[index] + 1]++;
+		}
+		for (int i = 0; i < this.nodeCount; i++) {
+			this.outOffsets[i + 1] += this.outOffsets[i];
+			this.inOffsets[i + 1] += this.inOffsets[i];
+		}
+
+		this.outLinks = new int[networkLinkCount];
+		this.inLinks = new int[networkLinkCount];
+		int[] outPositions = new int[this.nodeCount];
+		int[] inPositions = new int[this.nodeCount];
+		// in the order of the network, so that the routers see the links in the same order as on the network
+		for (Link link : network.getLinks().values()) {
+			int index = link.getId().index();
+			int from = this.linkFromNodes[index];
+			int to = this.linkToNodes[index];
+			this.outLinks[this.outOffsets[from] + outPositions[from]++] = index;
+			this.inLinks[this.inOffsets[to] + inPositions[to]++] = index;
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	/**
+	 * @return the size of arrays indexed by node, i.e. larger than any node index in the graph.
+	 */
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @return the size of arrays indexed by link, i.e. larger than any link index in the graph.
+	 */
+	public int getLinkCount() {
+		return this.linkCount;
+	}
+
+	/**
+	 * @return the node with the given index, or <code>null</code> if it is not part of the graph.
+	 */
+	public Node getNode(final int nodeIndex) {
+		return nodeIndex < this.nodeCount ? this.nodes[nodeIndex] : null;
+	}
+
+	/**
+	 * @return the link with the given index, or <code>null</code> if it is not part of the graph.
+	 */
+	public Link getLink(final int linkIndex) {
+		return linkIndex < this.linkCount ? this.links[linkIndex] : null;
+	}
+
+	public int getFromNodeIndex(final int linkIndex) {
+		return this.linkFromNodes[linkIndex];
+	}
+
+	public int getToNodeIndex(final int linkIndex) {
+		return this.linkToNodes[linkIndex];
+	}
+
+	/**
+	 * @return <code>true</code> if the node is the one of the network this graph was built from.
+	 */
+	public boolean contains(final Node node) {
+		return getNode(node.getId().index()) == node;
+	}
+
+	public LinkIterator getOutLinkIterator() {
+		return new LinkIterator(this.outOffsets, this.outLinks);
+	}
+
+	public LinkIterator getInLinkIterator() {
+		return new LinkIterator(this.inOffsets, this.inLinks);
+	}
+
+	/**
+	 * Iterates over the out- or in-links of a node. Create one per thread and reuse it:
+	 * <pre>
+	 * iterator.reset(nodeIndex);
+	 * while (iterator.next()) {
+	 *     int linkIndex = iterator.getLinkIndex();
+	 *     ...
+	 * }
+	 * </pre>
+	 */
+	public final class LinkIterator {
+
+		private final int[] offsets;
+		private final int[] linkIndices;
+		private int position;
+		private int end;
+		private int linkIndex;
+
+		private LinkIterator(final int[] offsets, final int[] linkIndices) {
+			this.offsets = offsets;
+			this.linkIndices = linkIndices;
+		}
+
+		public void reset(final int nodeIndex) {
+			this.position = this.offsets[nodeIndex];
+			this.end = this.offsets[nodeIndex + 1];
+		}
+
+		public boolean next() {
+			if (this.position == this.end) {
+				return false;
+			}
+			this.linkIndex = this.linkIndices[this.position++];
+			return true;
+		}
+
+		public int getLinkIndex() {
+			return this.linkIndex;
+		}
+
+		public int getFromNodeIndex() {
+			return linkFromNodes[this.linkIndex];
+		}
+
+		public int getToNodeIndex() {
+			return linkToNodes[this.linkIndex];
+		}
+
+		public Link getLink() {
+			return links[this.linkIndex];
+		}
+	}
+}
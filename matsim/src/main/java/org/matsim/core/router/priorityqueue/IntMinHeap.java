@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of int values in [0, capacity), e.g. node indices, with a decreaseKey operation. Unlike
+ * {@link BinaryMinHeap}, it needs no objects at all: the values and their keys are stored in primitive arrays.
+ * Clearing the heap only touches the entries still contained.
+ */
+public final class IntMinHeap {
+
+	private final int[] values;
+	private final double[] keys;
+	// position of each value in the heap, or -1
+	private final int[] positions;
+	private int size = 0;
+
+	public IntMinHeap(final int capacity) {
+		this.values = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(final int value) {
+		return this.positions[value] >= 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.values[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Adds the value, or changes its key if it is already contained.
+	 */
+	public void insertOrUpdate(final int value, final double key) {
+		int position = this.positions[value];
+		if (position < 0) {
+			position = this.size++;
+		} else if (key > this.keys[position]) {
+			siftDown(position, value, key);
+			return;
+		}
+		siftUp(position, value, key);
+	}
+
+	/**
+	 * @return the key of the head of the heap, the heap must not be empty.
+	 */
+	public double peekKey() {
+		return this.keys[0];
+	}
+
+	/**
+	 * Removes and returns the value with the smallest key, the heap must not be empty.
+	 */
+	public int poll() {
+		int result = this.values[0];
+		this.positions[result] = -1;
+		this.size--;
+		if (this.size > 0) {
+			siftDown(0, this.values[this.size], this.keys[this.size]);
+		}
+		return result;
+	}
+
+	private void siftUp(int position, final int value, final double key) {
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (this.keys[parent] <= key) {
+				break;
+			}
+			move(parent, position);
+			position = parent;
+		}
+		set(position, value, key);
+	}
+
+	private void siftDown(int position, final int value, final double key) {
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+				child++;
+			}
+			if (key <= this.keys[child]) {
+				break;
+			}
+			move(child, position);
+			position = child;
+		}
+		set(position, value, key);
+	}
+
+	private void move(final int from, final int to) {
+		this.values[to] = this.values[from];
+		this.keys[to] = this.keys[from];
+		this.positions[this.values[to]] = to;
+	}
+
+	private void set(final int position, final int value, final double key) {
+		this.values[position] = value;
+		this.keys[position] = key;
+		this.positions[value] = position;
+	}
+}
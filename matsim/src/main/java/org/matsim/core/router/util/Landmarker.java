@@ -26,4 +26,12 @@ import org.matsim.api.core.v01.network.Node;
  */
 public interface Landmarker {
 	Node[] identifyLandmarks( int nLandmarks, Network network );
+
+	/**
+	 * @return a string identifying the landmarker and all its parameters that influence the chosen landmarks. Used to
+	 * tell apart the landmarks cached by {@link PreProcessLandmarks}.
+	 */
+	default String getChecksumInput() {
+		return getClass().getName();
+	}
 }
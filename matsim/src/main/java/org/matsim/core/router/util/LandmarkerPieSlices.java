@@ -23,6 +23,7 @@ package org.matsim.core.router.util;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeMap;
@@ -73,7 +74,8 @@ import org.matsim.core.utils.geometry.CoordUtils;
 		minX -= (maxX - minX) * ZONE_EXPANSION;
 		maxY += (maxY - minY) * ZONE_EXPANSION;
 		minY -= (maxY - minY) * ZONE_EXPANSION;
-		Set<Node> resultNodes = new TreeSet<Node>();
+		// nodes are not comparable themselves
+		Set<Node> resultNodes = new TreeSet<Node>(Comparator.comparing(Node::getId));
 		for (Node n : network.getNodes().values()) {
 			if (n.getCoord().getX() <= maxX && n.getCoord().getX() >= minX
 					&& n.getCoord().getY() <= maxY && n.getCoord().getY() >= minY) {
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.SpeedyGraph;
+
+/**
+ * Calculates the travel times, costs and distances between all pairs of origin and destination nodes. Every origin
+ * is one search of a {@link OneToManyPathCalculator}; the origins are distributed dynamically over the given number
+ * of threads, each with its own search arrays on the shared {@link SpeedyGraph}.
+ * <p>
+ * The travel time and disutility objects are used by all threads concurrently, so they must be thread-safe for
+ * reading. Paths are not kept; use a {@link OneToManyPathCalculator} directly if they are needed.
+ */
+public final class ManyToManyPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ManyToManyPathCalculator.class);
+
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final int numberOfThreads;
+
+	public ManyToManyPathCalculator(final SpeedyGraph graph, final TravelTime travelTime, final TravelDisutility travelDisutility, final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.graph = graph;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @param time the departure time at the origins
+	 */
+	public Matrix calcMatrix(final Node[] fromNodes, final Node[] toNodes, final double time) {
+		Matrix matrix = new Matrix(fromNodes.length, toNodes.length);
+		AtomicInteger nextRow = new AtomicInteger(0);
+		int nOfThreads = Math.min(this.numberOfThreads, Math.max(1, fromNodes.length));
+		log.info("Calculating " + fromNodes.length + " x " + toNodes.length + " matrix using " + nOfThreads + " threads...");
+		long now = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < nOfThreads; t++) {
+				futures.add(executor.submit(() -> {
+					OneToManyPathCalculator calculator = new OneToManyPathCalculator(this.graph, this.travelTime, this.travelDisutility, true);
+					double[] times = new double[toNodes.length];
+					double[] costs = new double[toNodes.length];
+					double[] distances = new double[toNodes.length];
+					int row;
+					while ((row = nextRow.getAndIncrement()) < fromNodes.length) {
+						calculator.calcLeastCostPaths(fromNodes[row], toNodes, time, null, null, times, costs, distances);
+						matrix.setRow(row, times, costs, distances);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		return matrix;
+	}
+
+	/**
+	 * The results of {@link ManyToManyPathCalculator#calcMatrix(Node[], Node[], double)}, stored row-wise in flat
+	 * arrays. Entries of unreachable destinations are {@link Double#POSITIVE_INFINITY}.
+	 */
+	public static final class Matrix {
+
+		private final int fromCount;
+		private final int toCount;
+		private final double[] travelTimes;
+		private final double[] travelCosts;
+		private final double[] travelDistances;
+
+		Matrix(final int fromCount, final int toCount) {
+			this.fromCount = fromCount;
+			this.toCount = toCount;
+			this.travelTimes = new double[fromCount * toCount];
+			this.travelCosts = new double[fromCount * toCount];
+			this.travelDistances = new double[fromCount * toCount];
+		}
+
+		void setRow(final int from, final double[] times, final double[] costs, final double[] distances) {
+			int offset = from * this.toCount;
+			System.arraycopy(times, 0, this.travelTimes, offset, this.toCount);
+			System.arraycopy(costs, 0, this.travelCosts, offset, this.toCount);
+			System.arraycopy(distances, 0, this.travelDistances, offset, this.toCount);
+		}
+
+		public int getFromCount() {
+			return this.fromCount;
+		}
+
+		public int getToCount() {
+			return this.toCount;
+		}
+
+		/**
+		 * @param from the index of the origin in the array of origins
+		 * @param to the index of the destination in the array of destinations
+		 */
+		public double getTravelTime(final int from, final int to) {
+			return this.travelTimes[from * this.toCount + to];
+		}
+
+		public double getTravelCost(final int from, final int to) {
+			return this.travelCosts[from * this.toCount + to];
+		}
+
+		public double getTravelDistance(final int from, final int to) {
+			return this.travelDistances[from * this.toCount + to];
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OneToManyPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.SpeedyGraph;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates the least cost paths from one node to many nodes with a single Dijkstra search, which stops as soon as
+ * all target nodes are settled. The travel times, costs and distances to the targets are written into primitive
+ * arrays; the paths themselves are only built on request with {@link #constructPath(Node)}.
+ * <p>
+ * In a backward search, the paths lead from the target nodes to the start node, and the given time is the arrival
+ * time at the start node. As in the other backward routers, the travel time of a link is then evaluated at the time
+ * the link is left.
+ * <p>
+ * The search state consists of a few arrays per calculator on a shared {@link SpeedyGraph}. This class is NOT
+ * thread-safe; use one instance per thread, or {@link ManyToManyPathCalculator} for complete matrices.
+ */
+public final class OneToManyPathCalculator {
+
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final boolean forward;
+	private final SpeedyGraph.LinkIterator links;
+	private final IntMinHeap pendingNodes;
+
+	private final double[] times;
+	private final double[] costs;
+	private final double[] distances;
+	private final int[] comingFrom;
+	private final int[] iterationIds;
+	private final int[] targetIterationIds;
+	private int iterationId = 0;
+	private int startNode = -1;
+	private double startTime;
+
+	public OneToManyPathCalculator(final SpeedyGraph graph, final TravelTime travelTime, final TravelDisutility travelDisutility, final boolean forward) {
+		this.graph = graph;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.forward = forward;
+		this.links = forward ? graph.getOutLinkIterator() : graph.getInLinkIterator();
+		int nodeCount = graph.getNodeCount();
+		this.pendingNodes = new IntMinHeap(nodeCount);
+		this.times = new double[nodeCount];
+		this.costs = new double[nodeCount];
+		this.distances = new double[nodeCount];
+		this.comingFrom = new int[nodeCount];
+		this.iterationIds = new int[nodeCount];
+		this.targetIterationIds = new int[nodeCount];
+	}
+
+	public boolean isForward() {
+		return this.forward;
+	}
+
+	/**
+	 * Searches the least cost paths from <code>fromNode</code> to all <code>toNodes</code>, or from all
+	 * <code>toNodes</code> to <code>fromNode</code> in a backward search. The result arrays must be at least as long
+	 * as <code>toNodes</code>; entry i is set for <code>toNodes[i]</code>, or to {@link Double#POSITIVE_INFINITY} if
+	 * it cannot be reached. Any of the result arrays may be <code>null</code>.
+	 *
+	 * @param time the departure time at <code>fromNode</code>, or the arrival time in a backward search
+	 */
+	public void calcLeastCostPaths(final Node fromNode, final Node[] toNodes, final double time, final Person person, final Vehicle vehicle,
+			final double[] travelTimes, final double[] travelCosts, final double[] travelDistances) {
+		checkNodeBelongsToGraph(fromNode);
+		for (Node toNode : toNodes) {
+			checkNodeBelongsToGraph(toNode);
+		}
+
+		this.iterationId++;
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.iterationIds, 0);
+			Arrays.fill(this.targetIterationIds, 0);
+			this.iterationId = 1;
+		}
+		this.pendingNodes.clear();
+		this.startNode = fromNode.getId().index();
+		this.startTime = time;
+
+		int openTargets = 0;
+		for (Node toNode : toNodes) {
+			int node = toNode.getId().index();
+			if (this.targetIterationIds[node] != this.iterationId) {
+				this.targetIterationIds[node] = this.iterationId;
+				openTargets++;
+			}
+		}
+
+		visit(this.startNode, 0.0, time, 0.0, -1);
+		while (openTargets > 0 && !this.pendingNodes.isEmpty()) {
+			int node = this.pendingNodes.poll();
+			if (this.targetIterationIds[node] == this.iterationId) {
+				this.targetIterationIds[node] = -1; // settled, even if it should be polled again after a tie
+				if (--openTargets == 0) {
+					break;
+				}
+			}
+			relax(node, person, vehicle);
+		}
+
+		for (int i = 0; i < toNodes.length; i++) {
+			int node = toNodes[i].getId().index();
+			boolean reached = this.iterationIds[node] == this.iterationId;
+			if (travelTimes != null) {
+				travelTimes[i] = reached ? Math.abs(this.times[node] - time) : Double.POSITIVE_INFINITY;
+			}
+			if (travelCosts != null) {
+				travelCosts[i] = reached ? this.costs[node] : Double.POSITIVE_INFINITY;
+			}
+			if (travelDistances != null) {
+				travelDistances[i] = reached ? this.distances[node] : Double.POSITIVE_INFINITY;
+			}
+		}
+	}
+
+	private void relax(final int node, final Person person, final Vehicle vehicle) {
+		double currTime = this.times[node];
+		double currCost = this.costs[node];
+		double currDistance = this.distances[node];
+		this.links.reset(node);
+		while (this.links.next()) {
+			Link link = this.links.getLink();
+			int nextNode = this.forward ? this.links.getToNodeIndex() : this.links.getFromNodeIndex();
+			double linkTime = this.travelTime.getLinkTravelTime(link, currTime, person, vehicle);
+			double cost = currCost + this.travelDisutility.getLinkTravelDisutility(link, currTime, person, vehicle);
+			if (this.iterationIds[nextNode] != this.iterationId || cost < this.costs[nextNode]
+					|| (cost == this.costs[nextNode] && this.comingFrom[nextNode] >= 0
+							&& this.graph.getLink(this.comingFrom[nextNode]).getId().compareTo(link.getId()) > 0)) {
+				// same tie-breaking as in Dijkstra
+				double nextTime = this.forward ? currTime + linkTime : currTime - linkTime;
+				visit(nextNode, cost, nextTime, currDistance + link.getLength(), this.links.getLinkIndex());
+			}
+		}
+	}
+
+	private void visit(final int node, final double cost, final double time, final double distance, final int link) {
+		this.costs[node] = cost;
+		this.times[node] = time;
+		this.distances[node] = distance;
+		this.comingFrom[node] = link;
+		this.iterationIds[node] = this.iterationId;
+		this.pendingNodes.insertOrUpdate(node, cost);
+	}
+
+	/**
+	 * @return the least cost path between the start node and <code>toNode</code> found by the last search, or
+	 * <code>null</code> if it was not reached. In a backward search, the path starts at <code>toNode</code>.
+	 */
+	public Path constructPath(final Node toNode) {
+		int node = toNode.getId().index();
+		if (this.startNode < 0 || !this.graph.contains(toNode) || this.iterationIds[node] != this.iterationId) {
+			return null;
+		}
+		double travelTime = Math.abs(this.times[node] - this.startTime);
+		double travelCost = this.costs[node];
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(toNode);
+		while (this.comingFrom[node] >= 0) {
+			int link = this.comingFrom[node];
+			links.add(this.graph.getLink(link));
+			node = this.forward ? this.graph.getFromNodeIndex(link) : this.graph.getToNodeIndex(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		if (this.forward) {
+			Collections.reverse(nodes);
+			Collections.reverse(links);
+		}
+		return new Path(nodes, links, travelTime, travelCost);
+	}
+
+	private void checkNodeBelongsToGraph(final Node node) {
+		if (!this.graph.contains(node)) {
+			throw new IllegalArgumentException("The node " + node.getId() + " is not part of the network stored by "
+					+ getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+	}
+}
@@ -21,18 +21,28 @@
 package org.matsim.core.router.util;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
+import org.matsim.core.utils.io.IOUtils;
 
 /**
  * Pre-processes a given network, gathering information which can be used by
@@ -53,8 +63,12 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
+	private static final int CACHE_VERSION = 1;
+
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
 		this(costFunction, new Rectangle2D.Double());
 	}
@@ -105,18 +119,44 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.landmarker = landmarker;
 	}
 
+	/**
+	 * Sets a directory in which the landmarks and the travel times to and from them are stored. When the same network
+	 * is pre-processed again with the same minimal link costs and landmark settings, e.g. in another run, the data is
+	 * read from there instead of being computed again. The files are named after a checksum of the network.
+	 *
+	 * @param cacheDirectory the directory, or <code>null</code> to disable the cache (default).
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
-		log.info("Putting landmarks on network...");
+
 		long now = System.currentTimeMillis();
+		Graph graph = new Graph(network, this.costFunction);
+		log.info("Graph for landmarks built in " + (System.currentTimeMillis() - now) + " ms");
+
+		String cacheFile = null;
+		if (this.cacheDirectory != null) {
+			cacheFile = this.cacheDirectory + "/landmarks_" + graph.getChecksum(this.landmarkCount, this.landmarker) + ".bin.gz";
+			if (new File(cacheFile).exists() && readCache(cacheFile, graph)) {
+				log.info("Landmarks read from " + cacheFile);
+				return;
+			}
+		}
+
+		log.info("Putting landmarks on network...");
+		now = System.currentTimeMillis();
 		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		LandmarksData[] data = new LandmarksData[graph.nodes.length];
+		for (int i = 0; i < graph.nodes.length; i++) {
+			data[i] = new LandmarksData(this.landmarkCount);
+			this.nodeData.put(graph.nodes[i], data[i]);
 		}
 		
 		int nOfThreads = this.numberOfThreads;
@@ -132,7 +172,7 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			executor.execute(new Calculator(i, graph.getIndex(this.landmarks[i]), graph, data));
 		}
 		executor.shutdown();
 		while (!executor.isTerminated()) {
@@ -161,77 +201,243 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		if (cacheFile != null) {
+			writeCache(cacheFile, graph);
+		}
+	}
+
+	private void writeCache(final String filename, final Graph graph) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)))) {
+			out.writeInt(CACHE_VERSION);
+			out.writeInt(graph.nodes.length);
+			out.writeInt(this.landmarks.length);
+			for (Node landmark : this.landmarks) {
+				out.writeInt(graph.getIndex(landmark));
+			}
+			for (Node node : graph.nodes) {
+				LandmarksData r = getNodeData(node);
+				for (int i = 0; i < this.landmarks.length; i++) {
+					out.writeDouble(r.getMinLandmarkTravelTime(i));
+					out.writeDouble(r.getMaxLandmarkTravelTime(i));
+				}
+			}
+			log.info("Landmarks written to " + filename);
+		} catch (IOException | UncheckedIOException e) {
+			// the cache is optional, so there is no need to abort
+			log.warn("Could not write landmarks to " + filename, e);
+		}
+	}
+
+	private boolean readCache(final String filename, final Graph graph) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename))))) {
+			if (in.readInt() != CACHE_VERSION || in.readInt() != graph.nodes.length) {
+				log.warn("Landmarks in " + filename + " do not match the network, they are computed again.");
+				return false;
+			}
+			Node[] cachedLandmarks = new Node[in.readInt()];
+			for (int i = 0; i < cachedLandmarks.length; i++) {
+				cachedLandmarks[i] = graph.nodes[in.readInt()];
+			}
+			LandmarksData[] data = new LandmarksData[graph.nodes.length];
+			for (int n = 0; n < graph.nodes.length; n++) {
+				data[n] = new LandmarksData(this.landmarkCount);
+				for (int i = 0; i < cachedLandmarks.length; i++) {
+					data[n].setFromLandmarkTravelTime(i, in.readDouble());
+					data[n].setToLandmarkTravelTime(i, in.readDouble());
+				}
+			}
+			this.landmarks = cachedLandmarks;
+			for (int n = 0; n < graph.nodes.length; n++) {
+				this.nodeData.put(graph.nodes[n], data[n]);
+			}
+			return true;
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not read landmarks from " + filename + ", they are computed again.", e);
+			return false;
+		}
+	}
+
+	/**
+	 * The network with the minimal link costs in arrays, so that the landmark searches neither need map lookups nor call
+	 * the cost function again.
+	 */
+	private static class Graph {
+
+		private final Node[] nodes;
+		private final int[] indices;
+		private final int[] outBegin;
+		private final int[] outNodes;
+		private final double[] outCosts;
+		private final int[] inBegin;
+		private final int[] inNodes;
+		private final double[] inCosts;
+
+		Graph(final Network network, final TravelDisutility costFunction) {
+			this.nodes = network.getNodes().values().toArray(new Node[0]);
+			this.indices = new int[Id.getNumberOfIds(Node.class)];
+			for (int i = 0; i < this.nodes.length; i++) {
+				this.indices[this.nodes[i].getId().index()] = i;
+			}
+
+			Link[] links = network.getLinks().values().toArray(new Link[0]);
+			double[] costs = new double[links.length];
+			this.outBegin = new int[this.nodes.length + 1];
+			this.inBegin = new int[this.nodes.length + 1];
+			for (int l = 0; l < links.length; l++) {
+				costs[l] = costFunction.getLinkMinimumTravelDisutility(links[l]);
+				this.outBegin[getIndex(links[l].getFromNode()) + 1]++;
+				this.inBegin[getIndex(links[l].getToNode()) + 1]++;
+			}
+			for (int i = 0; i < this.nodes.length; i++) {
+				this.outBegin[i + 1] += this.outBegin[i];
+				this.inBegin[i + 1] += this.inBegin[i];
+			}
+			this.outNodes = new int[links.length];
+			this.outCosts = new double[links.length];
+			this.inNodes = new int[links.length];
+			this.inCosts = new double[links.length];
+			int[] outPosition = Arrays.copyOf(this.outBegin, this.nodes.length);
+			int[] inPosition = Arrays.copyOf(this.inBegin, this.nodes.length);
+			for (int l = 0; l < links.length; l++) {
+				int from = getIndex(links[l].getFromNode());
+				int to = getIndex(links[l].getToNode());
+				this.outNodes[outPosition[from]] = to;
+				this.outCosts[outPosition[from]++] = costs[l];
+				this.inNodes[inPosition[to]] = from;
+				this.inCosts[inPosition[to]++] = costs[l];
+			}
+		}
+
+		int getIndex(final Node node) {
+			return this.indices[node.getId().index()];
+		}
+
+		/**
+		 * @return a checksum over everything the landmarks data depends on.
+		 */
+		String getChecksum(final int landmarkCount, final Landmarker landmarker) {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				ByteBuffer buffer = ByteBuffer.allocate(24);
+				buffer.putInt(landmarkCount).putInt(this.nodes.length).putInt(this.outNodes.length);
+				digest.update(buffer.array(), 0, buffer.position());
+				digest.update(landmarker.getChecksumInput().getBytes(StandardCharsets.UTF_8));
+				for (Node node : this.nodes) {
+					digest.update(node.getId().toString().getBytes(StandardCharsets.UTF_8));
+					if (node.getCoord() != null) {
+						buffer.clear();
+						buffer.putDouble(node.getCoord().getX()).putDouble(node.getCoord().getY());
+						digest.update(buffer.array(), 0, buffer.position());
+					}
+				}
+				for (int i = 0; i < this.outNodes.length; i++) {
+					buffer.clear();
+					buffer.putInt(this.outNodes[i]).putDouble(this.outCosts[i]);
+					digest.update(buffer.array(), 0, buffer.position());
+				}
+				for (int i = 0; i <= this.nodes.length; i++) {
+					buffer.clear();
+					buffer.putInt(this.outBegin[i]);
+					digest.update(buffer.array(), 0, buffer.position());
+				}
+				StringBuilder checksum = new StringBuilder();
+				for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+					checksum.append(String.format("%02x", b));
+				}
+				return checksum.toString();
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 
 	private static class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmark;
+		private final Graph graph;
+		private final LandmarksData[] data;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmark, final Graph graph, final LandmarksData[] data) {
 			this.landmarkIdx = landmarkIdx;
 			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.graph = graph;
+			this.data = data;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+			double[] fromTravelTimes = expand(this.graph.outBegin, this.graph.outNodes, this.graph.outCosts);
+			double[] toTravelTimes = expand(this.graph.inBegin, this.graph.inNodes, this.graph.inCosts);
+			for (int i = 0; i < this.data.length; i++) {
+				this.data[i].setFromLandmarkTravelTime(this.landmarkIdx, fromTravelTimes[i]);
+				this.data[i].setToLandmarkTravelTime(this.landmarkIdx, toTravelTimes[i]);
+			}
 		}
 	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+		/**
+		 * Dijkstra from the landmark along the given edges (out-links for the travel times from the landmark, in-links
+		 * for the travel times to it). The heap contains outdated entries instead of supporting decrease-key.
+		 */
+		private double[] expand(final int[] begin, final int[] nodes, final double[] costs) {
+			double[] travelTimes = new double[this.data.length];
+			Arrays.fill(travelTimes, Double.POSITIVE_INFINITY);
+			travelTimes[this.landmark] = 0.0;
+
+			int[] heapNodes = new int[64];
+			double[] heapCosts = new double[64];
+			int size = 0;
+			heapNodes[size] = this.landmark;
+			heapCosts[size++] = 0.0;
+			while (size > 0) {
+				int node = heapNodes[0];
+				double travelTime = heapCosts[0];
+				// remove the head
+				size--;
+				int lastNode = heapNodes[size];
+				double lastCost = heapCosts[size];
+				int i = 0;
+				for (int child = 1; child < size; child = 2 * i + 1) {
+					if (child + 1 < size && heapCosts[child + 1] < heapCosts[child]) {
+						child++;
+					}
+					if (lastCost <= heapCosts[child]) {
+						break;
 					}
+					heapNodes[i] = heapNodes[child];
+					heapCosts[i] = heapCosts[child];
+					i = child;
 				}
-			}
-		}
+				heapNodes[i] = lastNode;
+				heapCosts[i] = lastCost;
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+				if (travelTime > travelTimes[node]) {
+					continue;
+				}
+				for (int e = begin[node]; e < begin[node + 1]; e++) {
+					int next = nodes[e];
+					double totalTravelTime = travelTime + costs[e];
+					if (totalTravelTime < travelTimes[next]) {
+						travelTimes[next] = totalTravelTime;
+						// add
+						if (size == heapNodes.length) {
+							heapNodes = Arrays.copyOf(heapNodes, 2 * size);
+							heapCosts = Arrays.copyOf(heapCosts, 2 * size);
+						}
+						int j = size++;
+						while (j > 0 && heapCosts[(j - 1) >>> 1] > totalTravelTime) {
+							heapNodes[j] = heapNodes[(j - 1) >>> 1];
+							heapCosts[j] = heapCosts[(j - 1) >>> 1];
+							j = (j - 1) >>> 1;
+						}
+						heapNodes[j] = next;
+						heapCosts[j] = totalTravelTime;
 					}
 				}
 			}
+			return travelTimes;
 		}
-	
 	}
 
 	public Node[] getLandmarks() {
@@ -309,66 +515,4 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
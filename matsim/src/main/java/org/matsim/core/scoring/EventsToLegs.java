@@ -22,6 +22,8 @@ package org.matsim.core.scoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdDoubleMap;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
@@ -46,7 +48,6 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -137,17 +138,17 @@ public final class EventsToLegs
 		this.transitSchedule = transitSchedule;
 	}
 
-	private Map<Id<Person>, Leg> legs = new HashMap<>();
-	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
+	private Map<Id<Person>, Leg> legs = new IdMap<>(Person.class);
+	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new IdMap<>(Person.class);
+	private IdDoubleMap<Person> relPosOnDepartureLinkPerPerson = new IdDoubleMap<>(Person.class);
+	private IdDoubleMap<Person> relPosOnArrivalLinkPerPerson = new IdDoubleMap<>(Person.class);
 
-	private Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new HashMap<>();
-	private Map<Id<Person>, PendingTransitTravel> transitTravels = new HashMap<>();
-	private Map<Id<Person>, PendingVehicleTravel> vehicleTravels = new HashMap<>();
+	private Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new IdMap<>(Person.class);
+	private Map<Id<Person>, PendingTransitTravel> transitTravels = new IdMap<>(Person.class);
+	private Map<Id<Person>, PendingVehicleTravel> vehicleTravels = new IdMap<>(Person.class);
 
-	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new HashMap<>();
-	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
+	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new IdMap<>(Vehicle.class);
+	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new IdMap<>(Vehicle.class);
 
 	private List<LegHandler> legHandlers = new ArrayList<>();
 
@@ -163,6 +164,16 @@ public final class EventsToLegs
 		this.network = network;
 	}
 
+	/**
+	 * Creates a new instance using the same network and transit schedule as this one, but without any state or leg
+	 * handlers. Used to process the events of a subset of the persons independently of the other persons.
+	 */
+	EventsToLegs createEmptyCopy() {
+		EventsToLegs copy = new EventsToLegs(this.network);
+		copy.transitSchedule = this.transitSchedule;
+		return copy;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
@@ -276,9 +287,10 @@ public final class EventsToLegs
 			 * to calculate the correct route distance including the first/last link.
 			 * (see MATSIM-227) tt feb'16
 			 */
+			Gbl.assertIf(relPosOnDepartureLinkPerPerson.containsKey(event.getPersonId()));
+			Gbl.assertIf(relPosOnArrivalLinkPerPerson.containsKey(event.getPersonId()));
 			double relPosOnDepartureLink = relPosOnDepartureLinkPerPerson.get(event.getPersonId());
-			Double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
-			Gbl.assertNotNull(relPosOnArrivalLink);
+			double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
 			networkRoute.setDistance(
 					RouteUtils.calcDistance(networkRoute, relPosOnDepartureLink, relPosOnArrivalLink, network));
 
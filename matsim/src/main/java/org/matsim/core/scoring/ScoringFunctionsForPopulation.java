@@ -27,10 +27,16 @@ import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.population.Activity;
@@ -39,9 +45,14 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
@@ -53,9 +64,14 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
 
@@ -63,6 +79,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * If more than one scoring thread is configured, the persons are partitioned by their {@link Id#index()} into shards.
+ * Each shard has its own {@link EventsToLegs} and {@link EventsToActivities} and runs on its own thread, which receives
+ * the events of its persons in batches. Events of vehicles are only passed to the shards which have persons using that
+ * vehicle; when a shard starts using a vehicle, it first gets the state of the vehicle replayed. As every person is
+ * handled by exactly one shard, in the same order of events, the scores are the same as when scoring on a single thread.
  * 
  * @author michaz
  *
@@ -91,9 +113,28 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	private static final int BATCH_SIZE = 1024;
+	private static final int QUEUE_CAPACITY = 64;
+	private static final Runnable STOP = () -> {};
+
+	private final int numberOfShards;
+	private final EventsToLegs eventsToLegs;
+	private final IdMap<Vehicle, VehicleState> vehicleStates = new IdMap<>(Vehicle.class);
+	private ScoringShard[] shards = null;
+
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup scoreConfig) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, scoreConfig.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfShards) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -102,9 +143,23 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfShards = numberOfShards;
+		this.eventsToLegs = eventsToLegs;
 		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+		if (numberOfShards > 1) {
+			// the shards convert the events to legs and activities themselves
+			controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+				@Override
+				public void notifyAfterMobsim(AfterMobsimEvent event) {
+					if (shards != null) {
+						runOnShards(index -> shards[index].eventsToActivities.finish());
+					}
+				}
+			});
+		} else {
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
+		}
 	}
 
 	private void init() {
@@ -114,30 +169,29 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+		if (this.numberOfShards > 1) {
+			stopShards(); // in case the previous iteration was not finished
+			this.vehicleStates.clear();
+			this.shards = new ScoringShard[this.numberOfShards];
+			for (int i = 0; i < this.numberOfShards; i++) {
+				this.shards[i] = new ScoringShard(i);
+			}
+		}
 	}
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		if (this.numberOfShards > 1) {
+			dispatchToShards(o);
+			return;
+		}
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			scoreEvent(o, ((HasPersonId) o).getPersonId());
 		}
 
 		// Establish and end connection between driver and vehicle
@@ -158,16 +212,175 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		if ( o instanceof LinkEnterEvent ) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
 			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
+			scoreEvent(o, driverId);
+		}
+	}
+
+	private void scoreEvent(Event o, Id<Person> personId) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			}
+//			else {
 				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
+	/**
+	 * Passes the event to the shard of the person it belongs to, and to all shards with persons using the vehicle
+	 * it refers to.  Vehicle related state is kept here, so that a shard can be brought up to date when one of its
+	 * persons enters a vehicle for the first time.
+	 */
+	private void dispatchToShards(Event o) {
+		if (this.shards == null) {
+			return; // no iteration started, so there is nobody to score
+		}
+		Id<Person> personId = o instanceof HasPersonId ? ((HasPersonId) o).getPersonId() : null;
+		if (o instanceof VehicleEntersTrafficEvent) {
+			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+		}
+		if (o instanceof VehicleLeavesTrafficEvent) {
+			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+		}
+		if (o instanceof LinkEnterEvent) {
+			personId = this.vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) o).getVehicleId());
+		}
+		int personShard = personId == null ? -1 : getShardIndex(personId);
+
+		if (o instanceof ActivityEndEvent || o instanceof ActivityStartEvent || o instanceof PersonDepartureEvent
+				|| o instanceof PersonArrivalEvent || o instanceof TeleportationArrivalEvent) {
+			this.shards[personShard].add(o, personId, true);
+		} else if (o instanceof PersonEntersVehicleEvent) {
+			VehicleState state = this.vehicleStates.computeIfAbsent(((PersonEntersVehicleEvent) o).getVehicleId(), id -> new VehicleState());
+			ScoringShard shard = this.shards[personShard];
+			if (state.shards.get(personShard)) {
+				shard.add(o, personId, true);
+			} else {
+				// bring the shard up to date with what happened to the vehicle so far
+				if (state.lastFacilityArrival != null) {
+					shard.add(state.lastFacilityArrival, null, true);
+				}
+				shard.add(o, personId, true);
+				if (state.lastLeavesTraffic != null) {
+					shard.add(state.lastLeavesTraffic, null, true);
+				}
+				if (state.lastLinkEnter != null) {
+					shard.add(state.lastLinkEnter, null, true);
+				}
+				state.shards.set(personShard);
+			}
+		} else if (o instanceof TransitDriverStartsEvent) {
+			VehicleState state = this.vehicleStates.computeIfAbsent(((TransitDriverStartsEvent) o).getVehicleId(), id -> new VehicleState());
+			state.lastFacilityArrival = null;
+			for (ScoringShard shard : this.shards) {
+				shard.add(o, null, true);
+			}
+		} else if (o instanceof VehicleArrivesAtFacilityEvent) {
+			VehicleState state = this.vehicleStates.computeIfAbsent(((VehicleArrivesAtFacilityEvent) o).getVehicleId(), id -> new VehicleState());
+			state.lastFacilityArrival = (VehicleArrivesAtFacilityEvent) o;
+			dispatchVehicleEvent(o, state, personId, personShard);
+		} else if (o instanceof LinkEnterEvent) {
+			VehicleState state = this.vehicleStates.get(((LinkEnterEvent) o).getVehicleId());
+			if (state != null && !state.shards.isEmpty()) {
+				state.lastLinkEnter = (LinkEnterEvent) o;
+			}
+			dispatchVehicleEvent(o, state, personId, personShard);
+		} else if (o instanceof VehicleEntersTrafficEvent) {
+			VehicleEntersTrafficEvent event = (VehicleEntersTrafficEvent) o;
+			VehicleState state = this.vehicleStates.get(event.getVehicleId());
+			if (state != null && !state.shards.isEmpty()) {
+				// for a shard starting to use the vehicle, entering traffic has the same effect as entering the link
+				state.lastLinkEnter = new LinkEnterEvent(event.getTime(), event.getVehicleId(), event.getLinkId());
 			}
+			dispatchVehicleEvent(o, state, personId, personShard);
+		} else if (o instanceof VehicleLeavesTrafficEvent) {
+			VehicleLeavesTrafficEvent event = (VehicleLeavesTrafficEvent) o;
+			VehicleState state = this.vehicleStates.get(event.getVehicleId());
+			if (state != null && !state.shards.isEmpty()) {
+				state.lastLeavesTraffic = event;
+			}
+			dispatchVehicleEvent(o, state, personId, personShard);
+		} else if (personShard >= 0) {
+			this.shards[personShard].add(o, personId, false);
 		}
 	}
 
+	private void dispatchVehicleEvent(Event o, VehicleState state, Id<Person> personId, int personShard) {
+		if (state != null) {
+			for (int i = state.shards.nextSetBit(0); i >= 0; i = state.shards.nextSetBit(i + 1)) {
+				this.shards[i].add(o, i == personShard ? personId : null, true);
+			}
+		}
+		if (personShard >= 0 && (state == null || !state.shards.get(personShard))) {
+			this.shards[personShard].add(o, personId, false);
+		}
+	}
+
+	private int getShardIndex(Id<Person> personId) {
+		return personId.index() % this.numberOfShards;
+	}
+
+	/**
+	 * Runs the task on the thread of each shard, after all events passed to the shard so far, and waits until all
+	 * shards are done.
+	 */
+	private void runOnShards(IntConsumer task) {
+		CountDownLatch latch = new CountDownLatch(this.shards.length);
+		for (int i = 0; i < this.shards.length; i++) {
+			final int index = i;
+			this.shards[i].flush(() -> {
+				try {
+					if (this.exception.get() == null) {
+						task.accept(index);
+					}
+				} catch (Throwable t) {
+					this.exception.compareAndSet(null, t);
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void stopShards() {
+		if (this.shards == null) {
+			return;
+		}
+		for (ScoringShard shard : this.shards) {
+			shard.flush(STOP);
+		}
+		for (ScoringShard shard : this.shards) {
+			try {
+				shard.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		this.shards = null;
+	}
+
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		processLeg(o);
+	}
+
+	// also called concurrently by the shards, which is fine as the per-person data is only modified for persons of the calling shard
+	private void processLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -184,6 +397,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		processActivity(o);
+	}
+
+	private void processActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -240,6 +457,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
+		if (this.shards != null) {
+			runOnShards(this::finishScoringFunctions);
+			stopShards();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -249,6 +470,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfShards > 1) {
+			return; // already done by the shards
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -257,6 +481,19 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
+	private void finishScoringFunctions(int shardIndex) {
+		for (Entry<Id<Person>, ScoringFunction> entry : this.agentScorers.entrySet()) {
+			if (getShardIndex(entry.getKey()) == shardIndex) {
+				entry.getValue().finish();
+			}
+		}
+		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
+			if (getShardIndex(entry.getKey()) == shardIndex) {
+				entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+			}
+		}
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -278,4 +515,125 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	private static final class VehicleState {
+		/** the shards having persons which entered the vehicle */
+		final BitSet shards = new BitSet();
+		VehicleArrivesAtFacilityEvent lastFacilityArrival = null;
+		VehicleLeavesTrafficEvent lastLeavesTraffic = null;
+		LinkEnterEvent lastLinkEnter = null;
+	}
+
+	private static final class Batch {
+		final Event[] events = new Event[BATCH_SIZE];
+		@SuppressWarnings("unchecked")
+		final Id<Person>[] scoredPersonIds = new Id[BATCH_SIZE];
+		final boolean[] experienced = new boolean[BATCH_SIZE];
+		int size = 0;
+		Runnable task = null;
+	}
+
+	/**
+	 * Converts the events of its persons to legs and activities, and passes them together with the events to the
+	 * scoring functions, all on its own thread.
+	 */
+	private final class ScoringShard implements Runnable {
+		final EventsToLegs eventsToLegs = ScoringFunctionsForPopulation.this.eventsToLegs.createEmptyCopy();
+		final EventsToActivities eventsToActivities = new EventsToActivities();
+		final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		final Thread thread;
+		private Batch batch = new Batch();
+
+		ScoringShard(int index) {
+			this.eventsToLegs.addLegHandler(ScoringFunctionsForPopulation.this::processLeg);
+			this.eventsToActivities.addActivityHandler(ScoringFunctionsForPopulation.this::processActivity);
+			this.thread = new Thread(this, "ScoringShard-" + index);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		/**
+		 * @param scoredPersonId the person whose scoring function gets the event, or <code>null</code>
+		 * @param experienced whether the event is converted to legs and activities
+		 */
+		void add(Event event, Id<Person> scoredPersonId, boolean experienced) {
+			Batch batch = this.batch;
+			batch.events[batch.size] = event;
+			batch.scoredPersonIds[batch.size] = scoredPersonId;
+			batch.experienced[batch.size] = experienced;
+			batch.size++;
+			if (batch.size == BATCH_SIZE) {
+				flush(null);
+			}
+		}
+
+		void flush(Runnable task) {
+			this.batch.task = task;
+			try {
+				this.queue.put(this.batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.batch = new Batch();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Batch batch = this.queue.take();
+					for (int i = 0; i < batch.size; i++) {
+						if (exception.get() == null) {
+							try {
+								process(batch.events[i], batch.scoredPersonIds[i], batch.experienced[i]);
+							} catch (Throwable t) {
+								exception.compareAndSet(null, t);
+							}
+						}
+					}
+					if (batch.task == STOP) {
+						return;
+					}
+					if (batch.task != null) {
+						batch.task.run();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void process(Event event, Id<Person> scoredPersonId, boolean experienced) {
+			// same order as in the controler, where the events are converted to legs and activities before they are scored
+			if (experienced) {
+				if (event instanceof ActivityEndEvent) {
+					this.eventsToActivities.handleEvent((ActivityEndEvent) event);
+				} else if (event instanceof ActivityStartEvent) {
+					this.eventsToActivities.handleEvent((ActivityStartEvent) event);
+				} else if (event instanceof LinkEnterEvent) {
+					this.eventsToLegs.handleEvent((LinkEnterEvent) event);
+				} else if (event instanceof PersonDepartureEvent) {
+					this.eventsToLegs.handleEvent((PersonDepartureEvent) event);
+				} else if (event instanceof PersonArrivalEvent) {
+					this.eventsToLegs.handleEvent((PersonArrivalEvent) event);
+				} else if (event instanceof PersonEntersVehicleEvent) {
+					this.eventsToLegs.handleEvent((PersonEntersVehicleEvent) event);
+				} else if (event instanceof TransitDriverStartsEvent) {
+					this.eventsToLegs.handleEvent((TransitDriverStartsEvent) event);
+				} else if (event instanceof VehicleEntersTrafficEvent) {
+					this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) event);
+				} else if (event instanceof VehicleLeavesTrafficEvent) {
+					this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) event);
+				} else if (event instanceof TeleportationArrivalEvent) {
+					this.eventsToLegs.handleEvent((TeleportationArrivalEvent) event);
+				} else if (event instanceof VehicleArrivesAtFacilityEvent) {
+					this.eventsToLegs.handleEvent((VehicleArrivesAtFacilityEvent) event);
+				}
+			}
+			if (scoredPersonId != null) {
+				scoreEvent(event, scoredPersonId);
+			}
+		}
+	}
+
 }
@@ -78,5 +78,10 @@ class ArrayBasedDataContainerProvider implements DataContainerProvider {
 			return this.delegate.getTravelTimeData(link, createIfMissing);
 		}
 	}
+
+	@Override
+	public void resetTravelTimes() {
+		this.delegate.resetTravelTimes();
+	}
 	
 }
@@ -34,4 +34,9 @@ interface DataContainerProvider {
 	 * This method is called from the TravelTime part of the TravelTimeCalculator.
 	 */
 	/*package*/ TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing);
+
+	/*
+	 * Resets the travel times of all links, called at the beginning of every iteration.
+	 */
+	/*package*/ void resetTravelTimes();
 }
@@ -0,0 +1,217 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Stores the travel times of all links in flat arrays of shape [link x time slot], addressed by {@link Id#index()} of
+ * the link. Neither the event handling nor the router needs a map lookup.
+ * <p>
+ * The links are distributed over a fixed number of stripes (by the lowest bits of their index), each with its own
+ * arrays and its own lock. Handlers on different threads thus only block each other if they update links of the same
+ * stripe at the same time. The {@link TravelTimeData} objects handed out are views on one row of the arrays, created
+ * on first request. They compute the same values as {@link TravelTimeDataArray}.
+ * <p>
+ * Only the write path takes the lock. Reads (i.e. every link relaxation of the router) go to the currently published
+ * arrays without locking. The freespeed fallback for an empty time slot is stored with a compare-and-set against the
+ * value just read, so it can never overwrite a travel time a handler stored in the meantime.
+ */
+final class IndexedDataContainerProvider implements DataContainerProvider {
+
+	private static final int STRIPE_BITS = 6;
+	private static final int STRIPES = 1 << STRIPE_BITS;
+	private static final int STRIPE_MASK = STRIPES - 1;
+
+	private static final VarHandle TRAVEL_TIMES = MethodHandles.arrayElementVarHandle(double[].class);
+
+	private final Network network;
+	private final int numSlots;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	IndexedDataContainerProvider(final Network network, final int numSlots) {
+		this.network = network;
+		this.numSlots = numSlots;
+		int rows = (Id.getNumberOfIds(Link.class) >>> STRIPE_BITS) + 1;
+		for (int i = 0; i < STRIPES; i++) {
+			this.stripes[i] = new Stripe(rows, numSlots);
+		}
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = linkId.index();
+		Stripe stripe = this.stripes[index & STRIPE_MASK];
+		int row = index >>> STRIPE_BITS;
+		// views are immutable, reading them without the lock is fine. If a view is missing or the array was just
+		// replaced, we retry while holding the lock.
+		LinkData[] views = stripe.views;
+		if (row < views.length && views[row] != null) {
+			return views[row];
+		}
+		synchronized (stripe) {
+			stripe.ensureCapacity(row, this.numSlots);
+			LinkData data = stripe.views[row];
+			if (data == null) {
+				data = new LinkData(stripe, row, this.numSlots, this.network.getLinks().get(linkId));
+				// like a newly created TravelTimeDataArray
+				stripe.needsConsolidation[row] = true;
+				stripe.views[row] = data;
+			}
+			return data;
+		}
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				Arrays.fill(stripe.travelTimes, -1.0);
+				Arrays.fill(stripe.counts, 0);
+				Arrays.fill(stripe.needsConsolidation, false);
+			}
+		}
+	}
+
+	private static final class Stripe {
+		// The arrays are only replaced (grown) while holding the lock. They are volatile so that lock-free readers
+		// always see fully copied arrays. A reader still working on a replaced array sees at most a stale value.
+
+		// average travel time per [row * numSlots + slot], negative if there is none
+		private volatile double[] travelTimes;
+		private volatile int[] counts;
+		private volatile boolean[] needsConsolidation;
+		private volatile LinkData[] views;
+
+		Stripe(int rows, int numSlots) {
+			this.travelTimes = new double[rows * numSlots];
+			Arrays.fill(this.travelTimes, -1.0);
+			this.counts = new int[rows * numSlots];
+			this.needsConsolidation = new boolean[rows];
+			this.views = new LinkData[rows];
+		}
+
+		void ensureCapacity(int row, int numSlots) {
+			if (row < this.views.length) {
+				return;
+			}
+			int rows = Math.max(row + 1, 2 * this.views.length);
+			int oldLength = this.travelTimes.length;
+			double[] newTravelTimes = Arrays.copyOf(this.travelTimes, rows * numSlots);
+			Arrays.fill(newTravelTimes, oldLength, newTravelTimes.length, -1.0);
+			this.travelTimes = newTravelTimes;
+			this.counts = Arrays.copyOf(this.counts, rows * numSlots);
+			this.needsConsolidation = Arrays.copyOf(this.needsConsolidation, rows);
+			this.views = Arrays.copyOf(this.views, rows);
+		}
+	}
+
+	/**
+	 * The travel times of one link. Same logic as in {@link TravelTimeDataArray}, but operating on the arrays of a stripe.
+	 */
+	private static final class LinkData extends TravelTimeData {
+		private final Stripe stripe;
+		private final int row;
+		private final int offset;
+		private final int numSlots;
+		private final Link link;
+
+		LinkData(Stripe stripe, int row, int numSlots, Link link) {
+			this.stripe = stripe;
+			this.row = row;
+			this.offset = row * numSlots;
+			this.numSlots = numSlots;
+			this.link = link;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			synchronized (this.stripe) {
+				Arrays.fill(this.stripe.travelTimes, this.offset, this.offset + this.numSlots, -1.0);
+				Arrays.fill(this.stripe.counts, this.offset, this.offset + this.numSlots, 0);
+			}
+		}
+
+		@Override
+		void addTravelTime(int timeSlot, double traveltime) {
+			synchronized (this.stripe) {
+				double[] travelTimes = this.stripe.travelTimes;
+				int[] counts = this.stripe.counts;
+				int i = this.offset + timeSlot;
+				int cnt = counts[i];
+				double sum = travelTimes[i] * cnt;
+
+				sum += traveltime;
+				cnt++;
+
+				travelTimes[i] = sum / cnt;
+				counts[i] = cnt;
+			}
+		}
+
+		@Override
+		void setTravelTime(int timeSlot, double traveltime) {
+			synchronized (this.stripe) {
+				this.stripe.counts[this.offset + timeSlot] = 1;
+				this.stripe.travelTimes[this.offset + timeSlot] = traveltime;
+			}
+		}
+
+		@Override
+		double getTravelTime(int timeSlot, double now) {
+			double[] travelTimes = this.stripe.travelTimes;
+			int i = this.offset + timeSlot;
+			double ttime = travelTimes[i];
+			if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+			double freespeed = this.link.getLength() / this.link.getFreespeed(now);
+			// only replaces the "no data" marker; if a handler stored a travel time in the meantime, that one wins
+			double witness = (double) TRAVEL_TIMES.compareAndExchange(travelTimes, i, ttime, freespeed);
+			if (Double.doubleToRawLongBits(witness) == Double.doubleToRawLongBits(ttime) || witness < 0.0) {
+				return freespeed;
+			}
+			return witness;
+		}
+
+		@Override
+		void setNeedsConsolidation(boolean flag) {
+			synchronized (this.stripe) {
+				this.stripe.needsConsolidation[this.row] = flag;
+			}
+		}
+
+		@Override
+		boolean isNeedingConsolidation() {
+			return this.stripe.needsConsolidation[this.row];
+		}
+	}
+}
@@ -49,5 +49,13 @@ class MapBasedDataContainerProvider implements DataContainerProvider {
 	public TravelTimeData getTravelTimeData(Link link, boolean createIfMissing) {
 		return this.getTravelTimeData(link.getId(), createIfMissing);
 	}
+
+	@Override
+	public void resetTravelTimes() {
+		for (TravelTimeData data : this.linkData.values()){
+			data.resetTravelTimes();
+			data.setNeedsConsolidation( false );
+		}
+	}
 	
 }
@@ -22,6 +22,7 @@ package org.matsim.core.trafficmonitoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleAbortsEvent;
@@ -48,7 +49,6 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,7 +63,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. With {@link IndexedDataContainerProvider}, the travel times of
+ * all links are kept in flat arrays addressed by the link's {@link Id#index()}, avoiding map lookups.
  *
  * @author dgrether
  * @author mrieser
@@ -85,9 +86,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final VehicleLinkEnterTimes linkEnterTimes;
 
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
@@ -122,6 +123,12 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorIndexedArray:
+				calculator.ttDataFactory = new TravelTimeDataArrayFactory(network, calculator.numSlots);
+				if (calculator.calculateLinkTravelTimes) {
+					calculator.dataContainerProvider = new IndexedDataContainerProvider(network, calculator.numSlots);
+				}
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -255,11 +262,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterTimes = new VehicleLinkEnterTimes();
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
@@ -272,11 +279,12 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+		int oldLinkIndex = this.calculateLinkToLinkTravelTimes ? this.linkEnterTimes.getLinkIndex(e.getVehicleId()) : VehicleLinkEnterTimes.NO_LINK;
+		double enterTime = oldLinkIndex == VehicleLinkEnterTimes.NO_LINK ? Double.NaN : this.linkEnterTimes.getTime(e.getVehicleId());
+		this.linkEnterTimes.put(e.getVehicleId(), e.getLinkId(), e.getTime());
+		if (oldLinkIndex != VehicleLinkEnterTimes.NO_LINK) {
+			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(Id.get(oldLinkIndex, Link.class), e.getLinkId());
 			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -287,10 +295,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			double enterTime = this.linkEnterTimes.getTime(e.getVehicleId());
+			if (!Double.isNaN(enterTime)) {
 				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -314,7 +321,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -325,14 +332,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		int linkIndex = this.linkEnterTimes.remove(event.getVehicleId());
+		if (linkIndex != VehicleLinkEnterTimes.NO_LINK) {
+			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(Id.get(linkIndex, Link.class), true);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -422,10 +429,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	@Override
 	public void reset(int iteration) {
 		if (this.calculateLinkTravelTimes) {
-			for (TravelTimeData data : this.linkData.values()){
-				data.resetTravelTimes();
-				data.setNeedsConsolidation( false );
-			}
+			this.dataContainerProvider.resetTravelTimes();
 		}
 		if (this.calculateLinkToLinkTravelTimes){
 			for (TravelTimeData data : this.linkToLinkData.values()){
@@ -433,7 +437,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.setNeedsConsolidation( false );
 			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnterTimes.clear();
 		this.vehiclesToIgnore.clear();
 	}
 
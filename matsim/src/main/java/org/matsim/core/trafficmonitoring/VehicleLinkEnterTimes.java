@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleLinkEnterTimes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Remembers for every vehicle the link it entered last and when, in arrays addressed by {@link Id#index()} of the
+ * vehicle. Like {@link IndexedDataContainerProvider}, the vehicles are distributed over stripes with separate locks.
+ */
+final class VehicleLinkEnterTimes {
+
+	static final int NO_LINK = -1;
+
+	private static final int STRIPE_BITS = 6;
+	private static final int STRIPES = 1 << STRIPE_BITS;
+	private static final int STRIPE_MASK = STRIPES - 1;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	VehicleLinkEnterTimes() {
+		int rows = (Id.getNumberOfIds(Vehicle.class) >>> STRIPE_BITS) + 1;
+		for (int i = 0; i < STRIPES; i++) {
+			this.stripes[i] = new Stripe(rows);
+		}
+	}
+
+	void put(Id<Vehicle> vehicleId, Id<Link> linkId, double time) {
+		int index = vehicleId.index();
+		Stripe stripe = this.stripes[index & STRIPE_MASK];
+		int row = index >>> STRIPE_BITS;
+		synchronized (stripe) {
+			stripe.ensureCapacity(row);
+			stripe.links[row] = linkId.index();
+			stripe.times[row] = time;
+		}
+	}
+
+	/**
+	 * @return the index of the link the vehicle entered last, or {@link #NO_LINK}.
+	 */
+	int getLinkIndex(Id<Vehicle> vehicleId) {
+		int index = vehicleId.index();
+		Stripe stripe = this.stripes[index & STRIPE_MASK];
+		int row = index >>> STRIPE_BITS;
+		synchronized (stripe) {
+			return row < stripe.links.length ? stripe.links[row] : NO_LINK;
+		}
+	}
+
+	/**
+	 * @return the time the vehicle entered its last link, or NaN.
+	 */
+	double getTime(Id<Vehicle> vehicleId) {
+		int index = vehicleId.index();
+		Stripe stripe = this.stripes[index & STRIPE_MASK];
+		int row = index >>> STRIPE_BITS;
+		synchronized (stripe) {
+			return row < stripe.links.length && stripe.links[row] != NO_LINK ? stripe.times[row] : Double.NaN;
+		}
+	}
+
+	/**
+	 * @return the index of the link the vehicle entered last, or {@link #NO_LINK}.
+	 */
+	int remove(Id<Vehicle> vehicleId) {
+		int index = vehicleId.index();
+		Stripe stripe = this.stripes[index & STRIPE_MASK];
+		int row = index >>> STRIPE_BITS;
+		synchronized (stripe) {
+			if (row >= stripe.links.length) {
+				return NO_LINK;
+			}
+			int link = stripe.links[row];
+			stripe.links[row] = NO_LINK;
+			return link;
+		}
+	}
+
+	void clear() {
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				Arrays.fill(stripe.links, NO_LINK);
+			}
+		}
+	}
+
+	private static final class Stripe {
+		private int[] links;
+		private double[] times;
+
+		Stripe(int rows) {
+			this.links = new int[rows];
+			Arrays.fill(this.links, NO_LINK);
+			this.times = new double[rows];
+		}
+
+		void ensureCapacity(int row) {
+			if (row < this.links.length) {
+				return;
+			}
+			int rows = Math.max(row + 1, 2 * this.links.length);
+			int oldLength = this.links.length;
+			this.links = Arrays.copyOf(this.links, rows);
+			Arrays.fill(this.links, oldLength, rows, NO_LINK);
+			this.times = Arrays.copyOf(this.times, rows);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdDoubleMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 10);
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+
+		Assert.assertEquals(0.0, map.put(Id.create(1, Person.class), 1.5), 0.0);
+		Assert.assertEquals(0.0, map.put(Id.create(2, Person.class), 2.5), 0.0);
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.isEmpty());
+
+		Assert.assertEquals(1.5, map.put(Id.create(1, Person.class), -1.0), 0.0);
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals(0.0, map.put(Id.create(3, Person.class), 0.0), 0.0);
+		Assert.assertEquals(3, map.size());
+		Assert.assertTrue(map.containsKey(Id.create(3, Person.class)));
+		Assert.assertFalse(map.containsKey(Id.create(4, Person.class)));
+
+		Assert.assertEquals(-1.0, map.get(Id.create(1, Person.class)), 0.0);
+		Assert.assertEquals(2.5, map.get(Id.create(2, Person.class)), 0.0);
+		Assert.assertEquals(0.0, map.get(Id.create(4, Person.class)), 0.0);
+		Assert.assertTrue(Double.isNaN(map.getOrDefault(Id.create(4, Person.class), Double.NaN)));
+
+		Assert.assertEquals(2.5, map.remove(Id.create(2, Person.class)), 0.0);
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(Id.create(2, Person.class)));
+		Assert.assertEquals(0.0, map.remove(Id.create(2, Person.class)), 0.0);
+		Assert.assertEquals(2, map.size());
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertFalse(map.containsKey(Id.create(1, Person.class)));
+	}
+
+	@Test
+	public void testAdd() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 10);
+		Id<Person> id = Id.create(1, Person.class);
+
+		Assert.assertEquals(2.0, map.add(id, 2.0), 0.0);
+		Assert.assertEquals(5.5, map.add(id, 3.5), 0.0);
+		Assert.assertEquals(5.5, map.get(id), 0.0);
+		Assert.assertEquals(1, map.size());
+
+		map.remove(id);
+		Assert.assertEquals(1.0, map.add(id, 1.0), 0.0);
+	}
+
+	@Test
+	public void testGrowsBeyondInitialSize() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 1);
+		IdDoubleMap<Person> concurrentMap = IdDoubleMap.createConcurrent(Person.class);
+		List<Id<Person>> ids = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			ids.add(Id.create("grow" + i, Person.class));
+		}
+		for (int i = 0; i < ids.size(); i++) {
+			map.put(ids.get(i), i);
+			concurrentMap.put(ids.get(i), i);
+		}
+		Assert.assertEquals(ids.size(), map.size());
+		Assert.assertEquals(ids.size(), concurrentMap.size());
+		for (int i = 0; i < ids.size(); i++) {
+			Assert.assertEquals(i, map.get(ids.get(i)), 0.0);
+			Assert.assertEquals(i, concurrentMap.get(ids.get(i)), 0.0);
+		}
+	}
+
+	@Test
+	public void testForEach_inIndexOrder() {
+		for (IdDoubleMap<Person> map : List.of(new IdDoubleMap<>(Person.class, 10), IdDoubleMap.createConcurrent(Person.class))) {
+			// new ids, so their index increases in this order
+			Id<Person> id1 = Id.create("forEach1", Person.class);
+			Id<Person> id2 = Id.create("forEach2", Person.class);
+			Id<Person> id3 = Id.create("forEach3", Person.class);
+			map.put(id3, 3.0);
+			map.put(id1, 1.0);
+			map.put(id2, 2.0);
+			map.remove(id2);
+
+			List<Id<Person>> keys = new ArrayList<>();
+			List<Double> values = new ArrayList<>();
+			map.forEach((id, value) -> {
+				keys.add(id);
+				values.add(value);
+			});
+			Assert.assertEquals(List.of(id1, id3), keys);
+			Assert.assertEquals(List.of(1.0, 3.0), values);
+			Assert.assertEquals(List.of(id1, id3), new ArrayList<>(map.keySet()));
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.vehicles.Vehicle;
+
+public class IdIntMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		IdIntMap<Vehicle> map = new IdIntMap<>(Vehicle.class, 10);
+		Id<Vehicle> id = Id.create(1, Vehicle.class);
+
+		Assert.assertEquals(-1, map.getOrDefault(id, -1));
+		Assert.assertEquals(0, map.put(id, 7));
+		Assert.assertEquals(7, map.get(id));
+		Assert.assertEquals(9, map.add(id, 2));
+		Assert.assertEquals(9, map.remove(id));
+		Assert.assertEquals(-1, map.getOrDefault(id, -1));
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		IdIntMap<Vehicle> map = IdIntMap.createConcurrent(Vehicle.class);
+		List<Id<Vehicle>> ids = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			ids.add(Id.create("concurrent" + i, Vehicle.class));
+		}
+		int numberOfThreads = 4;
+		int rounds = 200;
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			threads.add(new Thread(() -> {
+				for (int r = 0; r < rounds; r++) {
+					for (Id<Vehicle> id : ids) {
+						map.add(id, 1);
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(ids.size(), map.size());
+		for (Id<Vehicle> id : ids) {
+			Assert.assertEquals(numberOfThreads * rounds, map.get(id));
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup.HandlingOfPlansWithoutRoutingMode;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ColumnarEventStoreTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), null, "home"));
+		events.add(new PersonDepartureEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), "car"));
+		events.add(new PersonEntersVehicleEvent(10.0, Id.createPersonId("p1"), Id.createVehicleId("v1")));
+		events.add(new VehicleEntersTrafficEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), Id.createVehicleId("v1"), "car", 1.0));
+		events.add(new LinkLeaveEvent(11.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+		events.add(new LinkEnterEvent(11.0, Id.createVehicleId("v1"), Id.createLinkId("l2")));
+		events.add(new LinkLeaveEvent(20.0, Id.createVehicleId("v1"), Id.createLinkId("l2")));
+		events.add(new LinkEnterEvent(20.0, Id.createVehicleId("v1"), Id.createLinkId("l3")));
+		events.add(new VehicleLeavesTrafficEvent(25.0, Id.createPersonId("p1"), Id.createLinkId("l3"), Id.createVehicleId("v1"), "car", 1.0));
+		events.add(new PersonLeavesVehicleEvent(25.0, Id.createPersonId("p1"), Id.createVehicleId("v1")));
+		events.add(new PersonArrivalEvent(25.0, Id.createPersonId("p1"), Id.createLinkId("l3"), "car"));
+		events.add(new ActivityStartEvent(25.0, Id.createPersonId("p1"), Id.createLinkId("l3"), null, "work", new Coord(1.0, 2.5)));
+		events.add(new TeleportationArrivalEvent(30.0, Id.createPersonId("p2"), 1234.5, "walk"));
+		events.add(new PersonMoneyEvent(40.25, Id.createPersonId("p2"), -2.5, "toll", null));
+		events.add(new TransitDriverStartsEvent(45.0, Id.createPersonId("driver"), Id.createVehicleId("bus"),
+				Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)));
+		events.add(new AgentWaitingForPtEvent(45.0, Id.createPersonId("p3"), Id.create("s1", TransitStopFacility.class),
+				Id.create("s2", TransitStopFacility.class)));
+		events.add(new VehicleArrivesAtFacilityEvent(46.0, Id.createVehicleId("bus"), Id.create("s1", TransitStopFacility.class), 1.5));
+		events.add(new BoardingDeniedEvent(46.0, Id.createPersonId("p3"), Id.createVehicleId("bus")));
+		events.add(new VehicleDepartsAtFacilityEvent(47.0, Id.createVehicleId("bus"), Id.create("s1", TransitStopFacility.class), 2.5));
+		events.add(new VehicleAbortsEvent(48.0, Id.createVehicleId("bus"), Id.createLinkId("l3")));
+		GenericEvent generic = new GenericEvent("custom", 50.0);
+		generic.getAttributes().put("answer", "42");
+		events.add(generic);
+		return events;
+	}
+
+	@Test
+	public void testReplay() {
+		List<Event> events = createEvents();
+		EventsManager producer = EventsUtils.createEventsManager();
+		ColumnarEventStore store = new ColumnarEventStore(4);
+		producer.addHandler(store);
+		producer.initProcessing();
+		events.forEach(producer::processEvent);
+		producer.finishProcessing();
+		assertEquals(events.size(), store.size());
+
+		EventsManager consumer = new EventsManagerImpl();
+		EventsCollector collector = new EventsCollector();
+		consumer.addHandler(collector);
+		consumer.initProcessing();
+		store.replay(consumer, false);
+		consumer.finishProcessing();
+		assertEquals(events, collector.getEvents());
+
+		// reused events have to be copied by the handler, and require synchronous processing
+		List<String> replayed = new ArrayList<>();
+		consumer = new EventsManagerImpl();
+		consumer.addHandler((BasicEventHandler) event -> replayed.add(event.toString()));
+		consumer.initProcessing();
+		store.replay(consumer, true);
+		consumer.finishProcessing();
+		assertEquals(events.size(), replayed.size());
+		for (int i = 0; i < events.size(); i++) {
+			assertEquals(events.get(i).toString(), replayed.get(i));
+		}
+	}
+
+	@Test
+	public void testWriteRead() {
+		List<Event> events = createEvents();
+		ColumnarEventStore store = new ColumnarEventStore();
+		events.forEach(store::add);
+
+		String filename = utils.getOutputDirectory() + "events.bin.gz";
+		store.write(filename);
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		new MatsimEventsReader(manager).readFile(filename);
+		manager.finishProcessing();
+
+		assertEquals(events, collector.getEvents());
+		for (int i = 0; i < events.size(); i++) {
+			assertEquals(events.get(i).getClass(), collector.getEvents().get(i).getClass());
+		}
+	}
+
+	/**
+	 * The events of a pt scenario read from a binary file must be the same as read from xml, including the pt events
+	 * the store keeps without columns of their own.
+	 */
+	@Test
+	public void testWriteRead_ptScenario() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		config.qsim().setEndTime(10 * 3600);
+		config.plans().setHandlingOfPlansWithoutRoutingMode(HandlingOfPlansWithoutRoutingMode.useMainModeIdentifier);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		String xmlFilename = utils.getOutputDirectory() + "events.xml.gz";
+		EventsManager producer = EventsUtils.createEventsManager();
+		EventWriterXML writer = new EventWriterXML(xmlFilename);
+		ColumnarEventStore store = new ColumnarEventStore();
+		producer.addHandler(writer);
+		producer.addHandler(store);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(config).useDefaults().build(scenario, producer).run();
+		writer.closeFile();
+		String binFilename = utils.getOutputDirectory() + "events.bin.gz";
+		store.write(binFilename);
+
+		List<Event> fromXml = readEvents(xmlFilename);
+		List<Event> fromBin = readEvents(binFilename);
+		assertTrue(fromXml.stream().anyMatch(e -> e instanceof TransitDriverStartsEvent));
+		assertTrue(fromXml.stream().anyMatch(e -> e instanceof VehicleArrivesAtFacilityEvent));
+		assertTrue(fromXml.stream().anyMatch(e -> e instanceof AgentWaitingForPtEvent));
+		assertEquals(fromXml.size(), fromBin.size());
+		for (int i = 0; i < fromXml.size(); i++) {
+			assertEquals(fromXml.get(i), fromBin.get(i));
+			assertEquals(fromXml.get(i).getClass(), fromBin.get(i).getClass());
+		}
+	}
+
+	private static List<Event> readEvents(String filename) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		new MatsimEventsReader(manager).readFile(filename);
+		manager.finishProcessing();
+		return collector.getEvents();
+	}
+}
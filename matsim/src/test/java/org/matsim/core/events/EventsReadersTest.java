@@ -21,6 +21,10 @@
 package org.matsim.core.events;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -44,6 +48,7 @@ import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.testcases.utils.EventsCollector;
 import org.xml.sax.SAXException;
 
 public class EventsReadersTest extends MatsimTestCase {
@@ -155,4 +160,67 @@ public class EventsReadersTest extends MatsimTestCase {
 		events.finishProcessing();
 		assertEquals("number of read events", 8, handler.eventCounter);
 	}
-}
\ No newline at end of file
+
+	public final void testParallelXmlReader() {
+		for (int chunkSize : new int[] { 16, 100, 1 << 20 }) {
+			EventsManager events = EventsUtils.createEventsManager();
+			TestHandler handler = new TestHandler();
+			events.addHandler(handler);
+			events.initProcessing();
+			// small chunks make sure that the events are split over several chunks
+			ParallelEventsReaderXMLv1 reader = new ParallelEventsReaderXMLv1(events, new HashMap<>(), 3, chunkSize);
+			reader.readFile(getClassInputDirectory() + "events.xml");
+			events.finishProcessing();
+			assertEquals("number of read events", 8, handler.eventCounter);
+		}
+	}
+
+	public final void testAutoFormatReaderXmlParallel() {
+		EventsManager events = EventsUtils.createEventsManager();
+		TestHandler handler = new TestHandler();
+		events.addHandler(handler);
+		events.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(events);
+		reader.setNumberOfThreads(2);
+		reader.readFile(getClassInputDirectory() + "events.xml");
+		events.finishProcessing();
+		assertEquals("number of read events", 8, handler.eventCounter);
+	}
+
+	public final void testParallelXmlReader_commentsAndCData() throws IOException {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<!-- <event time=\"0.0\" type=\"commented\" /> -->\n<events version=\"1.0\">\n");
+		for (int i = 0; i < 50; i++) {
+			xml.append("\t<event time=\"").append(i).append(".0\" type=\"left link\" link=\"").append(i % 7).append("\" vehicle=\"v").append(i).append("\"  />\n");
+			if (i % 5 == 0) {
+				xml.append("\t<!-- <event time=\"").append(i).append(".5\" type=\"commented\" /> -->\n");
+			}
+			if (i % 7 == 0) {
+				xml.append("\t<![CDATA[ <event time=\"").append(i).append(".5\" type=\"cdata\" /> ]]>\n");
+			}
+			if (i % 11 == 0) {
+				xml.append("\t<?pi <event time=\"").append(i).append(".5\" type=\"pi\" /> ?>\n");
+			}
+		}
+		xml.append("</events>\n");
+		String filename = getOutputDirectory() + "events.xml";
+		Files.write(Paths.get(filename), xml.toString().getBytes(StandardCharsets.UTF_8));
+
+		EventsManager expectedEvents = new EventsManagerImpl();
+		EventsCollector expected = new EventsCollector();
+		expectedEvents.addHandler(expected);
+		expectedEvents.initProcessing();
+		new EventsReaderXMLv1(expectedEvents).readFile(filename);
+		expectedEvents.finishProcessing();
+		assertEquals(50, expected.getEvents().size());
+
+		for (int chunkSize : new int[] { 16, 37, 100, 1 << 20 }) {
+			EventsManager events = new EventsManagerImpl();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			events.initProcessing();
+			new ParallelEventsReaderXMLv1(events, new HashMap<>(), 3, chunkSize).readFile(filename);
+			events.finishProcessing();
+			assertEquals("chunk size " + chunkSize, expected.getEvents(), collector.getEvents());
+		}
+	}
+}
@@ -57,8 +57,12 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.testcases.MatsimTestCase;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.testcases.utils.LogCounter;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
 
 import java.util.*;
+import java.util.function.Function;
 
 public class HermesTest {
 
@@ -917,6 +921,226 @@ public class HermesTest {
 		// besides this, the important thing is that no (Runtime)Exception is thrown during this test
 	}
 
+	/**
+	 * Agents drive along a line network that is split into several realms. The realms must produce the same events
+	 * as a single realm, and the merged event stream must be ordered by time.
+	 */
+	@Test
+	public void testMultipleRealms() {
+		assertSameEventsWithRealms(false);
+	}
+
+	/**
+	 * A bottleneck near the end of the line makes the queue spill back over the upstream links, so that boundary links
+	 * between realms run at their storage capacity and agents have to wait for space reserved by the upstream realm.
+	 */
+	@Test
+	public void testMultipleRealms_boundaryLinkAtCapacity() {
+		List<Event> partitioned = assertSameEventsWithRealms(true);
+
+		Scenario scenario = createLineScenario(3, true);
+		RealmPartition partition = RealmPartition.create(scenario, 3);
+		Map<Id<Link>, Integer> occupancy = new HashMap<>();
+		Map<Id<Link>, Integer> maxOccupancy = new HashMap<>();
+		for (Event event : partitioned) {
+			if (event instanceof LinkEnterEvent || event instanceof VehicleEntersTrafficEvent) {
+				Id<Link> linkId = ((HasLinkId) event).getLinkId();
+				int vehicles = occupancy.merge(linkId, 1, Integer::sum);
+				maxOccupancy.merge(linkId, vehicles, Math::max);
+			} else if (event instanceof LinkLeaveEvent || event instanceof VehicleLeavesTrafficEvent) {
+				occupancy.merge(((HasLinkId) event).getLinkId(), -1, Integer::sum);
+			}
+		}
+		int fullBoundaryLinks = 0;
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			int storageCapacity = (int) Math.ceil(link.getLength() / scenario.getNetwork().getEffectiveCellSize());
+			int maxVehicles = maxOccupancy.getOrDefault(link.getId(), 0);
+			Assert.assertTrue("storage capacity exceeded on link " + link.getId(), maxVehicles <= storageCapacity);
+			if (partition.isBoundary(link.getId().index()) && maxVehicles == storageCapacity) {
+				fullBoundaryLinks++;
+			}
+		}
+		Assert.assertTrue("no boundary link ran at capacity.", fullBoundaryLinks > 0);
+	}
+
+	/**
+	 * Runs the line network with one and with three realms, and checks that the events are the same, also in their
+	 * order per vehicle and per link.
+	 *
+	 * @return the events of the run with three realms
+	 */
+	private static List<Event> assertSameEventsWithRealms(boolean bottleneck) {
+		List<Event> single = runLineNetwork(createLineScenario(1, bottleneck));
+
+		Id.flush();
+		ScenarioImporter.flush();
+		List<Event> partitioned = runLineNetwork(createLineScenario(3, bottleneck));
+
+		for (int i = 1; i < partitioned.size(); i++) {
+			Assert.assertTrue("events are not ordered by time.", partitioned.get(i - 1).getTime() <= partitioned.get(i).getTime());
+		}
+		Assert.assertEquals("wrong number of events.", single.size(), partitioned.size());
+		Assert.assertEquals(toSortedStrings(single), toSortedStrings(partitioned));
+		Function<Map<String, String>, String> vehicle = attributes -> attributes.get("vehicle");
+		Assert.assertEquals("wrong order of events per vehicle.", groupEvents(single, vehicle), groupEvents(partitioned, vehicle));
+		// on a boundary link, the link is entered in one realm and left in another, so entering and leaving at the same
+		// time may be ordered differently than with one realm; the order of each type of event per link is fixed
+		Function<Map<String, String>, String> linkAndType = attributes -> attributes.containsKey("link") ?
+				attributes.get("link") + " " + attributes.get("type") : null;
+		Assert.assertEquals("wrong order of events per link.", groupEvents(single, linkAndType), groupEvents(partitioned, linkAndType));
+		return partitioned;
+	}
+
+	private static Scenario createLineScenario(int realms, boolean bottleneck) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().hermes().setNumberOfRealms(realms);
+		// no agent may be pushed into a full link because it is stuck
+		scenario.getConfig().hermes().setStuckTime(bottleneck ? 24 * 3600 : scenario.getConfig().hermes().getStuckTime());
+		Network network = scenario.getNetwork();
+		int nlinks = 9;
+		// short links, so that the queue in front of the bottleneck spills back over several links
+		double length = bottleneck ? 100 : 1000;
+		List<Link> links = new ArrayList<>();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		for (int i = 1; i <= nlinks; i++) {
+			Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * length, 0));
+			double capacity = bottleneck && i == nlinks - 1 ? 360 : 3600;
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), from, to, length, 20, capacity, 1));
+			from = to;
+		}
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 50; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity home = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", links.get(0).getId());
+			home.setEndTime(6 * 3600 + i * (bottleneck ? 2 : 30));
+			Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+			TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+			List<Id<Link>> routeLinkIds = new ArrayList<>();
+			for (int l = 1; l < nlinks - 1; l++) {
+				routeLinkIds.add(links.get(l).getId());
+			}
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(links.get(0).getId(), routeLinkIds, links.get(nlinks - 1).getId()));
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", links.get(nlinks - 1).getId());
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static List<Event> runLineNetwork(Scenario scenario) {
+		EventsManager events = EventsUtils.createEventsManager();
+		List<Event> collected = new ArrayList<>();
+		events.addHandler((BasicEventHandler) collected::add);
+		createHermes((MutableScenario) scenario, events).run();
+		return collected;
+	}
+
+	/**
+	 * @return the events grouped by the key of their attributes (events without key are left out), each group in the
+	 * order of the events
+	 */
+	private static Map<String, List<String>> groupEvents(List<Event> events, Function<Map<String, String>, String> key) {
+		Map<String, List<String>> groups = new HashMap<>();
+		for (Event event : events) {
+			Map<String, String> attributes = event.getAttributes();
+			String value = key.apply(attributes);
+			if (value != null) {
+				groups.computeIfAbsent(value, v -> new ArrayList<>()).add(attributes.toString());
+			}
+		}
+		return groups;
+	}
+
+	private static List<String> toSortedStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.getAttributes().toString());
+		}
+		Collections.sort(strings);
+		return strings;
+	}
+
+	/**
+	 * Runs the same scenario several times. Unchanged plans are reused between runs, changed plans must be imported again.
+	 */
+	@Test
+	public void testReuseUnchangedPlans() {
+		Fixture f = new Fixture();
+		f.config.hermes().setReuseUnchangedPlans(true);
+		for (int i = 0; i < 2; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime((6+i)*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+
+		Hermes sim = createHermes(f, events);
+		sim.run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		List<Double> firstRun = new ArrayList<>();
+		collector.events.forEach(e -> firstRun.add(e.getTime()));
+
+		// nothing changed, the second run must reproduce the first one.
+		collector.events.clear();
+		new HermesBuilder().build(f.scenario, events).run();
+		List<Double> secondRun = new ArrayList<>();
+		collector.events.forEach(e -> secondRun.add(e.getTime()));
+		Assert.assertEquals(firstRun, secondRun);
+
+		// the second person gets a new selected plan departing one hour later.
+		Person person = f.plans.getPersons().get(Id.create(1, Person.class));
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		((Activity) copy.getPlanElements().get(0)).setEndTime(8*3600);
+		collector.events.clear();
+		new HermesBuilder().build(f.scenario, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 6.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 6.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in third event.", 8.0*3600, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in fourth event.", 8.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+
+		// the selected plan of the first person is modified in place, it must be imported again.
+		Plan selected = f.plans.getPersons().get(Id.create(0, Person.class)).getSelectedPlan();
+		((Activity) selected.getPlanElements().get(0)).setEndTime(9*3600);
+		collector.events.clear();
+		new HermesBuilder().build(f.scenario, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 8.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in third event.", 9.0*3600, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+
+		// the first person uses another, slower vehicle, it must be imported again.
+		VehicleType slowType = VehicleUtils.createVehicleType(Id.create("slow", VehicleType.class));
+		slowType.setMaximumVelocity(5);
+		Vehicle slowVehicle = VehicleUtils.createVehicle(Id.createVehicleId("slow_0"), slowType);
+		f.scenario.getVehicles().addVehicle(slowVehicle);
+		Person person0 = f.plans.getPersons().get(Id.create(0, Person.class));
+		person0.getAttributes().putAttribute("vehicles", Map.of(TransportMode.car, slowVehicle.getId()));
+		collector.events.clear();
+		new HermesBuilder().build(f.scenario, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in second event.", 8.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in fourth event.", 9.0*3600 + 201, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+
+		// the vehicle type of the first person gets even slower, it must be imported again.
+		slowType.setMaximumVelocity(2);
+		collector.events.clear();
+		new HermesBuilder().build(f.scenario, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in fourth event.", 9.0*3600 + 501, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+	}
+
 	/*package*/ final static class FirstLastEventCollector implements BasicEventHandler {
 		public Event firstEvent = null;
 		public Event lastEvent = null;
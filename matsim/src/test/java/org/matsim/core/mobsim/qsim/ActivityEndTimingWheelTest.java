@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class ActivityEndTimingWheelTest {
+
+	@Test
+	public void testOrderWithinStep() {
+		ActivityEndTimingWheel wheel = new ActivityEndTimingWheel();
+		MobsimAgent a1 = createAgent("wheel_a1");
+		MobsimAgent a2 = createAgent("wheel_a2");
+		MobsimAgent a3 = createAgent("wheel_a3");
+		wheel.add(a1, 10.0);
+		wheel.add(a2, 10.0);
+		wheel.add(a3, 9.5);
+		wheel.start(0);
+
+		wheel.advanceTo(9);
+		Assert.assertNull(wheel.pollDue(9));
+		wheel.advanceTo(10);
+		Assert.assertSame(a3, wheel.pollDue(10));
+		Assert.assertSame("same end time: larger id first", a2, wheel.pollDue(10));
+		Assert.assertSame(a1, wheel.pollDue(10));
+		Assert.assertNull(wheel.pollDue(10));
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testRemove() {
+		ActivityEndTimingWheel wheel = new ActivityEndTimingWheel();
+		wheel.start(0);
+		MobsimAgent a1 = createAgent("wheel_r1");
+		MobsimAgent a2 = createAgent("wheel_r2");
+		wheel.add(a1, 100);
+		wheel.add(a2, 100 * ActivityEndTimingWheel.WHEEL_SIZE);
+		Assert.assertEquals(2, wheel.size());
+
+		Assert.assertTrue(wheel.remove(a1));
+		Assert.assertFalse(wheel.remove(a1));
+		Assert.assertFalse("different agent with the same id", wheel.remove(createAgent("wheel_r2")));
+		wheel.add(a1, 50);
+
+		wheel.advanceTo(100 * ActivityEndTimingWheel.WHEEL_SIZE);
+		Assert.assertSame(a1, wheel.pollDue(100 * ActivityEndTimingWheel.WHEEL_SIZE));
+		Assert.assertSame(a2, wheel.pollDue(100 * ActivityEndTimingWheel.WHEEL_SIZE));
+		Assert.assertNull(wheel.pollDue(100 * ActivityEndTimingWheel.WHEEL_SIZE));
+	}
+
+	/**
+	 * Compares the order in which agents leave with the priority queue of {@link ActivityEngineDefaultImpl}, for end
+	 * times before the start, close by, in the second level of the wheel, beyond it, and time steps of different sizes.
+	 */
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(20200317);
+		ActivityEndTimingWheel wheel = new ActivityEndTimingWheel();
+		PriorityQueue<Object[]> reference = new PriorityQueue<>((e0, e1) -> {
+			int cmp = Double.compare((Double) e0[1], (Double) e1[1]);
+			if (cmp == 0) {
+				return ((MobsimAgent) e1[0]).getId().compareTo(((MobsimAgent) e0[0]).getId());
+			}
+			return cmp;
+		});
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			agents.add(createAgent("wheel_ref" + i));
+		}
+
+		double startTime = 3600;
+		for (int i = 0; i < 500; i++) {
+			double endTime = randomEndTime(random, startTime - 600);
+			wheel.add(agents.get(i), endTime);
+			reference.add(new Object[] { agents.get(i), endTime });
+		}
+		wheel.start(startTime);
+
+		double now = startTime;
+		int next = 500;
+		int polled = 0;
+		while (now < 1e9) {
+			for (int j = random.nextInt(5); j > 0 && next < agents.size(); j--) {
+				MobsimAgent agent = agents.get(next++);
+				double endTime = randomEndTime(random, now);
+				wheel.add(agent, endTime);
+				reference.add(new Object[] { agent, endTime });
+			}
+			if (random.nextInt(3) == 0 && next > 0) {
+				MobsimAgent agent = agents.get(random.nextInt(next));
+				boolean removed = removeFromReference(reference, agent);
+				Assert.assertEquals(removed, wheel.remove(agent));
+				if (removed && random.nextBoolean()) {
+					double endTime = randomEndTime(random, now);
+					wheel.add(agent, endTime);
+					reference.add(new Object[] { agent, endTime });
+				}
+			}
+
+			wheel.advanceTo(now);
+			while (!reference.isEmpty() && (Double) reference.peek()[1] <= now) {
+				Assert.assertSame("at time " + now, reference.poll()[0], wheel.pollDue(now));
+				polled++;
+				if (random.nextInt(10) == 0 && next < agents.size()) {
+					// agents may start activities which are already over while agents are leaving
+					MobsimAgent agent = agents.get(next++);
+					double endTime = now - random.nextInt(2);
+					wheel.add(agent, endTime);
+					reference.add(new Object[] { agent, endTime });
+				}
+			}
+			Assert.assertNull(wheel.pollDue(now));
+			Assert.assertEquals(reference.size(), wheel.size());
+
+			double step = random.nextInt(100) == 0 ? random.nextInt(100000) : (random.nextBoolean() ? 1 : 0.5);
+			now = next < agents.size() || now < 200000 ? now + step : now * 1.5;
+		}
+		Assert.assertTrue(polled > 2000);
+
+		Set<MobsimAgent> expected = new HashSet<>();
+		reference.forEach(entry -> expected.add((MobsimAgent) entry[0]));
+		Set<MobsimAgent> remaining = new HashSet<>();
+		wheel.clear().forEach(entry -> remaining.add(entry.getAgent()));
+		Assert.assertEquals(expected, remaining);
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	private static double randomEndTime(Random random, double now) {
+		switch (random.nextInt(10)) {
+			case 0:
+				return now + random.nextInt(ActivityEndTimingWheel.WHEEL_SIZE * ActivityEndTimingWheel.WHEEL_SIZE * 2);
+			case 1:
+				return now + random.nextInt(ActivityEndTimingWheel.WHEEL_SIZE * 20);
+			case 2:
+				return now + random.nextInt(20) / 4.0;
+			default:
+				return now + random.nextInt(ActivityEndTimingWheel.WHEEL_SIZE * 2) + random.nextInt(4) / 4.0;
+		}
+	}
+
+	private static boolean removeFromReference(PriorityQueue<Object[]> reference, MobsimAgent agent) {
+		Iterator<Object[]> iterator = reference.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next()[0] == agent) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static MobsimAgent createAgent(String id) {
+		MobsimAgent agent = mock(MobsimAgent.class);
+		when(agent.getId()).thenReturn(Id.create(id, Person.class));
+		return agent;
+	}
+}
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.FacilitiesConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityEndQueue;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextActionTime;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class SkipIdleTimeStepsTest {
+
+	@Test
+	public void testSameEventsWithFewerSteps() {
+		for (ActivityEndQueue activityEndQueue : ActivityEndQueue.values()) {
+			StepCounter allSteps = new StepCounter(Double.POSITIVE_INFINITY);
+			List<String> expected = runQSim(activityEndQueue, false, allSteps);
+			StepCounter executedSteps = new StepCounter(Double.POSITIVE_INFINITY);
+			List<String> actual = runQSim(activityEndQueue, true, executedSteps);
+
+			Assert.assertFalse(expected.isEmpty());
+			Assert.assertEquals(activityEndQueue.toString(), expected, actual);
+			Assert.assertTrue(activityEndQueue.toString(), executedSteps.steps < allSteps.steps);
+		}
+	}
+
+	@Test
+	public void testListenerIsCalledAtItsNextActionTime() {
+		StepCounter counter = new StepCounter(12 * 3600 + 0.5);
+		runQSim(ActivityEndQueue.priorityQueue, true, counter);
+		Assert.assertTrue(counter.calledAtNextActionTime);
+	}
+
+	@Test
+	public void testListenerWithoutNextActionTimePreventsSkipping() {
+		StepCounter allSteps = new StepCounter(Double.POSITIVE_INFINITY);
+		runQSim(ActivityEndQueue.priorityQueue, false, allSteps);
+
+		StepCounter executedSteps = new StepCounter(Double.POSITIVE_INFINITY);
+		Config config = createConfig(ActivityEndQueue.priorityQueue, true);
+		Scenario scenario = createScenario(config);
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		qsim.addQueueSimulationListeners(executedSteps);
+		qsim.addQueueSimulationListeners((MobsimBeforeSimStepListener) event -> { });
+		qsim.run();
+		Assert.assertEquals(allSteps.steps, executedSteps.steps);
+	}
+
+	private static List<String> runQSim(ActivityEndQueue activityEndQueue, boolean skippingIdleTimeSteps, StepCounter counter) {
+		Config config = createConfig(activityEndQueue, skippingIdleTimeSteps);
+		Scenario scenario = createScenario(config);
+
+		List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
+		qsim.addQueueSimulationListeners(counter);
+		qsim.run();
+		return events;
+	}
+
+	private static Config createConfig(ActivityEndQueue activityEndQueue, boolean skippingIdleTimeSteps) {
+		Config config = ConfigUtils.createConfig();
+		config.facilities().setFacilitiesSource(FacilitiesConfigGroup.FacilitiesSource.onePerActivityLinkInPlansFile);
+		config.qsim().setActivityEndQueue(activityEndQueue);
+		config.qsim().setSkippingIdleTimeSteps(skippingIdleTimeSteps);
+		return config;
+	}
+
+	private static Scenario createScenario(Config config) {
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(scenario).readFile("test/scenarios/equil/plans100.xml");
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		return scenario;
+	}
+
+	private static class StepCounter implements MobsimBeforeSimStepListener, HasNextActionTime {
+		private final double nextActionTime;
+		private int steps = 0;
+		private boolean calledAtNextActionTime = false;
+
+		StepCounter(double nextActionTime) {
+			this.nextActionTime = nextActionTime;
+		}
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent event) {
+			this.steps++;
+			if (event.getSimulationTime() == Math.ceil(this.nextActionTime)) {
+				this.calledAtNextActionTime = true;
+			}
+		}
+
+		@Override
+		public double getNextActionTime() {
+			return this.nextActionTime;
+		}
+	}
+}
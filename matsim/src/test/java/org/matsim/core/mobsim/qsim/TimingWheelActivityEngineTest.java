@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.FacilitiesConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityEndQueue;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class TimingWheelActivityEngineTest {
+
+	@Test
+	public void testSameEventsAsDefaultImpl() {
+		List<String> expected = runQSim(ActivityEndQueue.priorityQueue);
+		List<String> actual = runQSim(ActivityEndQueue.timingWheel);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	private static List<String> runQSim(ActivityEndQueue activityEndQueue) {
+		Config config = ConfigUtils.createConfig();
+		config.facilities().setFacilitiesSource(FacilitiesConfigGroup.FacilitiesSource.onePerActivityLinkInPlansFile);
+		config.qsim().setActivityEndQueue(activityEndQueue);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(scenario).readFile("test/scenarios/equil/plans100.xml");
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
+		if (activityEndQueue == ActivityEndQueue.timingWheel) {
+			Assert.assertNotNull(qsim.getChildInjector().getInstance(TimingWheelActivityEngine.class));
+		}
+		qsim.run();
+		return events;
+	}
+}
@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.FacilitiesConfigGroup;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class NetsimLoadBalancerTest {
+
+	@Test
+	public void testSameEventsWithRebalancing() {
+		List<String> expected = runQSim(0, 0);
+		List<String> actual = runQSim(NetsimLoadBalancer.SAMPLING_PERIOD, 1);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * @return the events, sorted, as the runners produce them in arbitrary order.
+	 */
+	private static List<String> runQSim(double rebalancingPeriod, int minRebalancingCount) {
+		Config config = ConfigUtils.createConfig();
+		config.facilities().setFacilitiesSource(FacilitiesConfigGroup.FacilitiesSource.onePerActivityLinkInPlansFile);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setNetsimRebalancingPeriod(rebalancingPeriod);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(scenario).readFile("test/scenarios/equil/plans100.xml");
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
+		qsim.run();
+
+		AbstractQNetsimEngine<?> engine = (AbstractQNetsimEngine<?>) qsim.getChildInjector().getInstance(QNetsimEngineI.class);
+		if (minRebalancingCount == 0) {
+			Assert.assertNull(engine.getLoadBalancer());
+		} else {
+			Assert.assertTrue(engine.getLoadBalancer().getRebalancingCount() >= minRebalancingCount);
+		}
+
+		List<String> sorted = new ArrayList<>(events);
+		Collections.sort(sorted);
+		return sorted;
+	}
+}
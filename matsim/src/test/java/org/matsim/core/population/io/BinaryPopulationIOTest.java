@@ -0,0 +1,254 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.AbstractRoute;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class BinaryPopulationIOTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead_sameAsXml() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin.gz";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(scenario).readFile(filename);
+
+		Assert.assertEquals(population.getName(), scenario.getPopulation().getName());
+		Assert.assertArrayEquals(toXml(population), toXml(scenario.getPopulation()));
+	}
+
+	@Test
+	public void testStreaming() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		List<Id<Person>> personIds = new ArrayList<>();
+		reader.addAlgorithm(person -> personIds.add(person.getId()));
+		reader.readFile(filename);
+
+		Assert.assertEquals(new ArrayList<>(population.getPersons().keySet()), personIds);
+	}
+
+	@Test
+	public void testRandomAccess() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		try (BinaryPopulationReader reader = new BinaryPopulationReader(scenario)) {
+			reader.openFile(filename);
+			Assert.assertEquals(new ArrayList<>(population.getPersons().keySet()), new ArrayList<>(reader.getPersonIds()));
+
+			for (Id<Person> personId : List.of(Id.createPersonId(77), Id.createPersonId(3), Id.createPersonId(99))) {
+				Person person = reader.readPerson(personId);
+				Assert.assertEquals(personId, person.getId());
+				Population expected = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+				expected.addPerson(population.getPersons().get(personId));
+				Population actual = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+				actual.addPerson(person);
+				Assert.assertArrayEquals(toXml(expected), toXml(actual));
+			}
+			Assert.assertNull(reader.readPerson(Id.createPersonId("unknown")));
+		}
+		Assert.assertEquals("random access must not add persons to the population", 0, scenario.getPopulation().getPersons().size());
+	}
+
+	@Test
+	public void testNullRouteType() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId(1));
+		Plan plan = factory.createPlan();
+		plan.addActivity(factory.createActivityFromLinkId("home", Id.create(1, Link.class)));
+		Leg leg = factory.createLeg("teleported");
+		leg.setRoute(new UntypedRoute(Id.create(1, Link.class), Id.create(2, Link.class)));
+		plan.addLeg(leg);
+		plan.addActivity(factory.createActivityFromLinkId("work", Id.create(2, Link.class)));
+		person.addPlan(plan);
+		population.addPerson(person);
+
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(scenario).readFile(filename);
+		Leg readLeg = (Leg) scenario.getPopulation().getPersons().get(person.getId()).getSelectedPlan().getPlanElements().get(1);
+		Assert.assertEquals(Id.create(1, Link.class), readLeg.getRoute().getStartLinkId());
+		Assert.assertEquals(Id.create(2, Link.class), readLeg.getRoute().getEndLinkId());
+	}
+
+	@Test
+	public void testCoordinateTransformation() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+		CoordinateTransformation transformation = TransformationFactory.getCoordinateTransformation(
+				TransformationFactory.WGS84, TransformationFactory.ATLANTIS);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(TransformationFactory.WGS84, TransformationFactory.ATLANTIS, scenario).readFile(filename);
+		assertTransformed(population, scenario.getPopulation(), transformation);
+		Assert.assertEquals(TransformationFactory.ATLANTIS, ProjectionUtils.getCRS(scenario.getPopulation()));
+
+		// the CRS stored in the file takes precedence over the one given to the reader
+		ProjectionUtils.putCRS(population, TransformationFactory.WGS84);
+		new BinaryPopulationWriter(population).write(filename);
+		scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(TransformationFactory.ATLANTIS, TransformationFactory.ATLANTIS, scenario).readFile(filename);
+		assertTransformed(population, scenario.getPopulation(), transformation);
+	}
+
+	private static void assertTransformed(final Population original, final Population transformed, final CoordinateTransformation transformation) {
+		for (Person person : original.getPersons().values()) {
+			Activity expected = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+			Activity actual = (Activity) transformed.getPersons().get(person.getId()).getSelectedPlan().getPlanElements().get(0);
+			Coord expectedCoord = transformation.transform(expected.getCoord());
+			Assert.assertEquals(expectedCoord.getX(), actual.getCoord().getX(), 1e-9);
+			Assert.assertEquals(expectedCoord.getY(), actual.getCoord().getY(), 1e-9);
+		}
+	}
+
+	private static byte[] toXml(final Population population) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).writeV6(out);
+		return out.toByteArray();
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("binary test population");
+		population.getAttributes().putAttribute("source", "test");
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < 100; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			person.getAttributes().putAttribute("income", 1000.5 * i);
+			for (int j = 0; j < 3; j++) {
+				Plan plan = factory.createPlan();
+				if (j != 1) {
+					plan.setScore(i + 0.25 * j);
+				}
+				if (j == 2) {
+					plan.setType("alternative");
+				}
+				plan.getAttributes().putAttribute("iteration", j);
+
+				Activity home = factory.createActivityFromCoord("home", i % 2 == 0 ? new Coord(i, j) : new Coord(i, j, 3.5));
+				home.setLinkId(Id.create(i % 7, Link.class));
+				home.setEndTime(8 * 3600 + i + 0.5 * j);
+				plan.addActivity(home);
+
+				Leg car = factory.createLeg("car");
+				car.setDepartureTime(8 * 3600 + i);
+				car.setTravelTime(600);
+				List<Id<Link>> links = new ArrayList<>();
+				for (int l = 0; l < i % 10; l++) {
+					links.add(Id.create((i * 31 + l * 17) % 50, Link.class));
+				}
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create(i % 7, Link.class), links, Id.create("work" + (i % 5), Link.class));
+				route.setTravelTime(590);
+				route.setDistance(1234.5 + i);
+				if (i % 3 == 0) {
+					route.setVehicleId(Id.create("car" + i, Vehicle.class));
+				}
+				car.setRoute(route);
+				car.getAttributes().putAttribute("note", "a & b");
+				plan.addLeg(car);
+
+				Activity work = factory.createActivityFromActivityFacilityId("work", Id.create("f" + (i % 5), ActivityFacility.class));
+				work.setStartTime(9 * 3600);
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+
+				Leg walk = factory.createLeg("walk");
+				GenericRouteImpl walkRoute = new GenericRouteImpl(Id.create("work" + (i % 5), Link.class), Id.create(i % 7, Link.class));
+				walkRoute.setRouteDescription("route " + i);
+				walkRoute.setTravelTime(60.25 * j);
+				walk.setRoute(walkRoute);
+				plan.addLeg(walk);
+
+				plan.addLeg(factory.createLeg("bike"));
+				plan.addActivity(factory.createActivityFromLinkId("home", Id.create(i % 7, Link.class)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 3));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static class UntypedRoute extends AbstractRoute {
+		UntypedRoute(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+			super(startLinkId, endLinkId);
+		}
+
+		@Override
+		public String getRouteDescription() {
+			return null;
+		}
+
+		@Override
+		public void setRouteDescription(final String routeDescription) {
+		}
+
+		@Override
+		public String getRouteType() {
+			return null;
+		}
+	}
+}
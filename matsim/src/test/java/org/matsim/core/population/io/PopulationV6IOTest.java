@@ -321,4 +321,49 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelWritingAndReading() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < 1234; i++) {
+			final Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			for (int j = 0; j < 2; j++) {
+				final Plan plan = factory.createPlan();
+				plan.setScore(i + 0.5 * j);
+				final Activity home = factory.createActivityFromCoord("home", new Coord(i, j));
+				home.setEndTime(8 * 3600 + i);
+				home.getAttributes().putAttribute("note", "a & b");
+				plan.addActivity(home);
+				final Leg leg = factory.createLeg("walk");
+				final GenericRouteImpl route = new GenericRouteImpl(Id.create("1", Link.class), Id.create("2", Link.class));
+				route.setRouteDescription("route " + i);
+				route.setTravelTime(60.0 * j);
+				route.setDistance(100.0 * i);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				plan.addActivity(factory.createActivityFromLinkId("work", Id.create("2", Link.class)));
+				person.addPlan(plan);
+			}
+			population.addPerson(person);
+		}
+
+		ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+		new PopulationWriter(population).writeV6(sequential);
+		ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		PopulationWriter parallelWriter = new PopulationWriter(population);
+		parallelWriter.setNumberOfThreads(4);
+		parallelWriter.writeV6(parallel);
+		Assert.assertArrayEquals("parallel writing must not change the output", sequential.toByteArray(), parallel.toByteArray());
+
+		final Scenario readScenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		readScenario.getConfig().global().setNumberOfThreads(4);
+		new PopulationReader(readScenario).parse(new ByteArrayInputStream(parallel.toByteArray()));
+		Assert.assertEquals(population.getPersons().size(), readScenario.getPopulation().getPersons().size());
+
+		ByteArrayOutputStream reread = new ByteArrayOutputStream();
+		new PopulationWriter(readScenario.getPopulation()).writeV6(reread);
+		Assert.assertArrayEquals("parallel reading must not change the population", sequential.toByteArray(), reread.toByteArray());
+	}
 }
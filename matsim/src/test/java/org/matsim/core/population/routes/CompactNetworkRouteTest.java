@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+public class CompactNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	private final CompactNetworkRouteFactory factory = new CompactNetworkRouteFactory();
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return (NetworkRoute) this.factory.createRoute(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		NetworkRoute route1 = getNetworkRouteInstance(id1, id2, null);
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		NetworkRoute route2 = route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+	}
+
+	@Test
+	public void testEncoding_largeAndNegativeDeltas() {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < 2000; i += 7) {
+			linkIds.add(Id.create("compact-" + i, Link.class));
+		}
+		// jump back and forth over ranges of indices of different sizes
+		List<Id<Link>> srcRoute = Arrays.asList(linkIds.get(250), linkIds.get(0), linkIds.get(100), linkIds.get(99), linkIds.get(285), linkIds.get(1));
+		NetworkRoute route = getNetworkRouteInstance(linkIds.get(3), linkIds.get(4), null);
+		route.setLinkIds(linkIds.get(3), srcRoute, linkIds.get(4));
+
+		Assert.assertEquals(srcRoute, route.getLinkIds());
+		Assert.assertEquals(linkIds.get(3), route.getStartLinkId());
+		Assert.assertEquals(linkIds.get(4), route.getEndLinkId());
+	}
+
+	@Test
+	public void testEqualRoutesShareLinkSequence() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = Arrays.asList(Id.create(3, Link.class), Id.create(4, Link.class), Id.create(5, Link.class));
+
+		CompactNetworkRouteImpl route1 = (CompactNetworkRouteImpl) getNetworkRouteInstance(id1, id2, null);
+		route1.setLinkIds(id1, srcRoute, id2);
+		CompactNetworkRouteImpl route2 = (CompactNetworkRouteImpl) getNetworkRouteInstance(id1, id2, null);
+		route2.setLinkIds(id1, new ArrayList<>(srcRoute), id2);
+
+		Assert.assertSame(route1.getLinkSequence(), route2.getLinkSequence());
+		Assert.assertEquals(route1.getLinkIds(), route2.getLinkIds());
+	}
+}
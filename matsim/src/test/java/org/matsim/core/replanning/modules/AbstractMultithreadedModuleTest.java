@@ -20,12 +20,24 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +72,93 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testWorkStealing_deterministicPerPerson() {
+		Map<Id<Person>, Double> results1 = runRandomModule(1);
+		Map<Id<Person>, Double> results4 = runRandomModule(4);
+		Assert.assertEquals(100, results1.size());
+		Assert.assertEquals(results1, results4);
+		Assert.assertEquals(results1, runRandomModule(4));
+	}
+
+	@Test
+	public void testWorkStealing_sharedRandomNotReset() {
+		// the shared generator is not reset per person, so it is drawn from in the order in which the plans are taken
+		List<Double> expected = new ArrayList<>();
+		Random random = new Random(4711);
+		for (int i = 0; i < 100; i++) {
+			expected.add(random.nextDouble());
+		}
+
+		Map<Id<Person>, Double> results1 = runModule(new SharedRandomModule(1, new ConcurrentHashMap<>()));
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(expected.get(i), results1.get(Id.create(i, Person.class)));
+		}
+
+		// with more threads, only the drawn values are the same, not which person gets which value
+		List<Double> values4 = new ArrayList<>(runModule(new SharedRandomModule(4, new ConcurrentHashMap<>())).values());
+		Assert.assertEquals(100, values4.size());
+		Collections.sort(values4);
+		Collections.sort(expected);
+		Assert.assertEquals(expected, values4);
+	}
+
+	private static Map<Id<Person>, Double> runRandomModule(final int nOfThreads) {
+		MatsimRandom.reset();
+		return runModule(new RandomModule(nOfThreads, new ConcurrentHashMap<>()));
+	}
+
+	private static Map<Id<Person>, Double> runModule(final ResultsModule testee) {
+		testee.prepareReplanning(null);
+		for (int i = 0; i < 100; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PopulationUtils.createPlan(person);
+			person.addPlan(plan);
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		return testee.results;
+	}
+
+	private static abstract class ResultsModule extends AbstractMultithreadedModule {
+		final Map<Id<Person>, Double> results;
+		ResultsModule(final int nOfThreads, final Map<Id<Person>, Double> results) {
+			super(nOfThreads, ReplanningScheduling.workStealing);
+			this.results = results;
+		}
+		PlanAlgorithm drawFrom(final Random random) {
+			return plan -> {
+				double value;
+				synchronized (random) {
+					value = random.nextDouble();
+				}
+				Double previous = this.results.put(plan.getPerson().getId(), value);
+				Assert.assertNull("plan handled twice", previous);
+			};
+		}
+	}
+
+	private static class RandomModule extends ResultsModule {
+		public RandomModule(final int nOfThreads, final Map<Id<Person>, Double> results) {
+			super(nOfThreads, results);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return drawFrom(MatsimRandom.getLocalInstance());
+		}
+	}
+
+	private static class SharedRandomModule extends ResultsModule {
+		private final Random sharedRandom = new Random(4711);
+		public SharedRandomModule(final int nOfThreads, final Map<Id<Person>, Double> results) {
+			super(nOfThreads, results);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return drawFrom(this.sharedRandom);
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
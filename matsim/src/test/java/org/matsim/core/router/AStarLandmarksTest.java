@@ -20,11 +20,19 @@
 
 package org.matsim.core.router;
 
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.scenario.ScenarioUtils;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 
@@ -36,4 +44,59 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	public void testPreProcessLandmarks_cache() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		PreProcessLandmarks computed = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		computed.setCacheDirectory(getOutputDirectory());
+		computed.run(network);
+		assertEquals(1, new File(getOutputDirectory()).listFiles((dir, name) -> name.startsWith("landmarks_")).length);
+
+		PreProcessLandmarks cached = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		cached.setCacheDirectory(getOutputDirectory());
+		cached.run(network);
+
+		assertEquals(computed.getLandmarks().length, cached.getLandmarks().length);
+		for (int i = 0; i < computed.getLandmarks().length; i++) {
+			assertSame(computed.getLandmarks()[i], cached.getLandmarks()[i]);
+		}
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < computed.getLandmarks().length; i++) {
+				assertEquals(computed.getNodeData(node).getMinLandmarkTravelTime(i), cached.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(computed.getNodeData(node).getMaxLandmarkTravelTime(i), cached.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+	}
+
+	public void testPreProcessLandmarks_cacheDependsOnTravelZone() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		for (Rectangle2D.Double travelZone : new Rectangle2D.Double[] {
+				// zones around node 1 and node 13
+				new Rectangle2D.Double(-20001, -1, 2, 2), new Rectangle2D.Double(4999, -1, 2, 2) }) {
+			PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator, travelZone, 4);
+			preProcessData.setCacheDirectory(getOutputDirectory());
+			preProcessData.run(network);
+		}
+		assertEquals(2, new File(getOutputDirectory()).listFiles((dir, name) -> name.startsWith("landmarks_")).length);
+	}
+
+	public void testFactory_cacheDirectoryFromConfig() {
+		Config config = loadConfig(null);
+		config.controler().setLandmarksCacheDirectory(getOutputDirectory());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		new AStarLandmarksFactory(config.global(), config.controler()).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		assertEquals(1, new File(getOutputDirectory()).listFiles((dir, name) -> name.startsWith("landmarks_")).length);
+	}
+
 }
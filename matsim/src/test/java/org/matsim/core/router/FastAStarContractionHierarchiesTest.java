@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class FastAStarContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	private static final Logger log = Logger.getLogger(FastAStarContractionHierarchiesTest.class);
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new FastAStarContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Routes between random nodes of the berlin test scenario, with costs above the minimal costs on some links, and
+	 * compares the costs to Dijkstra. Also logs the computation times compared to FastAStarLandmarks.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelDisutility congested = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				double factor = (link.getId().index() % 3 == 0 && time > 7 * 3600 && time < 9 * 3600) ? 3.0 : 1.0;
+				return factor * freespeed.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return freespeed.getLinkMinimumTravelDisutility(link);
+			}
+		};
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		int n = 500;
+		Node[] fromNodes = new Node[n];
+		Node[] toNodes = new Node[n];
+		for (int i = 0; i < n; i++) {
+			fromNodes[i] = nodes.get(random.nextInt(nodes.size()));
+			toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, congested, freespeed);
+		long start = System.currentTimeMillis();
+		LeastCostPathCalculator landmarks = new FastAStarLandmarksFactory(1).createPathCalculator(network, congested, freespeed);
+		long landmarksPreProcessing = System.currentTimeMillis() - start;
+		start = System.currentTimeMillis();
+		LeastCostPathCalculator hierarchies = new FastAStarContractionHierarchiesFactory().createPathCalculator(network, congested, freespeed);
+		long hierarchiesPreProcessing = System.currentTimeMillis() - start;
+
+		double[] expectedCosts = new double[n];
+		for (int i = 0; i < n; i++) {
+			Path path = dijkstra.calcLeastCostPath(fromNodes[i], toNodes[i], 8.0 * 3600, null, null);
+			expectedCosts[i] = path == null ? Double.POSITIVE_INFINITY : path.travelCost;
+		}
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < n; i++) {
+			landmarks.calcLeastCostPath(fromNodes[i], toNodes[i], 8.0 * 3600, null, null);
+		}
+		long landmarksRouting = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < n; i++) {
+			Path path = hierarchies.calcLeastCostPath(fromNodes[i], toNodes[i], 8.0 * 3600, null, null);
+			double cost = path == null ? Double.POSITIVE_INFINITY : path.travelCost;
+			assertEquals("wrong costs from node " + fromNodes[i].getId() + " to node " + toNodes[i].getId(), expectedCosts[i], cost, 1e-6);
+		}
+		long hierarchiesRouting = System.currentTimeMillis() - start;
+
+		log.info("FastAStarLandmarks: preprocessing " + landmarksPreProcessing + " ms, " + n + " routes " + landmarksRouting + " ms.");
+		log.info("FastAStarContractionHierarchies: preprocessing " + hierarchiesPreProcessing + " ms, " + n + " routes " + hierarchiesRouting + " ms.");
+	}
+
+	/**
+	 * The hierarchy is shared by all routers of the factory. A router with lower minimal costs than the first one must
+	 * still find the least cost paths.
+	 */
+	public void testLowerMinimalCostsAfterFirstRouter() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelDisutility expensive = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return getLinkMinimumTravelDisutility(link);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				double factor = link.getId().index() % 2 == 0 ? 5.0 : 1.0;
+				return factor * freespeed.getLinkMinimumTravelDisutility(link);
+			}
+		};
+
+		FastAStarContractionHierarchiesFactory factory = new FastAStarContractionHierarchiesFactory();
+		factory.createPathCalculator(network, expensive, freespeed);
+		LeastCostPathCalculator hierarchies = factory.createPathCalculator(network, freespeed, freespeed);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, freespeed, freespeed);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			Node fromNode = nodes.get(random.nextInt(nodes.size()));
+			Node toNode = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 8.0 * 3600, null, null);
+			Path path = hierarchies.calcLeastCostPath(fromNode, toNode, 8.0 * 3600, null, null);
+			assertEquals("wrong costs from node " + fromNode.getId() + " to node " + toNode.getId(),
+					expected == null ? Double.POSITIVE_INFINITY : expected.travelCost,
+					path == null ? Double.POSITIVE_INFINITY : path.travelCost, 1e-6);
+		}
+	}
+}
@@ -161,6 +161,34 @@ public class RoutingIT {
 		});
 	}
 
+	@Test
+	public void testFastAStarContractionHierarchies() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastAStarContractionHierarchies";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastAStarContractionHierarchiesFactory();
+			}
+		});
+	}
+
+	@Test
+	public void testSpeedyDijkstra() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "SpeedyDijkstra";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new SpeedyDijkstraFactory();
+			}
+		});
+	}
+
 	private void doTest(final RouterProvider provider) {
 //		final Config config = loadConfig("test/input/" + this.getClass().getCanonicalName().replace('.', '/') + "/config.xml");
 		final Config config = ConfigUtils.loadConfig( utils.getClassInputDirectory() + "/config.xml" );
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class SpeedyDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new SpeedyDijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Two routers on the same graph must find the same paths as Dijkstra and MultiNodeDijkstra, including routes with
+	 * multiple start and end nodes.
+	 */
+	public void testSameRoutesAsDijkstra() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		SpeedyDijkstraFactory factory = new SpeedyDijkstraFactory();
+		SpeedyDijkstra speedy1 = factory.createPathCalculator(network, freespeed, freespeed);
+		SpeedyDijkstra speedy2 = factory.createPathCalculator(network, freespeed, freespeed);
+		assertSame(factory.getGraph(network), factory.getGraph(network));
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, freespeed, freespeed);
+		MultiNodeDijkstra multiNodeDijkstra = (MultiNodeDijkstra) new MultiNodeDijkstraFactory().createPathCalculator(network, freespeed, freespeed);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			Node fromNode = nodes.get(random.nextInt(nodes.size()));
+			Node toNode = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 7.0 * 3600, null, null);
+			assertSamePath(expected, (i % 2 == 0 ? speedy1 : speedy2).calcLeastCostPath(fromNode, toNode, 7.0 * 3600, null, null));
+
+			List<InitialNode> fromNodes = new ArrayList<>();
+			List<InitialNode> toNodes = new ArrayList<>();
+			for (int j = 0; j < 3; j++) {
+				fromNodes.add(new InitialNode(nodes.get(random.nextInt(nodes.size())), 10.0 * j, 10.0 * j));
+				toNodes.add(new InitialNode(nodes.get(random.nextInt(nodes.size())), 10.0 * j, 10.0 * j));
+			}
+			Node fromImaginary = MultiNodeDijkstra.createImaginaryNode(fromNodes);
+			Node toImaginary = MultiNodeDijkstra.createImaginaryNode(toNodes);
+			expected = multiNodeDijkstra.calcLeastCostPath(fromImaginary, toImaginary, 7.0 * 3600, null, null);
+			assertSamePath(expected, speedy1.calcLeastCostPath(fromImaginary, toImaginary, 7.0 * 3600, null, null));
+		}
+	}
+
+	private static void assertSamePath(final Path expected, final Path actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+		assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+		assertEquals(expected.nodes, actual.nodes);
+		assertEquals(expected.links, actual.links);
+	}
+}
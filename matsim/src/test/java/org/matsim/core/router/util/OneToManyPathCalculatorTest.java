@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.SpeedyGraph;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class OneToManyPathCalculatorTest {
+
+	private final FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+	@Test
+	public void testForwardAndBackward_sameAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		SpeedyGraph graph = new SpeedyGraph(network);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, this.freespeed, this.freespeed);
+		OneToManyPathCalculator forward = new OneToManyPathCalculator(graph, this.freespeed, this.freespeed, true);
+		OneToManyPathCalculator backward = new OneToManyPathCalculator(graph, this.freespeed, this.freespeed, false);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		Node[] toNodes = new Node[50];
+		for (int i = 0; i < toNodes.length; i++) {
+			toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+		double[] times = new double[toNodes.length];
+		double[] costs = new double[toNodes.length];
+		double[] distances = new double[toNodes.length];
+
+		for (int n = 0; n < 5; n++) {
+			Node node = nodes.get(random.nextInt(nodes.size()));
+
+			forward.calcLeastCostPaths(node, toNodes, 8 * 3600, null, null, times, costs, distances);
+			for (int i = 0; i < toNodes.length; i++) {
+				Path expected = dijkstra.calcLeastCostPath(node, toNodes[i], 8 * 3600, null, null);
+				assertSameResult(expected, times[i], costs[i], distances[i]);
+				assertSamePath(expected, forward.constructPath(toNodes[i]));
+			}
+
+			backward.calcLeastCostPaths(node, toNodes, 8 * 3600, null, null, times, costs, null);
+			for (int i = 0; i < toNodes.length; i++) {
+				Path expected = dijkstra.calcLeastCostPath(toNodes[i], node, 8 * 3600, null, null);
+				Assert.assertEquals(expected == null ? Double.POSITIVE_INFINITY : expected.travelCost, costs[i], 1e-6);
+				Assert.assertEquals(expected == null ? Double.POSITIVE_INFINITY : expected.travelTime, times[i], 1e-6);
+				Path path = backward.constructPath(toNodes[i]);
+				if (path != null) {
+					Assert.assertEquals(toNodes[i], path.getFromNode());
+					Assert.assertEquals(node, path.getToNode());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatrix_sameAsOneToMany() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		SpeedyGraph graph = new SpeedyGraph(network);
+		OneToManyPathCalculator oneToMany = new OneToManyPathCalculator(graph, this.freespeed, this.freespeed, true);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		Node[] fromNodes = new Node[20];
+		Node[] toNodes = new Node[30];
+		for (int i = 0; i < fromNodes.length; i++) {
+			fromNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+		for (int i = 0; i < toNodes.length; i++) {
+			toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+
+		ManyToManyPathCalculator.Matrix matrix = new ManyToManyPathCalculator(graph, this.freespeed, this.freespeed, 4).calcMatrix(fromNodes, toNodes, 0.0);
+		Assert.assertEquals(fromNodes.length, matrix.getFromCount());
+		Assert.assertEquals(toNodes.length, matrix.getToCount());
+
+		double[] times = new double[toNodes.length];
+		double[] costs = new double[toNodes.length];
+		double[] distances = new double[toNodes.length];
+		for (int from = 0; from < fromNodes.length; from++) {
+			oneToMany.calcLeastCostPaths(fromNodes[from], toNodes, 0.0, null, null, times, costs, distances);
+			for (int to = 0; to < toNodes.length; to++) {
+				Assert.assertEquals(times[to], matrix.getTravelTime(from, to), 0.0);
+				Assert.assertEquals(costs[to], matrix.getTravelCost(from, to), 0.0);
+				Assert.assertEquals(distances[to], matrix.getTravelDistance(from, to), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testUnreachableAndDuplicateTargets() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(200, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(300, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), n1, n2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), n2, n3, 200, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), n4, n3, 100, 10, 1000, 1);
+
+		OneToManyPathCalculator calculator = new OneToManyPathCalculator(new SpeedyGraph(network), this.freespeed, this.freespeed, true);
+		Node[] toNodes = {n3, n1, n4, n3};
+		double[] times = new double[toNodes.length];
+		double[] distances = new double[toNodes.length];
+		calculator.calcLeastCostPaths(n1, toNodes, 0.0, null, null, times, null, distances);
+
+		Assert.assertEquals(30.0, times[0], 1e-9);
+		Assert.assertEquals(300.0, distances[0], 1e-9);
+		Assert.assertEquals(0.0, times[1], 1e-9);
+		Assert.assertEquals(0.0, distances[1], 1e-9);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, times[2], 0.0);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, distances[2], 0.0);
+		Assert.assertEquals(30.0, times[3], 1e-9);
+		Assert.assertNull(calculator.constructPath(n4));
+		Assert.assertEquals(2, calculator.constructPath(n3).links.size());
+		Assert.assertEquals(0, calculator.constructPath(n1).links.size());
+	}
+
+	private static void assertSameResult(final Path expected, final double time, final double cost, final double distance) {
+		if (expected == null) {
+			Assert.assertEquals(Double.POSITIVE_INFINITY, cost, 0.0);
+			return;
+		}
+		double expectedDistance = 0.0;
+		for (Link link : expected.links) {
+			expectedDistance += link.getLength();
+		}
+		Assert.assertEquals(expected.travelTime, time, 1e-6);
+		Assert.assertEquals(expected.travelCost, cost, 1e-6);
+		Assert.assertEquals(expectedDistance, distance, 1e-6);
+	}
+
+	private static void assertSamePath(final Path expected, final Path actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+			return;
+		}
+		Assert.assertEquals(expected.nodes, actual.nodes);
+		Assert.assertEquals(expected.links, actual.links);
+	}
+}
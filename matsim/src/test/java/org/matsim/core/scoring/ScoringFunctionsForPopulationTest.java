@@ -21,31 +21,58 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.FacilitiesConfigGroup;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser / Simunto GmbH
  */
 public class ScoringFunctionsForPopulationTest {
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testTripScoring() {
 		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
@@ -92,6 +119,180 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testShardedScoring_sameAsSingleThreaded_equil() {
+		Config config = ConfigUtils.createConfig();
+		config.facilities().setFacilitiesSource(FacilitiesConfigGroup.FacilitiesSource.onePerActivityLinkInPlansFile);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(scenario).readFile("test/scenarios/equil/plans100.xml");
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<Event> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) events::add);
+		new QSimBuilder(config).useDefaults().build(scenario, eventsManager).run();
+		events.add(new PersonMoneyEvent(events.get(events.size() - 1).getTime(), Id.createPersonId(1), -2.5, "toll", "operator"));
+
+		assertSameScores(scenario, events);
+	}
+
+	@Test
+	public void testShardedScoring_sameAsSingleThreaded_sharedVehicle() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		Population population = scenario.getPopulation();
+		// make sure the passengers end up in other shards than the driver
+		Id<Person> driverId = Id.createPersonId("driver");
+		Id<Person> passenger1 = createPersonIdInOtherShard("passenger1-", driverId, 4);
+		Id<Person> passenger2 = createPersonIdInOtherShard("passenger2-", driverId, 4);
+		for (Id<Person> personId : List.of(driverId, passenger1, passenger2)) {
+			population.addPerson(population.getFactory().createPerson(personId));
+		}
+		Id<Vehicle> vehicleId = Id.create("v", Vehicle.class);
+
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(100, driverId, link(1), null, "home"));
+		events.add(new PersonDepartureEvent(100, driverId, link(1), TransportMode.car));
+		events.add(new PersonEntersVehicleEvent(100, driverId, vehicleId));
+		events.add(new VehicleEntersTrafficEvent(100, driverId, link(1), vehicleId, TransportMode.car, 1.0));
+		events.add(new LinkEnterEvent(110, vehicleId, link(6)));
+		events.add(new LinkEnterEvent(200, vehicleId, link(15)));
+		// the first passenger is picked up while the vehicle stays in traffic
+		events.add(new ActivityEndEvent(250, passenger1, link(15), null, "home"));
+		events.add(new PersonDepartureEvent(250, passenger1, link(15), TransportMode.ride));
+		events.add(new PersonEntersVehicleEvent(250, passenger1, vehicleId));
+		events.add(new LinkEnterEvent(300, vehicleId, link(20)));
+		events.add(new VehicleLeavesTrafficEvent(350, driverId, link(20), vehicleId, TransportMode.car, 0.5));
+		// the second passenger is picked up while the vehicle is parked
+		events.add(new ActivityEndEvent(400, passenger2, link(20), null, "home"));
+		events.add(new PersonDepartureEvent(400, passenger2, link(20), TransportMode.ride));
+		events.add(new PersonEntersVehicleEvent(400, passenger2, vehicleId));
+		events.add(new PersonLeavesVehicleEvent(410, passenger1, vehicleId));
+		events.add(new PersonArrivalEvent(410, passenger1, link(20), TransportMode.ride));
+		events.add(new ActivityStartEvent(410, passenger1, link(20), null, "work"));
+		events.add(new VehicleEntersTrafficEvent(420, driverId, link(20), vehicleId, TransportMode.car, 0.5));
+		events.add(new LinkEnterEvent(450, vehicleId, link(21)));
+		events.add(new VehicleLeavesTrafficEvent(500, driverId, link(21), vehicleId, TransportMode.car, 1.0));
+		events.add(new PersonLeavesVehicleEvent(500, passenger2, vehicleId));
+		events.add(new PersonArrivalEvent(500, passenger2, link(21), TransportMode.ride));
+		events.add(new ActivityStartEvent(500, passenger2, link(21), null, "work"));
+		events.add(new PersonLeavesVehicleEvent(500, driverId, vehicleId));
+		events.add(new PersonArrivalEvent(500, driverId, link(21), TransportMode.car));
+		events.add(new ActivityStartEvent(500, driverId, link(21), null, "work"));
+
+		assertSameScores(scenario, events);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testShardedScoring_exceptionPropagates() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Id<Person> personId = Id.createPersonId(1);
+		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		ScoringFunctionFactory throwingFactory = person -> new RecordingScoringFunction() {
+			@Override
+			public void addMoney(double amount) {
+				throw new IllegalStateException();
+			}
+		};
+		score(scenario, List.of(new PersonMoneyEvent(3600.0, personId, 3.4, "tollRefund", "operator")), throwingFactory, 4);
+	}
+
+	private static Id<Link> link(int id) {
+		return Id.create(id, Link.class);
+	}
+
+	private static Id<Person> createPersonIdInOtherShard(String prefix, Id<Person> personId, int numberOfShards) {
+		for (int i = 0; ; i++) {
+			Id<Person> candidate = Id.createPersonId(prefix + i);
+			if (candidate.index() % numberOfShards != personId.index() % numberOfShards) {
+				return candidate;
+			}
+		}
+	}
+
+	private static void assertSameScores(Scenario scenario, List<Event> events) {
+		ScoringFunctionFactory factory = person -> new LoggingScoringFunction();
+		ScoringFunctionsForPopulation expected = score(scenario, events, factory, 1);
+		for (int numberOfShards : new int[] { 2, 4 }) {
+			ScoringFunctionsForPopulation actual = score(scenario, events, factory, numberOfShards);
+			for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+				String expectedLog = ((LoggingScoringFunction) expected.getScoringFunctionForAgent(personId)).log.toString();
+				String actualLog = ((LoggingScoringFunction) actual.getScoringFunctionForAgent(personId)).log.toString();
+				Assert.assertTrue("nothing scored for " + personId, expectedLog.contains("leg"));
+				Assert.assertEquals("different scoring of " + personId + " with " + numberOfShards + " shards", expectedLog, actualLog);
+			}
+		}
+	}
+
+	private static ScoringFunctionsForPopulation score(Scenario scenario, List<Event> events, ScoringFunctionFactory factory, int numberOfShards) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsToActivities eventsToActivities = new EventsToActivities(controlerListenerManager);
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		eventsManager.addHandler(new EventsToLegsAndActivities(eventsToLegs, eventsToActivities));
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager,
+				eventsToActivities, eventsToLegs, scenario.getPopulation(), factory, numberOfShards);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		eventsManager.initProcessing();
+		events.forEach(eventsManager::processEvent);
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		sf.finishScoringFunctions();
+		return sf;
+	}
+
+	/**
+	 * Records everything passed to the scoring function, in the order it is passed.
+	 */
+	private static class LoggingScoringFunction implements ScoringFunction {
+
+		final StringBuilder log = new StringBuilder();
+
+		@Override
+		public void handleActivity(Activity activity) {
+			this.log.append("act ").append(activity.getType()).append(' ').append(activity.getStartTime())
+					.append(' ').append(activity.getEndTime()).append('\n');
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			this.log.append("leg ").append(leg.getMode()).append(' ').append(leg.getDepartureTime())
+					.append(' ').append(leg.getTravelTime()).append(' ').append(leg.getRoute().getRouteDescription())
+					.append(' ').append(leg.getRoute().getDistance()).append('\n');
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			this.log.append("trip ").append(trip.getTripElements().size()).append('\n');
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			this.log.append("stuck ").append(time).append('\n');
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			this.log.append("money ").append(amount).append('\n');
+		}
+
+		@Override
+		public void finish() {
+			this.log.append("finish\n");
+		}
+
+		@Override
+		public double getScore() {
+			return this.log.length();
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			this.log.append(event.getEventType()).append(' ').append(event.getTime()).append('\n');
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedDataContainerProviderTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class IndexedDataContainerProviderTest {
+
+	private static final int NUM_SLOTS = 24;
+
+	@Test
+	public void testSameValuesAsTravelTimeDataArray() {
+		Network network = NetworkUtils.createNetwork();
+		Link link = createLinks(network, "same", 1).get(0);
+		IndexedDataContainerProvider provider = new IndexedDataContainerProvider(network, NUM_SLOTS);
+
+		TravelTimeData indexed = provider.getTravelTimeData(link, true);
+		TravelTimeDataArray array = new TravelTimeDataArray(link, NUM_SLOTS);
+		for (TravelTimeData data : new TravelTimeData[] { indexed, array }) {
+			data.addTravelTime(3, 12.0);
+			data.addTravelTime(3, 15.0);
+			data.setTravelTime(5, 7.0);
+		}
+		for (int slot = 0; slot < NUM_SLOTS; slot++) {
+			Assert.assertEquals(array.getTravelTime(slot, 0.0), indexed.getTravelTime(slot, 0.0), 0.0);
+		}
+		Assert.assertTrue(indexed.isNeedingConsolidation());
+	}
+
+	/**
+	 * Readers run without the lock and store the freespeed fallback for empty slots. This must never overwrite a travel
+	 * time which a handler stores at the same time, also not while the arrays of a stripe are grown for new links.
+	 */
+	@Test
+	public void testConcurrentReadsAndWrites() throws Exception {
+		Network network = NetworkUtils.createNetwork();
+		List<Link> links = createLinks(network, "initial", 200);
+		IndexedDataContainerProvider provider = new IndexedDataContainerProvider(network, NUM_SLOTS);
+		// created after the provider, so the stripes have to grow while the readers are running
+		List<Link> lateLinks = createLinks(network, "late", 2000);
+
+		final double freespeedTravelTime = 10.0;
+		final double travelTime = 42.0;
+		final int rounds = 20;
+		final int readers = 3;
+
+		CyclicBarrier start = new CyclicBarrier(readers + 1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+
+		threads.add(new Thread(() -> {
+			try {
+				start.await();
+				for (int round = 0; round < rounds; round++) {
+					provider.resetTravelTimes();
+					for (Link link : links) {
+						for (int slot = 0; slot < NUM_SLOTS; slot++) {
+							provider.getTravelTimeData(link, true).setTravelTime(slot, travelTime);
+						}
+					}
+				}
+				for (Link link : lateLinks) {
+					for (int slot = 0; slot < NUM_SLOTS; slot++) {
+						provider.getTravelTimeData(link, true).addTravelTime(slot, travelTime);
+					}
+				}
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			}
+		}));
+		for (int r = 0; r < readers; r++) {
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					for (int round = 0; round < rounds; round++) {
+						for (List<Link> list : List.of(links, lateLinks)) {
+							for (Link link : list) {
+								TravelTimeData data = provider.getTravelTimeData(link, true);
+								for (int slot = 0; slot < NUM_SLOTS; slot++) {
+									double tt = data.getTravelTime(slot, 0.0);
+									if (tt != freespeedTravelTime && tt != travelTime) {
+										throw new AssertionError("unexpected travel time " + tt);
+									}
+								}
+							}
+						}
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+
+		for (List<Link> list : List.of(links, lateLinks)) {
+			for (Link link : list) {
+				TravelTimeData data = provider.getTravelTimeData(link, false);
+				for (int slot = 0; slot < NUM_SLOTS; slot++) {
+					Assert.assertEquals("travel time of link " + link.getId() + " was overwritten", travelTime,
+							data.getTravelTime(slot, 0.0), 0.0);
+				}
+			}
+		}
+	}
+
+	private static List<Link> createLinks(Network network, String prefix, int count) {
+		List<Link> links = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Node from = NetworkUtils.createNode(Id.createNodeId(prefix + "_" + i + "_from"), new Coord(0, i));
+			Node to = NetworkUtils.createNode(Id.createNodeId(prefix + "_" + i + "_to"), new Coord(100, i));
+			network.addNode(from);
+			network.addNode(to);
+			// length 100, freespeed 10 => freespeed travel time 10
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(prefix + "_" + i), from, to, 100, 10, 1000, 1));
+		}
+		return links;
+	}
+}
@@ -129,6 +129,37 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
 	}
 
+	public final void testTravelTimeCalculator_IndexedArray_Optimistic() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		// same results as with TravelTimeDataArray
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		scenario.getConfig().travelTimeCalculator().setTravelTimeCalculatorType( TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorIndexedArray.name() );
+		TimeSlotComputation travelTimeAggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new AveragingTravelTimeGetter( travelTimeAggregator ) ;
+		doTravelTimeCalculatorTest(scenario, null,
+				travelTimeAggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
+	public final void testTravelTimeCalculator_IndexedArray_Optimistic_LinearInterpolation() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		scenario.getConfig().travelTimeCalculator().setTravelTimeCalculatorType( TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorIndexedArray.name() );
+		TimeSlotComputation aggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new LinearInterpolatingTravelTimeGetter( numSlots, binSize, aggregator );
+		doTravelTimeCalculatorTest(scenario, null,
+				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
 //	public final void testTravelTimeCalculator_HashMap_Pessimistic() throws IOException {
 //		String compareFile;
 //		MutableScenario scenario;
@@ -184,10 +215,20 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 
 		EventsManager events2 = EventsUtils.createEventsManager();
 
-		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, endTime, scenario.getConfig().travelTimeCalculator());
+		TravelTimeCalculator ttcalc;
+		if (ttDataFactory != null) {
+			ttcalc = new TravelTimeCalculator(network, timeBinSize, endTime, scenario.getConfig().travelTimeCalculator());
+			ttcalc.setTtDataFactory( ttDataFactory );
+		} else {
+			// storage as configured
+			TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder( network );
+			builder.setTimeslice( timeBinSize );
+			builder.setMaxTime( endTime );
+			builder.configure( scenario.getConfig().travelTimeCalculator() );
+			ttcalc = builder.build();
+		}
 		ttcalc.travelTimeGetter = travelTimeGetter ;
 		ttcalc.aggregator = aggregator ;
-		ttcalc.setTtDataFactory( ttDataFactory );
 		events2.addHandler(ttcalc);
 		events2.initProcessing();
 		for (Event e : collector.getEvents()) {